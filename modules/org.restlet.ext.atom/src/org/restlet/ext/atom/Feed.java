@@ -36,6 +36,7 @@ package org.restlet.ext.atom;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import org.restlet.Client;
@@ -86,6 +87,11 @@ public class Feed extends SaxRepresentation {
      */
     private List<Entry> entries;
 
+    /**
+     * Additional entries, pulled one at a time while the feed is written.
+     */
+    private volatile Iterator<Entry> entryIterator;
+
     /** The agent used to generate a feed. */
     private volatile Generator generator;
 
@@ -132,6 +138,7 @@ public class Feed extends SaxRepresentation {
         this.title = null;
         this.updated = null;
         this.entries = null;
+        this.entryIterator = null;
     }
 
     /**
@@ -292,6 +299,19 @@ public class Feed extends SaxRepresentation {
         return e;
     }
 
+    /**
+     * Returns the additional entries, pulled one at a time and written after
+     * the ones returned by {@link #getEntries()}. As each entry is written as
+     * soon as it is produced, large feeds can be written in constant memory.
+     * Note that such a feed can only be written once.
+     * 
+     * @return The additional entries, pulled one at a time while the feed is
+     *         written.
+     */
+    public Iterator<Entry> getEntryIterator() {
+        return this.entryIterator;
+    }
+
     /**
      * Returns the agent used to generate a feed.
      * 
@@ -409,6 +429,18 @@ public class Feed extends SaxRepresentation {
         setBaseReference(new Reference(baseUri));
     }
 
+    /**
+     * Sets the additional entries, pulled one at a time and written after the
+     * ones returned by {@link #getEntries()}.
+     * 
+     * @param entryIterator
+     *            The additional entries, pulled one at a time while the feed
+     *            is written.
+     */
+    public void setEntryIterator(Iterator<Entry> entryIterator) {
+        this.entryIterator = entryIterator;
+    }
+
     /**
      * Sets the agent used to generate a feed.
      * 
@@ -457,7 +489,7 @@ public class Feed extends SaxRepresentation {
      *            The information about rights held in and over an feed.
      */
     public void setRights(String rights) {
-        setRights(rights);
+        setRights(new Text(rights));
     }
 
     /**
@@ -618,6 +650,14 @@ public class Feed extends SaxRepresentation {
             }
         }
 
+        Iterator<Entry> entryIterator = getEntryIterator();
+
+        if (entryIterator != null) {
+            while (entryIterator.hasNext()) {
+                entryIterator.next().writeElement(writer);
+            }
+        }
+
         writer.endElement(ATOM_NAMESPACE, "feed");
     }
 
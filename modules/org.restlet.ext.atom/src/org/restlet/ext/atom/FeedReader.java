@@ -44,7 +44,9 @@ import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Content reader for feeds that is able to transmit events to another
- * FeedReader.
+ * FeedReader. In order to process large feeds without keeping all their
+ * entries in memory, override {@link #endEntry(Entry)} to handle each entry
+ * and {@link #isRetained(Entry)} to discard it.
  * 
  * @author Thierry Boileau
  */
@@ -183,6 +185,26 @@ public class FeedReader extends DefaultHandler {
         }
     }
 
+    /**
+     * Indicates if the given entry, once read, must be added to the entries of
+     * the parsed feed. By default, it relays the question to the extra handler
+     * and returns true if there is none. Returning false allows large feeds to
+     * be consumed in constant memory, each entry being discarded once handled
+     * by {@link #endEntry(Entry)}.
+     * 
+     * @param entry
+     *            The current entry.
+     * @return True if the entry must be added to the entries of the feed.
+     */
+    public boolean isRetained(Entry entry) {
+        // Send the event to the extra handler.
+        if (this.feedReader != null) {
+            return this.feedReader.isRetained(entry);
+        }
+
+        return true;
+    }
+
     @Override
     public void notationDecl(String name, String publicId, String systemId)
             throws SAXException {
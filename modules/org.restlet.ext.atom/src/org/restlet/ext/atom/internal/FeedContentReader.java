@@ -301,12 +301,15 @@ public class FeedContentReader extends FeedReader {
 
                 endLink(this.currentLink);
             } else if (localName.equalsIgnoreCase("entry")) {
+                endEntry(this.currentEntry);
+
                 if (this.state == State.FEED_ENTRY) {
-                    this.currentFeed.getEntries().add(this.currentEntry);
+                    if (isRetained(this.currentEntry)) {
+                        this.currentFeed.getEntries().add(this.currentEntry);
+                    }
+
                     this.state = State.FEED;
                 }
-
-                endEntry(this.currentEntry);
             } else if (localName.equals("category")) {
                 if (this.state == State.FEED_CATEGORY) {
                     this.currentFeed.getCategories().add(this.currentCategory);
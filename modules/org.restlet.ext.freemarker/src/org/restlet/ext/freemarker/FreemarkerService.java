@@ -0,0 +1,253 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.freemarker;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.restlet.Application;
+import org.restlet.engine.util.TemplateCache;
+import org.restlet.representation.Representation;
+import org.restlet.service.Service;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+/**
+ * Application service sharing a single FreeMarker configuration and caching
+ * the templates parsed from representations, as described in
+ * {@link TemplateCache}.<br>
+ * <br>
+ * The {@link TemplateRepresentation} constructors rely on the service
+ * registered in the services of the current application. Otherwise, they rely
+ * on a fallback service private to the current application, or on a new
+ * service when there is no current application. The {@link TemplateFilter}
+ * only shares the configuration of a registered service, using its own
+ * configuration otherwise. To share a configuration, add a service to the
+ * application's services during its setup.
+ * 
+ * @author Jerome Louvel
+ */
+public class FreemarkerService extends Service {
+
+    /** The default maximum number of cached templates. */
+    public static final int DEFAULT_MAX_TEMPLATES = TemplateCache.DEFAULT_MAX_SIZE;
+
+    /** The services used by the applications which have none registered. */
+    private static final Map<Application, FreemarkerService> FALLBACKS = new WeakHashMap<Application, FreemarkerService>();
+
+    /**
+     * Returns the FreeMarker service registered in the services of the current
+     * application. If it has no such service, a fallback service private to
+     * the application is returned. If there is no current application, a new
+     * service is returned.
+     * 
+     * @return The FreeMarker service of the current application.
+     */
+    public static FreemarkerService getCurrent() {
+        FreemarkerService result = getRegistered();
+
+        if (result == null) {
+            Application application = Application.getCurrent();
+
+            if (application == null) {
+                result = new FreemarkerService();
+            } else {
+                synchronized (FALLBACKS) {
+                    result = FALLBACKS.get(application);
+
+                    if (result == null) {
+                        result = new FreemarkerService();
+                        FALLBACKS.put(application, result);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the FreeMarker service registered in the services of the current
+     * application.
+     * 
+     * @return The registered FreeMarker service or null.
+     */
+    static FreemarkerService getRegistered() {
+        Application application = Application.getCurrent();
+        return (application == null) ? null : application.getServices().get(
+                FreemarkerService.class);
+    }
+
+    /** The shared FreeMarker configuration. */
+    private volatile Configuration configuration;
+
+    /** The cached templates. */
+    private final TemplateCache<Template> templates;
+
+    /**
+     * Constructor.
+     */
+    public FreemarkerService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public FreemarkerService(boolean enabled) {
+        super(enabled);
+        this.configuration = new Configuration();
+        this.templates = new TemplateCache<Template>();
+    }
+
+    /**
+     * Removes all the cached templates.
+     */
+    public void clear() {
+        this.templates.clear();
+    }
+
+    /**
+     * Returns the shared FreeMarker configuration.
+     * 
+     * @return The shared FreeMarker configuration.
+     */
+    public Configuration getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Returns the maximum number of cached templates. The least recently used
+     * templates are removed when this size is exceeded. Default value is
+     * {@link #DEFAULT_MAX_TEMPLATES}.
+     * 
+     * @return The maximum number of cached templates.
+     */
+    public int getMaxTemplates() {
+        return this.templates.getMaxSize();
+    }
+
+    /**
+     * Returns a FreeMarker template from a representation, using the shared
+     * configuration.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The template or null if not found.
+     * @see #getTemplate(Configuration, Representation)
+     */
+    public Template getTemplate(Representation templateRepresentation) {
+        return getTemplate(getConfiguration(), templateRepresentation);
+    }
+
+    /**
+     * Returns a FreeMarker template from a representation and a
+     * configuration. If a valid template parsed from the same location
+     * reference is cached, it is returned and the template representation is
+     * released without being read.
+     * 
+     * @param config
+     *            The FreeMarker configuration.
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The template or null if not found.
+     */
+    public Template getTemplate(Configuration config,
+            Representation templateRepresentation) {
+        Template result = null;
+
+        if (templateRepresentation != null) {
+            if (isEnabled()) {
+                result = this.templates.get(config, templateRepresentation);
+            }
+
+            if (result == null) {
+                result = TemplateRepresentation.getTemplate(config,
+                        templateRepresentation);
+
+                if (isEnabled()) {
+                    this.templates.put(config, templateRepresentation, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a FreeMarker template from its name, using the shared
+     * configuration. The template is cached by the configuration itself.
+     * 
+     * @param templateName
+     *            The template name.
+     * @return The template or null if not found.
+     */
+    public Template getTemplate(String templateName) {
+        return TemplateRepresentation.getTemplate(getConfiguration(),
+                templateName);
+    }
+
+    /**
+     * Sets the shared FreeMarker configuration. The cached templates are
+     * removed.
+     * 
+     * @param configuration
+     *            The shared FreeMarker configuration.
+     */
+    public void setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+        clear();
+    }
+
+    /**
+     * Sets the maximum number of cached templates.
+     * 
+     * @param maxTemplates
+     *            The maximum number of cached templates.
+     */
+    public void setMaxTemplates(int maxTemplates) {
+        this.templates.setMaxSize(maxTemplates);
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+        clear();
+    }
+
+}
@@ -50,7 +50,8 @@ import freemarker.template.TemplateHashModel;
  * representation. By default, the template representation provides a data model
  * based on the request and response objects. In order for the wrapping to
  * happen, the representations must have the {@link Encoding#FREEMARKER}
- * encoding set.<br>
+ * encoding set. The parsed templates are cached by the
+ * {@link FreemarkerService} of the current application.<br>
  * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
@@ -60,7 +61,10 @@ import freemarker.template.TemplateHashModel;
  */
 public class TemplateFilter extends Filter {
 
-    /** The FreeMarker configuration. */
+    /**
+     * The FreeMarker configuration, or null to use the one of the registered
+     * {@link FreemarkerService}.
+     */
     private volatile Configuration configuration;
 
     /** The template's data model. */
@@ -71,7 +75,6 @@ public class TemplateFilter extends Filter {
      */
     public TemplateFilter() {
         super();
-        this.configuration = new Configuration();
     }
 
     /**
@@ -82,7 +85,6 @@ public class TemplateFilter extends Filter {
      */
     public TemplateFilter(Context context) {
         super(context);
-        this.configuration = new Configuration();
     }
 
     /**
@@ -95,7 +97,6 @@ public class TemplateFilter extends Filter {
      */
     public TemplateFilter(Context context, Restlet next) {
         super(context, next);
-        this.configuration = new Configuration();
     }
 
     /**
@@ -135,7 +136,7 @@ public class TemplateFilter extends Filter {
                 && response.getEntity().getEncodings().contains(
                         Encoding.FREEMARKER)) {
             TemplateRepresentation representation = new TemplateRepresentation(
-                    response.getEntity(), this.configuration, response
+                    response.getEntity(), getConfiguration(), response
                             .getEntity().getMediaType());
             representation.setDataModel(createDataModel(request, response));
             response.setEntity(representation);
@@ -168,12 +169,33 @@ public class TemplateFilter extends Filter {
     }
 
     /**
-     * Returns the FreeMarker configuration.
+     * Returns the FreeMarker configuration. By default, it returns the
+     * configuration shared by the {@link FreemarkerService} registered in the
+     * current application. If there is none, a configuration private to this
+     * filter is created.
      * 
      * @return The FreeMarker configuration.
      */
     public Configuration getConfiguration() {
-        return this.configuration;
+        Configuration result = this.configuration;
+
+        if (result == null) {
+            FreemarkerService service = FreemarkerService.getRegistered();
+
+            if (service != null) {
+                result = service.getConfiguration();
+            } else {
+                synchronized (this) {
+                    if (this.configuration == null) {
+                        this.configuration = new Configuration();
+                    }
+
+                    result = this.configuration;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
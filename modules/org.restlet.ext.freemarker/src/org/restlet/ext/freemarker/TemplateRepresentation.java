@@ -117,7 +117,8 @@ public class TemplateRepresentation extends WriterRepresentation {
     private volatile Template template;
 
     /**
-     * Constructor.
+     * Constructor. The template is parsed only if it isn't cached by the
+     * current {@link FreemarkerService}.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
@@ -128,11 +129,13 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public TemplateRepresentation(Representation templateRepresentation,
             Configuration config, MediaType mediaType) {
-        this(getTemplate(config, templateRepresentation), mediaType);
+        this(FreemarkerService.getCurrent().getTemplate(config,
+                templateRepresentation), mediaType);
     }
 
     /**
-     * Constructor.
+     * Constructor. The template is parsed only if it isn't cached by the
+     * current {@link FreemarkerService}.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
@@ -145,11 +148,13 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public TemplateRepresentation(Representation templateRepresentation,
             Configuration config, Object dataModel, MediaType mediaType) {
-        this(getTemplate(config, templateRepresentation), dataModel, mediaType);
+        this(FreemarkerService.getCurrent().getTemplate(config,
+                templateRepresentation), dataModel, mediaType);
     }
 
     /**
-     * Constructor.
+     * Constructor. Uses the configuration of the current
+     * {@link FreemarkerService}.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
@@ -158,11 +163,13 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public TemplateRepresentation(Representation templateRepresentation,
             MediaType mediaType) {
-        this(templateRepresentation, new Configuration(), mediaType);
+        this(FreemarkerService.getCurrent().getTemplate(
+                templateRepresentation), mediaType);
     }
 
     /**
-     * Constructor. Uses a default FreeMarker configuration.
+     * Constructor. Uses the configuration of the current
+     * {@link FreemarkerService}.
      * 
      * @param templateRepresentation
      *            The FreeMarker template provided via a representation.
@@ -173,7 +180,8 @@ public class TemplateRepresentation extends WriterRepresentation {
      */
     public TemplateRepresentation(Representation templateRepresentation,
             Object dataModel, MediaType mediaType) {
-        this(templateRepresentation, new Configuration(), dataModel, mediaType);
+        this(FreemarkerService.getCurrent().getTemplate(
+                templateRepresentation), dataModel, mediaType);
     }
 
     /**
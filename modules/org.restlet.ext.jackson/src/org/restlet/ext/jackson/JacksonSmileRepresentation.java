@@ -35,12 +35,16 @@ package org.restlet.ext.jackson;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
 
 import org.restlet.data.MediaType;
+import org.restlet.ext.jackson.internal.JacksonUtils;
 import org.restlet.representation.OutputRepresentation;
 import org.restlet.representation.Representation;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonGenerator.Feature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
@@ -49,6 +53,14 @@ import com.fasterxml.jackson.dataformat.smile.SmileFactory;
  * Representation based on the Jackson library. It can serialize and deserialize
  * automatically in Jackson smile format.
  * 
+ * <br>
+ * When the wrapped object is an {@link Iterator}, its elements are written one
+ * after the other as an array, without collecting them first. Other objects,
+ * including {@link Iterable} ones such as collections or tree nodes, are bound
+ * as a whole. Symmetrically, {@link #getObjects()} parses an array
+ * incrementally. This allows large collections to be exchanged with a
+ * constant memory usage.
+ * 
  * @see <a href="http://jackson.codehaus.org/">Jackson project</a>
  * @author Jerome Louvel
  * @param <T>
@@ -143,6 +155,29 @@ public class JacksonSmileRepresentation<T> extends OutputRepresentation {
         return result;
     }
 
+    /**
+     * Returns an iterator over the wrapped objects. If the representation to
+     * parse contains an array, each of its elements is deserialized with
+     * Jackson only when the iterator reaches it, so the whole array is never
+     * held in memory. Otherwise, the iterator returns the successive root
+     * values of the representation.
+     * 
+     * @return An iterator over the wrapped objects.
+     * @throws IOException
+     */
+    public Iterator<T> getObjects() throws IOException {
+        Iterator<T> result = null;
+
+        if (this.object != null) {
+            result = Collections.singletonList(this.object).iterator();
+        } else if (this.jsonRepresentation != null) {
+            result = JacksonUtils.readObjects(getObjectMapper(),
+                    this.jsonRepresentation.getStream(), this.objectClass);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the object class to instantiate.
      * 
@@ -200,9 +235,24 @@ public class JacksonSmileRepresentation<T> extends OutputRepresentation {
     public void write(OutputStream outputStream) throws IOException {
         if (jsonRepresentation != null) {
             jsonRepresentation.write(outputStream);
+        } else if (object instanceof Iterator<?>) {
+            writeObjects(getObjectMapper().getJsonFactory()
+                    .createJsonGenerator(outputStream));
         } else if (object != null) {
             getObjectMapper().writeValue(outputStream, object);
         }
+    }
 
+    /**
+     * Writes the elements of the wrapped iterator as an array. Each element is
+     * serialized as soon as it is returned by the iterator.
+     * 
+     * @param generator
+     *            The JSON generator to write to.
+     * @throws IOException
+     */
+    protected void writeObjects(JsonGenerator generator) throws IOException {
+        JacksonUtils.writeObjects(getObjectMapper(), generator,
+                (Iterator<?>) object);
     }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.jackson.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Streaming utilities shared by the Jackson representations.
+ * 
+ * @author Jerome Louvel
+ */
+public final class JacksonUtils {
+
+    /**
+     * Returns an iterator over the values parsed from a stream. If the stream
+     * contains an array, each of its elements is deserialized only when the
+     * iterator reaches it. Otherwise, the iterator returns the successive root
+     * values of the stream.
+     * 
+     * @param <T>
+     *            The type of the values.
+     * @param objectMapper
+     *            The Jackson object mapper.
+     * @param inputStream
+     *            The stream to parse.
+     * @param objectClass
+     *            The class of the values.
+     * @return An iterator over the parsed values.
+     * @throws IOException
+     */
+    public static <T> Iterator<T> readObjects(ObjectMapper objectMapper,
+            InputStream inputStream, Class<T> objectClass) throws IOException {
+        JsonParser parser = objectMapper.getJsonFactory().createJsonParser(
+                inputStream);
+
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            // Iterate over the array elements instead of the array
+            parser.clearCurrentToken();
+        }
+
+        return objectMapper.reader(objectClass).readValues(parser);
+    }
+
+    /**
+     * Writes the elements returned by an iterator as an array. Each element is
+     * serialized as soon as it is returned by the iterator, without flushing
+     * the generator after each of them. The generator is closed at the end.
+     * 
+     * @param objectMapper
+     *            The Jackson object mapper.
+     * @param generator
+     *            The generator to write to.
+     * @param iterator
+     *            The iterator over the elements to write.
+     * @throws IOException
+     */
+    public static void writeObjects(ObjectMapper objectMapper,
+            JsonGenerator generator, Iterator<?> iterator) throws IOException {
+        ObjectWriter objectWriter = objectMapper.writer().without(
+                SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try {
+            generator.writeStartArray();
+
+            while (iterator.hasNext()) {
+                objectWriter.writeValue(generator, iterator.next());
+            }
+
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility
+     * class i.e. it isn't instantiable and extensible.
+     */
+    private JacksonUtils() {
+    }
+}
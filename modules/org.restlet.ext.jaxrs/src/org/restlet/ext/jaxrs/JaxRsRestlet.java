@@ -35,7 +35,6 @@ package org.restlet.ext.jaxrs;
 
 import static org.restlet.ext.jaxrs.internal.util.AlgorithmUtil.addPathVarsToMap;
 import static org.restlet.ext.jaxrs.internal.util.AlgorithmUtil.getBestMethod;
-import static org.restlet.ext.jaxrs.internal.util.AlgorithmUtil.getFirstByNoOfLiteralCharsNoOfCapturingGroups;
 import static org.restlet.ext.jaxrs.internal.util.AlgorithmUtil.removeNotSupportedHttpMethod;
 import static org.restlet.ext.jaxrs.internal.util.Util.copyResponseHeaders;
 import static org.restlet.ext.jaxrs.internal.util.Util.getMediaType;
@@ -91,7 +90,7 @@ import org.restlet.ext.jaxrs.internal.util.Converter;
 import org.restlet.ext.jaxrs.internal.util.ExceptionHandler;
 import org.restlet.ext.jaxrs.internal.util.JaxRsOutputRepresentation;
 import org.restlet.ext.jaxrs.internal.util.MatchingResult;
-import org.restlet.ext.jaxrs.internal.util.PathRegExp;
+import org.restlet.ext.jaxrs.internal.util.PathIndex;
 import org.restlet.ext.jaxrs.internal.util.RemainingPath;
 import org.restlet.ext.jaxrs.internal.util.SortedMetadata;
 import org.restlet.ext.jaxrs.internal.util.Util;
@@ -918,33 +917,17 @@ public class JaxRsRestlet extends Restlet {
     private RroRemPathAndMatchedPath identifyRootResource(RemainingPath u)
             throws WebApplicationException, RequestHandledException {
         // 1. Identify the root resource class:
-        // (a)
-        // c: Set<Class>: root resource classes
-        // e: Set<RegExp>
-        // Map<UriTemplateRegExp, Class> eAndCs = new HashMap();
-        Collection<RootResourceClass> eAndCs = new ArrayList<RootResourceClass>();
-        // (a) and (b) and (c) Filter E
-        for (RootResourceClass rootResourceClass : this.resourceClasses.roots()) {
-            // Map.Entry<UriTemplateRegExp, Class> eAndC = eAndCIter.next();
-            // UriTemplateRegExp regExp = eAndC.getKey();
-            // Class clazz = eAndC.getValue();
-            PathRegExp rrcPathRegExp = rootResourceClass.getPathRegExp();
-            MatchingResult matchingResult = rrcPathRegExp.match(u);
-            if (matchingResult == null)
-                continue; // doesn't match
-            if (matchingResult.getFinalCapturingGroup().isEmptyOrSlash())
-                eAndCs.add(rootResourceClass);
-            else if (rootResourceClass.hasSubResourceMethodsOrLocators())
-                eAndCs.add(rootResourceClass);
-        }
+        // (a), (b) and (c) Filter E, (e) sort E: the index only evaluates the
+        // root resource classes sharing a literal prefix with U, by
+        // decreasing precedence, so the first accepted match is the best one
+        PathIndex.Match<RootResourceClass> match = this.resourceClasses
+                .getRootIndex().match(u);
         // (d)
-        if (eAndCs.isEmpty())
+        if (match == null)
             excHandler.rootResourceNotFound();
-        // (e) and (f)
-        RootResourceClass tClass = getFirstByNoOfLiteralCharsNoOfCapturingGroups(eAndCs);
         // (f)
-        PathRegExp rMatch = tClass.getPathRegExp();
-        MatchingResult matchResult = rMatch.match(u);
+        RootResourceClass tClass = match.getElement();
+        MatchingResult matchResult = match.getMatchingResult();
         u = matchResult.getFinalCapturingGroup();
         addPathVarsToMap(matchResult, tlContext.get());
         ResourceObject o = instantiateRrc(tClass);
@@ -1107,29 +1090,18 @@ public class JaxRsRestlet extends Restlet {
                 return new ResObjAndRemPath(o, u);
             }
             // (b) Set C = class ofO,E = {}
-            Collection<ResourceMethodOrLocator> eWithMethod = new ArrayList<ResourceMethodOrLocator>();
             // (c) and (d) Filter E: remove members do not match U or final
-            // match not empty
-            for (ResourceMethodOrLocator methodOrLocator : resClass
-                    .getResourceMethodsAndLocators()) {
-                PathRegExp pathRegExp = methodOrLocator.getPathRegExp();
-                MatchingResult matchingResult = pathRegExp.match(u);
-                if (matchingResult == null)
-                    continue;
-                if (matchingResult.getFinalCapturingGroup().isEmptyOrSlash())
-                    eWithMethod.add(methodOrLocator);
-                // the following is added by Stephan (is not in spec 2008-03-06)
-                else if (methodOrLocator instanceof SubResourceLocator)
-                    eWithMethod.add(methodOrLocator);
-            }
+            // match not empty, (f) sort E: the index evaluates the members
+            // by decreasing precedence, so the first accepted match is the
+            // best one
+            PathIndex.Match<ResourceMethodOrLocator> match = resClass
+                    .getResourceMethodsAndLocatorsIndex().match(u);
             // (e) If E is empty -> HTTP 404
-            if (eWithMethod.isEmpty())
+            if (match == null)
                 excHandler.resourceNotFound();// NICE (o.getClass(), u);
-            // (f) and (g) sort E, use first member of E
-            ResourceMethodOrLocator firstMeth = getFirstByNoOfLiteralCharsNoOfCapturingGroups(eWithMethod);
-
-            PathRegExp rMatch = firstMeth.getPathRegExp();
-            MatchingResult matchingResult = rMatch.match(u);
+            // (g) use first member of E
+            ResourceMethodOrLocator firstMeth = match.getElement();
+            MatchingResult matchingResult = match.getMatchingResult();
 
             addPathVarsToMap(matchingResult, callContext);
 
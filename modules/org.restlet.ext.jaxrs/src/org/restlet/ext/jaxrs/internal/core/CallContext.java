@@ -220,6 +220,12 @@ public class CallContext implements javax.ws.rs.core.Request, HttpHeaders,
 
     private List<PathSegment> pathSegmentsEncoded = null;
 
+    /** The encoded query form, parsed once for all the &#64;QueryParams. */
+    private Form queryForm;
+
+    /** The query string {@link #queryForm} was parsed from. */
+    private String queryFormString;
+
     private MultivaluedMap<String, String> queryParametersDecoded;
 
     private MultivaluedMap<String, String> queryParametersEncoded;
@@ -981,6 +987,23 @@ public class CallContext implements javax.ws.rs.core.Request, HttpHeaders,
         return this.pathSegmentsEncoded;
     }
 
+    /**
+     * Returns the encoded query parameters of the resource reference of the
+     * current request. The form is parsed once and shared by all the
+     * &#64;{@link javax.ws.rs.QueryParam} annotated parameters.
+     * 
+     * @return the encoded query parameters, must not be modified.
+     */
+    public Form getQueryForm() {
+        final String queryString = this.request.getResourceRef().getQuery();
+        if ((this.queryForm == null)
+                || !Util.equals(queryString, this.queryFormString)) {
+            this.queryForm = Converter.toFormEncoded(queryString);
+            this.queryFormString = queryString;
+        }
+        return this.queryForm;
+    }
+
     /**
      * Get the URI query parameters of the current request. All sequences of
      * escaped octets are decoded, equivalent to
@@ -0,0 +1,322 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.jaxrs.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.ext.jaxrs.internal.wrappers.RrcOrRml;
+import org.restlet.ext.jaxrs.internal.wrappers.SubResourceLocator;
+
+/**
+ * Precompiled index of root resource classes or sub resource methods and
+ * locators by path. The literal prefixes of the paths are stored in a trie, so
+ * that only the regular expressions of the candidates sharing a prefix with
+ * the given path are evaluated. The candidates are evaluated by decreasing
+ * precedence, as defined by the JAX-RS specification (2008-04-16), section
+ * 3.7.2 "Request Matching", Part 1e and Part 2f, so that the first accepted
+ * match is the best one. Instances are immutable.
+ * 
+ * @author Jerome Louvel
+ * @param <R>
+ *            the type of the indexed root resource classes or sub resource
+ *            methods and locators.
+ * @see AlgorithmUtil#getFirstByNoOfLiteralCharsNoOfCapturingGroups(Collection)
+ */
+public class PathIndex<R extends RrcOrRml> {
+
+    /**
+     * The result of a matching, containing the best element and the
+     * corresponding matching result.
+     * 
+     * @param <R>
+     *            the type of the indexed elements.
+     */
+    public static class Match<R extends RrcOrRml> {
+
+        private final R element;
+
+        private final MatchingResult matchingResult;
+
+        /**
+         * Creates a new Match.
+         * 
+         * @param element
+         *            the matching element.
+         * @param matchingResult
+         *            the corresponding matching result.
+         */
+        private Match(R element, MatchingResult matchingResult) {
+            this.element = element;
+            this.matchingResult = matchingResult;
+        }
+
+        /**
+         * @return the matching element.
+         */
+        public R getElement() {
+            return this.element;
+        }
+
+        /**
+         * @return the matching result of the element path.
+         */
+        public MatchingResult getMatchingResult() {
+            return this.matchingResult;
+        }
+    }
+
+    /** A node of the literal prefix trie. */
+    private static class Node {
+
+        /** The child nodes, by next char. */
+        private final Map<Character, Node> children = new HashMap<Character, Node>(
+                4);
+
+        /** The indexes of the elements with a prefix ending at this node. */
+        private int[] indexes = new int[0];
+
+        /**
+         * Adds an element index to this node.
+         * 
+         * @param index
+         *            the element index to add.
+         */
+        private void add(int index) {
+            this.indexes = Arrays.copyOf(this.indexes, this.indexes.length + 1);
+            this.indexes[this.indexes.length - 1] = index;
+        }
+    }
+
+    /**
+     * Compares the elements by decreasing precedence: number of literal chars,
+     * then number of capturing groups, then number of capturing groups with
+     * non default regular expressions, then resource methods ahead of sub
+     * resource locators.
+     */
+    private static final Comparator<RrcOrRml> PRECEDENCE = new Comparator<RrcOrRml>() {
+        public int compare(RrcOrRml e1, RrcOrRml e2) {
+            final PathRegExp p1 = e1.getPathRegExp();
+            final PathRegExp p2 = e2.getPathRegExp();
+            int result = p2.getNoOfLiteralChars() - p1.getNoOfLiteralChars();
+            if (result == 0) {
+                result = p2.getNoOfCapturingGroups()
+                        - p1.getNoOfCapturingGroups();
+            }
+            if (result == 0) {
+                result = p2.getNoNonDefCaprGroups()
+                        - p1.getNoNonDefCaprGroups();
+            }
+            if (result == 0) {
+                result = rank(e1) - rank(e2);
+            }
+            return result;
+        }
+
+        private int rank(RrcOrRml element) {
+            // prefer methods ahead locators
+            return (element instanceof SubResourceLocator) ? 1 : 0;
+        }
+    };
+
+    /** The indexed elements, in declaration order. */
+    private final List<R> declared;
+
+    /** The indexed elements, by decreasing precedence. */
+    private final List<R> elements;
+
+    /** The positions of the indexed elements in declaration order. */
+    private final int[] positions;
+
+    /** The root node of the literal prefix trie. */
+    private final Node root;
+
+    /**
+     * Creates a new index.
+     * 
+     * @param elements
+     *            the elements to index, in declaration order.
+     */
+    public PathIndex(Collection<? extends R> elements) {
+        this.declared = new ArrayList<R>(elements);
+        final Integer[] order = new Integer[this.declared.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // the sort is stable, so equal elements keep the declaration order
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return PRECEDENCE.compare(declared.get(i1), declared.get(i2));
+            }
+        });
+        this.elements = new ArrayList<R>(order.length);
+        this.positions = new int[order.length];
+        this.root = new Node();
+        for (int i = 0; i < order.length; i++) {
+            final R element = this.declared.get(order[i]);
+            this.elements.add(element);
+            this.positions[i] = order[i];
+            final String prefix = element.getPathRegExp().getLiteralPrefix();
+            Node node = this.root;
+            for (int j = 0; j < prefix.length(); j++) {
+                final Character c = prefix.charAt(j);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.add(i);
+        }
+    }
+
+    /**
+     * Checks if a matching element is acceptable. By default, the final
+     * capturing group must be empty or a slash.
+     * 
+     * @param element
+     *            the matching element.
+     * @param matchingResult
+     *            the matching result of the element path.
+     * @return true, if the element is acceptable.
+     */
+    protected boolean accept(R element, MatchingResult matchingResult) {
+        return matchingResult.getFinalCapturingGroup().isEmptyOrSlash();
+    }
+
+    /**
+     * Returns the indexes of the elements which literal prefix is a prefix of
+     * the given path, by decreasing precedence.
+     * 
+     * @param path
+     *            the path without matrix parameters.
+     * @return the sorted indexes of the candidate elements.
+     */
+    private int[] getCandidates(String path) {
+        int[] candidates = this.root.indexes;
+        int count = candidates.length;
+        boolean copied = false;
+        Node node = this.root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.indexes.length > 0) {
+                if (!copied) {
+                    candidates = Arrays.copyOf(candidates, this.elements.size());
+                    copied = true;
+                }
+                System.arraycopy(node.indexes, 0, candidates, count,
+                        node.indexes.length);
+                count += node.indexes.length;
+            }
+        }
+        if (copied) {
+            candidates = Arrays.copyOf(candidates, count);
+            Arrays.sort(candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the indexed elements, by decreasing precedence.
+     */
+    public List<R> getElements() {
+        return Collections.unmodifiableList(this.elements);
+    }
+
+    /**
+     * Returns the acceptable element with the highest precedence matching the
+     * given path, and the corresponding matching result. Each regular
+     * expression is evaluated at most once.
+     * 
+     * @param remainingPath
+     *            the remaining path to match.
+     * @return the best match or null, if no element matches.
+     */
+    public Match<R> match(RemainingPath remainingPath) {
+        for (int index : getCandidates(remainingPath.getWithoutParams())) {
+            final R element = this.elements.get(index);
+            final MatchingResult matchingResult = element.getPathRegExp()
+                    .match(remainingPath);
+            if ((matchingResult != null) && accept(element, matchingResult)) {
+                return new Match<R>(element, matchingResult);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all the acceptable elements matching the given path, in
+     * declaration order. The regular expression shared by several elements is
+     * only evaluated once.
+     * 
+     * @param remainingPath
+     *            the remaining path to match.
+     * @return the matching elements, never null.
+     */
+    public List<R> matchAll(RemainingPath remainingPath) {
+        final int[] candidates = getCandidates(remainingPath.getWithoutParams());
+        final int[] matching = new int[candidates.length];
+        int count = 0;
+        final Map<PathRegExp, MatchingResult> results = new HashMap<PathRegExp, MatchingResult>();
+        for (int index : candidates) {
+            final R element = this.elements.get(index);
+            final PathRegExp pathRegExp = element.getPathRegExp();
+            MatchingResult matchingResult = results.get(pathRegExp);
+            if ((matchingResult == null) && !results.containsKey(pathRegExp)) {
+                matchingResult = pathRegExp.match(remainingPath);
+                results.put(pathRegExp, matchingResult);
+            }
+            if ((matchingResult != null) && accept(element, matchingResult)) {
+                matching[count++] = this.positions[index];
+            }
+        }
+        // restore the declaration order
+        Arrays.sort(matching, 0, count);
+        final List<R> result = new ArrayList<R>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(this.declared.get(matching[i]));
+        }
+        return result;
+    }
+}
@@ -141,6 +141,12 @@ public class PathRegExp {
 
     private final boolean emptyOrSlash;
 
+    /**
+     * The literal chars every matching path starts with, used to index the
+     * paths.
+     */
+    private final String literalPrefix;
+
     /** Contains the number of literal chars in this Regular Expression */
     private final Integer noLitChars;
 
@@ -192,8 +198,12 @@ public class PathRegExp {
             forStart = 1;
         int noLitChars = 0;
         int numberOfCapturingGroups = 0;
+        int literalPrefixEnd = -1;
         for (int i = forStart; i < l; i++) {
             final char c = pathTemplate.charAt(i);
+            if ((literalPrefixEnd < 0) && !isLiteralPrefixChar(c)) {
+                literalPrefixEnd = i;
+            }
             if (c == '{') {
                 i = processTemplVarname(pathTemplate, i, pathPattern,
                         pathForExcMess);
@@ -222,6 +232,8 @@ public class PathRegExp {
         }
         this.noLitChars = noLitChars;
         this.noOfCapturingGroups = numberOfCapturingGroups;
+        this.literalPrefix = pathTemplate.substring(forStart,
+                (literalPrefixEnd < 0) ? l : literalPrefixEnd);
         // 4. If the resulting string ends with "/" then remove the final char.
         // 5. Append "(/.*)?" to the result.
         if (pathPattern.length() > 0
@@ -261,6 +273,16 @@ public class PathRegExp {
         return this.pattern.pattern().equals(otherRegExp.pattern.pattern());
     }
 
+    /**
+     * Returns the literal chars every path matching this regular expression
+     * starts with. It could be empty, but never null.
+     * 
+     * @return the literal chars every matching path starts with.
+     */
+    public String getLiteralPrefix() {
+        return this.literalPrefix;
+    }
+
     /**
      * @return the number of capturing groups with regular expressions that are
      *         not the default.
@@ -315,6 +337,20 @@ public class PathRegExp {
         return this.emptyOrSlash;
     }
 
+    /**
+     * Checks if the given char of a path template is matched literally and
+     * unchanged, and could be used in the literal prefix.
+     * 
+     * @param c
+     *            the char to check.
+     * @return true, if the char could be used in the literal prefix.
+     */
+    private static boolean isLiteralPrefixChar(char c) {
+        return ((c >= 'A') && (c <= 'Z')) || ((c >= 'a') && (c <= 'z'))
+                || ((c >= '0') && (c <= '9')) || (c == '-') || (c == '_')
+                || (c == '~') || (c == '/');
+    }
+
     /**
      * Checks if this regular expression matches the given remaining path.
      * 
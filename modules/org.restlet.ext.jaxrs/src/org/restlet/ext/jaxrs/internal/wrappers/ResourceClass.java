@@ -58,6 +58,8 @@ import org.restlet.ext.jaxrs.internal.exceptions.IllegalParamTypeException;
 import org.restlet.ext.jaxrs.internal.exceptions.IllegalPathOnClassException;
 import org.restlet.ext.jaxrs.internal.exceptions.IllegalPathOnMethodException;
 import org.restlet.ext.jaxrs.internal.exceptions.MissingAnnotationException;
+import org.restlet.ext.jaxrs.internal.util.MatchingResult;
+import org.restlet.ext.jaxrs.internal.util.PathIndex;
 import org.restlet.ext.jaxrs.internal.util.PathRegExp;
 import org.restlet.ext.jaxrs.internal.util.RemainingPath;
 import org.restlet.ext.jaxrs.internal.wrappers.provider.ExtensionBackwardMapping;
@@ -100,6 +102,19 @@ public class ResourceClass extends AbstractJaxRsWrapper {
      */
     private final Collection<ResourceMethodOrLocator> resourceMethodsAndLocators = new ArrayList<ResourceMethodOrLocator>();
 
+    /**
+     * The path index of the resource methods. (It is initialized in method.)
+     * {@link #initResourceMethodsAndLocators(ThreadLocalizedContext, JaxRsProviders, ExtensionBackwardMapping, Logger)}
+     */
+    private volatile PathIndex<ResourceMethod> resourceMethodsIndex;
+
+    /**
+     * The path index of the sub resource methods and locators. (It is
+     * initialized in method.)
+     * {@link #initResourceMethodsAndLocators(ThreadLocalizedContext, JaxRsProviders, ExtensionBackwardMapping, Logger)}
+     */
+    private volatile PathIndex<ResourceMethodOrLocator> resourceMethodsAndLocatorsIndex;
+
     /**
      * The sub resource locators of this resource class. (It is initialized in
      * method.)
@@ -312,17 +327,13 @@ public class ResourceClass extends AbstractJaxRsWrapper {
             RemainingPath remainingPath) {
         // NICE results may be chached, if any method is returned.
         // The 404 case will be called rarely and produce a lot of cached data.
+        if (!remainingPath.isEmptyOrSlash()) {
+            return this.resourceMethodsIndex.matchAll(remainingPath);
+        }
         final List<ResourceMethod> resourceMethods = new ArrayList<ResourceMethod>();
         for (final ResourceMethod method : this.resourceMethods) {
-            final PathRegExp methodPath = method.getPathRegExp();
-            if (remainingPath.isEmptyOrSlash()) {
-                if (methodPath.isEmptyOrSlash()) {
-                    resourceMethods.add(method);
-                }
-            } else {
-                if (methodPath.matchesWithEmpty(remainingPath)) {
-                    resourceMethods.add(method);
-                }
+            if (method.getPathRegExp().isEmptyOrSlash()) {
+                resourceMethods.add(method);
             }
         }
         return resourceMethods;
@@ -349,6 +360,17 @@ public class ResourceClass extends AbstractJaxRsWrapper {
         return this.resourceMethodsAndLocators;
     }
 
+    /**
+     * Returns the path index of the sub resource methods and locators. A sub
+     * resource method is acceptable if the final capturing group is empty or a
+     * slash, a sub resource locator is always acceptable.
+     * 
+     * @return Returns the path index of the sub resource methods and locators.
+     */
+    public final PathIndex<ResourceMethodOrLocator> getResourceMethodsAndLocatorsIndex() {
+        return this.resourceMethodsAndLocatorsIndex;
+    }
+
     /**
      * @return Returns the sub resource locators of the given class.
      */
@@ -446,6 +468,19 @@ public class ResourceClass extends AbstractJaxRsWrapper {
                         + ". Ignoring this method. (" + e.getMessage() + ")");
             }
         }
+        this.resourceMethodsIndex = new PathIndex<ResourceMethod>(
+                this.resourceMethods);
+        this.resourceMethodsAndLocatorsIndex = new PathIndex<ResourceMethodOrLocator>(
+                this.resourceMethodsAndLocators) {
+            @Override
+            protected boolean accept(ResourceMethodOrLocator methodOrLocator,
+                    MatchingResult matchingResult) {
+                // the following is added by Stephan (is not in spec
+                // 2008-03-06)
+                return super.accept(methodOrLocator, matchingResult)
+                        || (methodOrLocator instanceof SubResourceLocator);
+            }
+        };
     }
 
     /**
@@ -52,6 +52,8 @@ import org.restlet.ext.jaxrs.internal.exceptions.IllegalPathParamTypeException;
 import org.restlet.ext.jaxrs.internal.exceptions.InjectException;
 import org.restlet.ext.jaxrs.internal.exceptions.MissingAnnotationException;
 import org.restlet.ext.jaxrs.internal.exceptions.MissingConstructorException;
+import org.restlet.ext.jaxrs.internal.util.MatchingResult;
+import org.restlet.ext.jaxrs.internal.util.PathIndex;
 import org.restlet.ext.jaxrs.internal.util.PathRegExp;
 import org.restlet.ext.jaxrs.internal.wrappers.provider.ExtensionBackwardMapping;
 import org.restlet.ext.jaxrs.internal.wrappers.provider.JaxRsProviders;
@@ -77,6 +79,12 @@ public class ResourceClasses {
      */
     private final Set<RootResourceClass> rootResourceClasses = new CopyOnWriteArraySet<RootResourceClass>();
 
+    /**
+     * The path index of the root resource classes. It is lazily created and
+     * reset each time a root resource class is added.
+     */
+    private volatile PathIndex<RootResourceClass> rootIndex;
+
     private final ThreadLocalizedContext tlContext;
 
     /**
@@ -165,7 +173,10 @@ public class ResourceClasses {
                 return false;
             }
         }
-        rootResourceClasses.add(newRrc);
+        synchronized (this.rootResourceClasses) {
+            this.rootResourceClasses.add(newRrc);
+            this.rootIndex = null;
+        }
         return true;
     }
 
@@ -249,7 +260,10 @@ public class ResourceClasses {
                 return false;
             }
         }
-        rootResourceClasses.add(newRrc);
+        synchronized (this.rootResourceClasses) {
+            this.rootResourceClasses.add(newRrc);
+            this.rootIndex = null;
+        }
         return true;
     }
 
@@ -334,6 +348,35 @@ public class ResourceClasses {
                 this.extensionBackwardMapping, Context.getCurrentLogger());
     }
 
+    /**
+     * Returns the path index of the root resource classes. A root resource
+     * class is acceptable if the final capturing group is empty or a slash, or
+     * if it has sub resource methods or locators.
+     * 
+     * @return the path index of the root resource classes.
+     */
+    public PathIndex<RootResourceClass> getRootIndex() {
+        PathIndex<RootResourceClass> result = this.rootIndex;
+        if (result == null) {
+            synchronized (this.rootResourceClasses) {
+                result = this.rootIndex;
+                if (result == null) {
+                    result = new PathIndex<RootResourceClass>(
+                            this.rootResourceClasses) {
+                        @Override
+                        protected boolean accept(RootResourceClass rrc,
+                                MatchingResult matchingResult) {
+                            return super.accept(rrc, matchingResult)
+                                    || rrc.hasSubResourceMethodsOrLocators();
+                        }
+                    };
+                    this.rootIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * @return the wrapped root resource classes
      */
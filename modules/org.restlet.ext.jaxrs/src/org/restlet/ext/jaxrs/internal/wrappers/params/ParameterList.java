@@ -38,6 +38,7 @@ import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -133,12 +134,32 @@ public class ParameterList {
          */
         protected final DefaultValue defaultValue;
 
+        /**
+         * The static valueOf(String) method of {@link #convertTo}, or the
+         * fromString(String) method for an enum, tried after the String
+         * constructor, or null if not available.
+         */
+        private final Method firstFactoryMethod;
+
         /**
          * True, if this parameter should be an array, otherwise false. If true,
          * the {@link #collType} must be set to a {@link List}.
          */
         protected final boolean isArray;
 
+        /**
+         * The static fromString(String) or valueOf(String) method of
+         * {@link #convertTo}, tried after the String constructor and the
+         * {@link #firstFactoryMethod}, or null if not available.
+         */
+        private final Method secondFactoryMethod;
+
+        /**
+         * The constructor of {@link #convertTo} with a String parameter, or
+         * null if not available.
+         */
+        private final Constructor<?> stringConstructor;
+
         protected final ThreadLocalizedContext tlContext;
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -169,6 +190,16 @@ public class ParameterList {
                 this.collType = null;
                 this.isArray = false;
             }
+            // resolve the conversion members once, instead of per request
+            final Class<?>[] stringParam = new Class<?>[] { String.class };
+            final boolean isEnum = this.convertTo.isEnum();
+            this.stringConstructor = ConstructorUtils
+                    .getMatchingAccessibleConstructor(this.convertTo,
+                            stringParam);
+            this.firstFactoryMethod = getStaticMethod(this.convertTo,
+                    isEnum ? "fromString" : "valueOf", stringParam);
+            this.secondFactoryMethod = getStaticMethod(this.convertTo,
+                    isEnum ? "valueOf" : "fromString", stringParam);
         }
 
         protected Object convertParamValue(String firstHeader)
@@ -237,23 +268,29 @@ public class ParameterList {
             	value = defaultValue.value();
             }
 
-            try {
-            	return ConstructorUtils.invokeConstructor(convertTo, value);
-            } catch (Exception e) {
-            	handleExceptionOnInvocation(value, e);
+            if (this.stringConstructor != null) {
+                try {
+                    return this.stringConstructor.newInstance(value);
+                } catch (Exception e) {
+                    handleExceptionOnInvocation(value, e);
+                }
             }
 
             // fixes for: https://github.com/restlet/restlet-framework-java/issues/645
-            try {
-            	return MethodUtils.invokeStaticMethod(convertTo, convertTo.isEnum() ? "fromString" : "valueOf", value);
-            } catch (Exception e) {
-            	handleExceptionOnInvocation(value, e);
+            if (this.firstFactoryMethod != null) {
+                try {
+                    return this.firstFactoryMethod.invoke(null, value);
+                } catch (Exception e) {
+                    handleExceptionOnInvocation(value, e);
+                }
             }
-            
-            try {
-            	return MethodUtils.invokeStaticMethod(convertTo, convertTo.isEnum() ? "valueOf" : "fromString", value);
-            } catch (Exception e) {
-            	handleExceptionOnInvocation(value, e);
+
+            if (this.secondFactoryMethod != null) {
+                try {
+                    return this.secondFactoryMethod.invoke(null, value);
+                } catch (Exception e) {
+                    handleExceptionOnInvocation(value, e);
+                }
             }
             
             throw ConvertParameterException.object(this.convertTo,
@@ -799,10 +836,7 @@ public class ParameterList {
 
         @Override
         public Object getParamValue() {
-            final Reference resourceRef = this.tlContext.get().getRequest()
-                    .getResourceRef();
-            final String queryString = resourceRef.getQuery();
-            final Form form = Converter.toFormEncoded(queryString);
+            final Form form = this.tlContext.get().getQueryForm();
             final String paramName = this.queryParam.value();
             try {
                 return super.getParamValue(form, paramName);
@@ -917,6 +951,21 @@ public class ParameterList {
         return false;
     }
 
+    /**
+     * Returns the accessible static method with the given name matching the
+     * given parameter types, or null if there is none. Instance methods are
+     * ignored, as they can't be invoked without target.
+     */
+    private static Method getStaticMethod(Class<?> clazz, String name,
+            Class<?>[] parameterTypes) {
+        final Method method = MethodUtils.getMatchingAccessibleMethod(clazz,
+                name, parameterTypes);
+        if ((method != null) && Modifier.isStatic(method.getModifiers())) {
+            return method;
+        }
+        return null;
+    }
+
     /**
      * must call the {@link EntityGetter} first, if &#64;{@link FormParam} is
      * used. A value less than zero means, that no special handling is needed.
@@ -34,11 +34,19 @@
 package org.restlet.ext.jdbc;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -50,11 +58,16 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.dbcp.ConnectionFactory;
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
 import org.apache.commons.dbcp.PoolableConnectionFactory;
+import org.apache.commons.pool.KeyedObjectPoolFactory;
 import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool.impl.GenericKeyedObjectPoolFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
@@ -62,6 +75,7 @@ import org.restlet.engine.ClientHelper;
 import org.restlet.engine.Engine;
 import org.restlet.ext.jdbc.internal.ConnectionSource;
 import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -77,12 +91,31 @@ import org.xml.sax.SAXException;
  * <p>
  * Database connections are optionally pooled using Apache Commons DBCP. In this
  * case, a different connection pool is created for each unique combination of
- * JDBC URI and connection properties.
+ * JDBC URI and connection properties. Each pooled connection also caches the
+ * prepared statements it creates, so that parameterized statements sent again
+ * are not parsed and planned again by the database.
+ * <p>
+ * A statement can either contain plain SQL or a "sql" element with "?"
+ * placeholders followed by one or several "parameters" elements. Each
+ * "parameters" element holds one "parameter" element per placeholder, typed
+ * with the name of a {@link Types} constant (VARCHAR by default) and flagged
+ * with a "null" attribute set to true for SQL NULL values. When the
+ * "batchSize" header element is positive, the parameter sets are sent to the
+ * database with {@link PreparedStatement#addBatch()}, by batches of this size.
+ * In this case, the response entity reports the outcome of each batch instead
+ * of a row set: its index, its size, the number of succeeded and failed
+ * statements and the total update count.
  * <p>
  * Paging is supported via two header elements: "start" for the index of the
  * first result (0 by default) and "limit" for the maximum number of results
  * retrieved (unlimited by default).
  * <p>
+ * Large results can be streamed by setting the "streaming" header element to
+ * true. In this case, a {@link ResultSetRepresentation} writes the rows
+ * straight from the database cursor, in XML, JSON or CSV depending on the
+ * media types accepted by the request. The "fetchSize" header element gives
+ * the number of rows fetched from the database at a time.
+ * <p>
  * Do not forget to register your JDBC drivers before using this client. See
  * {@link DriverManager} for details.
  * <p>
@@ -104,21 +137,68 @@ import org.xml.sax.SAXException;
  * &nbsp;&nbsp;&nbsp;&nbsp;{@code </connection>}<br>
  * &nbsp;&nbsp;&nbsp;&nbsp;{@code <start>10</start>}<br>
  * &nbsp;&nbsp;&nbsp;&nbsp;{@code <limit>20</limit>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{@code <streaming>false</streaming>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{@code <fetchSize>100</fetchSize>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{@code <batchSize>500</batchSize>}<br>
  * &nbsp;&nbsp;&nbsp;&nbsp;
  * {@code <returnGeneratedKeys>true</returnGeneratedKeys>}<br>
  * &nbsp;&nbsp;{@code </header>}<br>
  * &nbsp;&nbsp;{@code <body>}<br>
  * &nbsp;&nbsp;&nbsp;&nbsp;{@code <statement>UPDATE myTable SET
  * myField1="value1" </statement>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{@code <statement>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <sql>INSERT INTO myTable
+ * (myField1, myField2) VALUES (?, ?)</sql>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameters>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameter
+ * type="VARCHAR">value1</parameter>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameter
+ * type="INTEGER">1</parameter>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code </parameters>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameters>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameter
+ * type="VARCHAR">value2</parameter>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code <parameter
+ * type="INTEGER" null="true"/>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;{@code </parameters>}<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;{@code </statement>}<br>
  * &nbsp;&nbsp;&nbsp;&nbsp;{@code <statement>SELECT msField1, myField2 FROM
  * myTable</statement>}<br>
  * &nbsp;&nbsp;{@code </body>}<br>
  * {@code </request>}
  * <p>
  * Several SQL Statements can be specified. A {@link RowSetRepresentation} of
- * the last correctly executed SQL request is returned to the Client.
+ * the last correctly executed SQL request is returned to the Client, or a
+ * {@link ResultSetRepresentation} in streaming mode.
+ * <p>
+ * Sample batch report:<br>
+ * <br>
+ * {@code <batchResults>}<br>
+ * &nbsp;&nbsp;{@code <batch index="0" size="500" succeeded="500" failed="0"
+ * updateCount="500"/>}<br>
+ * {@code </batchResults>}
+ * <p>
+ * Here is the list of parameters that are supported. They should be set in the
+ * Client's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>maxCachedStatements</td>
+ * <td>int</td>
+ * <td>64</td>
+ * <td>The maximum number of prepared statements cached by each pooled
+ * connection, or 0 to disable the cache. Statements returning generated keys
+ * are not cached.</td>
+ * </tr>
+ * </table>
  * 
  * @see org.restlet.ext.jdbc.RowSetRepresentation
+ * @see org.restlet.ext.jdbc.ResultSetRepresentation
  * 
  * @author Jerome Louvel
  * @author Thierry Boileau
@@ -153,6 +233,24 @@ public class JdbcClientHelper extends ClientHelper {
      */
     public static ObjectPool createConnectionPool(String uri,
             Properties properties) {
+        return createConnectionPool(uri, properties, 0);
+    }
+
+    /**
+     * Creates a connection pool for a given connection configuration, caching
+     * the prepared statements of each pooled connection.
+     * 
+     * @param uri
+     *            The connection URI.
+     * @param properties
+     *            The connection properties.
+     * @param maxCachedStatements
+     *            The maximum number of prepared statements cached by each
+     *            pooled connection, or 0 to disable the cache.
+     * @return The new connection pool.
+     */
+    public static ObjectPool createConnectionPool(String uri,
+            Properties properties, int maxCachedStatements) {
         // Create an ObjectPool that will serve as the actual pool of
         // connections
         ObjectPool result = new GenericObjectPool(null);
@@ -162,11 +260,23 @@ public class JdbcClientHelper extends ClientHelper {
         ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(
                 uri, properties);
 
+        // Create the factory of the prepared statement pools. Each pooled
+        // connection gets its own pool, keyed by the SQL text, that keeps one
+        // idle statement per key and evicts the oldest ones when full.
+        KeyedObjectPoolFactory statementPoolFactory = null;
+
+        if (maxCachedStatements > 0) {
+            statementPoolFactory = new GenericKeyedObjectPoolFactory(null, -1,
+                    GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL, 0, 1,
+                    maxCachedStatements);
+        }
+
         // Create the PoolableConnectionFactory, which wraps the "real"
         // Connections created by the ConnectionFactory with
         // the classes that implement the pooling functionality.
         PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(
-                connectionFactory, result, null, null, false, false);
+                connectionFactory, result, statementPoolFactory, null, false,
+                false);
 
         // To remove warnings
         poolableConnectionFactory.getPool();
@@ -215,6 +325,98 @@ public class JdbcClientHelper extends ClientHelper {
         this.connectionSources = new ArrayList<ConnectionSource>();
     }
 
+    /**
+     * Executes a prepared statement once per parameter set, sending the
+     * parameter sets to the database by batches. If a batch fails, its update
+     * counts are padded with {@link Statement#EXECUTE_FAILED} and the remaining
+     * batches are not sent.
+     * 
+     * @param statement
+     *            The prepared statement to execute.
+     * @param parametersElts
+     *            The parameter sets.
+     * @param batchSize
+     *            The maximum number of parameter sets per batch.
+     * @param batchUpdateCounts
+     *            The list to update with the update counts of each batch.
+     * @throws SQLException
+     */
+    private void executeBatch(PreparedStatement statement,
+            List<Element> parametersElts, int batchSize,
+            List<int[]> batchUpdateCounts) throws SQLException {
+        int count = 0;
+
+        try {
+            for (Element parametersElt : parametersElts) {
+                setParameters(statement, parametersElt);
+                statement.addBatch();
+
+                if (++count == batchSize) {
+                    batchUpdateCounts.add(statement.executeBatch());
+                    count = 0;
+                }
+            }
+
+            if (count > 0) {
+                batchUpdateCounts.add(statement.executeBatch());
+            }
+        } catch (BatchUpdateException bue) {
+            int[] updateCounts = bue.getUpdateCounts();
+            int[] counts = new int[Math.max(count, (updateCounts == null) ? 0
+                    : updateCounts.length)];
+            Arrays.fill(counts, Statement.EXECUTE_FAILED);
+
+            if (updateCounts != null) {
+                System.arraycopy(updateCounts, 0, counts, 0,
+                        updateCounts.length);
+            }
+
+            batchUpdateCounts.add(counts);
+            throw bue;
+        } finally {
+            // Clearing the batch explicitly lets the statement cache of DBCP
+            // recycle the statement instead of discarding it
+            statement.clearBatch();
+        }
+    }
+
+    /**
+     * Returns the XML report of the batches executed by a statement.
+     * 
+     * @param batchUpdateCounts
+     *            The update counts of each batch.
+     * @return The XML report.
+     */
+    private String getBatchReport(List<int[]> batchUpdateCounts) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<batchResults>\n");
+
+        for (int i = 0; i < batchUpdateCounts.size(); i++) {
+            int[] counts = batchUpdateCounts.get(i);
+            int succeeded = 0;
+            int updateCount = 0;
+
+            for (int count : counts) {
+                if (count != Statement.EXECUTE_FAILED) {
+                    succeeded++;
+
+                    if (count > 0) {
+                        updateCount += count;
+                    }
+                }
+            }
+
+            sb.append("  <batch index=\"").append(i).append("\" size=\"")
+                    .append(counts.length).append("\" succeeded=\"")
+                    .append(succeeded).append("\" failed=\"")
+                    .append(counts.length - succeeded)
+                    .append("\" updateCount=\"").append(updateCount)
+                    .append("\"/>\n");
+        }
+
+        return sb.append("</batchResults>\n").toString();
+    }
+
     /**
      * Returns a JDBC connection.
      * 
@@ -257,7 +459,8 @@ public class JdbcClientHelper extends ClientHelper {
 
             if (result == null) {
                 // No existing connection source found
-                ConnectionSource cs = new ConnectionSource(uri, properties);
+                ConnectionSource cs = new ConnectionSource(uri, properties,
+                        getMaxCachedStatements());
                 this.connectionSources.add(cs);
                 result = cs.getConnection();
             }
@@ -268,6 +471,34 @@ public class JdbcClientHelper extends ClientHelper {
         return result;
     }
 
+    /**
+     * Returns the maximum number of prepared statements cached by each pooled
+     * connection, or 0 if the cache is disabled.
+     * 
+     * @return The maximum number of prepared statements cached by each pooled
+     *         connection.
+     */
+    public int getMaxCachedStatements() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxCachedStatements", "64"));
+    }
+
+    /**
+     * Returns the SQL type code of a {@link Types} constant name.
+     * 
+     * @param name
+     *            The name of the {@link Types} constant.
+     * @return The SQL type code.
+     * @throws SQLException
+     */
+    private int getSqlType(String name) throws SQLException {
+        try {
+            return Types.class.getField(name.trim().toUpperCase()).getInt(null);
+        } catch (Exception e) {
+            throw new SQLException("Unknown SQL type: " + name);
+        }
+    }
+
     /**
      * Handles a call.
      * 
@@ -317,6 +548,26 @@ public class JdbcClientHelper extends ClientHelper {
                         && limitNode.getTextContent().trim().length() > 0 ? Integer
                         .parseInt(limitNode.getTextContent()) : -1;
 
+                // Read the streaming settings
+                Node streamingNode = headerElt.getElementsByTagName(
+                        "streaming").item(0);
+                boolean streaming = streamingNode != null
+                        && streamingNode.getTextContent().trim()
+                                .equals("true");
+
+                Node fetchSizeNode = headerElt.getElementsByTagName(
+                        "fetchSize").item(0);
+                int fetchSize = fetchSizeNode != null
+                        && fetchSizeNode.getTextContent().trim().length() > 0 ? Integer
+                        .parseInt(fetchSizeNode.getTextContent().trim()) : 0;
+
+                // Read the batch setting
+                Node batchSizeNode = headerElt.getElementsByTagName(
+                        "batchSize").item(0);
+                int batchSize = batchSizeNode != null
+                        && batchSizeNode.getTextContent().trim().length() > 0 ? Integer
+                        .parseInt(batchSizeNode.getTextContent().trim()) : 0;
+
                 // Read the connection properties
                 NodeList propertyNodes = connectionElt
                         .getElementsByTagName("property");
@@ -346,19 +597,36 @@ public class JdbcClientHelper extends ClientHelper {
                         .getElementsByTagName("body").item(0);
                 NodeList statementNodes = bodyElt
                         .getElementsByTagName("statement");
-                List<String> sqlRequests = new ArrayList<String>();
+                List<Element> statementElts = new ArrayList<Element>();
                 for (int i = 0; i < statementNodes.getLength(); i++) {
-                    String sqlRequest = statementNodes.item(i).getTextContent();
-                    sqlRequests.add(sqlRequest);
+                    statementElts.add((Element) statementNodes.item(i));
                 }
 
                 // Execute the List of SQL requests
                 connection = getConnection(connectionURI, properties,
                         usePooling);
                 JdbcResult result = handleSqlRequests(connection,
-                        returnGeneratedKeys, sqlRequests);
-                response.setEntity(new RowSetRepresentation(result, start,
-                        limit));
+                        returnGeneratedKeys, statementElts, fetchSize,
+                        batchSize);
+
+                if ((result != null)
+                        && (result.getBatchUpdateCounts() != null)) {
+                    response.setEntity(new StringRepresentation(
+                            getBatchReport(result.getBatchUpdateCounts()),
+                            MediaType.TEXT_XML, null, CharacterSet.UTF_8));
+                    result.release();
+                } else if (streaming) {
+                    MediaType mediaType = request.getClientInfo()
+                            .getPreferredMediaType(
+                                    Arrays.asList(MediaType.TEXT_XML,
+                                            MediaType.APPLICATION_JSON,
+                                            MediaType.TEXT_CSV));
+                    response.setEntity(new ResultSetRepresentation(result,
+                            mediaType, start, limit, fetchSize));
+                } else {
+                    response.setEntity(new RowSetRepresentation(result,
+                            start, limit));
+                }
             } catch (SQLException se) {
                 getLogger().log(Level.WARNING,
                         "Error while processing the SQL request", se);
@@ -386,20 +654,106 @@ public class JdbcClientHelper extends ClientHelper {
      * 
      * @param connection
      * @param returnGeneratedKeys
-     * @param sqlRequests
+     * @param statementElts
+     *            The statement elements, holding either plain SQL or a SQL
+     *            text with its parameter sets.
+     * @param fetchSize
+     *            The number of rows fetched from the database at a time, or 0
+     *            to let the driver decide.
+     * @param batchSize
+     *            The maximum number of parameter sets sent per batch, or 0 to
+     *            execute them one at a time.
      * @return the result of the last executed SQL request
      */
     private JdbcResult handleSqlRequests(Connection connection,
-            boolean returnGeneratedKeys, List<String> sqlRequests) {
+            boolean returnGeneratedKeys, List<Element> statementElts,
+            int fetchSize, int batchSize) {
         JdbcResult result = null;
+        Statement plainStatement = null;
+        Statement statement = null;
+        Statement lastStatement = null;
+
         try {
             connection.setAutoCommit(true);
-            Statement statement = connection.createStatement();
-            for (String sqlRequest : sqlRequests) {
-                statement.execute(sqlRequest,
-                        returnGeneratedKeys ? Statement.RETURN_GENERATED_KEYS
-                                : Statement.NO_GENERATED_KEYS);
+
+            for (Element statementElt : statementElts) {
+                Node sqlNode = statementElt.getElementsByTagName("sql")
+                        .item(0);
+                List<int[]> batchUpdateCounts = null;
+                SQLException batchException = null;
+
+                if (sqlNode == null) {
+                    if (plainStatement == null) {
+                        plainStatement = connection.createStatement();
+
+                        if (fetchSize > 0) {
+                            plainStatement.setFetchSize(fetchSize);
+                        }
+                    }
+
+                    statement = plainStatement;
+                    statement
+                            .execute(
+                                    statementElt.getTextContent(),
+                                    returnGeneratedKeys ? Statement.RETURN_GENERATED_KEYS
+                                            : Statement.NO_GENERATED_KEYS);
+                } else {
+                    // Prepared statements are served by the cache of the
+                    // pooled connection, except those returning keys
+                    String sql = sqlNode.getTextContent();
+                    PreparedStatement preparedStatement = returnGeneratedKeys ? connection
+                            .prepareStatement(sql,
+                                    Statement.RETURN_GENERATED_KEYS)
+                            : connection.prepareStatement(sql);
+                    statement = preparedStatement;
+
+                    if (fetchSize > 0) {
+                        preparedStatement.setFetchSize(fetchSize);
+                    }
+
+                    NodeList parametersNodes = statementElt
+                            .getElementsByTagName("parameters");
+                    List<Element> parametersElts = new ArrayList<Element>();
+                    for (int i = 0; i < parametersNodes.getLength(); i++) {
+                        parametersElts.add((Element) parametersNodes.item(i));
+                    }
+
+                    if ((batchSize > 0) && !parametersElts.isEmpty()) {
+                        batchUpdateCounts = new ArrayList<int[]>();
+
+                        try {
+                            executeBatch(preparedStatement, parametersElts,
+                                    batchSize, batchUpdateCounts);
+                        } catch (BatchUpdateException bue) {
+                            // Report the batches executed so far
+                            batchException = bue;
+                        }
+                    } else if (parametersElts.isEmpty()) {
+                        preparedStatement.execute();
+                    } else {
+                        for (Element parametersElt : parametersElts) {
+                            setParameters(preparedStatement, parametersElt);
+                            preparedStatement.execute();
+                        }
+                    }
+                }
+
+                // Only the statement of the last result is kept open
+                if ((lastStatement != null) && (lastStatement != statement)) {
+                    if (lastStatement == plainStatement) {
+                        plainStatement = null;
+                    }
+
+                    lastStatement.close();
+                }
+
+                lastStatement = statement;
                 result = new JdbcResult(statement);
+                result.setBatchUpdateCounts(batchUpdateCounts);
+
+                if (batchException != null) {
+                    throw batchException;
+                }
             }
 
             // Commit any changes to the database
@@ -410,6 +764,10 @@ public class JdbcClientHelper extends ClientHelper {
             getLogger().log(Level.WARNING,
                     "Error while processing the SQL requests", se);
             try {
+                if ((statement != null) && (statement != lastStatement)) {
+                    statement.close();
+                }
+
                 if (!connection.getAutoCommit()) {
                     connection.rollback();
                 }
@@ -421,4 +779,87 @@ public class JdbcClientHelper extends ClientHelper {
         return result;
 
     }
+
+    /**
+     * Binds a parameter set to a prepared statement.
+     * 
+     * @param statement
+     *            The prepared statement.
+     * @param parametersElt
+     *            The element holding one parameter element per placeholder.
+     * @throws SQLException
+     */
+    private void setParameters(PreparedStatement statement,
+            Element parametersElt) throws SQLException {
+        NodeList parameterNodes = parametersElt
+                .getElementsByTagName("parameter");
+
+        for (int i = 0; i < parameterNodes.getLength(); i++) {
+            Element parameterElt = (Element) parameterNodes.item(i);
+            String type = parameterElt.getAttribute("type");
+            int sqlType = (type.length() > 0) ? getSqlType(type)
+                    : Types.VARCHAR;
+            int index = i + 1;
+
+            if ("true".equals(parameterElt.getAttribute("null"))) {
+                statement.setNull(index, sqlType);
+                continue;
+            }
+
+            String value = parameterElt.getTextContent();
+
+            try {
+                switch (sqlType) {
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                    statement.setString(index, value);
+                    break;
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    statement.setBoolean(index,
+                            Boolean.parseBoolean(value.trim()));
+                    break;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    statement.setInt(index, Integer.parseInt(value.trim()));
+                    break;
+                case Types.BIGINT:
+                    statement.setLong(index, Long.parseLong(value.trim()));
+                    break;
+                case Types.REAL:
+                    statement.setFloat(index, Float.parseFloat(value.trim()));
+                    break;
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    statement.setDouble(index,
+                            Double.parseDouble(value.trim()));
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    statement.setBigDecimal(index,
+                            new BigDecimal(value.trim()));
+                    break;
+                case Types.DATE:
+                    statement.setDate(index, Date.valueOf(value.trim()));
+                    break;
+                case Types.TIME:
+                    statement.setTime(index, Time.valueOf(value.trim()));
+                    break;
+                case Types.TIMESTAMP:
+                    statement.setTimestamp(index,
+                            Timestamp.valueOf(value.trim()));
+                    break;
+                default:
+                    statement.setObject(index, value, sqlType);
+                    break;
+                }
+            } catch (IllegalArgumentException iae) {
+                // Also covers the NumberFormatException
+                throw new SQLException("Invalid " + type + " value for parameter "
+                        + index + ": " + value);
+            }
+        }
+    }
 }
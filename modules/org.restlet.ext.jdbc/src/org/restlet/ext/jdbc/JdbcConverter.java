@@ -40,6 +40,7 @@ import java.util.List;
 
 import javax.sql.rowset.WebRowSet;
 
+import org.restlet.data.MediaType;
 import org.restlet.engine.converter.ConverterHelper;
 import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Representation;
@@ -48,7 +49,8 @@ import org.restlet.resource.Resource;
 
 /**
  * A converter helper to convert from {@link WebRowSet}, {@link JdbcResult} or
- * {@link ResultSet} objects to Representation.
+ * {@link ResultSet} objects to Representation. Results are streamed as JSON or
+ * CSV when one of these media types is requested.
  * 
  * @author Thierry Boileau
  */
@@ -89,7 +91,23 @@ public class JdbcConverter extends ConverterHelper {
     @Override
     public Representation toRepresentation(Object source, Variant target,
             Resource resource) throws IOException {
-        if (source instanceof WebRowSet) {
+        MediaType mediaType = (target == null) ? null : target.getMediaType();
+
+        if ((MediaType.APPLICATION_JSON.equals(mediaType, true) || MediaType.TEXT_CSV
+                .equals(mediaType, true))
+                && (source instanceof JdbcResult || source instanceof ResultSet)) {
+            // Stream the rows in the requested format
+            try {
+                return (source instanceof JdbcResult) ? new ResultSetRepresentation(
+                        (JdbcResult) source, mediaType)
+                        : new ResultSetRepresentation((ResultSet) source,
+                                mediaType);
+            } catch (SQLException e) {
+                throw new IOException(
+                        "Cannot convert the JdbcResult source object as a ResultSetRepresentation due to:"
+                                + e.getMessage());
+            }
+        } else if (source instanceof WebRowSet) {
             return new RowSetRepresentation((WebRowSet) source);
         } else if (source instanceof JdbcResult) {
             try {
@@ -34,9 +34,11 @@
 package org.restlet.ext.jdbc;
 
 import java.io.Serializable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 /**
  * JDBC result wrapper. Used by the JDBC client connector as a response entity
@@ -47,6 +49,9 @@ import java.sql.Statement;
 public class JdbcResult implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /** The update counts of each batch executed by the statement. */
+    private volatile List<int[]> batchUpdateCounts;
+
     /** The JDBC statement. */
     private volatile transient Statement statement;
 
@@ -60,6 +65,18 @@ public class JdbcResult implements Serializable {
         this.statement = statement;
     }
 
+    /**
+     * Returns the update counts of each batch executed by the statement, in
+     * execution order. The counts of a failed batch are padded with
+     * {@link Statement#EXECUTE_FAILED} up to the size of the batch.
+     * 
+     * @return The update counts of each batch or null if the statement wasn't
+     *         executed in batch mode.
+     */
+    public List<int[]> getBatchUpdateCounts() {
+        return this.batchUpdateCounts;
+    }
+
     /**
      * Returns the generated keys.
      * 
@@ -99,7 +116,23 @@ public class JdbcResult implements Serializable {
         // One connection per jdbcResult
         // releasing the instance means releasing the connection too
         // and not only the statement.
-        this.statement.getConnection().close();
+        Connection connection = this.statement.getConnection();
+
+        try {
+            this.statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Sets the update counts of each batch executed by the statement.
+     * 
+     * @param batchUpdateCounts
+     *            The update counts of each batch.
+     */
+    public void setBatchUpdateCounts(List<int[]> batchUpdateCounts) {
+        this.batchUpdateCounts = batchUpdateCounts;
     }
 
 }
@@ -0,0 +1,881 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.jdbc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.WriterRepresentation;
+
+/**
+ * Representation of a ResultSet instance that writes the rows straight from
+ * the live cursor, without copying them in memory. Unlike
+ * {@link RowSetRepresentation}, large results can be written in constant
+ * memory. Three formats are supported:
+ * <ul>
+ * <li>XML (text/xml or application/xml), compatible with the WebRowSet
+ * schema.</li>
+ * <li>JSON (application/json) as a compact object with a "columns" array of
+ * labels and a "rows" array of value arrays. NaN and infinite numbers are
+ * written as null values.</li>
+ * <li>CSV (text/csv) with a first line of column labels.</li>
+ * </ul>
+ * When the statement produced an update count instead of a result set, the
+ * JSON and CSV documents contain a single "updateCount" column, with a single
+ * row holding the count if it is known.<br>
+ * <br>
+ * The result set, its statement and its connection are released once the
+ * representation has been written, even if the client disconnected, or when
+ * the representation is released without being written. As a consequence, it
+ * can only be written once.
+ * 
+ * @see <a href="http://java.sun.com/xml/ns/jdbc/webrowset.xsd">WebRowSet XML
+ *      schema</a>
+ * @author Jerome Louvel
+ */
+public class ResultSetRepresentation extends WriterRepresentation {
+
+    /** The label of the column reporting the update count. */
+    private static final String UPDATE_COUNT = "updateCount";
+
+    /** The WebRowSet namespace. */
+    private static final String WEBROWSET_NAMESPACE = "http://java.sun.com/xml/ns/jdbc";
+
+    /**
+     * Returns the format supported by this representation that matches the
+     * given media type. Defaults to XML.
+     * 
+     * @param mediaType
+     *            The requested media type.
+     * @return The supported media type.
+     */
+    private static MediaType getFormat(MediaType mediaType) {
+        if (MediaType.APPLICATION_JSON.equals(mediaType, true)) {
+            return MediaType.APPLICATION_JSON;
+        } else if (MediaType.TEXT_CSV.equals(mediaType, true)) {
+            return MediaType.TEXT_CSV;
+        } else if (MediaType.APPLICATION_XML.equals(mediaType, true)) {
+            return MediaType.APPLICATION_XML;
+        }
+
+        return MediaType.TEXT_XML;
+    }
+
+    /**
+     * Indicates if a value is a NaN or infinite floating-point number, which
+     * has no JSON literal.
+     * 
+     * @param value
+     *            The value to test.
+     * @return True if the value is a NaN or infinite number.
+     */
+    private static boolean isNonFinite(Object value) {
+        if (value instanceof Double) {
+            Double number = (Double) value;
+            return number.isNaN() || number.isInfinite();
+        } else if (value instanceof Float) {
+            Float number = (Float) value;
+            return number.isNaN() || number.isInfinite();
+        }
+
+        return false;
+    }
+
+    /** The number of rows fetched from the database at a time. */
+    private final int fetchSize;
+
+    /** JdbcResult instance that gives access to the resultSet. */
+    private final JdbcResult jdbcResult;
+
+    /** The page size or -1 if no limit is set. */
+    private final int limit;
+
+    /** Indicates if the database resources have been released. */
+    private volatile boolean released;
+
+    /** The result set to write. */
+    private final ResultSet resultSet;
+
+    /** The start index of the page or 0 for the first result. */
+    private final int start;
+
+    /**
+     * Constructor.
+     * 
+     * @param jdbcResult
+     *            The inner JdbcResult.
+     * @param mediaType
+     *            The media type.
+     * @throws SQLException
+     */
+    public ResultSetRepresentation(JdbcResult jdbcResult, MediaType mediaType)
+            throws SQLException {
+        this(jdbcResult, mediaType, 0, -1, 0);
+    }
+
+    /**
+     * Constructor with paging.
+     * 
+     * @param jdbcResult
+     *            The inner JdbcResult.
+     * @param mediaType
+     *            The media type.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     * @param fetchSize
+     *            The number of rows fetched from the database at a time, or 0
+     *            to let the driver decide.
+     * @throws SQLException
+     */
+    public ResultSetRepresentation(JdbcResult jdbcResult, MediaType mediaType,
+            int start, int limit, int fetchSize) throws SQLException {
+        this(jdbcResult, (jdbcResult == null) ? null : jdbcResult
+                .getResultSet(), mediaType, start, limit, fetchSize);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param jdbcResult
+     *            The inner JdbcResult or null.
+     * @param resultSet
+     *            The result set to write.
+     * @param mediaType
+     *            The media type.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     * @param fetchSize
+     *            The number of rows fetched from the database at a time, or 0
+     *            to let the driver decide.
+     */
+    private ResultSetRepresentation(JdbcResult jdbcResult,
+            ResultSet resultSet, MediaType mediaType, int start, int limit,
+            int fetchSize) {
+        super(getFormat(mediaType));
+        setCharacterSet(CharacterSet.UTF_8);
+        this.jdbcResult = jdbcResult;
+        this.resultSet = resultSet;
+        this.start = start;
+        this.limit = limit;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param resultSet
+     *            The result set to write.
+     * @param mediaType
+     *            The media type.
+     */
+    public ResultSetRepresentation(ResultSet resultSet, MediaType mediaType) {
+        this(resultSet, mediaType, 0, -1, 0);
+    }
+
+    /**
+     * Constructor with paging.
+     * 
+     * @param resultSet
+     *            The result set to write.
+     * @param mediaType
+     *            The media type.
+     * @param start
+     *            The start index of the page or 0 for the first result.
+     * @param limit
+     *            The page size or -1 if no limit is set.
+     * @param fetchSize
+     *            The number of rows fetched from the database at a time, or 0
+     *            to let the driver decide.
+     */
+    public ResultSetRepresentation(ResultSet resultSet, MediaType mediaType,
+            int start, int limit, int fetchSize) {
+        this(null, resultSet, mediaType, start, limit, fetchSize);
+    }
+
+    /**
+     * Escapes a string as the content of a CSV field.
+     * 
+     * @param value
+     *            The value to escape.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     */
+    private void appendCsv(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean quote = false;
+        for (int i = 0; !quote && i < value.length(); i++) {
+            char c = value.charAt(i);
+            quote = (c == ',') || (c == '"') || (c == '\r') || (c == '\n');
+        }
+
+        if (quote) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    /**
+     * Escapes a string as a JSON string literal.
+     * 
+     * @param value
+     *            The value to escape.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     */
+    private void appendJson(String value, Writer writer) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '"':
+                writer.write("\\\"");
+                break;
+            case '\\':
+                writer.write("\\\\");
+                break;
+            case '\n':
+                writer.write("\\n");
+                break;
+            case '\r':
+                writer.write("\\r");
+                break;
+            case '\t':
+                writer.write("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    String hex = Integer.toHexString(c);
+                    writer.write("\\u");
+                    for (int j = hex.length(); j < 4; j++) {
+                        writer.write('0');
+                    }
+                    writer.write(hex);
+                } else {
+                    writer.write(c);
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes a string as XML character data.
+     * 
+     * @param value
+     *            The value to escape.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     */
+    private void appendXml(String value, Writer writer) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+            case '&':
+                writer.write("&amp;");
+                break;
+            case '<':
+                writer.write("&lt;");
+                break;
+            case '>':
+                writer.write("&gt;");
+                break;
+            case '"':
+                writer.write("&quot;");
+                break;
+            case '\'':
+                writer.write("&apos;");
+                break;
+            default:
+                writer.write(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a simple XML element.
+     * 
+     * @param name
+     *            The element name.
+     * @param value
+     *            The element value or null.
+     * @param indent
+     *            The indentation.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     */
+    private void appendXmlElement(String name, Object value, String indent,
+            Writer writer) throws IOException {
+        writer.write(indent);
+        writer.write('<');
+        writer.write(name);
+        writer.write('>');
+
+        if (value == null) {
+            writer.write("<null/>");
+        } else {
+            appendXml(value.toString(), writer);
+        }
+
+        writer.write("</");
+        writer.write(name);
+        writer.write(">\n");
+    }
+
+    /**
+     * Returns the number of rows fetched from the database at a time, or 0 to
+     * let the driver decide.
+     * 
+     * @return The number of rows fetched from the database at a time.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Returns the inner JdbcResult instance or null.
+     * 
+     * @return The inner JdbcResult instance or null.
+     */
+    public JdbcResult getJdbcResult() {
+        return jdbcResult;
+    }
+
+    /**
+     * Returns the page size or -1 if no limit is set.
+     * 
+     * @return The page size or -1 if no limit is set.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the result set to write.
+     * 
+     * @return The result set to write.
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * Returns the start index of the page or 0 for the first result.
+     * 
+     * @return The start index of the page or 0 for the first result.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the value of a column of the current row as an object suitable
+     * for text formats, that is to say a {@link Boolean}, a {@link Number}, a
+     * {@link String} or null.
+     * 
+     * @param index
+     *            The column index.
+     * @param type
+     *            The SQL type of the column.
+     * @return The column value.
+     * @throws SQLException
+     */
+    private Object getValue(int index, int type) throws SQLException {
+        Object result = null;
+
+        switch (type) {
+        case Types.BIT:
+        case Types.BOOLEAN:
+            result = this.resultSet.getBoolean(index);
+            break;
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+            result = this.resultSet.getInt(index);
+            break;
+        case Types.BIGINT:
+            result = this.resultSet.getLong(index);
+            break;
+        case Types.REAL:
+            result = this.resultSet.getFloat(index);
+            break;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            // JDBC FLOAT is a double precision type
+            result = this.resultSet.getDouble(index);
+            break;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            BigDecimal decimal = this.resultSet.getBigDecimal(index);
+            result = (decimal == null) ? null : decimal.toString();
+            break;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            // Not supported, as in WebRowSet documents
+            return null;
+        default:
+            result = this.resultSet.getString(index);
+        }
+
+        return this.resultSet.wasNull() ? null : result;
+    }
+
+    /**
+     * Returns the update count of the statement, or -1 if unknown.
+     * 
+     * @return The update count of the statement, or -1 if unknown.
+     * @throws SQLException
+     */
+    private int getUpdateCount() throws SQLException {
+        return (this.jdbcResult == null) ? -1 : this.jdbcResult
+                .getUpdateCount();
+    }
+
+    /**
+     * Moves to the next row of the current page.
+     * 
+     * @param count
+     *            The number of rows already written.
+     * @return True if a row is available.
+     * @throws SQLException
+     */
+    private boolean next(long count) throws SQLException {
+        return ((this.limit < 0) || (count < this.limit))
+                && this.resultSet.next();
+    }
+
+    /**
+     * Releases the result set, its statement and its connection.
+     */
+    @Override
+    public void release() {
+        if (this.released) {
+            return;
+        }
+
+        this.released = true;
+
+        try {
+            if (this.resultSet != null) {
+                Statement statement = this.resultSet.getStatement();
+                this.resultSet.close();
+
+                if (this.jdbcResult != null) {
+                    this.jdbcResult.release();
+                } else if (statement != null) {
+                    statement.close();
+                }
+            } else if (this.jdbcResult != null) {
+                this.jdbcResult.release();
+            }
+        } catch (SQLException se) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "Error while releasing the result set", se);
+        }
+
+        super.release();
+    }
+
+    /**
+     * Skips the rows before the start index and sets the fetch size.
+     * 
+     * @throws SQLException
+     */
+    private void seek() throws SQLException {
+        if (this.fetchSize > 0) {
+            this.resultSet.setFetchSize(this.fetchSize);
+        }
+
+        for (int i = 0; (i < this.start) && this.resultSet.next(); i++) {
+            // Skip the row
+        }
+    }
+
+    @Override
+    public void write(Writer writer) throws IOException {
+        try {
+            if (MediaType.APPLICATION_JSON.equals(getMediaType())) {
+                writeJson(writer);
+            } else if (MediaType.TEXT_CSV.equals(getMediaType())) {
+                writeCsv(writer);
+            } else {
+                writeXml(writer);
+            }
+
+            writer.flush();
+        } catch (SQLException se) {
+            IOException ioe = new IOException(
+                    "Unable to write the result set. " + se.getMessage());
+            ioe.initCause(se);
+            throw ioe;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Writes the rows in CSV.
+     * 
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void writeCsv(Writer writer) throws IOException, SQLException {
+        if (this.resultSet == null) {
+            int updateCount = getUpdateCount();
+            writer.write(UPDATE_COUNT);
+            writer.write("\r\n");
+
+            if (updateCount >= 0) {
+                writer.write(Integer.toString(updateCount));
+                writer.write("\r\n");
+            }
+
+            return;
+        }
+
+        ResultSetMetaData metaData = this.resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int[] types = new int[columnCount + 1];
+
+        for (int i = 1; i <= columnCount; i++) {
+            types[i] = metaData.getColumnType(i);
+
+            if (i > 1) {
+                writer.write(',');
+            }
+
+            appendCsv(metaData.getColumnLabel(i), writer);
+        }
+
+        writer.write("\r\n");
+        seek();
+
+        for (long count = 0; next(count); count++) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+
+                Object value = getValue(i, types[i]);
+                appendCsv((value == null) ? null : value.toString(), writer);
+            }
+
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Writes the rows in JSON.
+     * 
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void writeJson(Writer writer) throws IOException, SQLException {
+        writer.write("{\"columns\":[");
+
+        if (this.resultSet == null) {
+            int updateCount = getUpdateCount();
+            appendJson(UPDATE_COUNT, writer);
+            writer.write("],\"rows\":[");
+
+            if (updateCount >= 0) {
+                writer.write('[');
+                writer.write(Integer.toString(updateCount));
+                writer.write(']');
+            }
+
+            writer.write("]}");
+            return;
+        }
+
+        ResultSetMetaData metaData = this.resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int[] types = new int[columnCount + 1];
+
+        for (int i = 1; i <= columnCount; i++) {
+            types[i] = metaData.getColumnType(i);
+
+            if (i > 1) {
+                writer.write(',');
+            }
+
+            appendJson(metaData.getColumnLabel(i), writer);
+        }
+
+        writer.write("],\"rows\":[");
+        seek();
+
+        for (long count = 0; next(count); count++) {
+            if (count > 0) {
+                writer.write(',');
+            }
+
+            writer.write('[');
+
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+
+                Object value = getValue(i, types[i]);
+
+                if (isNonFinite(value)) {
+                    writer.write("null");
+                } else if ((value instanceof Number)
+                        || (value instanceof Boolean)) {
+                    writer.write(value.toString());
+                } else if (value instanceof String
+                        && ((types[i] == Types.NUMERIC) || (types[i] == Types.DECIMAL))) {
+                    writer.write((String) value);
+                } else {
+                    appendJson((value == null) ? null : value.toString(),
+                            writer);
+                }
+            }
+
+            writer.write(']');
+        }
+
+        writer.write("]}");
+    }
+
+    /**
+     * Writes the rows in a WebRowSet compatible XML document.
+     * 
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void writeXml(Writer writer) throws IOException, SQLException {
+        writer.write("<?xml version=\"1.0\"?>\n");
+        writer.write("<webRowSet xmlns=\"" + WEBROWSET_NAMESPACE
+                + "\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+        writer.write("xsi:schemaLocation=\"" + WEBROWSET_NAMESPACE + " "
+                + WEBROWSET_NAMESPACE + "/webrowset.xsd\">\n");
+
+        // Describe the properties of the row set rebuilt by the readers of
+        // the document, rather than the ones of the forward-only cursor
+        writer.write("  <properties>\n");
+        appendXmlElement("command", null, "    ", writer);
+        appendXmlElement("concurrency", ResultSet.CONCUR_UPDATABLE, "    ",
+                writer);
+        appendXmlElement("datasource", null, "    ", writer);
+        appendXmlElement("escape-processing", true, "    ", writer);
+        appendXmlElement("fetch-direction", ResultSet.FETCH_FORWARD, "    ",
+                writer);
+        appendXmlElement("fetch-size", 0, "    ", writer);
+        appendXmlElement("isolation-level", 2, "    ", writer);
+        writer.write("    <key-columns>\n    </key-columns>\n");
+        writer.write("    <map>\n    </map>\n");
+        appendXmlElement("max-field-size", 0, "    ", writer);
+        appendXmlElement("max-rows", Math.max(0, this.limit), "    ", writer);
+        appendXmlElement("query-timeout", 0, "    ", writer);
+        appendXmlElement("read-only", true, "    ", writer);
+        appendXmlElement("rowset-type", "ResultSet.TYPE_SCROLL_INSENSITIVE",
+                "    ", writer);
+        appendXmlElement("show-deleted", false, "    ", writer);
+        appendXmlElement("table-name", null, "    ", writer);
+        appendXmlElement("url", null, "    ", writer);
+        writer.write("    <sync-provider>\n");
+        appendXmlElement("sync-provider-name",
+                "com.sun.rowset.providers.RIOptimisticProvider", "      ",
+                writer);
+        appendXmlElement("sync-provider-vendor", "Oracle Corporation",
+                "      ", writer);
+        appendXmlElement("sync-provider-version", "1.0", "      ", writer);
+        appendXmlElement("sync-provider-grade", 2, "      ", writer);
+        appendXmlElement("data-source-lock", 1, "      ", writer);
+        writer.write("    </sync-provider>\n");
+        writer.write("  </properties>\n");
+
+        writer.write("  <metadata>\n");
+        int columnCount = 0;
+        int[] types = null;
+
+        if (this.resultSet != null) {
+            ResultSetMetaData metaData = this.resultSet.getMetaData();
+            columnCount = metaData.getColumnCount();
+            types = new int[columnCount + 1];
+            appendXmlElement("column-count", columnCount, "    ", writer);
+
+            for (int i = 1; i <= columnCount; i++) {
+                types[i] = metaData.getColumnType(i);
+                writer.write("    <column-definition>\n");
+                appendXmlElement("column-index", i, "      ", writer);
+                appendXmlElement("auto-increment", metaData.isAutoIncrement(i),
+                        "      ", writer);
+                appendXmlElement("case-sensitive", metaData.isCaseSensitive(i),
+                        "      ", writer);
+                appendXmlElement("currency", metaData.isCurrency(i), "      ",
+                        writer);
+                appendXmlElement("nullable", metaData.isNullable(i), "      ",
+                        writer);
+                appendXmlElement("signed", metaData.isSigned(i), "      ",
+                        writer);
+                appendXmlElement("searchable", metaData.isSearchable(i),
+                        "      ", writer);
+                appendXmlElement("column-display-size",
+                        metaData.getColumnDisplaySize(i), "      ", writer);
+                appendXmlElement("column-label", metaData.getColumnLabel(i),
+                        "      ", writer);
+                appendXmlElement("column-name", metaData.getColumnName(i),
+                        "      ", writer);
+                appendXmlElement("schema-name", metaData.getSchemaName(i),
+                        "      ", writer);
+                appendXmlElement("column-precision", metaData.getPrecision(i),
+                        "      ", writer);
+                appendXmlElement("column-scale", metaData.getScale(i),
+                        "      ", writer);
+                appendXmlElement("table-name", metaData.getTableName(i),
+                        "      ", writer);
+                appendXmlElement("catalog-name", metaData.getCatalogName(i),
+                        "      ", writer);
+                appendXmlElement("column-type", types[i], "      ", writer);
+                appendXmlElement("column-type-name",
+                        metaData.getColumnTypeName(i), "      ", writer);
+                writer.write("    </column-definition>\n");
+            }
+        } else {
+            appendXmlElement("column-count", 0, "    ", writer);
+        }
+
+        writer.write("  </metadata>\n");
+        writer.write("  <data>\n");
+
+        if (this.resultSet != null) {
+            seek();
+
+            for (long count = 0; next(count); count++) {
+                writer.write("    <currentRow>\n");
+
+                for (int i = 1; i <= columnCount; i++) {
+                    writer.write("      <columnValue>");
+                    writeXmlValue(i, types[i], writer);
+                    writer.write("</columnValue>\n");
+                }
+
+                writer.write("    </currentRow>\n");
+            }
+        }
+
+        writer.write("  </data>\n");
+        writer.write("</webRowSet>\n");
+    }
+
+    /**
+     * Writes the value of a column of the current row like a WebRowSet does.
+     * 
+     * @param index
+     *            The column index.
+     * @param type
+     *            The SQL type of the column.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void writeXmlValue(int index, int type, Writer writer)
+            throws IOException, SQLException {
+        switch (type) {
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+            // Not written in WebRowSet documents
+            return;
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+            // Written as a number of milliseconds
+            java.util.Date date = (type == Types.DATE) ? this.resultSet
+                    .getDate(index) : (type == Types.TIME) ? this.resultSet
+                    .getTime(index) : this.resultSet.getTimestamp(index);
+
+            if (date == null) {
+                writer.write("<null/>");
+            } else {
+                writer.write(Long.toString(date.getTime()));
+            }
+            return;
+        }
+
+        Object value = getValue(index, type);
+
+        if (value == null) {
+            writer.write("<null/>");
+        } else if ((value instanceof String) && ((String) value).length() == 0) {
+            writer.write("<emptyString/>");
+        } else {
+            appendXml(value.toString(), writer);
+        }
+    }
+
+}
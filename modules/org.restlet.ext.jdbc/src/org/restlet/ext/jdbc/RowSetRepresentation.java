@@ -74,12 +74,22 @@ public class RowSetRepresentation extends WriterRepresentation {
         WebRowSet result = null;
 
         try {
-            result = (WebRowSet) Class.forName("com.sun.rowset.WebRowSetImpl")
-                    .newInstance();
+            // Use the factory introduced by Java 7, as the implementation
+            // classes can't be accessed directly since Java 9
+            Object factory = Class.forName("javax.sql.rowset.RowSetProvider")
+                    .getMethod("newFactory").invoke(null);
+            result = (WebRowSet) Class
+                    .forName("javax.sql.rowset.RowSetFactory")
+                    .getMethod("createWebRowSet").invoke(factory);
         } catch (Throwable t) {
-            Context.getCurrentLogger().log(Level.WARNING,
-                    "Unable to instantiate the Sun's WebRowSet implementation",
-                    t);
+            try {
+                result = (WebRowSet) Class.forName(
+                        "com.sun.rowset.WebRowSetImpl").newInstance();
+            } catch (Throwable t2) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to instantiate the Sun's WebRowSet implementation",
+                        t2);
+            }
         }
 
         if (resultSet != null) {
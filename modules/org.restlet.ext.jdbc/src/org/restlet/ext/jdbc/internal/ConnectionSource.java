@@ -39,7 +39,9 @@ import org.apache.commons.dbcp.PoolingDataSource;
 import org.restlet.ext.jdbc.JdbcClientHelper;
 
 /**
- * Pooling data source which remembers its connection properties and URI.
+ * Pooling data source which remembers its connection properties and URI. Each
+ * pooled connection can keep its prepared statements in a cache so that they
+ * are reused by the following requests.
  * 
  * @author Jerome Louvel
  */
@@ -59,7 +61,24 @@ public class ConnectionSource extends PoolingDataSource {
      *            The connection properties.
      */
     public ConnectionSource(String uri, Properties properties) {
-        super(JdbcClientHelper.createConnectionPool(uri, properties));
+        this(uri, properties, 0);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param uri
+     *            The connection URI.
+     * @param properties
+     *            The connection properties.
+     * @param maxCachedStatements
+     *            The maximum number of prepared statements cached by each
+     *            pooled connection, or 0 to disable the cache.
+     */
+    public ConnectionSource(String uri, Properties properties,
+            int maxCachedStatements) {
+        super(JdbcClientHelper.createConnectionPool(uri, properties,
+                maxCachedStatements));
         this.uri = uri;
         this.properties = properties;
     }
@@ -35,9 +35,14 @@ package org.restlet.ext.lucene;
 
 import java.io.File;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.SolrQueryRequest;
@@ -51,7 +56,9 @@ import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 import org.restlet.engine.ClientHelper;
+import org.restlet.ext.lucene.internal.SolrCursorRepresentation;
 import org.restlet.ext.lucene.internal.SolrRepresentation;
+import org.restlet.ext.lucene.internal.SolrRestletParams;
 import org.restlet.ext.lucene.internal.SolrRestletQueryRequest;
 
 /**
@@ -77,6 +84,46 @@ import org.restlet.ext.lucene.internal.SolrRestletQueryRequest;
  * <br>
  * The helper handles "solr://" requests. There is one additional parameter :
  * "DefaultCore" which gives default core for "solr:///..." requests.
+ * <p>
+ * Large result sets can be streamed by adding a "cursor=true" query parameter.
+ * The matched documents are then retrieved page by page, with the same index
+ * searcher, while the XML response is written, instead of building the full
+ * response before sending it. The "start" and "rows" parameters still select
+ * the window of documents to return, all the remaining documents being
+ * returned when "rows" is missing.
+ * <p>
+ * Here is the list of additional parameters that are supported. They should
+ * be set in the Client's context before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>cursorPageSize</td>
+ * <td>int</td>
+ * <td>100</td>
+ * <td>The maximum number of documents retrieved at a time in cursor mode.</td>
+ * </tr>
+ * <tr>
+ * <td>maxConcurrentQueries</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>The maximum number of queries concurrently executed on each core, or 0
+ * for no limit. In cursor mode, a query counts while its response is
+ * written.</td>
+ * </tr>
+ * <tr>
+ * <td>maxQueryWaitMs</td>
+ * <td>long</td>
+ * <td>0</td>
+ * <td>The time to wait for a core to accept a new query when its limit is
+ * reached, before answering with a 503 status. In cursor mode, the writing of
+ * the response fails instead.</td>
+ * </tr>
+ * </table>
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
@@ -88,6 +135,9 @@ public class SolrClientHelper extends ClientHelper {
     /** The core Solr container. */
     protected CoreContainer coreContainer;
 
+    /** The concurrency permits of each core. */
+    private final ConcurrentMap<String, Semaphore> coreSemaphores;
+
     /**
      * Constructor.
      * 
@@ -97,6 +147,72 @@ public class SolrClientHelper extends ClientHelper {
     public SolrClientHelper(Client client) {
         super(client);
         getProtocols().add(SOLR_PROTOCOL);
+        this.coreSemaphores = new ConcurrentHashMap<String, Semaphore>();
+    }
+
+    /**
+     * Returns the maximum number of documents retrieved at a time in cursor
+     * mode.
+     * 
+     * @return The maximum number of documents retrieved at a time in cursor
+     *         mode.
+     */
+    public int getCursorPageSize() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "cursorPageSize", "100"));
+    }
+
+    /**
+     * Returns the maximum number of queries concurrently executed on each
+     * core, or 0 for no limit.
+     * 
+     * @return The maximum number of queries concurrently executed on each
+     *         core.
+     */
+    public int getMaxConcurrentQueries() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxConcurrentQueries", "0"));
+    }
+
+    /**
+     * Returns the time to wait for a core to accept a new query when its limit
+     * is reached.
+     * 
+     * @return The time to wait for a core to accept a new query.
+     */
+    public long getMaxQueryWaitMs() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "maxQueryWaitMs", "0"));
+    }
+
+    /**
+     * Returns the concurrency permits of a core, creating them on the first
+     * call.
+     * 
+     * @param coreName
+     *            The core name.
+     * @return The concurrency permits or null if no limit is set.
+     */
+    private Semaphore getSemaphore(String coreName) {
+        int maxConcurrentQueries = getMaxConcurrentQueries();
+
+        if (maxConcurrentQueries <= 0) {
+            return null;
+        }
+
+        Semaphore result = this.coreSemaphores.get(coreName);
+
+        if (result == null) {
+            result = new Semaphore(maxConcurrentQueries);
+            Semaphore current = this.coreSemaphores.putIfAbsent(coreName,
+                    result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
     }
 
     @Override
@@ -125,15 +241,18 @@ public class SolrClientHelper extends ClientHelper {
             return;
         }
 
+        // Parse the query once for the whole request
+        SolrParams params = new SolrRestletParams(request);
+
         // Extract the handler from the path or params
         SolrRequestHandler handler = core.getRequestHandler(path);
 
         if (handler == null) {
             if ("/select".equals(path) || "/select/".equalsIgnoreCase(path)) {
-                String qt = request.getResourceRef().getQueryAsForm()
-                        .getFirstValue(CommonParams.QT);
+                String qt = params.get(CommonParams.QT);
                 handler = core.getRequestHandler(qt);
                 if (handler == null) {
+                    core.close();
                     response.setStatus(Status.CLIENT_ERROR_BAD_REQUEST,
                             "unknown handler: " + qt);
                     return;
@@ -153,15 +272,46 @@ public class SolrClientHelper extends ClientHelper {
             return;
         }
 
+        // Prevent heavy queries on a core from holding all the workers
+        Semaphore semaphore = getSemaphore(coreName);
+
+        if (params.getBool("cursor", false)) {
+            // The core and the permit are acquired while writing the entity
+            core.close();
+            response.setEntity(new SolrCursorRepresentation(request,
+                    coreContainer, coreName, handler, params,
+                    getCursorPageSize(), semaphore, getMaxQueryWaitMs()));
+            response.setStatus(Status.SUCCESS_OK);
+            return;
+        }
+
+        if (semaphore != null) {
+            boolean acquired = false;
+
+            try {
+                acquired = semaphore.tryAcquire(getMaxQueryWaitMs(),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!acquired) {
+                core.close();
+                response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+                        "Too many concurrent queries on core: " + coreName);
+                return;
+            }
+        }
+
         try {
             SolrQueryRequest solrReq = new SolrRestletQueryRequest(request,
-                    core);
+                    core, params);
             SolrQueryResponse solrResp = new SolrQueryResponse();
             core.execute(handler, solrReq, solrResp);
 
             if (solrResp.getException() != null) {
-                response.setStatus(Status.SERVER_ERROR_INTERNAL, solrResp
-                        .getException());
+                response.setStatus(Status.SERVER_ERROR_INTERNAL,
+                        solrResp.getException());
             } else {
                 response.setEntity(new SolrRepresentation(
                         MediaType.APPLICATION_XML, solrReq, solrResp));
@@ -173,6 +323,10 @@ public class SolrClientHelper extends ClientHelper {
             response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
         } finally {
             core.close();
+
+            if (semaphore != null) {
+                semaphore.release();
+            }
         }
     }
 
@@ -0,0 +1,418 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.lucene.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.DefaultSolrParams;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.HighlightParams;
+import org.apache.solr.common.params.MapSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.StatsParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrQueryResponse;
+import org.apache.solr.request.SolrRequestHandler;
+import org.apache.solr.request.XMLWriter;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocList;
+import org.apache.solr.search.DocSlice;
+import org.restlet.Request;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.WriterRepresentation;
+
+/**
+ * XML representation streaming the response of a Solr query. The matched
+ * documents are retrieved by pages of a bounded size while the response is
+ * written with Solr's {@link XMLWriter}, so that neither the document
+ * identifiers nor the stored fields of the whole window are held in memory
+ * together, and the first documents are sent before the next pages are
+ * retrieved. When the "rows" parameter is missing, all the documents from the
+ * "start" one are returned.<br>
+ * <br>
+ * Each page executes the query for its own start and rows window. All the
+ * pages share the same Solr request, and therefore the same index searcher,
+ * so the pages are consistent even if the index is updated meanwhile. The
+ * other sections of the response, such as the header and the facets, are
+ * those of the first page. The following pages are executed without facets,
+ * highlighting, statistics or debugging.<br>
+ * <br>
+ * The Solr core and the optional concurrency permit are only acquired when
+ * the representation is written, and released right after, so a
+ * representation that is never written doesn't hold any of them.
+ * 
+ * @author Jerome Louvel
+ */
+public class SolrCursorRepresentation extends WriterRepresentation {
+
+    /**
+     * Document list spanning all the pages of the returned window. It starts
+     * with the documents of the first page and retrieves the following pages
+     * while being iterated over. Only the methods used to write the list are
+     * supported.
+     */
+    private class PagedDocList extends DocSlice {
+
+        /** The Solr core. */
+        private final SolrCore core;
+
+        /** The first page. */
+        private final DocList firstPage;
+
+        /** The number of documents in the window. */
+        private final int size;
+
+        /** The Solr request shared by the pages. */
+        private final SolrQueryRequest solrReq;
+
+        /**
+         * Constructor.
+         * 
+         * @param core
+         *            The Solr core.
+         * @param solrReq
+         *            The Solr request shared by the pages.
+         * @param firstPage
+         *            The first page.
+         * @param size
+         *            The number of documents in the window.
+         */
+        public PagedDocList(SolrCore core, SolrQueryRequest solrReq,
+                DocList firstPage, int size) {
+            super(firstPage.offset(), 0, new int[0], null, firstPage
+                    .matches(), firstPage.maxScore());
+            this.core = core;
+            this.solrReq = solrReq;
+            this.firstPage = firstPage;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasScores() {
+            return this.firstPage.hasScores();
+        }
+
+        @Override
+        public DocIterator iterator() {
+            return new DocIterator() {
+                /** The iterator of the current page. */
+                private DocIterator page = firstPage.iterator();
+
+                /** The number of documents left in the current page. */
+                private int pageRemaining = firstPage.size();
+
+                /** The position of the next document in the window. */
+                private int position = 0;
+
+                public boolean hasNext() {
+                    return this.position < size;
+                }
+
+                public Integer next() {
+                    return nextDoc();
+                }
+
+                public int nextDoc() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    if (this.pageRemaining == 0) {
+                        DocList nextPage = execute(core, solrReq, offset()
+                                + this.position, Math.min(getPageSize(),
+                                size - this.position));
+                        this.page = nextPage.iterator();
+                        this.pageRemaining = nextPage.size();
+
+                        if (this.pageRemaining == 0) {
+                            throw new NoSuchElementException(
+                                    "Missing documents in page at "
+                                            + (offset() + this.position));
+                        }
+                    }
+
+                    this.pageRemaining--;
+                    this.position++;
+                    return this.page.nextDoc();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                public float score() {
+                    return this.page.score();
+                }
+            };
+        }
+
+        @Override
+        public float maxScore() {
+            return this.firstPage.maxScore();
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    /** The Solr core container. */
+    private final CoreContainer coreContainer;
+
+    /** The name of the Solr core. */
+    private final String coreName;
+
+    /** The Solr request handler. */
+    private final SolrRequestHandler handler;
+
+    /** The time to wait for a concurrency permit, in milliseconds. */
+    private final long maxWaitMs;
+
+    /** The maximum number of documents retrieved at a time. */
+    private final int pageSize;
+
+    /** The Solr params of the query. */
+    private final SolrParams params;
+
+    /** The wrapped Restlet request. */
+    private final Request request;
+
+    /** The concurrency permits of the core or null. */
+    private final Semaphore semaphore;
+
+    /**
+     * Constructor. Note that the character set is UTF-8.
+     * 
+     * @param request
+     *            The wrapped Restlet request.
+     * @param coreContainer
+     *            The Solr core container.
+     * @param coreName
+     *            The name of the Solr core.
+     * @param handler
+     *            The Solr request handler.
+     * @param params
+     *            The Solr params of the query.
+     * @param pageSize
+     *            The maximum number of documents retrieved at a time.
+     * @param semaphore
+     *            The concurrency permits of the core, or null.
+     * @param maxWaitMs
+     *            The time to wait for a concurrency permit, in milliseconds.
+     */
+    public SolrCursorRepresentation(Request request,
+            CoreContainer coreContainer, String coreName,
+            SolrRequestHandler handler, SolrParams params, int pageSize,
+            Semaphore semaphore, long maxWaitMs) {
+        super(MediaType.APPLICATION_XML);
+        setCharacterSet(CharacterSet.UTF_8);
+        this.request = request;
+        this.coreContainer = coreContainer;
+        this.coreName = coreName;
+        this.handler = handler;
+        this.params = params;
+        this.pageSize = Math.max(1, pageSize);
+        this.semaphore = semaphore;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Executes the query for a page and returns its documents. Failures are
+     * reported with an {@link IllegalStateException} wrapping an
+     * {@link IOException}, as pages are also retrieved while iterating.
+     * 
+     * @param core
+     *            The Solr core.
+     * @param solrReq
+     *            The Solr request shared by the pages.
+     * @param start
+     *            The index of the first document of the page.
+     * @param rows
+     *            The maximum number of documents of the page.
+     * @return The documents of the page.
+     */
+    private DocList execute(SolrCore core, SolrQueryRequest solrReq,
+            int start, int rows) {
+        SolrQueryResponse solrResp = new SolrQueryResponse();
+        Map<String, String> page = new HashMap<String, String>();
+        page.put(CommonParams.START, Integer.toString(start));
+        page.put(CommonParams.ROWS, Integer.toString(rows));
+        page.put(FacetParams.FACET, "false");
+        page.put(HighlightParams.HIGHLIGHT, "false");
+        page.put(StatsParams.STATS, "false");
+        page.put(CommonParams.DEBUG_QUERY, "false");
+        solrReq.setParams(new DefaultSolrParams(new MapSolrParams(page),
+                this.params));
+        core.execute(this.handler, solrReq, solrResp);
+        return getDocList(solrResp);
+    }
+
+    /**
+     * Returns the document list of a response.
+     * 
+     * @param solrResp
+     *            The Solr response.
+     * @return The document list.
+     */
+    private DocList getDocList(SolrQueryResponse solrResp) {
+        if (solrResp.getException() != null) {
+            IOException ioe = new IOException(
+                    "Unable to execute the Solr query");
+            ioe.initCause(solrResp.getException());
+            throw new IllegalStateException(ioe);
+        }
+
+        Object result = solrResp.getValues().get("response");
+
+        if (!(result instanceof DocList)) {
+            throw new IllegalStateException(new IOException(
+                    "No document list in the Solr response"));
+        }
+
+        return (DocList) result;
+    }
+
+    /**
+     * Returns the maximum number of documents retrieved at a time.
+     * 
+     * @return The maximum number of documents retrieved at a time.
+     */
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * Executes the query on the given core and writes its response.
+     * 
+     * @param core
+     *            The Solr core.
+     * @param writer
+     *            The writer to write to.
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    private void write(SolrCore core, Writer writer) throws IOException {
+        SolrQueryRequest solrReq = new SolrRestletQueryRequest(this.request,
+                core, this.params);
+
+        try {
+            int start = Math.max(0, this.params.getInt(CommonParams.START, 0));
+            Integer rows = this.params.getInt(CommonParams.ROWS);
+
+            // Execute the first page with all the requested sections
+            int firstRows = (rows == null) ? getPageSize() : Math.min(rows,
+                    getPageSize());
+            Map<String, String> page = new HashMap<String, String>();
+            page.put(CommonParams.ROWS, Integer.toString(firstRows));
+            solrReq.setParams(new DefaultSolrParams(new MapSolrParams(page),
+                    this.params));
+            SolrQueryResponse solrResp = new SolrQueryResponse();
+            core.execute(this.handler, solrReq, solrResp);
+            DocList firstPage = getDocList(solrResp);
+
+            // Retrieve the next pages while writing the documents
+            int size = Math.max(0, firstPage.matches() - start);
+
+            if (rows != null) {
+                size = Math.min(size, Math.max(0, rows));
+            }
+
+            if (size > firstPage.size()) {
+                NamedList values = solrResp.getValues();
+                values.setVal(values.indexOf("response", 0), new PagedDocList(
+                        core, solrReq, firstPage, size));
+            }
+
+            XMLWriter.writeResponse(writer, solrReq, solrResp);
+        } catch (IllegalStateException ise) {
+            if (ise.getCause() instanceof IOException) {
+                throw (IOException) ise.getCause();
+            }
+
+            throw ise;
+        } finally {
+            solrReq.close();
+        }
+    }
+
+    @Override
+    public void write(Writer writer) throws IOException {
+        if (this.semaphore != null) {
+            boolean acquired = false;
+
+            try {
+                acquired = this.semaphore.tryAcquire(this.maxWaitMs,
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!acquired) {
+                throw new IOException("Too many concurrent queries on core: "
+                        + this.coreName);
+            }
+        }
+
+        try {
+            SolrCore core = this.coreContainer.getCore(this.coreName);
+
+            if (core == null) {
+                throw new IOException("No such core: " + this.coreName);
+            }
+
+            try {
+                write(core, writer);
+            } finally {
+                core.close();
+            }
+        } finally {
+            if (this.semaphore != null) {
+                this.semaphore.release();
+            }
+        }
+    }
+
+}
@@ -40,7 +40,8 @@ import org.restlet.Request;
 import org.restlet.data.Form;
 
 /**
- * Wrap Restlet query parameters as Solr params.
+ * Wrap Restlet query parameters as Solr params. The query of the request is
+ * parsed once, on the first access, then cached for the following lookups.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
@@ -48,6 +49,9 @@ public class SolrRestletParams extends SolrParams {
 
     private static final long serialVersionUID = 1L;
 
+    /** The cached request query form. */
+    private volatile Form form;
+
     /** The wrapped Restlet request. */
     private final Request request;
 
@@ -62,12 +66,22 @@ public class SolrRestletParams extends SolrParams {
     }
 
     /**
-     * Returns the request query form.
+     * Returns the request query form, parsing it on the first call.
      * 
      * @return The request query form.
      */
     protected Form getForm() {
-        return request.getResourceRef().getQueryAsForm();
+        // Lazy initialization with double-check.
+        Form f = this.form;
+        if (f == null) {
+            synchronized (this) {
+                f = this.form;
+                if (f == null) {
+                    this.form = f = request.getResourceRef().getQueryAsForm();
+                }
+            }
+        }
+        return f;
     }
 
     /**
@@ -35,6 +35,7 @@ package org.restlet.ext.lucene.internal;
 
 import java.util.ArrayList;
 
+import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.SolrQueryRequestBase;
@@ -56,7 +57,22 @@ public class SolrRestletQueryRequest extends SolrQueryRequestBase {
      *            The Solr core.
      */
     public SolrRestletQueryRequest(Request request, SolrCore core) {
-        super(core, new SolrRestletParams(request));
+        this(request, core, new SolrRestletParams(request));
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            The Restlet request to wrap.
+     * @param core
+     *            The Solr core.
+     * @param params
+     *            The Solr params, usually wrapping the request query.
+     */
+    public SolrRestletQueryRequest(Request request, SolrCore core,
+            SolrParams params) {
+        super(core, params);
         getContext().put("path", request.getResourceRef().getPath());
         ArrayList<ContentStream> _streams = new ArrayList<ContentStream>(1);
         _streams.add(new SolrRepresentationContentStream(request.getEntity()));
@@ -49,6 +49,7 @@ import org.restlet.ext.atom.Link;
 import org.restlet.ext.atom.Relation;
 import org.restlet.ext.odata.internal.EntryContentHandler;
 import org.restlet.ext.odata.internal.FeedContentHandler;
+import org.restlet.ext.odata.internal.FeedIterator;
 import org.restlet.ext.odata.internal.edm.EntityType;
 import org.restlet.ext.odata.internal.edm.Metadata;
 import org.restlet.representation.Representation;
@@ -125,12 +126,18 @@ public class Query<T> implements Iterable<T> {
                 // Get the next page.
                 Query<E> query = service.createQuery(nextPage.toString(),
                         (Class<E>) entityClass);
-                iterator = query.iterator();
-                if (iterator != null) {
+
+                try {
+                    iterator = query.getPage();
                     result = iterator.hasNext();
+                    // Set the reference to the next page
+                    nextPage = query.getNextPage();
+                } catch (Exception e) {
+                    query.getLogger().log(Level.WARNING,
+                            "Can't parse the content of " + nextPage, e);
+                    iterator = null;
+                    nextPage = null;
                 }
-                // Set the reference to the next page
-                nextPage = query.getNextPage();
             }
 
             return result;
@@ -205,12 +212,18 @@ public class Query<T> implements Iterable<T> {
     /** The reference to the next page (used in server-paging mode). */
     private Reference nextPage;
 
+    /** Indicates if the next page is requested before it is needed. */
+    private boolean prefetching;
+
     /** The query string. */
     private String query;
 
     /** The parent client service. */
     private Service service;
 
+    /** Indicates if the entities are parsed as the feed is received. */
+    private boolean streaming;
+
     /** The path of the targeted entity relatively to the data service URI. */
     private String subpath;
 
@@ -261,6 +274,8 @@ public class Query<T> implements Iterable<T> {
     public Query<T> addParameter(String name, String value) {
         Query<T> result = new Query<T>(this.getService(), this.getSubpath(),
                 (Class<T>) this.entityClass);
+        result.setPrefetching(isPrefetching());
+        result.setStreaming(isStreaming());
         if (getQuery() == null || "".equals(getQuery())) {
             result.setQuery(name + "=" + value);
         } else {
@@ -283,6 +298,8 @@ public class Query<T> implements Iterable<T> {
     public Query<T> addParameters(Series<Parameter> params) {
         Query<T> result = new Query<T>(this.getService(), this.getSubpath(),
                 (Class<T>) this.entityClass);
+        result.setPrefetching(isPrefetching());
+        result.setStreaming(isStreaming());
         StringBuilder builder = new StringBuilder();
 
         if (params != null) {
@@ -531,6 +548,27 @@ public class Query<T> implements Iterable<T> {
         return nextPage;
     }
 
+    /**
+     * Executes the query and returns an iterator over the entities of the
+     * retrieved page. Also updates the reference to the next page.
+     * 
+     * @return An iterator over the entities of the retrieved page.
+     * @throws Exception
+     */
+    private Iterator<T> getPage() throws Exception {
+        execute();
+
+        nextPage = null;
+        for (Link link : getFeed().getLinks()) {
+            if (Relation.NEXT.equals(link.getRel())) {
+                nextPage = link.getHref();
+                break;
+            }
+        }
+
+        return entities.iterator();
+    }
+
     /**
      * Returns the query string that may be completed by calls to
      * {@link Query#addParameter(String, String)} or
@@ -635,32 +673,61 @@ public class Query<T> implements Iterable<T> {
         return executed;
     }
 
+    /**
+     * Indicates if the next page of a paged entity set is requested as soon as
+     * the current one has been parsed, in streaming mode. False by default.
+     * 
+     * @return True if the next page is requested before it is needed.
+     * @see #isStreaming()
+     */
+    public boolean isPrefetching() {
+        return prefetching;
+    }
+
+    /**
+     * Indicates if the entities of an entity set are parsed as the feed is
+     * received and handed over one by one to the iterator, instead of being
+     * all parsed when the query is executed. This allows large entity sets to
+     * be iterated over in constant memory. False by default.
+     * 
+     * @return True if the entities are parsed as the feed is received.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     /**
      * Returns an iterator over a set of elements of type T. It returns null if
-     * the query does not retrieve elements.
+     * the query does not retrieve elements. In streaming mode, entity sets are
+     * parsed while being iterated over.
      * 
      * @return an Iterator or null if the query does not retrieve elements.
+     * @see #isStreaming()
      */
     public Iterator<T> iterator() {
         Iterator<T> result = null;
 
         try {
-            execute();
-            result = entities.iterator();
-
-            // result = new FeedParser<T>(getFeed(), this.entityClass,
-            // ((Metadata) getService().getMetadata())).parse();
-            // Detect server-paging mode.
-            nextPage = null;
-            for (Link link : getFeed().getLinks()) {
-                if (Relation.NEXT.equals(link.getRel())) {
-                    nextPage = link.getHref();
-                    break;
+            String targetUri = createTargetUri();
+
+            if (isStreaming() && (guessType(targetUri) == TYPE_ENTITY_SET)) {
+                Metadata metadata = (Metadata) service.getMetadata();
+                if (metadata == null) {
+                    throw new Exception(
+                            "Can't execute the query without the service's metadata.");
+                }
+
+                result = new FeedIterator<T>(this.service, new Reference(
+                        targetUri), entityClass, entityType, metadata,
+                        isPrefetching(), getLogger());
+            } else {
+                result = getPage();
+
+                // Detect server-paging mode.
+                if (nextPage != null) {
+                    result = new EntryIterator<T>(this.service, result,
+                            nextPage, entityClass);
                 }
-            }
-            if (nextPage != null) {
-                result = new EntryIterator<T>(this.service, result, nextPage,
-                        entityClass);
             }
         } catch (Exception e) {
             getLogger().log(Level.WARNING,
@@ -717,6 +784,18 @@ public class Query<T> implements Iterable<T> {
         this.feed = feed;
     }
 
+    /**
+     * Indicates if the next page of a paged entity set is requested as soon as
+     * the current one has been parsed, in streaming mode.
+     * 
+     * @param prefetching
+     *            True if the next page is requested before it is needed.
+     * @see #setStreaming(boolean)
+     */
+    public void setPrefetching(boolean prefetching) {
+        this.prefetching = prefetching;
+    }
+
     /**
      * Sets the query string of the request.
      * 
@@ -727,6 +806,17 @@ public class Query<T> implements Iterable<T> {
         this.query = query;
     }
 
+    /**
+     * Indicates if the entities of an entity set are parsed as the feed is
+     * received and handed over one by one to the iterator.
+     * 
+     * @param streaming
+     *            True if the entities are parsed as the feed is received.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * Creates a new Query<T> with the $skip option set in the URI generated by
      * the returned query.
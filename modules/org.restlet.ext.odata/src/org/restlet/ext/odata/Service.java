@@ -37,6 +37,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -63,6 +64,7 @@ import org.restlet.ext.atom.Entry;
 import org.restlet.ext.atom.Feed;
 import org.restlet.ext.atom.Link;
 import org.restlet.ext.atom.Relation;
+import org.restlet.ext.odata.internal.ChangeSet;
 import org.restlet.ext.odata.internal.EntryContentHandler;
 import org.restlet.ext.odata.internal.edm.AssociationEnd;
 import org.restlet.ext.odata.internal.edm.ComplexProperty;
@@ -92,7 +94,13 @@ import org.xml.sax.helpers.AttributesImpl;
  * management.<br>
  * <br>
  * This Java class is more or less equivalent to the WCF DataServiceContext
- * class.
+ * class.<br>
+ * <br>
+ * When a batch size is set, the modifications of entities and links are not
+ * sent one by one but grouped into "$batch" requests, see the
+ * {@link #setBatchSize(int)} and {@link #saveChanges()} methods. No timer
+ * sends the pending modifications, so {@link #saveChanges()} must be called
+ * once the last modification is registered.
  * 
  * @author Jerome Louvel
  * @see <a
@@ -109,7 +117,19 @@ public class Service {
     /** WCF data services scheme namespace. */
     public final static String WCF_DATASERVICES_SCHEME_NAMESPACE = "http://schemas.microsoft.com/ado/2007/08/dataservices/scheme";
 
-    /** The client connector used in case the context does not deliver one. */
+    /**
+     * The maximum number of modifications grouped in a single "$batch"
+     * request. Batching is disabled if zero or less.
+     */
+    private volatile int batchSize;
+
+    /** The modifications not yet sent to the service. */
+    private ChangeSet changeSet;
+
+    /**
+     * The client connector used in case the context does not deliver one. It
+     * is shared by all the calls of this service.
+     */
     private Client clientConnector;
 
     /**
@@ -121,6 +141,12 @@ public class Service {
     /** The credentials used to authenticate requests. */
     private ChallengeResponse credentials;
 
+    /**
+     * The maximum delay in milliseconds a modification may wait in the
+     * pending change set. Disabled if zero or less.
+     */
+    private volatile long flushInterval;
+
     /** The latest request sent to the service. */
     private Request latestRequest;
 
@@ -158,9 +184,17 @@ public class Service {
         try {
             // Test the given service URI which may be actually redirected.
             ClientResource cr = new ClientResource(serviceRef);
-            if (cr.getNext() == null) {
+            Context context = cr.getContext();
+            org.restlet.Application application = org.restlet.Application
+                    .getCurrent();
+
+            if (((application == null) || (application
+                    .getOutboundRoot() == null))
+                    && ((context == null) || (context
+                            .getClientDispatcher() == null))) {
                 // The context does not provide a client connector.
-                // Let instantiate our own.
+                // Let instantiate our own and share it between calls, instead
+                // of letting each client resource create a new one.
                 Protocol rProtocol = cr.getProtocol();
                 Reference rReference = cr.getReference();
                 Protocol protocol = (rProtocol != null) ? rProtocol
@@ -182,6 +216,8 @@ public class Service {
             } else {
                 this.serviceRef = cr.getReference();
             }
+
+            cr.release();
         } catch (Throwable e) {
             this.serviceRef = serviceRef;
         }
@@ -198,7 +234,50 @@ public class Service {
     }
 
     /**
-     * Adds an entity to an entity set.
+     * Registers a modification in the pending change set, and sends the
+     * change set once the batch size or the flush interval is reached.
+     * 
+     * @param method
+     *            The method of the request.
+     * @param subpath
+     *            The path of the target resource relatively to the service
+     *            URI.
+     * @param content
+     *            The content of the request entity, if any.
+     * @param mediaType
+     *            The media type of the request entity.
+     * @param tag
+     *            The entity tag the target resource must match, if any.
+     * @param entity
+     *            The entity to update with the response entity, if any.
+     * @throws ResourceException
+     */
+    private void addChange(org.restlet.data.Method method, String subpath,
+            byte[] content, MediaType mediaType, String tag, Object entity)
+            throws ResourceException {
+        boolean flush;
+
+        synchronized (this) {
+            if (this.changeSet == null) {
+                this.changeSet = new ChangeSet();
+            }
+
+            this.changeSet.add(method, getReference(subpath), content,
+                    mediaType, tag, entity);
+            flush = (this.changeSet.size() >= getBatchSize())
+                    || ((getFlushInterval() > 0) && (System
+                            .currentTimeMillis()
+                            - this.changeSet.getStartTime() >= getFlushInterval()));
+        }
+
+        if (flush) {
+            saveChanges();
+        }
+    }
+
+    /**
+     * Adds an entity to an entity set. If batching is enabled, the creation is
+     * registered in the pending change set.
      * 
      * @param entitySetName
      *            The path of the entity set relatively to the service URI.
@@ -217,18 +296,23 @@ public class Service {
                         + " due to the lack of the service's metadata.");
             }
 
+            if (getBatchSize() > 0) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                entry.setCharacterSet(CharacterSet.UTF_8);
+                entry.write(baos);
+                addChange(org.restlet.data.Method.POST, entitySetName,
+                        baos.toByteArray(), MediaType.APPLICATION_ATOM, null,
+                        entity);
+                return;
+            }
+
             try {
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 entry.write(baos);
                 baos.flush();
                 StringRepresentation r = new StringRepresentation(
                         baos.toString(), MediaType.APPLICATION_ATOM);
-                Representation rep = resource.post(r);
-                EntryContentHandler<?> entryContentHandler = new EntryContentHandler<Object>(
-                        entity.getClass(), (Metadata) getMetadata(),
-                        getLogger());
-                Feed feed = new Feed();
-                feed.getEntries().add(new Entry(rep, entryContentHandler));
+                readEntity(resource.post(r), entity);
             } catch (ResourceException re) {
                 throw new ResourceException(re.getStatus(),
                         "Can't add entity to this entity set "
@@ -295,18 +379,9 @@ public class Service {
         }
 
         resource.setChallengeResponse(getCredentials());
+        Series<Header> headers = getVersionHeaders();
 
-        if (getClientVersion() != null || getMaxClientVersion() != null) {
-            Series<Header> headers = new Series<Header>(Header.class);
-
-            if (getClientVersion() != null) {
-                headers.add("DataServiceVersion", getClientVersion());
-            }
-
-            if (getMaxClientVersion() != null) {
-                headers.add("MaxDataServiceVersion", getMaxClientVersion());
-            }
-
+        if (headers != null) {
             resource.setAttribute(HeaderConstants.ATTRIBUTE_HEADERS, headers);
         }
 
@@ -325,26 +400,12 @@ public class Service {
      *         the service reference).
      */
     public ClientResource createResource(String relativePath) {
-        String ref = getServiceRef().toString();
-        if (ref.endsWith("/")) {
-            if (relativePath.startsWith("/")) {
-                ref = ref + relativePath.substring(1);
-            } else {
-                ref = ref + relativePath;
-            }
-        } else {
-            if (relativePath.startsWith("/")) {
-                ref = ref + relativePath;
-            } else {
-                ref = ref + "/" + relativePath;
-            }
-        }
-
-        return createResource(new Reference(ref));
+        return createResource(getReference(relativePath));
     }
 
     /**
-     * Deletes an entity.
+     * Deletes an entity. If batching is enabled, the deletion is registered in
+     * the pending change set.
      * 
      * @param entity
      *            The entity to delete
@@ -355,27 +416,24 @@ public class Service {
             return;
         }
 
-        ClientResource resource = createResource(getSubpath(entity));
-
-        try {
-            resource.delete();
-        } catch (ResourceException re) {
-            throw new ResourceException(re.getStatus(),
-                    "Can't delete this entity " + resource.getReference());
-        } finally {
-            this.latestRequest = resource.getRequest();
-            this.latestResponse = resource.getResponse();
-        }
+        deleteEntity(getSubpath(entity));
     }
 
     /**
-     * Deletes an entity.
+     * Deletes an entity. If batching is enabled, the deletion is registered in
+     * the pending change set.
      * 
      * @param entitySubpath
      *            The path of the entity to delete
      * @throws ResourceException
      */
     public void deleteEntity(String entitySubpath) throws ResourceException {
+        if (getBatchSize() > 0) {
+            addChange(org.restlet.data.Method.DELETE, entitySubpath, null,
+                    null, null, null);
+            return;
+        }
+
         ClientResource resource = createResource(entitySubpath);
 
         try {
@@ -409,6 +467,17 @@ public class Service {
         deleteEntity(getSubpath(source, sourceProperty, target));
     }
 
+    /**
+     * Returns the maximum number of modifications grouped in a single "$batch"
+     * request. Batching is disabled if zero or less, which is the default.
+     * 
+     * @return The maximum number of modifications grouped in a single "$batch"
+     *         request.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * Returns the version of the OData protocol extensions defined in every
      * request issued by this service.
@@ -429,6 +498,20 @@ public class Service {
         return credentials;
     }
 
+    /**
+     * Returns the maximum delay in milliseconds a modification may wait in the
+     * pending change set. The delay is only checked when a modification is
+     * registered, no timer sends a pending change set on its own: the last
+     * modifications are sent by {@link #saveChanges()}. Disabled if zero or
+     * less, which is the default.
+     * 
+     * @return The maximum delay in milliseconds a modification may wait in the
+     *         pending change set.
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
     /**
      * Returns the latest request sent to the service.
      * 
@@ -504,6 +587,33 @@ public class Service {
         return metadata;
     }
 
+    /**
+     * Returns the absolute reference of a resource given its path relatively
+     * to the service reference.
+     * 
+     * @param relativePath
+     *            The relative reference of the target resource.
+     * @return The absolute reference of the resource.
+     */
+    private Reference getReference(String relativePath) {
+        String ref = getServiceRef().toString();
+        if (ref.endsWith("/")) {
+            if (relativePath.startsWith("/")) {
+                ref = ref + relativePath.substring(1);
+            } else {
+                ref = ref + relativePath;
+            }
+        } else {
+            if (relativePath.startsWith("/")) {
+                ref = ref + relativePath;
+            } else {
+                ref = ref + "/" + relativePath;
+            }
+        }
+
+        return new Reference(ref);
+    }
+
     /**
      * Returns the version of the OData protocol extensions supported by the
      * remote service.
@@ -814,6 +924,31 @@ public class Service {
         return null;
     }
 
+    /**
+     * Returns the headers declaring the versions of the OData protocol
+     * extensions supported by the client, or null if none is set.
+     * 
+     * @return The headers declaring the versions of the OData protocol
+     *         extensions supported by the client.
+     */
+    private Series<Header> getVersionHeaders() {
+        Series<Header> result = null;
+
+        if (getClientVersion() != null || getMaxClientVersion() != null) {
+            result = new Series<Header>(Header.class);
+
+            if (getClientVersion() != null) {
+                result.add("DataServiceVersion", getClientVersion());
+            }
+
+            if (getMaxClientVersion() != null) {
+                result.add("MaxDataServiceVersion", getMaxClientVersion());
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Invokes a service operation and return the raw representation sent back
      * by the service.
@@ -965,6 +1100,105 @@ public class Service {
         }
     }
 
+    /**
+     * Updates an entity with the Atom entry sent back by the service.
+     * 
+     * @param entry
+     *            The Atom entry sent back by the service.
+     * @param entity
+     *            The entity to update.
+     * @throws IOException
+     */
+    private void readEntity(Representation entry, Object entity)
+            throws IOException {
+        EntryContentHandler<Object> entryContentHandler = new EntryContentHandler<Object>(
+                entity.getClass(), (Metadata) getMetadata(), getLogger());
+        entryContentHandler.setEntity(entity);
+        Feed feed = new Feed();
+        feed.getEntries().add(new Entry(entry, entryContentHandler));
+    }
+
+    /**
+     * Sends the pending change set to the service in a single "$batch"
+     * request. The pending change set is cleared, even if the request fails.
+     * The entities added in the change set are updated with the entries sent
+     * back by the service.
+     * 
+     * @return The response to each modification, in registration order.
+     * @throws ResourceException
+     *             Thrown when the batch request or one of the modifications
+     *             failed.
+     * @see <a
+     *      href="http://www.odata.org/documentation/odata-version-2-0/batch-processing">OData
+     *      batch processing</a>
+     */
+    public List<Response> saveChanges() throws ResourceException {
+        ChangeSet changes;
+
+        synchronized (this) {
+            changes = this.changeSet;
+            this.changeSet = null;
+        }
+
+        if (changes == null || changes.isEmpty()) {
+            return new ArrayList<Response>();
+        }
+
+        List<Response> result = null;
+        ClientResource resource = createResource("$batch");
+
+        try {
+            result = changes.getResponses(resource.post(changes
+                    .getRequestEntity(getVersionHeaders())));
+        } catch (ResourceException re) {
+            throw new ResourceException(re.getStatus(),
+                    "Can't save the change set to " + resource.getReference());
+        } catch (IOException ioe) {
+            throw new ResourceException(ioe);
+        } finally {
+            this.latestRequest = resource.getRequest();
+            this.latestResponse = resource.getResponse();
+        }
+
+        for (Response response : result) {
+            if (response.getStatus().isError()) {
+                throw new ResourceException(response.getStatus(),
+                        "Can't save the change set, the modification of "
+                                + response.getRequest().getResourceRef()
+                                + " failed");
+            }
+        }
+
+        // Update the added entities with the entries returned by the service
+        for (int i = 0; i < result.size(); i++) {
+            Object entity = changes.getEntity(i);
+
+            if ((entity != null) && result.get(i).isEntityAvailable()) {
+                try {
+                    readEntity(result.get(i).getEntity(), entity);
+                } catch (IOException ioe) {
+                    throw new ResourceException(ioe);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the maximum number of modifications grouped in a single "$batch"
+     * request. Once this number is reached, the pending change set is sent.
+     * Batching is disabled if zero or less, which is the default.
+     * 
+     * @param batchSize
+     *            The maximum number of modifications grouped in a single
+     *            "$batch" request.
+     * @see #saveChanges()
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * Sets the version of the OData protocol extensions defined in every
      * request issued by this service.
@@ -987,6 +1221,21 @@ public class Service {
         this.credentials = credentials;
     }
 
+    /**
+     * Sets the maximum delay in milliseconds a modification may wait in the
+     * pending change set. The delay is only checked when a modification is
+     * registered, no timer sends a pending change set on its own: the last
+     * modifications are sent by {@link #saveChanges()}. Disabled if zero or
+     * less, which is the default.
+     * 
+     * @param flushInterval
+     *            The maximum delay in milliseconds a modification may wait in
+     *            the pending change set.
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
     /**
      * Sets the latest request sent to the service.
      * 
@@ -1028,18 +1277,30 @@ public class Service {
         if (target != null) {
             // TODO Take into account the case where the target does exist.
             Metadata metadata = (Metadata) getMetadata();
-            ClientResource resource = createResource(metadata
-                    .getSubpath(source) + "/$links/" + sourceProperty);
+            String subpath = metadata.getSubpath(source) + "/$links/"
+                    + sourceProperty;
+            StringBuilder sb = new StringBuilder("<uri xmlns=\"");
+            sb.append(WCF_DATASERVICES_NAMESPACE);
+            sb.append("\">");
+            sb.append(getServiceRef().toString());
+            sb.append(metadata.getSubpath(target));
+            sb.append("</uri>");
+
+            if (getBatchSize() > 0) {
+                Series<Parameter> parameters = new Series<Parameter>(
+                        Parameter.class);
+                parameters.add("charset", CharacterSet.UTF_8.getName());
+                addChange(org.restlet.data.Method.PUT, subpath, sb.toString()
+                        .getBytes(CharacterSet.UTF_8.toCharset()),
+                        new MediaType(MediaType.APPLICATION_XML.getName(),
+                                parameters), null, null);
+                return;
+            }
+
+            ClientResource resource = createResource(subpath);
 
             try {
                 // TODO Fix chunked request with net client connector
-                StringBuilder sb = new StringBuilder("<uri xmlns=\"");
-                sb.append(WCF_DATASERVICES_NAMESPACE);
-                sb.append("\">");
-                sb.append(getServiceRef().toString());
-                sb.append(metadata.getSubpath(target));
-                sb.append("</uri>");
-
                 StringRepresentation r = new StringRepresentation(
                         sb.toString(), MediaType.APPLICATION_XML);
                 resource.put(r);
@@ -1236,7 +1497,8 @@ public class Service {
     }
 
     /**
-     * Updates an entity.
+     * Updates an entity. If batching is enabled, the update is registered in
+     * the pending change set.
      * 
      * @param entity
      *            The entity to put.
@@ -1248,6 +1510,17 @@ public class Service {
         }
 
         Entry entry = toEntry(entity);
+
+        if (getBatchSize() > 0) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            entry.setCharacterSet(CharacterSet.UTF_8);
+            entry.write(baos);
+            addChange(org.restlet.data.Method.PUT, getSubpath(entity),
+                    baos.toByteArray(), MediaType.APPLICATION_ATOM,
+                    getTag(entity), null);
+            return;
+        }
+
         ClientResource resource = createResource(getSubpath(entity));
 
         try {
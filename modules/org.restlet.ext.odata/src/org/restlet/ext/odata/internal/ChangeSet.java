@@ -0,0 +1,605 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.odata.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Parameter;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderReader;
+import org.restlet.engine.header.HeaderUtils;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.util.StringUtils;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.util.Series;
+
+/**
+ * Set of modifications sent to an OData service in a single "$batch" request.
+ * The operations are written as "application/http" parts of a multipart
+ * change set, each one identified by a "Content-ID" header which is used to
+ * correlate the parts of the batch response with the original operations.
+ * 
+ * @author Jerome Louvel
+ * @see <a
+ *      href="http://www.odata.org/documentation/odata-version-2-0/batch-processing">OData
+ *      batch processing</a>
+ */
+public class ChangeSet {
+
+    /** A modification registered in a change set. */
+    private static class Operation {
+        /** The content of the request entity, if any. */
+        private final byte[] content;
+
+        /** The entity to update with the response entity, if any. */
+        private final Object entity;
+
+        /** The media type of the request entity. */
+        private final MediaType mediaType;
+
+        /** The method of the request. */
+        private final Method method;
+
+        /** The target resource. */
+        private final Reference reference;
+
+        /** The entity tag the target resource must match, if any. */
+        private final String tag;
+
+        /**
+         * Constructor.
+         * 
+         * @param method
+         *            The method of the request.
+         * @param reference
+         *            The target resource.
+         * @param content
+         *            The content of the request entity, if any.
+         * @param mediaType
+         *            The media type of the request entity.
+         * @param tag
+         *            The entity tag the target resource must match, if any.
+         * @param entity
+         *            The entity to update with the response entity, if any.
+         */
+        public Operation(Method method, Reference reference, byte[] content,
+                MediaType mediaType, String tag, Object entity) {
+            this.method = method;
+            this.reference = reference;
+            this.content = content;
+            this.mediaType = mediaType;
+            this.tag = tag;
+            this.entity = entity;
+        }
+    }
+
+    /** The status of the operations missing from the batch response. */
+    private static final Status MISSING_RESPONSE = new Status(
+            Status.CONNECTOR_ERROR_COMMUNICATION,
+            "The batch response doesn't contain the response to this operation");
+
+    /** The media type of the batch requests and responses. */
+    private static final MediaType MULTIPART_MIXED = MediaType
+            .valueOf("multipart/mixed");
+
+    /**
+     * Returns the boundary declared by the media type of a multipart entity.
+     * 
+     * @param entity
+     *            The multipart entity.
+     * @return The boundary or null.
+     */
+    private static String getBoundary(Representation entity) {
+        String result = null;
+
+        if ((entity != null) && (entity.getMediaType() != null)
+                && MULTIPART_MIXED.equals(entity.getMediaType(), true)) {
+            result = entity.getMediaType().getParameters()
+                    .getFirstValue("boundary", true);
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits a multipart content into its parts. A part that is not followed
+     * by a delimiter is ignored.
+     * 
+     * @param content
+     *            The multipart content.
+     * @param boundary
+     *            The boundary separating the parts.
+     * @return The content of each part, headers included.
+     */
+    private static List<byte[]> getParts(byte[] content, String boundary) {
+        List<byte[]> result = new ArrayList<byte[]>();
+        byte[] delimiter = StringUtils.getAsciiBytes("\r\n--" + boundary);
+
+        // The first delimiter is not preceded by a line break if there is no
+        // preamble
+        int index = matches(content, 0, delimiter, 2) ? -2 : indexOf(content,
+                delimiter, 0);
+
+        while (index != -1) {
+            int start = index + delimiter.length;
+
+            if ((start + 1 < content.length) && (content[start] == '-')
+                    && (content[start + 1] == '-')) {
+                // Closing delimiter
+                break;
+            }
+
+            // Skip the transport padding of the delimiter line
+            while ((start < content.length) && (content[start] != '\n')) {
+                start++;
+            }
+
+            start++;
+            int end = indexOf(content, delimiter, start);
+
+            if (end != -1) {
+                byte[] part = new byte[end - start];
+                System.arraycopy(content, start, part, 0, part.length);
+                result.add(part);
+            }
+
+            index = end;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the index of the first occurrence of a pattern.
+     * 
+     * @param content
+     *            The content to search.
+     * @param pattern
+     *            The pattern to find.
+     * @param from
+     *            The index to search from.
+     * @return The index of the first occurrence or -1.
+     */
+    private static int indexOf(byte[] content, byte[] pattern, int from) {
+        for (int i = from; i <= content.length - pattern.length; i++) {
+            if (matches(content, i, pattern, 0)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Indicates if the content matches the end of a pattern at a given index.
+     * 
+     * @param content
+     *            The content to test.
+     * @param index
+     *            The index in the content.
+     * @param pattern
+     *            The pattern to match.
+     * @param patternStart
+     *            The index of the first byte of the pattern to match.
+     * @return True if the content matches the end of the pattern.
+     */
+    private static boolean matches(byte[] content, int index, byte[] pattern,
+            int patternStart) {
+        if ((index < 0)
+                || (index + pattern.length - patternStart > content.length)) {
+            return false;
+        }
+
+        for (int i = patternStart; i < pattern.length; i++) {
+            if (content[index + i - patternStart] != pattern[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads a block of header lines, up to the empty line or the end of the
+     * part, as a part without body may end with its last header line.
+     * 
+     * @param in
+     *            The content of the part.
+     * @return The list of headers.
+     * @throws IOException
+     */
+    private static Series<Header> readHeaders(ByteArrayInputStream in)
+            throws IOException {
+        Series<Header> result = new Series<Header>(Header.class);
+        StringBuilder sb = new StringBuilder();
+        Header header = (in.available() > 0) ? HeaderReader.readHeader(in, sb)
+                : null;
+
+        while (header != null) {
+            result.add(header);
+            header = (in.available() > 0) ? HeaderReader.readHeader(in, sb)
+                    : null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the status line of a response.
+     * 
+     * @param in
+     *            The stream to read.
+     * @return The status or null if the status line is invalid.
+     * @throws IOException
+     */
+    private static Status readStatus(InputStream in) throws IOException {
+        Status result = null;
+        StringBuilder sb = new StringBuilder();
+        int next = in.read();
+
+        while ((next != -1) && (next != '\n')) {
+            sb.append((char) next);
+            next = in.read();
+        }
+
+        String[] statusLine = sb.toString().trim().split(" ");
+
+        if ((statusLine.length >= 2) && statusLine[0].startsWith("HTTP/")) {
+            try {
+                result = Status.valueOf(Integer.parseInt(statusLine[1]));
+            } catch (NumberFormatException e) {
+                // Invalid status code
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the remaining content of a stream.
+     * 
+     * @param in
+     *            The stream to read.
+     * @return The remaining content.
+     * @throws IOException
+     */
+    private static byte[] toByteArray(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BioUtils.copy(in, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a multipart delimiter line.
+     * 
+     * @param out
+     *            The target stream.
+     * @param boundary
+     *            The boundary of the multipart content.
+     * @param closing
+     *            Indicates if this is the closing delimiter.
+     * @throws IOException
+     */
+    private static void writeDelimiter(OutputStream out, String boundary,
+            boolean closing) throws IOException {
+        out.write(StringUtils.getAsciiBytes("--" + boundary
+                + (closing ? "--" : "")));
+        HeaderUtils.writeCRLF(out);
+    }
+
+    /** The registered operations. */
+    private final List<Operation> operations;
+
+    /** The time when the first operation was registered. */
+    private volatile long startTime;
+
+    /**
+     * Constructor.
+     */
+    public ChangeSet() {
+        this.operations = new ArrayList<Operation>();
+    }
+
+    /**
+     * Registers an operation.
+     * 
+     * @param method
+     *            The method of the request.
+     * @param reference
+     *            The target resource.
+     * @param content
+     *            The content of the request entity, if any.
+     * @param mediaType
+     *            The media type of the request entity.
+     * @param tag
+     *            The entity tag the target resource must match, if any.
+     * @param entity
+     *            The entity to update with the response entity, if any.
+     */
+    public void add(Method method, Reference reference, byte[] content,
+            MediaType mediaType, String tag, Object entity) {
+        if (this.operations.isEmpty()) {
+            this.startTime = System.currentTimeMillis();
+        }
+
+        this.operations.add(new Operation(method, reference, content,
+                mediaType, tag, entity));
+    }
+
+    /**
+     * Returns the entity to update with the response entity of an operation.
+     * 
+     * @param index
+     *            The index of the operation, in registration order.
+     * @return The entity to update or null.
+     */
+    public Object getEntity(int index) {
+        return this.operations.get(index).entity;
+    }
+
+    /**
+     * Returns the "multipart/mixed" entity of the batch request.
+     * 
+     * @param headers
+     *            The additional headers set on each operation, or null.
+     * @return The entity of the batch request.
+     * @throws IOException
+     */
+    public Representation getRequestEntity(Series<Header> headers)
+            throws IOException {
+        String batchBoundary = "batch_" + UUID.randomUUID();
+        String changeSetBoundary = "changeset_" + UUID.randomUUID();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writeDelimiter(out, batchBoundary, false);
+        HeaderUtils.writeHeaderLine(new Header(
+                HeaderConstants.HEADER_CONTENT_TYPE, MULTIPART_MIXED.getName()
+                        + "; boundary=" + changeSetBoundary), out);
+        HeaderUtils.writeCRLF(out);
+
+        for (int i = 0; i < this.operations.size(); i++) {
+            Operation operation = this.operations.get(i);
+            writeDelimiter(out, changeSetBoundary, false);
+            HeaderUtils.writeHeaderLine(new Header(
+                    HeaderConstants.HEADER_CONTENT_TYPE, "application/http"),
+                    out);
+            HeaderUtils.writeHeaderLine(new Header(
+                    "Content-Transfer-Encoding", "binary"), out);
+            HeaderUtils.writeHeaderLine(
+                    new Header("Content-ID", Integer.toString(i + 1)), out);
+            HeaderUtils.writeCRLF(out);
+
+            out.write(StringUtils.getAsciiBytes(operation.method.getName()
+                    + " " + operation.reference + " HTTP/1.1"));
+            HeaderUtils.writeCRLF(out);
+
+            if (headers != null) {
+                for (Header header : headers) {
+                    HeaderUtils.writeHeaderLine(header, out);
+                }
+            }
+
+            if (operation.tag != null) {
+                HeaderUtils.writeHeaderLine(new Header(
+                        HeaderConstants.HEADER_IF_MATCH,
+                        new Tag(operation.tag).format()), out);
+            }
+
+            if (operation.content != null) {
+                HeaderUtils.writeHeaderLine(new Header(
+                        HeaderConstants.HEADER_CONTENT_TYPE,
+                        operation.mediaType.toString()), out);
+                HeaderUtils.writeHeaderLine(new Header(
+                        HeaderConstants.HEADER_CONTENT_LENGTH,
+                        Integer.toString(operation.content.length)), out);
+            }
+
+            HeaderUtils.writeCRLF(out);
+
+            if (operation.content != null) {
+                out.write(operation.content);
+                HeaderUtils.writeCRLF(out);
+            }
+        }
+
+        writeDelimiter(out, changeSetBoundary, true);
+        writeDelimiter(out, batchBoundary, true);
+
+        Series<Parameter> parameters = new Series<Parameter>(Parameter.class);
+        parameters.add("boundary", batchBoundary);
+        return new ByteArrayRepresentation(out.toByteArray(), new MediaType(
+                MULTIPART_MIXED.getName(), parameters));
+    }
+
+    /**
+     * Parses the entity of the batch response and returns the response to
+     * each registered operation, in registration order. When the service
+     * rejects the whole change set, its single response status is reported
+     * for every operation. The operations missing from the batch response,
+     * for example because it has no entity or a truncated one, are reported
+     * with a {@link Status#CONNECTOR_ERROR_COMMUNICATION} status.
+     * 
+     * @param entity
+     *            The entity of the batch response.
+     * @return The list of responses.
+     * @throws IOException
+     */
+    public List<Response> getResponses(Representation entity)
+            throws IOException {
+        List<Response> result = new ArrayList<Response>();
+
+        for (Operation operation : this.operations) {
+            Response response = new Response(new Request(operation.method,
+                    operation.reference));
+            response.setStatus(MISSING_RESPONSE);
+            result.add(response);
+        }
+
+        String boundary = getBoundary(entity);
+
+        if ((boundary == null) || !entity.isAvailable()) {
+            return result;
+        }
+
+        for (byte[] batchPart : getParts(toByteArray(entity.getStream()),
+                boundary)) {
+            ByteArrayInputStream in = new ByteArrayInputStream(batchPart);
+            Series<Header> headers = readHeaders(in);
+            String changeSetBoundary = getBoundary(HeaderUtils
+                    .extractEntityHeaders(headers, null));
+
+            if (changeSetBoundary != null) {
+                List<byte[]> parts = getParts(toByteArray(in),
+                        changeSetBoundary);
+
+                for (int i = 0; i < parts.size(); i++) {
+                    ByteArrayInputStream partIn = new ByteArrayInputStream(
+                            parts.get(i));
+                    setResponse(partIn, readHeaders(partIn), i, result);
+                }
+            } else {
+                // The whole change set failed
+                setResponse(in, headers, -1, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the time when the first operation was registered.
+     * 
+     * @return The time when the first operation was registered.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Indicates if no operation is registered.
+     * 
+     * @return True if no operation is registered.
+     */
+    public boolean isEmpty() {
+        return this.operations.isEmpty();
+    }
+
+    /**
+     * Updates the response of an operation with an "application/http" part of
+     * the batch response. The operation is identified by the "Content-ID"
+     * header if present, or by the position of the part otherwise.
+     * 
+     * @param in
+     *            The content of the part, after its header block.
+     * @param partHeaders
+     *            The headers of the part.
+     * @param position
+     *            The position of the part in the change set, or -1 if the
+     *            part applies to all the operations.
+     * @param responses
+     *            The responses to update.
+     * @throws IOException
+     */
+    private void setResponse(ByteArrayInputStream in,
+            Series<Header> partHeaders, int position, List<Response> responses)
+            throws IOException {
+        Status status = readStatus(in);
+
+        if (status == null) {
+            return;
+        }
+
+        Series<Header> headers = readHeaders(in);
+        String contentId = headers.getFirstValue("Content-ID", true);
+
+        if (contentId == null) {
+            contentId = partHeaders.getFirstValue("Content-ID", true);
+        }
+
+        int index = position;
+
+        if (contentId != null) {
+            try {
+                index = Integer.parseInt(contentId.trim()) - 1;
+            } catch (NumberFormatException e) {
+                // Fall back to the position of the part
+            }
+        }
+
+        byte[] body = toByteArray(in);
+
+        for (int i = 0; i < responses.size(); i++) {
+            if ((index == -1) || (index == i)) {
+                Response response = responses.get(i);
+                response.setStatus(status);
+
+                if (body.length > 0) {
+                    response.setEntity(HeaderUtils.extractEntityHeaders(
+                            headers, new ByteArrayRepresentation(body)));
+                }
+
+                HeaderUtils.copyResponseTransportHeaders(headers, response);
+                response.getAttributes().put(
+                        HeaderConstants.ATTRIBUTE_HEADERS, headers);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of registered operations.
+     * 
+     * @return The number of registered operations.
+     */
+    public int size() {
+        return this.operations.size();
+    }
+
+}
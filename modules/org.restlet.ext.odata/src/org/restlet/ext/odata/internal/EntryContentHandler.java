@@ -128,6 +128,9 @@ public class EntryContentHandler<T> extends EntryReader {
     /** Heap of states. */
     List<State> states;
 
+    /** The existing entity to update with the next entry, if any. */
+    private T updatedEntity;
+
     /**
      * Constructor.
      * 
@@ -503,6 +506,17 @@ public class EntryContentHandler<T> extends EntryReader {
         this.states.add(state);
     }
 
+    /**
+     * Sets the existing entity to update with the next parsed entry, instead
+     * of a new instance of the entity class.
+     * 
+     * @param entity
+     *            The entity to update.
+     */
+    public void setEntity(T entity) {
+        this.updatedEntity = entity;
+    }
+
     @Override
     public void startContent(Content content) {
         if (State.ENTRY == getState()) {
@@ -660,12 +674,17 @@ public class EntryContentHandler<T> extends EntryReader {
         this.states = new ArrayList<State>();
         pushState(State.ENTRY);
         eltPath = new ArrayList<String>();
-        // Instantiate the entity
-        try {
-            entity = (T) entityClass.newInstance();
-        } catch (Exception e) {
-            getLogger().warning(
-                    "Error when instantiating  class " + entityClass);
+        // Instantiate the entity, unless an existing one is updated
+        if (this.updatedEntity != null) {
+            entity = this.updatedEntity;
+            this.updatedEntity = null;
+        } else {
+            try {
+                entity = (T) entityClass.newInstance();
+            } catch (Exception e) {
+                getLogger().warning(
+                        "Error when instantiating  class " + entityClass);
+            }
         }
     }
 
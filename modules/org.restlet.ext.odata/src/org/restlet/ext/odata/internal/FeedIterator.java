@@ -0,0 +1,456 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.odata.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.engine.Engine;
+import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.ext.atom.Entry;
+import org.restlet.ext.atom.Feed;
+import org.restlet.ext.atom.Link;
+import org.restlet.ext.atom.Relation;
+import org.restlet.ext.odata.Service;
+import org.restlet.ext.odata.internal.edm.EntityType;
+import org.restlet.ext.odata.internal.edm.Metadata;
+import org.restlet.representation.Representation;
+import org.restlet.resource.ClientResource;
+
+/**
+ * Iterator over the entities of a feed that parses them as the Atom document
+ * is received, and transparently follows the server-side paging links. The
+ * parsing happens in a background thread that hands the entities over through
+ * a bounded queue, so that only a few entities are kept in memory at a time.
+ * The latest request and response of the service are updated by the consuming
+ * thread when it reaches the end of each page. If a page can't be retrieved or
+ * parsed, the error is thrown by the {@link #hasNext()} method.
+ * 
+ * @author Jerome Louvel
+ * @param <T>
+ *            The type of the parsed entities.
+ */
+public class FeedIterator<T> implements Iterator<T> {
+
+    /**
+     * Thrown in the parsing thread to stop it when the iterator has been
+     * abandoned.
+     */
+    private static class AbortException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Feed handler that hands over the parsed entities to the iterator.
+     * 
+     * @param <T>
+     *            The type of the parsed entities.
+     */
+    private static class EntityHandler<T> extends FeedContentHandler<T> {
+
+        /** The parsing task. */
+        private final PageParser<T> parser;
+
+        /**
+         * Constructor.
+         * 
+         * @param parser
+         *            The parsing task.
+         */
+        public EntityHandler(PageParser<T> parser) {
+            super(parser.entityClass, parser.entityType, parser.metadata,
+                    parser.logger);
+            this.parser = parser;
+        }
+
+        @Override
+        protected void addEntity(T entity) {
+            this.parser.put(entity);
+        }
+
+        @Override
+        public boolean isRetained(Entry entry) {
+            // The entry is not needed anymore
+            return false;
+        }
+    }
+
+    /**
+     * Marks the end of a page in the queue.
+     */
+    private static class PageEnd {
+
+        /** The error that interrupted the parsing, if any. */
+        private final Throwable error;
+
+        /** The reference of the next page to parse, if any. */
+        private final Reference nextPage;
+
+        /** Indicates if the next page is already being parsed. */
+        private final boolean prefetched;
+
+        /** The request of the page, if sent. */
+        private final Request request;
+
+        /** The response of the page, if received. */
+        private final Response response;
+
+        /**
+         * Constructor.
+         * 
+         * @param resource
+         *            The resource of the page, if created.
+         * @param nextPage
+         *            The reference of the next page to parse, if any.
+         * @param prefetched
+         *            Indicates if the next page is already being parsed.
+         * @param error
+         *            The error that interrupted the parsing, if any.
+         */
+        public PageEnd(ClientResource resource, Reference nextPage,
+                boolean prefetched, Throwable error) {
+            this.request = (resource == null) ? null : resource.getRequest();
+            this.response = (resource == null) ? null : resource
+                    .getResponse();
+            this.nextPage = nextPage;
+            this.prefetched = prefetched;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Task that gets and parses pages of entities. It only keeps a weak
+     * reference to the iterator in order to stop when it has been abandoned.
+     * 
+     * @param <T>
+     *            The type of the parsed entities.
+     */
+    private static class PageParser<T> implements Runnable {
+
+        /** The class of the parsed entities. */
+        private final Class<?> entityClass;
+
+        /** The entity type of the parsed entities. */
+        private final EntityType entityType;
+
+        /** The iterator consuming the entities. */
+        private final WeakReference<FeedIterator<T>> iterator;
+
+        /** The logger. */
+        private final Logger logger;
+
+        /** The metadata of the OData service. */
+        private final Metadata metadata;
+
+        /** The reference of the page to parse. */
+        private Reference pageRef;
+
+        /** The resource of the page being parsed. */
+        private ClientResource pageResource;
+
+        /** Indicates if the following pages are parsed without waiting. */
+        private final boolean prefetching;
+
+        /** The queue of parsed entities. */
+        private final BlockingQueue<Object> queue;
+
+        /** The underlying service. */
+        private final Service service;
+
+        /**
+         * Constructor.
+         * 
+         * @param iterator
+         *            The iterator consuming the entities.
+         * @param pageRef
+         *            The reference of the page to parse.
+         */
+        public PageParser(FeedIterator<T> iterator, Reference pageRef) {
+            this.entityClass = iterator.entityClass;
+            this.entityType = iterator.entityType;
+            this.iterator = new WeakReference<FeedIterator<T>>(iterator);
+            this.logger = iterator.logger;
+            this.metadata = iterator.metadata;
+            this.pageRef = pageRef;
+            this.prefetching = iterator.prefetching;
+            this.queue = iterator.queue;
+            this.service = iterator.service;
+        }
+
+        /**
+         * Gets and parses the current page, and returns the reference of the
+         * next one, if any.
+         * 
+         * @return The reference of the next page or null.
+         * @throws Exception
+         */
+        private Reference parse() throws Exception {
+            Reference result = null;
+            ClientResource resource = this.service.createResource(this.pageRef);
+            this.pageResource = resource;
+            Representation rep = resource.get(MediaType.APPLICATION_ATOM);
+
+            try {
+                Feed feed = new Feed(rep, new EntityHandler<T>(this));
+
+                for (Link link : feed.getLinks()) {
+                    if (Relation.NEXT.equals(link.getRel())) {
+                        result = link.getHref();
+                        break;
+                    }
+                }
+            } finally {
+                rep.release();
+            }
+
+            return result;
+        }
+
+        /**
+         * Adds an object to the queue, waiting for the iterator to consume
+         * older ones if needed.
+         * 
+         * @param object
+         *            The object to add.
+         */
+        private void put(Object object) {
+            try {
+                while (!this.queue.offer(object, 1, TimeUnit.SECONDS)) {
+                    if (this.iterator.get() == null) {
+                        throw new AbortException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortException();
+            }
+        }
+
+        public void run() {
+            try {
+                Reference nextPage = null;
+
+                do {
+                    nextPage = parse();
+
+                    if (this.prefetching && (nextPage != null)) {
+                        put(new PageEnd(this.pageResource, nextPage, true,
+                                null));
+                        this.pageRef = nextPage;
+                    }
+                } while (this.prefetching && (nextPage != null));
+
+                put(new PageEnd(this.pageResource, nextPage, false, null));
+            } catch (AbortException e) {
+                this.logger.fine("The iteration over " + this.pageRef
+                        + " has been abandoned.");
+            } catch (Throwable t) {
+                try {
+                    put(new PageEnd(this.pageResource, null, false, t));
+                } catch (AbortException e) {
+                    // The iteration has been abandoned.
+                }
+            }
+        }
+    }
+
+    /** The default number of parsed entities waiting to be consumed. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** The executor of the parsing tasks, shared by all the iterators. */
+    private static final ExecutorService EXECUTOR = Executors
+            .newCachedThreadPool(new LoggingThreadFactory(Engine
+                    .getLogger(FeedIterator.class), true));
+
+    /** Indicates if the iteration is over. */
+    private boolean done;
+
+    /** The class of the parsed entities. */
+    private final Class<?> entityClass;
+
+    /** The entity type of the parsed entities. */
+    private final EntityType entityType;
+
+    /** The error that interrupted the parsing, if any. */
+    private RuntimeException error;
+
+    /** The logger. */
+    private final Logger logger;
+
+    /** The metadata of the OData service. */
+    private final Metadata metadata;
+
+    /** The next entity to return. */
+    private T next;
+
+    /** Indicates if the following pages are parsed without waiting. */
+    private final boolean prefetching;
+
+    /** The queue of parsed entities and page ends. */
+    private final BlockingQueue<Object> queue;
+
+    /** The underlying service. */
+    private final Service service;
+
+    /**
+     * Constructor. Starts parsing the first page immediately.
+     * 
+     * @param service
+     *            The underlying service.
+     * @param pageRef
+     *            The reference of the first page.
+     * @param entityClass
+     *            The class of the parsed entities.
+     * @param entityType
+     *            The entity type of the parsed entities.
+     * @param metadata
+     *            The metadata of the OData service.
+     * @param prefetching
+     *            True if a page should be requested as soon as the previous
+     *            one is parsed, instead of when its entities are consumed.
+     * @param logger
+     *            The logger.
+     */
+    public FeedIterator(Service service, Reference pageRef,
+            Class<?> entityClass, EntityType entityType, Metadata metadata,
+            boolean prefetching, Logger logger) {
+        this.done = false;
+        this.entityClass = entityClass;
+        this.entityType = entityType;
+        this.logger = logger;
+        this.metadata = metadata;
+        this.next = null;
+        this.prefetching = prefetching;
+        this.queue = new ArrayBlockingQueue<Object>(DEFAULT_CAPACITY);
+        this.service = service;
+        start(pageRef);
+    }
+
+    /**
+     * Indicates if there is a next entity, waiting for it to be parsed if
+     * needed.
+     * 
+     * @return True if there is a next entity.
+     * @throws RuntimeException
+     *             If a page couldn't be retrieved or parsed. It wraps the
+     *             original error unless it was already unchecked.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (this.error != null) {
+            throw this.error;
+        }
+
+        while ((this.next == null) && !this.done) {
+            Object object = null;
+
+            try {
+                object = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.done = true;
+            }
+
+            if (object instanceof PageEnd) {
+                PageEnd pageEnd = (PageEnd) object;
+
+                if (pageEnd.request != null) {
+                    this.service.setLatestRequest(pageEnd.request);
+                    this.service.setLatestResponse(pageEnd.response);
+                }
+
+                if (pageEnd.error != null) {
+                    this.done = true;
+
+                    if (pageEnd.error instanceof RuntimeException) {
+                        this.error = (RuntimeException) pageEnd.error;
+                    } else if (pageEnd.error instanceof Error) {
+                        throw (Error) pageEnd.error;
+                    } else {
+                        this.error = new RuntimeException(
+                                "Can't parse the content of the feed",
+                                pageEnd.error);
+                    }
+
+                    throw this.error;
+                } else if (pageEnd.nextPage == null) {
+                    this.done = true;
+                } else if (!pageEnd.prefetched) {
+                    // Get the next page on demand
+                    start(pageEnd.nextPage);
+                }
+            } else if (object != null) {
+                this.next = (T) object;
+            }
+        }
+
+        return this.next != null;
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        T result = this.next;
+        this.next = null;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Starts parsing the given page in a background thread.
+     * 
+     * @param pageRef
+     *            The reference of the page.
+     */
+    private void start(Reference pageRef) {
+        EXECUTOR.execute(new PageParser<T>(this, pageRef));
+    }
+
+}
@@ -33,7 +33,18 @@
 
 package org.restlet.ext.rdf;
 
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
@@ -41,18 +52,108 @@ import org.restlet.representation.Representation;
 
 /**
  * Graph composed of links. This also called a set of RDF statements or a RDF
- * model.
+ * model.<br>
+ * <br>
+ * The links are kept in insertion order and indexed by source, type and
+ * target, so that adding a link takes constant time and that links can be
+ * found by pattern with the {@link #find(Object, Reference, Object)} method.
+ * Only references and literals are indexed, links with graph or link nodes
+ * being found by scanning. Equal references are shared between the links of
+ * the graph in order to reduce memory usage.<br>
+ * <br>
+ * Note that the links, and their nested graphs, must not be modified while
+ * they are part of the graph.<br>
+ * <br>
+ * Also note that unlike previous versions based on a copy-on-write set, this
+ * class isn't thread-safe. When a graph is shared between threads, all
+ * accesses, including the iterations, must be synchronized on the graph
+ * instance.
  * 
  * @author Jerome Louvel
  */
-public class Graph extends CopyOnWriteArraySet<Link> {
+public class Graph extends AbstractSet<Link> implements Serializable {
+
+    /**
+     * Iterator keeping the indexes up to date when links are removed.
+     */
+    private class LinkIterator implements Iterator<Link> {
+
+        /** The last returned link. */
+        private Link current;
+
+        /** The wrapped iterator. */
+        private final Iterator<Link> iterator;
+
+        /**
+         * Constructor.
+         * 
+         * @param iterator
+         *            The wrapped iterator.
+         */
+        public LinkIterator(Iterator<Link> iterator) {
+            this.iterator = iterator;
+        }
+
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        public Link next() {
+            this.current = this.iterator.next();
+            return this.current;
+        }
+
+        public void remove() {
+            this.iterator.remove();
+            unindex(this.current);
+        }
+    }
 
     /** The serialization unique identifier. */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Indicates if a link node is indexed.
+     * 
+     * @param node
+     *            The link node.
+     * @return True if the link node is indexed.
+     */
+    private static boolean isIndexed(Object node) {
+        return (node instanceof Reference) || (node instanceof Literal);
+    }
+
+    /**
+     * Indicates if a link node matches a node pattern.
+     * 
+     * @param pattern
+     *            The node pattern or null to match any node.
+     * @param node
+     *            The link node.
+     * @return True if the link node matches.
+     */
+    private static boolean matches(Object pattern, Object node) {
+        return (pattern == null) || pattern.equals(node);
+    }
+
     /** The default link that is used to complete new links. */
     private Link defaultLink;
 
+    /** The links, in insertion order. */
+    private final Set<Link> links;
+
+    /** The shared references. */
+    private transient Map<Reference, Reference> references;
+
+    /** The links indexed by source. */
+    private transient Map<Object, Set<Link>> sourceIndex;
+
+    /** The links indexed by target. */
+    private transient Map<Object, Set<Link>> targetIndex;
+
+    /** The links indexed by type. */
+    private transient Map<Object, Set<Link>> typeIndex;
+
     /**
      * Default constructor.
      */
@@ -68,6 +169,31 @@ public class Graph extends CopyOnWriteArraySet<Link> {
      */
     public Graph(Link defaultLink) {
         this.defaultLink = defaultLink;
+        this.links = new LinkedHashSet<Link>();
+        initIndexes();
+    }
+
+    /**
+     * Adds a link if it isn't already part of the graph. The references of the
+     * link are replaced by equal references already used in the graph, if
+     * any.
+     * 
+     * @param link
+     *            The link to add.
+     * @return True if the link was added.
+     */
+    @Override
+    public boolean add(Link link) {
+        boolean result = this.links.add(link);
+
+        if (result) {
+            intern(link);
+            index(this.sourceIndex, link.getSource(), link);
+            index(this.typeIndex, link.getTypeRef(), link);
+            index(this.targetIndex, link.getTarget(), link);
+        }
+
+        return result;
     }
 
     /**
@@ -309,6 +435,77 @@ public class Graph extends CopyOnWriteArraySet<Link> {
                 new Reference(targetRef));
     }
 
+    @Override
+    public void clear() {
+        this.links.clear();
+        initIndexes();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return this.links.contains(object);
+    }
+
+    /**
+     * Returns the links matching a pattern, in insertion order. Each null
+     * parameter matches any value. The indexes are used for the source, type
+     * or target given as {@link Reference} or {@link Literal}.
+     * 
+     * @param source
+     *            The source to match or null.
+     * @param typeRef
+     *            The type reference to match or null.
+     * @param target
+     *            The target to match or null.
+     * @return The list of matching links.
+     */
+    public List<Link> find(Object source, Reference typeRef, Object target) {
+        Iterable<Link> candidates = this.links;
+        int count = this.links.size();
+
+        // Select the smallest indexed set of candidates
+        if (isIndexed(source)) {
+            Set<Link> bucket = getIndexed(this.sourceIndex, source);
+
+            if (bucket.size() < count) {
+                candidates = bucket;
+                count = bucket.size();
+            }
+        }
+
+        if (typeRef != null) {
+            Set<Link> bucket = getIndexed(this.typeIndex, typeRef);
+
+            if (bucket.size() < count) {
+                candidates = bucket;
+                count = bucket.size();
+            }
+        }
+
+        if (isIndexed(target)) {
+            Set<Link> bucket = getIndexed(this.targetIndex, target);
+
+            if (bucket.size() < count) {
+                candidates = bucket;
+                count = bucket.size();
+            }
+        }
+
+        List<Link> result = new ArrayList<Link>();
+
+        if (count > 0) {
+            for (Link link : candidates) {
+                if (matches(source, link.getSource())
+                        && matches(typeRef, link.getTypeRef())
+                        && matches(target, link.getTarget())) {
+                    result.add(link);
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the default link that is used to complete new links.
      * 
@@ -318,6 +515,20 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         return defaultLink;
     }
 
+    /**
+     * Returns the indexed links for a given node.
+     * 
+     * @param index
+     *            The index to look up.
+     * @param node
+     *            The indexed node.
+     * @return The indexed links, possibly empty.
+     */
+    private Set<Link> getIndexed(Map<Object, Set<Link>> index, Object node) {
+        Set<Link> result = index.get(node);
+        return (result == null) ? Collections.<Link> emptySet() : result;
+    }
+
     /**
      * Returns a representation in the RDF/n3 format.
      * 
@@ -444,6 +655,130 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         return result;
     }
 
+    /**
+     * Indexes a link for a given node.
+     * 
+     * @param index
+     *            The index to update.
+     * @param node
+     *            The link node.
+     * @param link
+     *            The link to index.
+     */
+    private void index(Map<Object, Set<Link>> index, Object node, Link link) {
+        if (isIndexed(node)) {
+            Set<Link> bucket = index.get(node);
+
+            if (bucket == null) {
+                bucket = new LinkedHashSet<Link>(4);
+                index.put(node, bucket);
+            }
+
+            bucket.add(link);
+        }
+    }
+
+    /**
+     * Initializes empty indexes.
+     */
+    private void initIndexes() {
+        this.references = new HashMap<Reference, Reference>();
+        this.sourceIndex = new HashMap<Object, Set<Link>>();
+        this.typeIndex = new HashMap<Object, Set<Link>>();
+        this.targetIndex = new HashMap<Object, Set<Link>>();
+    }
+
+    /**
+     * Replaces the references of a link by equal references already used in
+     * the graph, if any.
+     * 
+     * @param link
+     *            The link to update.
+     */
+    private void intern(Link link) {
+        if (link.hasReferenceSource()) {
+            Reference sourceRef = intern(link.getSourceAsReference());
+
+            if (sourceRef != link.getSource()) {
+                link.setSource(sourceRef);
+            }
+        }
+
+        Reference typeRef = intern(link.getTypeRef());
+
+        if (typeRef != link.getTypeRef()) {
+            link.setTypeRef(typeRef);
+        }
+
+        if (link.hasReferenceTarget()) {
+            Reference targetRef = intern(link.getTargetAsReference());
+
+            if (targetRef != link.getTarget()) {
+                link.setTarget(targetRef);
+            }
+        }
+    }
+
+    /**
+     * Returns the reference equal to the given one and already used in the
+     * graph, or the given one after registering it.
+     * 
+     * @param reference
+     *            The reference to share.
+     * @return The shared reference.
+     */
+    private Reference intern(Reference reference) {
+        Reference result = reference;
+
+        if (reference != null) {
+            result = this.references.get(reference);
+
+            if (result == null) {
+                this.references.put(reference, reference);
+                result = reference;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Iterator<Link> iterator() {
+        return new LinkIterator(this.links.iterator());
+    }
+
+    /**
+     * Rebuilds the indexes after deserialization.
+     * 
+     * @param in
+     *            The object input stream.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        initIndexes();
+
+        for (Link link : this.links) {
+            intern(link);
+            index(this.sourceIndex, link.getSource(), link);
+            index(this.typeIndex, link.getTypeRef(), link);
+            index(this.targetIndex, link.getTarget(), link);
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        boolean result = this.links.remove(object);
+
+        if (result) {
+            unindex((Link) object);
+        }
+
+        return result;
+    }
+
     /**
      * Sets the default link that is used to complete new links.
      * 
@@ -454,4 +789,46 @@ public class Graph extends CopyOnWriteArraySet<Link> {
         this.defaultLink = defaultLink;
     }
 
+    @Override
+    public int size() {
+        return this.links.size();
+    }
+
+    /**
+     * Removes a link from the indexes.
+     * 
+     * @param link
+     *            The link to remove.
+     */
+    private void unindex(Link link) {
+        unindex(this.sourceIndex, link.getSource(), link);
+        unindex(this.typeIndex, link.getTypeRef(), link);
+        unindex(this.targetIndex, link.getTarget(), link);
+    }
+
+    /**
+     * Removes a link from an index for a given node.
+     * 
+     * @param index
+     *            The index to update.
+     * @param node
+     *            The link node.
+     * @param link
+     *            The link to remove.
+     */
+    private void unindex(Map<Object, Set<Link>> index, Object node,
+            Link link) {
+        if (isIndexed(node)) {
+            Set<Link> bucket = index.get(node);
+
+            if (bucket != null) {
+                bucket.remove(link);
+
+                if (bucket.isEmpty()) {
+                    index.remove(node);
+                }
+            }
+        }
+    }
+
 }
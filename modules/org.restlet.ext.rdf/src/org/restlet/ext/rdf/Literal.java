@@ -35,6 +35,7 @@ package org.restlet.ext.rdf;
 
 import org.restlet.data.Language;
 import org.restlet.data.Reference;
+import org.restlet.engine.util.SystemUtils;
 
 /**
  * Literal as defined by RDF. Composed of the literal value, optional datatype
@@ -93,6 +94,28 @@ public class Literal {
         this.language = language;
     }
 
+    /**
+     * Indicates if the literal is equal to a given one, comparing the value,
+     * the datatype reference and the language.
+     * 
+     * @param other
+     *            The other literal.
+     * @return True if both literals are equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        boolean result = (this == other);
+
+        if (!result && (other instanceof Literal)) {
+            Literal literal = (Literal) other;
+            result = isSame(getValue(), literal.getValue())
+                    && isSame(getDatatypeRef(), literal.getDatatypeRef())
+                    && isSame(getLanguage(), literal.getLanguage());
+        }
+
+        return result;
+    }
+
     /**
      * Returns the optional datatype reference.
      * 
@@ -120,6 +143,25 @@ public class Literal {
         return value;
     }
 
+    @Override
+    public int hashCode() {
+        return SystemUtils.hashCode(getValue(), getDatatypeRef(),
+                getLanguage());
+    }
+
+    /**
+     * Indicates if two optional properties are equal.
+     * 
+     * @param value1
+     *            The first value.
+     * @param value2
+     *            The second value.
+     * @return True if both values are null or equal.
+     */
+    private boolean isSame(Object value1, Object value2) {
+        return (value1 == null) ? (value2 == null) : value1.equals(value2);
+    }
+
     /**
      * Indicates if the literal is plain. Plain literals have a value and an
      * optional language tag.
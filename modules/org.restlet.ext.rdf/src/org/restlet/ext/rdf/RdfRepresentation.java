@@ -120,7 +120,7 @@ public class RdfRepresentation extends WriterRepresentation {
      *         representation.
      */
     public GraphHandler createBuilder(Graph graph) {
-        return new GraphBuilder(this.graph);
+        return new GraphBuilder(graph);
     }
 
     /**
@@ -226,7 +226,9 @@ public class RdfRepresentation extends WriterRepresentation {
 
     /**
      * Parses the inner RDF representation. The given graph handler is invoked
-     * each time a link is detected.
+     * each time a link is detected. Unlike {@link #getGraph()}, the links are
+     * not retained, allowing large documents to be processed in constant
+     * memory.
      * 
      * @param graphHandler
      *            The graph handler.
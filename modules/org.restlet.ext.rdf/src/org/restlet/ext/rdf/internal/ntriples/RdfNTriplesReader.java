@@ -33,32 +33,37 @@
 
 package org.restlet.ext.rdf.internal.ntriples;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Reader;
 
+import org.restlet.data.Language;
 import org.restlet.data.Reference;
-import org.restlet.engine.io.IoUtils;
 import org.restlet.ext.rdf.GraphHandler;
-import org.restlet.ext.rdf.Link;
 import org.restlet.ext.rdf.Literal;
 import org.restlet.ext.rdf.internal.RdfReader;
 import org.restlet.representation.Representation;
 
 /**
- * Handler of RDF content according to the N-Triples notation.
+ * Handler of RDF content according to the N-Triples notation. The content is
+ * read through a fixed size buffer and each statement is sent to the graph
+ * handler as soon as it has been parsed, so that documents of any size can be
+ * processed in constant memory.
  * 
  * @author Thierry Boileau
  */
 public class RdfNTriplesReader extends RdfReader {
 
-    /** Internal buffered reader. */
-    private BufferedReader br;
+    /** The character reader. */
+    private Reader reader;
 
     /** The reading buffer. */
     private final char[] buffer;
 
+    /**
+     * Characters of the current token that didn't fit in the reading buffer.
+     */
+    private StringBuilder overflow;
+
     /** Size of the reading buffer. */
     private final int BUFFER_SIZE = 4096;
 
@@ -74,6 +79,12 @@ public class RdfNTriplesReader extends RdfReader {
     /** Start index of current lexical unit. */
     private int startTokenIndex;
 
+    /**
+     * Indicates if the scout index has been moved back to the previous part of
+     * the buffer, whose following part is then already filled.
+     */
+    private boolean steppedBack;
+
     /**
      * Constructor.
      * 
@@ -92,10 +103,8 @@ public class RdfNTriplesReader extends RdfReader {
         // Mark the upper index of each part.
         this.buffer[BUFFER_SIZE] = this.buffer[2 * BUFFER_SIZE + 1] = EOF;
         this.scoutIndex = 2 * BUFFER_SIZE;
-        this.startTokenIndex = 0;
-
-        this.br = new BufferedReader(getRdfRepresentation().getReader(),
-                IoUtils.BUFFER_SIZE);
+        this.startTokenIndex = this.scoutIndex;
+        this.reader = getRdfRepresentation().getReader();
     }
 
     /**
@@ -135,6 +144,34 @@ public class RdfNTriplesReader extends RdfReader {
      */
     protected void discard() {
         startTokenIndex = scoutIndex;
+
+        if (overflow != null) {
+            overflow.setLength(0);
+        }
+    }
+
+    /**
+     * Fills one part of the reading buffer, and marks the end of the read
+     * characters.
+     * 
+     * @param offset
+     *            The index of the part to fill.
+     * @throws IOException
+     */
+    private void fill(int offset) throws IOException {
+        int count = 0;
+        int len = 0;
+
+        // A reader may return less characters than available.
+        while ((count < BUFFER_SIZE) && (len != -1)) {
+            len = this.reader.read(buffer, offset + count, BUFFER_SIZE - count);
+
+            if (len > 0) {
+                count += len;
+            }
+        }
+
+        buffer[offset + count] = EOF;
     }
 
     /**
@@ -152,43 +189,37 @@ public class RdfNTriplesReader extends RdfReader {
      * @return The current token.
      */
     protected String getCurrentToken() {
-        StringBuilder builder = new StringBuilder();
-        if (startTokenIndex <= scoutIndex) {
-            if (scoutIndex <= BUFFER_SIZE) {
-                for (int i = startTokenIndex; i < scoutIndex; i++) {
-                    builder.append(buffer[i]);
-                }
-            } else {
-                for (int i = startTokenIndex; i < BUFFER_SIZE; i++) {
-                    builder.append(buffer[i]);
-                }
-                for (int i = BUFFER_SIZE + 1; i < scoutIndex; i++) {
-                    builder.append(buffer[i]);
-                }
-            }
+        String result;
+        boolean contiguous = (startTokenIndex <= scoutIndex)
+                && ((scoutIndex <= BUFFER_SIZE) || (startTokenIndex > BUFFER_SIZE));
+
+        if (contiguous && ((overflow == null) || (overflow.length() == 0))) {
+            result = new String(buffer, startTokenIndex, scoutIndex
+                    - startTokenIndex);
         } else {
-            if (startTokenIndex <= BUFFER_SIZE) {
-                for (int i = startTokenIndex; i < BUFFER_SIZE; i++) {
-                    builder.append(buffer[i]);
-                }
-                for (int i = BUFFER_SIZE + 1; i < (2 * BUFFER_SIZE + 1); i++) {
-                    builder.append(buffer[i]);
-                }
-                for (int i = 0; i < scoutIndex; i++) {
-                    builder.append(buffer[i]);
-                }
+            StringBuilder builder = (overflow == null) ? new StringBuilder()
+                    : overflow;
+
+            if (contiguous) {
+                builder.append(buffer, startTokenIndex, scoutIndex
+                        - startTokenIndex);
+            } else if (startTokenIndex <= scoutIndex) {
+                builder.append(buffer, startTokenIndex, BUFFER_SIZE
+                        - startTokenIndex);
+                builder.append(buffer, BUFFER_SIZE + 1, scoutIndex
+                        - BUFFER_SIZE - 1);
             } else {
-                for (int i = startTokenIndex; i < (2 * BUFFER_SIZE + 1); i++) {
-                    builder.append(buffer[i]);
-                }
-                for (int i = 0; i < scoutIndex; i++) {
-                    builder.append(buffer[i]);
-                }
+                builder.append(buffer, startTokenIndex, 2 * BUFFER_SIZE + 1
+                        - startTokenIndex);
+                builder.append(buffer, 0, scoutIndex);
             }
+
+            result = builder.toString();
         }
+
         // the current token is consumed.
-        startTokenIndex = scoutIndex;
-        return builder.toString();
+        discard();
+        return result;
     }
 
     /**
@@ -309,34 +340,69 @@ public class RdfNTriplesReader extends RdfReader {
         discard();
     }
 
+    /**
+     * Parses a literal and its optional language tag or datatype.
+     * 
+     * @return The parsed literal.
+     * @throws IOException
+     */
+    protected Literal parseLiteral() throws IOException {
+        // Suppose the current character is '"'.
+        int c = step();
+        discard();
+        boolean escaped = false;
+
+        while (!isEndOfFile(c) && (c != '"')) {
+            if (c == '\\') {
+                escaped = true;
+                step();
+            }
+
+            c = step();
+        }
+
+        String value = getCurrentToken();
+        Literal result = new Literal(escaped ? unescape(value) : value);
+        c = step();
+
+        if (c == '@') {
+            step();
+            discard();
+            result.setLanguage(Language.valueOf(parseToken()));
+        } else if ((c == '^') && (step() == '^')) {
+            step();
+            result.setDatatypeRef(new Reference(parseUri()));
+        }
+
+        discard();
+        return result;
+    }
+
     /**
      * Reads the current statement until its end, and parses it.
      * 
-     * @param context
-     *            The current context.
      * @throws IOException
      */
     protected void parseStatement() throws IOException {
-        List<Reference> lexicalUnits = new ArrayList<Reference>();
-        String object = null;
+        Reference subject = null;
+        Reference predicate = null;
+        Reference object = null;
+        Literal literal = null;
+        Reference reference;
+
         do {
             consumeWhiteSpaces();
+            reference = null;
+
             switch (getChar()) {
             case '<':
-                lexicalUnits.add(new Reference(parseUri()));
+                reference = new Reference(parseUri());
                 break;
             case '_':
-                lexicalUnits.add(Link.createBlankRef(parseToken()));
+                reference = new Reference(parseToken());
                 break;
             case '"':
-                int c = step();
-                discard();
-                while (!isEndOfFile(c) && (c != '"')) {
-                    c = step();
-                }
-                object = getCurrentToken();
-                step();
-                discard();
+                literal = parseLiteral();
                 break;
             case '.':
                 break;
@@ -350,17 +416,29 @@ public class RdfNTriplesReader extends RdfReader {
                         "This document does not seem to follow the N-Triples syntax. "
                                 + getParsingMessage());
             }
+
+            if (reference != null) {
+                if (subject == null) {
+                    subject = reference;
+                } else if (predicate == null) {
+                    predicate = reference;
+                } else {
+                    object = reference;
+                }
+            }
         } while (!isEndOfFile(getChar()) && getChar() != '.'
                 && getChar() != '}');
 
-        // Generate the links
-        if (!lexicalUnits.isEmpty()) {
-            if (object != null) {
-                getGraphHandler().link(lexicalUnits.get(0),
-                        lexicalUnits.get(1), new Literal(object));
+        // Generate the link
+        if (subject != null) {
+            if (literal != null) {
+                getGraphHandler().link(subject, predicate, literal);
+            } else if (object != null) {
+                getGraphHandler().link(subject, predicate, object);
             } else {
-                getGraphHandler().link(lexicalUnits.get(0),
-                        lexicalUnits.get(1), lexicalUnits.get(2));
+                throw new IOException(
+                        "This document contains an incomplete statement. "
+                                + getParsingMessage());
             }
         }
     }
@@ -387,23 +465,53 @@ public class RdfNTriplesReader extends RdfReader {
      * @throws IOException
      */
     protected String parseUri() throws IOException {
-        StringBuilder builder = new StringBuilder();
         // Suppose the current character is "<".
         int c = step();
+        discard();
+        boolean whiteSpaces = false;
+
         while (c != EOF && c != '>') {
-            if (!isWhiteSpace(c)) {
-                // Discard white spaces.
-                builder.append((char) c);
-            }
+            whiteSpaces = whiteSpaces || isWhiteSpace(c);
             c = step();
         }
+
+        String result = getCurrentToken();
+
+        if (whiteSpaces) {
+            // Discard white spaces.
+            StringBuilder builder = new StringBuilder(result.length());
+
+            for (int i = 0; i < result.length(); i++) {
+                if (!isWhiteSpace(result.charAt(i))) {
+                    builder.append(result.charAt(i));
+                }
+            }
+
+            result = builder.toString();
+        }
+
         if (c == '>') {
             // Set the cursor at the right of the uri.
             step();
         }
         discard();
 
-        return builder.toString();
+        return result;
+    }
+
+    /**
+     * Saves the characters of the current token located before the given end
+     * index into the overflow buffer.
+     * 
+     * @param endIndex
+     *            The end index of the part of the buffer to save.
+     */
+    private void spill(int endIndex) {
+        if (overflow == null) {
+            overflow = new StringBuilder();
+        }
+
+        overflow.append(buffer, startTokenIndex, endIndex - startTokenIndex);
     }
 
     /**
@@ -419,23 +527,35 @@ public class RdfNTriplesReader extends RdfReader {
                 // Reached the end of the first part of the buffer, read into
                 // the second one.
                 scoutIndex++;
-                int len = this.br.read(buffer, 0, BUFFER_SIZE);
-                if (len == -1) {
-                    // End of the stream reached
-                    buffer[scoutIndex] = EOF;
+
+                if (steppedBack) {
+                    steppedBack = false;
                 } else {
-                    buffer[BUFFER_SIZE + len + 1] = EOF;
+                    if (startTokenIndex > BUFFER_SIZE) {
+                        // Save the beginning of a long token before
+                        // overwriting it.
+                        spill(2 * BUFFER_SIZE + 1);
+                        startTokenIndex = 0;
+                    }
+
+                    fill(BUFFER_SIZE + 1);
                 }
             } else if (scoutIndex == (2 * BUFFER_SIZE + 1)) {
                 scoutIndex = 0;
+
                 // Reached the end of the second part of the buffer, read into
                 // the first one.
-                int len = this.br.read(buffer, 0, BUFFER_SIZE);
-                if (len == -1) {
-                    // End of the stream reached
-                    buffer[scoutIndex] = EOF;
+                if (steppedBack) {
+                    steppedBack = false;
                 } else {
-                    buffer[len] = EOF;
+                    if (startTokenIndex < BUFFER_SIZE) {
+                        // Save the beginning of a long token before
+                        // overwriting it.
+                        spill(BUFFER_SIZE);
+                        startTokenIndex = BUFFER_SIZE + 1;
+                    }
+
+                    fill(0);
                 }
             } else {
                 // Reached the end of the stream.
@@ -473,10 +593,68 @@ public class RdfNTriplesReader extends RdfReader {
      *            The number of steps to go back.
      */
     protected void stepBack(int n) {
-        scoutIndex -= n;
-        if (scoutIndex < 0) {
-            scoutIndex = BUFFER_SIZE * 2 + 1 - scoutIndex;
+        for (int i = 0; i < n; i++) {
+            scoutIndex--;
+
+            if (scoutIndex == BUFFER_SIZE) {
+                // Skip the marker of the first part of the buffer.
+                scoutIndex--;
+                steppedBack = true;
+            } else if (scoutIndex < 0) {
+                scoutIndex = 2 * BUFFER_SIZE;
+                steppedBack = true;
+            }
         }
     }
 
+    /**
+     * Decodes the escaped characters of a string.
+     * 
+     * @param value
+     *            The string to decode.
+     * @return The decoded string.
+     */
+    protected static String unescape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if ((c == '\\') && (i + 1 < value.length())) {
+                c = value.charAt(++i);
+
+                switch (c) {
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 'u':
+                case 'U':
+                    int length = (c == 'u') ? 4 : 8;
+
+                    if (i + length < value.length()) {
+                        result.appendCodePoint(Integer.parseInt(value
+                                .substring(i + 1, i + 1 + length), 16));
+                        i += length;
+                    } else {
+                        result.append('\\').append(c);
+                    }
+                    break;
+                default:
+                    result.append(c);
+                    break;
+                }
+            } else {
+                result.append(c);
+            }
+        }
+
+        return result.toString();
+    }
+
 }
@@ -123,8 +123,50 @@ public class RdfNTriplesWriter extends GraphHandler {
     private void write(Literal literal) throws IOException {
         // Write it as a string
         this.writer.write("\"");
-        this.writer.write(literal.getValue());
+        String value = literal.getValue();
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if ((c != '\\') && (c != '"') && (c != '\n') && (c != '\r')
+                    && (c != '\t')) {
+                continue;
+            }
+
+            // Write the pending characters, then the escaped one
+            this.writer.write(value, start, i - start);
+            start = i + 1;
+
+            switch (c) {
+            case '\\':
+                this.writer.write("\\\\");
+                break;
+            case '"':
+                this.writer.write("\\\"");
+                break;
+            case '\n':
+                this.writer.write("\\n");
+                break;
+            case '\r':
+                this.writer.write("\\r");
+                break;
+            default:
+                this.writer.write("\\t");
+                break;
+            }
+        }
+
+        this.writer.write(value, start, value.length() - start);
         this.writer.write("\"");
+
+        if (literal.getLanguage() != null) {
+            this.writer.write("@");
+            this.writer.write(literal.getLanguage().toString());
+        } else if (literal.getDatatypeRef() != null) {
+            this.writer.write("^^");
+            write(literal.getDatatypeRef());
+        }
     }
 
     /**
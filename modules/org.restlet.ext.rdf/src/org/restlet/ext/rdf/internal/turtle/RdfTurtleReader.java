@@ -295,7 +295,6 @@ public class RdfTurtleReader extends RdfNTriplesReader {
                         new ListToken(this, this.context));
                 break;
             case '<':
-                stepBack();
                 blankNode.getLexicalUnits().add(
                         new UriToken(this, this.context));
                 break;
@@ -398,7 +397,6 @@ public class RdfTurtleReader extends RdfNTriplesReader {
                         new ListToken(this, this.context));
                 break;
             case '<':
-                stepBack();
                 listToken.getLexicalUnits().add(
                         new UriToken(this, this.context));
                 break;
@@ -446,7 +444,6 @@ public class RdfTurtleReader extends RdfNTriplesReader {
                 lexicalUnits.add(new ListToken(this, context));
                 break;
             case '<':
-                stepBack();
                 lexicalUnits.add(new UriToken(this, context));
                 break;
             case '_':
@@ -554,11 +551,18 @@ public class RdfTurtleReader extends RdfNTriplesReader {
         // Parse the type and language of literals
         int c = getChar();
         if (c == '@') {
+            step();
+            discard();
             stringToken.setLanguage(parseToken());
         } else if (c == '^') {
             c = step();
             if (c == '^') {
-                stringToken.setType(parseToken());
+                if (step() == '<') {
+                    stringToken.setType("<" + parseUri() + ">");
+                } else {
+                    discard();
+                    stringToken.setType(parseToken());
+                }
             } else {
                 stepBack();
             }
@@ -36,6 +36,7 @@ package org.restlet.ext.rdf.internal.turtle;
 import java.io.IOException;
 
 import org.restlet.data.Language;
+import org.restlet.data.Reference;
 import org.restlet.ext.rdf.Literal;
 
 /**
@@ -104,7 +105,12 @@ public class StringToken extends LexicalUnit {
     public Object resolve() {
         Literal result = new Literal(getValue());
         if (this.type != null) {
-            result.setDatatypeRef(getContext().resolve(this.type));
+            if (this.type.startsWith("<")) {
+                result.setDatatypeRef(new Reference(this.type.substring(1,
+                        this.type.length() - 1)));
+            } else {
+                result.setDatatypeRef(getContext().resolve(this.type));
+            }
         }
         if (this.language != null) {
             result.setLanguage(Language.valueOf(this.language));
@@ -35,6 +35,7 @@ package org.restlet.ext.rdf.internal.xml;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -60,6 +61,9 @@ class ContentReader extends DefaultHandler {
         LITERAL, NONE, OBJECT, PREDICATE, SUBJECT
     }
 
+    /** The maximum number of normalized URIs kept in cache. */
+    private static final int MAX_TARGETS = 1024;
+
     /** Increment used to identify inner blank nodes. */
     private static int blankNodeId = 0;
 
@@ -116,6 +120,9 @@ class ContentReader extends DefaultHandler {
     /** Heap of subjects. */
     private List<Reference> subjects;
 
+    /** Cache of the normalized absolute URIs, by resolved value. */
+    private Map<String, String> targets;
+
     /**
      * 
      * 
@@ -141,7 +148,7 @@ class ContentReader extends DefaultHandler {
             this.base.incrDepth();
         }
         if (representation.getLanguages().size() == 1) {
-            this.language.add(representation.getLanguages().get(1));
+            this.language.add(representation.getLanguages().get(0));
             this.language.incrDepth();
         }
     }
@@ -493,13 +500,26 @@ class ContentReader extends DefaultHandler {
         if (fragment) {
             result = new Reference(this.base.getValue());
             result.setFragment(value);
+            result = result.getTargetRef();
         } else {
-            result = new Reference(value);
-            if (result.isRelative()) {
-                result = new Reference(this.base.getValue(), value);
+            String target = this.targets.get(value);
+
+            if (target != null) {
+                result = new Reference(target);
+            } else {
+                result = new Reference(value);
+
+                if (result.isRelative()) {
+                    result = new Reference(this.base.getValue(), value)
+                            .getTargetRef();
+                } else {
+                    // Absolute URIs don't depend on the current base.
+                    result = result.getTargetRef();
+                    this.targets.put(value, result.toString());
+                }
             }
         }
-        return result.getTargetRef();
+        return result;
     }
 
     /**
@@ -528,19 +548,24 @@ class ContentReader extends DefaultHandler {
         }
 
         if (uri != null && !"".equals(uri)) {
-            if (!uri.endsWith("#") && !uri.endsWith("/")) {
-                result = new Reference(uri + "/" + localName);
+            String value = (!uri.endsWith("#") && !uri.endsWith("/")) ? uri
+                    + "/" + localName : uri + localName;
+            String target = this.targets.get(value);
+
+            if (target != null) {
+                result = new Reference(target);
             } else {
-                result = new Reference(uri + localName);
+                result = new Reference(value).getTargetRef();
+                this.targets.put(value, result.toString());
             }
         } else {
             String baseUri = this.prefixes.get(prefix);
             if (baseUri != null) {
-                result = new Reference(baseUri + localName);
+                result = new Reference(baseUri + localName).getTargetRef();
             }
         }
 
-        return (result == null) ? null : result.getTargetRef();
+        return result;
     }
 
     @Override
@@ -549,6 +574,14 @@ class ContentReader extends DefaultHandler {
         this.builder = new StringBuilder();
         this.states = new ArrayList<ContentReader.State>();
         this.subjects = new ArrayList<Reference>();
+        this.targets = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_TARGETS;
+            }
+        };
         nodeDepth = 0;
         pushState(State.NONE);
     }
@@ -72,6 +72,8 @@ public class RdfXmlReader extends RdfReader {
             saxRepresentation = (SaxRepresentation) getRdfRepresentation();
         } else {
             saxRepresentation = new SaxRepresentation(getRdfRepresentation());
+            // The content reader relies on namespace URIs.
+            saxRepresentation.setNamespaceAware(true);
             // Transmit the identifier used as a base for the resolution of
             // relative URIs.
             saxRepresentation.setLocationRef(getRdfRepresentation().getLocationRef());
@@ -226,6 +226,15 @@ import org.restlet.routing.VirtualHost;
  * control the URI wiring, you can disable the auto-wiring by setting the
  * property to "false".<br>
  * <br>
+ * When a Restlet sets {@link Response#setAutoCommitting(boolean)} to false,
+ * the Servlet request is suspended using the Servlet 3.0 asynchronous support,
+ * releasing the container thread until {@link Response#commit()} is invoked.
+ * This requires the "async-supported" element to be set in the Servlet
+ * declaration. The "org.restlet.asyncTimeout" parameter sets the timeout of
+ * suspended requests in milliseconds, 0 for no timeout, and defaults to the
+ * container's own timeout. A 503 (Service unavailable) status is returned when
+ * the timeout expires before the response is committed.<br>
+ * <br>
  * Also, a WAR client connector is automatically attached to the parent Restlet
  * component. It lets you access to resources inside your WAR using the uniform
  * interface. Here is an example of WAR URI that can be resolved by this client:
@@ -251,6 +260,13 @@ public class ServerServlet extends HttpServlet {
      */
     private static final String APPLICATION_KEY = "org.restlet.application";
 
+    /**
+     * The Servlet context initialization parameter's name containing the
+     * timeout in milliseconds of the requests suspended until their response
+     * is committed.
+     */
+    private static final String ASYNC_TIMEOUT_KEY = "org.restlet.asyncTimeout";
+
     /**
      * The Servlet context initialization parameter's name containing a boolean
      * value. "true" indicates that all applications will be attached to the
@@ -316,6 +332,12 @@ public class ServerServlet extends HttpServlet {
     /** The associated Restlet application. */
     private volatile transient Application application;
 
+    /**
+     * The timeout in milliseconds of the suspended requests, 0 for no timeout
+     * or -1 for the container's own timeout.
+     */
+    private volatile long asyncTimeout;
+
     /** The associated Restlet component. */
     private volatile transient Component component;
 
@@ -327,6 +349,7 @@ public class ServerServlet extends HttpServlet {
      */
     public ServerServlet() {
         this.application = null;
+        this.asyncTimeout = -1;
         this.component = null;
         this.helper = null;
     }
@@ -404,7 +427,9 @@ public class ServerServlet extends HttpServlet {
      */
     protected ServerCall createCall(Server server, HttpServletRequest request,
             HttpServletResponse response) {
-        return new ServletCall(server, request, response);
+        ServletCall result = new ServletCall(server, request, response);
+        result.setAsyncTimeout(this.asyncTimeout);
+        return result;
     }
 
     /**
@@ -927,6 +952,16 @@ public class ServerServlet extends HttpServlet {
 
     @Override
     public void init() throws ServletException {
+        String timeout = getInitParameter(ASYNC_TIMEOUT_KEY, "-1");
+
+        try {
+            this.asyncTimeout = Long.parseLong(timeout.trim());
+        } catch (NumberFormatException e) {
+            log("[Restlet] ServerServlet ignored the invalid value of the "
+                    + ASYNC_TIMEOUT_KEY + " parameter: " + timeout);
+            this.asyncTimeout = -1;
+        }
+
         if ((getComponent() != null) && (getComponent().isStopped())) {
             try {
                 getComponent().start();
@@ -40,6 +40,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.restlet.Context;
+import org.restlet.Response;
 import org.restlet.Restlet;
 import org.restlet.data.Reference;
 import org.restlet.engine.Engine;
@@ -86,10 +87,24 @@ import org.restlet.routing.Router;
  * }
  * </pre>
  * 
+ * When a Restlet sets {@link Response#setAutoCommitting(boolean)} to false and
+ * the Servlet supports asynchronous processing, the Servlet request is
+ * suspended instead of being completed when the service() method returns. The
+ * response is then sent when {@link Response#commit()} is invoked, for example
+ * from the callback of an asynchronous client call, so that pending responses
+ * don't hold container threads. Don't forget to set the "async-supported"
+ * element of the Servlet declaration.
+ * 
  * @author Jerome Louvel
  */
 public class ServletAdapter extends ServerAdapter {
 
+    /**
+     * The timeout of suspended calls in milliseconds, 0 for no timeout or -1 to
+     * use the container's default.
+     */
+    private volatile long asyncTimeout;
+
     /** The next Restlet. */
     private volatile Restlet next;
 
@@ -117,9 +132,20 @@ public class ServletAdapter extends ServerAdapter {
         super(new Context(new ServletLogger(context)));
         // [ifdef gae] instruction uncomment
         // super(new Context());
+        this.asyncTimeout = -1;
         this.next = next;
     }
 
+    /**
+     * Returns the timeout of suspended calls in milliseconds, 0 for no timeout
+     * or -1 to use the container's default.
+     * 
+     * @return The timeout of suspended calls in milliseconds.
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
     /**
      * Returns the base reference of new Restlet requests.
      * 
@@ -195,6 +221,7 @@ public class ServletAdapter extends ServerAdapter {
                 ServletCall servletCall = new ServletCall(request
                         .getLocalAddr(), request.getLocalPort(), request,
                         response);
+                servletCall.setAsyncTimeout(getAsyncTimeout());
                 HttpRequest httpRequest = toRequest(servletCall);
                 HttpResponse httpResponse = new HttpResponse(servletCall,
                         httpRequest);
@@ -205,9 +232,14 @@ public class ServletAdapter extends ServerAdapter {
                 // Adjust the root reference
                 httpRequest.setRootRef(getRootRef(request));
 
-                // Handle the request and commit the response
+                // Handle the request and commit the response, unless it is
+                // left pending until committed by another thread
                 getNext().handle(httpRequest, httpResponse);
-                commit(httpResponse);
+
+                if (httpResponse.isAutoCommitting()
+                        || !servletCall.suspend(this, httpResponse)) {
+                    commit(httpResponse);
+                }
             } finally {
                 Engine.clearThreadLocalVariables();
             }
@@ -216,6 +248,17 @@ public class ServletAdapter extends ServerAdapter {
         }
     }
 
+    /**
+     * Sets the timeout of suspended calls in milliseconds, 0 for no timeout or
+     * -1 to use the container's default.
+     * 
+     * @param asyncTimeout
+     *            The timeout of suspended calls in milliseconds.
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
     /**
      * Sets the next Restlet.
      * 
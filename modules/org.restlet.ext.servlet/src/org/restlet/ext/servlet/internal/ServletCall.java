@@ -46,6 +46,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -55,6 +58,8 @@ import org.restlet.data.Form;
 import org.restlet.data.MediaType;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
+import org.restlet.engine.adapter.HttpResponse;
+import org.restlet.engine.adapter.ServerAdapter;
 import org.restlet.engine.adapter.ServerCall;
 import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
@@ -65,12 +70,30 @@ import org.restlet.representation.Representation;
 import org.restlet.util.Series;
 
 /**
- * Call that is used by the Servlet HTTP server connector.
+ * Call that is used by the Servlet HTTP server connector. When the Restlet
+ * response isn't automatically committed, the call can be suspended using the
+ * Servlet 3.0 asynchronous support. The container thread is then released and
+ * the response is sent once {@link Response#commit()} is invoked.
  * 
  * @author Jerome Louvel
  */
 public class ServletCall extends ServerCall {
 
+    /** The adapter committing the pending response. */
+    private volatile ServerAdapter adapter;
+
+    /** The Servlet asynchronous context or null if not suspended. */
+    private volatile AsyncContext asyncContext;
+
+    /**
+     * The timeout of a suspended call in milliseconds, 0 for no timeout or -1
+     * to use the container's default.
+     */
+    private volatile long asyncTimeout;
+
+    /** The pending response or null if not suspended. */
+    private volatile Response pendingResponse;
+
     /** The HTTP Servlet request to wrap. */
     private volatile HttpServletRequest request;
 
@@ -95,6 +118,7 @@ public class ServletCall extends ServerCall {
         super(server);
         this.request = request;
         this.response = response;
+        this.asyncTimeout = -1;
     }
 
     /**
@@ -114,6 +138,7 @@ public class ServletCall extends ServerCall {
         super(serverAddress, serverPort);
         this.request = request;
         this.response = response;
+        this.asyncTimeout = -1;
     }
 
     /**
@@ -124,6 +149,51 @@ public class ServletCall extends ServerCall {
         return false;
     }
 
+    /**
+     * Sends the pending response if the call was suspended. Otherwise, only
+     * marks the response as committed so that it is sent as soon as the
+     * handling thread returns.
+     * 
+     * @param response
+     *            The response to commit.
+     */
+    @Override
+    public synchronized void commit(Response response) {
+        if ((response != null) && !response.isCommitted()) {
+            response.setCommitted(true);
+
+            if (this.adapter != null) {
+                this.adapter.commit((HttpResponse) response);
+            }
+        }
+    }
+
+    /**
+     * Completes the asynchronous context if the call was suspended.
+     */
+    @Override
+    public void complete() {
+        if (this.asyncContext != null) {
+            try {
+                this.asyncContext.complete();
+            } catch (IllegalStateException ise) {
+                getLogger().log(Level.FINE,
+                        "The asynchronous Servlet call was already completed",
+                        ise);
+            }
+        }
+    }
+
+    /**
+     * Returns the timeout of a suspended call in milliseconds, 0 for no
+     * timeout or -1 to use the container's default.
+     * 
+     * @return The timeout of a suspended call in milliseconds.
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
     @Override
     public List<Certificate> getCertificates() {
         Certificate[] certificateArray = (Certificate[]) getRequest()
@@ -172,6 +242,15 @@ public class ServletCall extends ServerCall {
         return getRequest().getMethod();
     }
 
+    /**
+     * Returns the pending response or null if the call isn't suspended.
+     * 
+     * @return The pending response or null if the call isn't suspended.
+     */
+    public Response getPendingResponse() {
+        return pendingResponse;
+    }
+
     /**
      * Returns the server protocol.
      * 
@@ -459,4 +538,81 @@ public class ServletCall extends ServerCall {
         }
     }
 
+    /**
+     * Sets the timeout of a suspended call in milliseconds, 0 for no timeout or
+     * -1 to use the container's default.
+     * 
+     * @param asyncTimeout
+     *            The timeout of a suspended call in milliseconds.
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * Starts the asynchronous mode of the Servlet request, if supported by the
+     * container and if the response wasn't committed in the meantime. When
+     * the call times out before the response is committed, a 503 (Service
+     * unavailable) status is sent.
+     * 
+     * @param adapter
+     *            The adapter that will commit the response.
+     * @param response
+     *            The pending response.
+     * @return True if the call was suspended.
+     */
+    @Override
+    public synchronized boolean suspend(ServerAdapter adapter,
+            Response response) {
+        boolean result = false;
+
+        if (!response.isCommitted() && getRequest().isAsyncSupported()) {
+            this.asyncContext = getRequest().startAsync(getRequest(),
+                    getResponse());
+
+            if (getAsyncTimeout() >= 0) {
+                this.asyncContext.setTimeout(getAsyncTimeout());
+            }
+
+            this.asyncContext.addListener(new AsyncListener() {
+                public void onComplete(AsyncEvent event) throws IOException {
+                }
+
+                public void onError(AsyncEvent event) throws IOException {
+                    getLogger().log(Level.INFO,
+                            "The asynchronous Servlet call failed",
+                            event.getThrowable());
+
+                    synchronized (ServletCall.this) {
+                        getPendingResponse().setCommitted(true);
+                    }
+
+                    complete();
+                }
+
+                public void onStartAsync(AsyncEvent event) throws IOException {
+                }
+
+                public void onTimeout(AsyncEvent event) throws IOException {
+                    synchronized (ServletCall.this) {
+                        if (!getPendingResponse().isCommitted()) {
+                            getLogger().fine(
+                                    "The asynchronous Servlet call timed out");
+                            getPendingResponse().setStatus(
+                                    Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+                            getPendingResponse().setEntity(null);
+                            commit(getPendingResponse());
+                        }
+                    }
+                }
+            });
+
+            this.adapter = adapter;
+            this.pendingResponse = response;
+            result = true;
+        }
+
+        return result;
+    }
+
 }
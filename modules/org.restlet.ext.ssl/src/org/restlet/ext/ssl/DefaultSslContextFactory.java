@@ -43,6 +43,7 @@ import java.util.Set;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocketFactory;
 
 import org.restlet.data.Parameter;
@@ -141,6 +142,20 @@ import org.restlet.util.Series;
  * <td>Name of the RNG algorithm. (see java.security.SecureRandom class)</td>
  * </tr>
  * <tr>
+ * <td>sessionCacheSize</td>
+ * <td>int</td>
+ * <td>-1 (see javax.net.ssl.SSLSessionContext)</td>
+ * <td>Maximum number of SSL sessions cached for resumption by the client and
+ * server session contexts, 0 for no limit or -1 for the JSSE default.</td>
+ * </tr>
+ * <tr>
+ * <td>sessionTimeout</td>
+ * <td>int</td>
+ * <td>-1 (see javax.net.ssl.SSLSessionContext)</td>
+ * <td>Time in seconds after which a cached SSL session can't be resumed
+ * anymore, 0 for no limit or -1 for the JSSE default.</td>
+ * </tr>
+ * <tr>
  * <td>trustManagerAlgorithm</td>
  * <td>String</td>
  * <td>System property "ssl.TrustManagerFactory.algorithm" or "SunX509"</td>
@@ -245,6 +260,12 @@ public class DefaultSslContextFactory extends SslContextFactory {
     /** The name of the SecureRandom algorithm. */
     private volatile String secureRandomAlgorithm = null;
 
+    /** The maximum number of cached SSL sessions. */
+    private volatile int sessionCacheSize = -1;
+
+    /** The timeout of cached SSL sessions, in seconds. */
+    private volatile int sessionTimeout = -1;
+
     /** The name of the TrustManager algorithm. */
     private volatile String trustManagerAlgorithm = null;
 
@@ -371,6 +392,21 @@ public class DefaultSslContextFactory extends SslContextFactory {
         sslContext.init(kmf != null ? kmf.getKeyManagers() : null,
                 tmf != null ? tmf.getTrustManagers() : null, sr);
 
+        // Configures the caches of sessions that handshakes can resume
+        for (SSLSessionContext sessionContext : new SSLSessionContext[] {
+                sslContext.getClientSessionContext(),
+                sslContext.getServerSessionContext() }) {
+            if (sessionContext != null) {
+                if (this.sessionCacheSize >= 0) {
+                    sessionContext.setSessionCacheSize(this.sessionCacheSize);
+                }
+
+                if (this.sessionTimeout >= 0) {
+                    sessionContext.setSessionTimeout(this.sessionTimeout);
+                }
+            }
+        }
+
         // Wraps the SSL context to be able to set cipher suites and other
         // properties after SSL engine creation for example
         result = createWrapper(sslContext);
@@ -556,6 +592,26 @@ public class DefaultSslContextFactory extends SslContextFactory {
         return resultSet.toArray(result);
     }
 
+    /**
+     * Returns the maximum number of cached SSL sessions, 0 for no limit or -1
+     * for the JSSE default.
+     * 
+     * @return The maximum number of cached SSL sessions.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Returns the timeout of cached SSL sessions in seconds, 0 for no limit or
+     * -1 for the JSSE default.
+     * 
+     * @return The timeout of cached SSL sessions in seconds.
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
     /**
      * Returns the name of the TrustManager algorithm.
      * 
@@ -715,6 +771,10 @@ public class DefaultSslContextFactory extends SslContextFactory {
 
         setSecureRandomAlgorithm(helperParameters.getFirstValue(
                 "secureRandomAlgorithm", true));
+        setSessionCacheSize(Integer.parseInt(helperParameters.getFirstValue(
+                "sessionCacheSize", true, "-1")));
+        setSessionTimeout(Integer.parseInt(helperParameters.getFirstValue(
+                "sessionTimeout", true, "-1")));
         setTrustManagerAlgorithm(helperParameters.getFirstValue(
                 "trustManagerAlgorithm", true, System.getProperty(
                         "ssl.TrustManagerFactory.algorithm", "SunX509")));
@@ -916,6 +976,28 @@ public class DefaultSslContextFactory extends SslContextFactory {
         this.secureRandomAlgorithm = secureRandomAlgorithm;
     }
 
+    /**
+     * Sets the maximum number of cached SSL sessions, 0 for no limit or -1 for
+     * the JSSE default.
+     * 
+     * @param sessionCacheSize
+     *            The maximum number of cached SSL sessions.
+     */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * Sets the timeout of cached SSL sessions in seconds, 0 for no limit or -1
+     * for the JSSE default.
+     * 
+     * @param sessionTimeout
+     *            The timeout of cached SSL sessions in seconds.
+     */
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
     /**
      * Sets the TrustManager algorithm. The default value is that of the
      * <i>ssl.TrustManagerFactory.algorithm</i> system property, or
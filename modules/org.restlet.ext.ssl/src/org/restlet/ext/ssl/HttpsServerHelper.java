@@ -51,6 +51,8 @@ import org.restlet.engine.connector.OutboundWay;
 import org.restlet.ext.ssl.internal.HttpsInboundRequest;
 import org.restlet.ext.ssl.internal.HttpsServerInboundWay;
 import org.restlet.ext.ssl.internal.HttpsServerOutboundWay;
+import org.restlet.ext.ssl.internal.HandshakeService;
+import org.restlet.ext.ssl.internal.PacketBufferPool;
 import org.restlet.ext.ssl.internal.SslConnection;
 import org.restlet.ext.ssl.internal.SslUtils;
 
@@ -65,6 +67,37 @@ import org.restlet.ext.ssl.internal.SslUtils;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>handshakeThreads</td>
+ * <td>int</td>
+ * <td>Number of available processors</td>
+ * <td>Number of threads running the delegated tasks of the SSL handshakes,
+ * separately from the worker service.</td>
+ * </tr>
+ * <tr>
+ * <td>maxQueuedHandshakes</td>
+ * <td>int</td>
+ * <td>100</td>
+ * <td>Maximum number of delegated SSL tasks waiting for a thread, or -1 for no
+ * limit. When the limit is reached, new tasks are rejected and their
+ * connections closed. The server also stops accepting new
+ * connections until the queue drains.</td>
+ * </tr>
+ * <tr>
+ * <td>maxPooledPacketBuffers</td>
+ * <td>int</td>
+ * <td>128</td>
+ * <td>Maximum number of idle SSL packet buffers kept in the pool when
+ * "pooledPacketBuffers" is enabled.</td>
+ * </tr>
+ * <tr>
+ * <td>pooledPacketBuffers</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the SSL packet buffers should be leased from a pool shared
+ * by all connections, only while encrypted data is in flight, instead of being
+ * allocated for the whole life of each connection.</td>
+ * </tr>
+ * <tr>
  * <td>sslContextFactory</td>
  * <td>String</td>
  * <td>org.restlet.ext.ssl.DefaultSslContextFactory</td>
@@ -74,15 +107,25 @@ import org.restlet.ext.ssl.internal.SslUtils;
  * </tr>
  * </table>
  * For the default SSL parameters see the Javadocs of the
- * {@link DefaultSslContextFactory} class.
+ * {@link DefaultSslContextFactory} class. The handshakes statistics are
+ * available via {@link #getSslStatistics()}.
  * 
  * @author Jerome Louvel
  */
 public class HttpsServerHelper extends HttpServerHelper {
 
+    /** The executor of the delegated SSL tasks. */
+    private volatile HandshakeService handshakeService;
+
+    /** The pool of SSL packet buffers or null. */
+    private volatile PacketBufferPool packetBufferPool;
+
     /** The SSL context. */
     private volatile SSLContext sslContext;
 
+    /** The handshake statistics. */
+    private final SslStatistics sslStatistics;
+
     /**
      * Constructor.
      * 
@@ -91,6 +134,7 @@ public class HttpsServerHelper extends HttpServerHelper {
      */
     public HttpsServerHelper(Server server) {
         super(server, Protocol.HTTPS);
+        this.sslStatistics = new SslStatistics();
     }
 
     @Override
@@ -108,7 +152,8 @@ public class HttpsServerHelper extends HttpServerHelper {
         }
 
         return new SslConnection<Server>(this, socketChannel, controller,
-                socketAddress, engine);
+                socketAddress, engine, getHandshakeService(),
+                getPacketBufferPool(), getSslStatistics());
     }
 
     @Override
@@ -130,6 +175,24 @@ public class HttpsServerHelper extends HttpServerHelper {
                 resourceUri, protocol);
     }
 
+    /**
+     * Returns the executor of the delegated SSL tasks.
+     * 
+     * @return The executor of the delegated SSL tasks.
+     */
+    protected HandshakeService getHandshakeService() {
+        return handshakeService;
+    }
+
+    /**
+     * Returns the pool of SSL packet buffers or null.
+     * 
+     * @return The pool of SSL packet buffers or null.
+     */
+    protected PacketBufferPool getPacketBufferPool() {
+        return packetBufferPool;
+    }
+
     /**
      * Returns the SSL context.
      * 
@@ -139,6 +202,27 @@ public class HttpsServerHelper extends HttpServerHelper {
         return sslContext;
     }
 
+    /**
+     * Returns the statistics of the SSL handshakes.
+     * 
+     * @return The statistics of the SSL handshakes.
+     */
+    public SslStatistics getSslStatistics() {
+        return sslStatistics;
+    }
+
+    /**
+     * Also considers the connector as overloaded when the queue of delegated
+     * SSL tasks is full, so that new connections aren't accepted until
+     * pending handshakes progress.
+     */
+    @Override
+    protected boolean isWorkerServiceOverloaded() {
+        return super.isWorkerServiceOverloaded()
+                || ((getHandshakeService() != null) && getHandshakeService()
+                        .isOverloaded());
+    }
+
     /**
      * Sets the SSL context.
      * 
@@ -153,7 +237,27 @@ public class HttpsServerHelper extends HttpServerHelper {
     public synchronized void start() throws Exception {
         SslContextFactory factory = SslUtils.getSslContextFactory(this);
         setSslContext(factory.createSslContext());
+        this.handshakeService = SslUtils.createHandshakeService(this);
+        this.packetBufferPool = SslUtils.createPacketBufferPool(this,
+                getSslStatistics());
         super.start();
     }
 
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+
+        if (this.handshakeService != null) {
+            this.handshakeService.shutdown();
+            this.handshakeService = null;
+        }
+
+        if (this.packetBufferPool != null) {
+            this.packetBufferPool.clear();
+            this.packetBufferPool = null;
+        }
+
+        getLogger().fine(getSslStatistics().toString());
+    }
+
 }
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.ssl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the SSL/TLS handshakes done by an HTTPS connector. Full
+ * handshakes negotiate new session keys with costly public key operations
+ * while resumed handshakes reuse a session found in the session cache, so the
+ * ratio between both indicates if the session cache is large enough. When
+ * packet buffers are pooled, their allocations and leases are also counted.
+ * 
+ * @author Jerome Louvel
+ */
+public class SslStatistics {
+
+    /** The number of packet buffers allocated by the pool. */
+    private final AtomicLong allocatedPacketBuffers;
+
+    /** The number of full handshakes. */
+    private final AtomicLong fullHandshakes;
+
+    /** The total duration of the handshakes, in nanoseconds. */
+    private final AtomicLong handshakeTime;
+
+    /** The maximum duration of a handshake, in nanoseconds. */
+    private final AtomicLong maxHandshakeTime;
+
+    /** The number of packet buffers currently leased by connections. */
+    private final AtomicLong leasedPacketBuffers;
+
+    /** The number of handshake tasks rejected by the handshake service. */
+    private final AtomicLong rejectedTasks;
+
+    /** The number of resumed handshakes. */
+    private final AtomicLong resumedHandshakes;
+
+    /**
+     * Constructor.
+     */
+    public SslStatistics() {
+        this.allocatedPacketBuffers = new AtomicLong();
+        this.fullHandshakes = new AtomicLong();
+        this.handshakeTime = new AtomicLong();
+        this.leasedPacketBuffers = new AtomicLong();
+        this.maxHandshakeTime = new AtomicLong();
+        this.rejectedTasks = new AtomicLong();
+        this.resumedHandshakes = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of packet buffers allocated by the pool.
+     * 
+     * @return The number of packet buffers allocated by the pool.
+     */
+    public long getAllocatedPacketBuffers() {
+        return this.allocatedPacketBuffers.get();
+    }
+
+    /**
+     * Returns the average duration of a handshake, in milliseconds.
+     * 
+     * @return The average duration of a handshake, in milliseconds.
+     */
+    public double getAverageHandshakeTimeMs() {
+        long handshakes = getFullHandshakes() + getResumedHandshakes();
+        return (handshakes == 0) ? 0D : this.handshakeTime.get()
+                / (handshakes * 1000000D);
+    }
+
+    /**
+     * Returns the number of full handshakes.
+     * 
+     * @return The number of full handshakes.
+     */
+    public long getFullHandshakes() {
+        return this.fullHandshakes.get();
+    }
+
+    /**
+     * Returns the number of packet buffers currently leased by connections.
+     * 
+     * @return The number of packet buffers currently leased by connections.
+     */
+    public long getLeasedPacketBuffers() {
+        return this.leasedPacketBuffers.get();
+    }
+
+    /**
+     * Returns the maximum duration of a handshake, in milliseconds.
+     * 
+     * @return The maximum duration of a handshake, in milliseconds.
+     */
+    public double getMaxHandshakeTimeMs() {
+        return this.maxHandshakeTime.get() / 1000000D;
+    }
+
+    /**
+     * Returns the number of handshake tasks rejected because the handshake
+     * service was saturated. The related connections are closed.
+     * 
+     * @return The number of rejected handshake tasks.
+     */
+    public long getRejectedTasks() {
+        return this.rejectedTasks.get();
+    }
+
+    /**
+     * Returns the number of resumed handshakes.
+     * 
+     * @return The number of resumed handshakes.
+     */
+    public long getResumedHandshakes() {
+        return this.resumedHandshakes.get();
+    }
+
+    /**
+     * Records a completed handshake.
+     * 
+     * @param resumed
+     *            True if a cached session was resumed.
+     * @param duration
+     *            The duration of the handshake, in nanoseconds.
+     */
+    public void onHandshakeCompleted(boolean resumed, long duration) {
+        if (resumed) {
+            this.resumedHandshakes.incrementAndGet();
+        } else {
+            this.fullHandshakes.incrementAndGet();
+        }
+
+        this.handshakeTime.addAndGet(duration);
+        long max = this.maxHandshakeTime.get();
+
+        while ((duration > max)
+                && !this.maxHandshakeTime.compareAndSet(max, duration)) {
+            max = this.maxHandshakeTime.get();
+        }
+    }
+
+    /**
+     * Records the allocation of a packet buffer by the pool.
+     */
+    public void onPacketBufferAllocated() {
+        this.allocatedPacketBuffers.incrementAndGet();
+    }
+
+    /**
+     * Records the lease of a packet buffer by a connection.
+     */
+    public void onPacketBufferLeased() {
+        this.leasedPacketBuffers.incrementAndGet();
+    }
+
+    /**
+     * Records the release of a packet buffer by a connection.
+     */
+    public void onPacketBufferReleased() {
+        this.leasedPacketBuffers.decrementAndGet();
+    }
+
+    /**
+     * Records a handshake task rejected by the handshake service.
+     */
+    public void onTaskRejected() {
+        this.rejectedTasks.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "SSL handshakes: " + getFullHandshakes() + " full, "
+                + getResumedHandshakes() + " resumed, "
+                + getAverageHandshakeTimeMs() + " ms on average, "
+                + getMaxHandshakeTimeMs() + " ms at most, "
+                + getRejectedTasks() + " rejected tasks. Packet buffers: "
+                + getAllocatedPacketBuffers() + " allocated, "
+                + getLeasedPacketBuffers() + " leased";
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.ssl.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.restlet.engine.log.LoggingThreadFactory;
+
+/**
+ * Bounded executor running the delegated tasks of SSL engines, mostly the
+ * public key operations of handshakes. Keeping them apart from the worker
+ * service prevents a burst of new connections from delaying the processing of
+ * requests, and the other way around. Tasks submitted while the queue is full
+ * are rejected with a {@link java.util.concurrent.RejectedExecutionException}.
+ * 
+ * @author Jerome Louvel
+ */
+public class HandshakeService extends ThreadPoolExecutor {
+
+    /**
+     * Creates the queue of pending tasks.
+     * 
+     * @param maxQueued
+     *            The maximum number of queued tasks, or -1 for no limit.
+     * @return The queue of pending tasks.
+     */
+    private static BlockingQueue<Runnable> createQueue(int maxQueued) {
+        return (maxQueued < 0) ? new LinkedBlockingQueue<Runnable>()
+                : new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueued));
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param threads
+     *            The number of threads running the tasks.
+     * @param maxQueued
+     *            The maximum number of queued tasks, or -1 for no limit.
+     * @param logger
+     *            The logger of the parent connector.
+     */
+    public HandshakeService(int threads, int maxQueued, Logger logger) {
+        super(threads, threads, 60, TimeUnit.SECONDS, createQueue(maxQueued),
+                new LoggingThreadFactory(logger, true));
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Indicates if the queue of pending tasks is full. In this case, new
+     * connections should not be accepted until some tasks complete.
+     * 
+     * @return True if the queue of pending tasks is full.
+     */
+    public boolean isOverloaded() {
+        return getQueue().remainingCapacity() == 0;
+    }
+
+}
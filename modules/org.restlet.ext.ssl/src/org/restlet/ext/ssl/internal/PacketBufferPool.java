@@ -0,0 +1,192 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.ssl.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.engine.io.Buffer;
+import org.restlet.engine.util.Pool;
+import org.restlet.ext.ssl.SslStatistics;
+
+/**
+ * Pool of SSL packet buffers shared by the connections of an HTTPS connector.
+ * Connections only lease a packet buffer while encrypted data is in flight and
+ * check it back in once it has been fully unwrapped or written, so that idle
+ * connections don't hold any packet buffer.
+ * 
+ * @author Jerome Louvel
+ */
+public class PacketBufferPool extends Pool<Buffer> {
+
+    /** Indicates if direct NIO buffers should be allocated. */
+    private final boolean directBuffers;
+
+    /** The current number of idle buffers in the store. */
+    private final AtomicInteger idleBuffers;
+
+    /** The maximum number of idle buffers kept in the store. */
+    private final int maxIdleBuffers;
+
+    /** The size of the packet buffers to allocate. */
+    private volatile int packetBufferSize;
+
+    /** The statistics to update or null. */
+    private final SslStatistics sslStatistics;
+
+    /**
+     * Constructor.
+     * 
+     * @param directBuffers
+     *            Indicates if direct NIO buffers should be allocated.
+     * @param maxIdleBuffers
+     *            The maximum number of idle buffers kept in the store.
+     * @param sslStatistics
+     *            The statistics to update or null.
+     */
+    public PacketBufferPool(boolean directBuffers, int maxIdleBuffers,
+            SslStatistics sslStatistics) {
+        super();
+        this.directBuffers = directBuffers;
+        this.idleBuffers = new AtomicInteger();
+        this.maxIdleBuffers = maxIdleBuffers;
+        this.packetBufferSize = 0;
+        this.sslStatistics = sslStatistics;
+    }
+
+    /**
+     * Checks in a packet buffer into the pool. The buffer is dropped if the
+     * maximum number of idle buffers is reached.
+     * 
+     * @param buffer
+     *            The packet buffer to check in.
+     */
+    @Override
+    public void checkin(Buffer buffer) {
+        if (buffer != null) {
+            if (this.sslStatistics != null) {
+                this.sslStatistics.onPacketBufferReleased();
+            }
+
+            if (this.idleBuffers.incrementAndGet() <= this.maxIdleBuffers) {
+                super.checkin(buffer);
+            } else {
+                this.idleBuffers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Checks out a packet buffer from the pool. Idle buffers smaller than the
+     * current packet buffer size are dropped.
+     * 
+     * @return A packet buffer from the pool.
+     */
+    @Override
+    public Buffer checkout() {
+        Buffer result = getStore().poll();
+
+        while ((result != null) && (result.capacity() < getPacketBufferSize())) {
+            this.idleBuffers.decrementAndGet();
+            result = getStore().poll();
+        }
+
+        if (result == null) {
+            result = createObject();
+        } else {
+            this.idleBuffers.decrementAndGet();
+        }
+
+        if (this.sslStatistics != null) {
+            this.sslStatistics.onPacketBufferLeased();
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks out a packet buffer with at least the given capacity.
+     * 
+     * @param packetBufferSize
+     *            The minimum capacity, usually the packet buffer size of the
+     *            SSL session.
+     * @return A packet buffer from the pool.
+     */
+    public Buffer checkout(int packetBufferSize) {
+        if (packetBufferSize > getPacketBufferSize()) {
+            this.packetBufferSize = packetBufferSize;
+        }
+
+        return checkout();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        this.idleBuffers.set(0);
+    }
+
+    @Override
+    protected void clear(Buffer buffer) {
+        buffer.clear();
+    }
+
+    @Override
+    protected Buffer createObject() {
+        if (this.sslStatistics != null) {
+            this.sslStatistics.onPacketBufferAllocated();
+        }
+
+        return new Buffer(getPacketBufferSize(), isDirectBuffers());
+    }
+
+    /**
+     * Returns the size of the packet buffers to allocate. It grows to the
+     * largest packet buffer size requested by SSL sessions.
+     * 
+     * @return The size of the packet buffers to allocate.
+     */
+    public int getPacketBufferSize() {
+        return packetBufferSize;
+    }
+
+    /**
+     * Indicates if direct NIO buffers should be allocated.
+     * 
+     * @return True if direct NIO buffers should be allocated.
+     */
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+}
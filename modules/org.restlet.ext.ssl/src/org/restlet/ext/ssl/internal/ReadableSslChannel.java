@@ -53,6 +53,10 @@ import org.restlet.engine.io.WakeupListener;
  * is important to implement {@link SelectionChannel} as some framework classes
  * rely on this down the processing chain.
  * 
+ * Data is unwrapped straight into the target buffer of the inbound way. When
+ * the parent connection has a {@link PacketBufferPool}, the packet buffer is
+ * only leased while encrypted bytes are pending.
+ * 
  * @author Jerome Louvel
  */
 public class ReadableSslChannel extends ReadableBufferedChannel implements
@@ -61,6 +65,9 @@ public class ReadableSslChannel extends ReadableBufferedChannel implements
     /** The parent SSL connection. */
     private final SslConnection<?> connection;
 
+    /** The packet buffer or null if none is currently leased. */
+    private volatile Buffer packetBuffer;
+
     /**
      * Constructor.
      * 
@@ -73,8 +80,7 @@ public class ReadableSslChannel extends ReadableBufferedChannel implements
      */
     public ReadableSslChannel(ReadableSelectionChannel source,
             SslConnection<?> connection, WakeupListener wakeupListener) {
-        super(null, new Buffer(connection.getPacketBufferSize(), connection
-                .getHelper().isDirectBuffers()), source, wakeupListener);
+        super(null, null, source, wakeupListener);
 
         if (Context.getCurrentLogger().isLoggable(Level.FINER)) {
             Context.getCurrentLogger().log(
@@ -84,6 +90,21 @@ public class ReadableSslChannel extends ReadableBufferedChannel implements
         }
 
         this.connection = connection;
+
+        if (connection.getPacketBufferPool() == null) {
+            this.packetBuffer = new Buffer(connection.getPacketBufferSize(),
+                    connection.getHelper().isDirectBuffers());
+        }
+    }
+
+    /**
+     * Returns the packet buffer or null if none is currently leased.
+     * 
+     * @return The packet buffer or null if none is currently leased.
+     */
+    @Override
+    public Buffer getBuffer() {
+        return packetBuffer;
     }
 
     /**
@@ -95,6 +116,29 @@ public class ReadableSslChannel extends ReadableBufferedChannel implements
         return connection;
     }
 
+    /**
+     * Returns the capacity of the packet buffer held or 0 if none is held.
+     * 
+     * @return The capacity of the packet buffer held.
+     */
+    public int getPacketBufferCapacity() {
+        Buffer buffer = getBuffer();
+        return (buffer == null) ? 0 : buffer.capacity();
+    }
+
+    /**
+     * Leases a packet buffer from the pool of the parent connection if none is
+     * held.
+     */
+    protected synchronized void leasePacketBuffer() {
+        PacketBufferPool pool = getConnection().getPacketBufferPool();
+
+        if ((this.packetBuffer == null) && (pool != null)) {
+            this.packetBuffer = pool.checkout(getConnection()
+                    .getPacketBufferSize());
+        }
+    }
+
     /**
      * Callback method invoked upon delegated tasks completion.
      */
@@ -125,4 +169,37 @@ public class ReadableSslChannel extends ReadableBufferedChannel implements
         getConnection().handleSslResult();
     }
 
+    /**
+     * Reads and unwraps some bytes into the target buffer. A packet buffer is
+     * leased beforehand if needed, and released afterwards unless it still
+     * contains a partial SSL record.
+     */
+    @Override
+    public synchronized int read(ByteBuffer targetBuffer) throws IOException {
+        leasePacketBuffer();
+
+        try {
+            return super.read(targetBuffer);
+        } finally {
+            releasePacketBuffer(false);
+        }
+    }
+
+    /**
+     * Checks the leased packet buffer back into the pool of the parent
+     * connection. Does nothing if the buffer isn't pooled.
+     * 
+     * @param force
+     *            True to release the buffer even if it isn't empty.
+     */
+    protected synchronized void releasePacketBuffer(boolean force) {
+        PacketBufferPool pool = getConnection().getPacketBufferPool();
+
+        if ((this.packetBuffer != null) && (pool != null)
+                && (force || this.packetBuffer.isEmpty())) {
+            pool.checkin(this.packetBuffer);
+            this.packetBuffer = null;
+        }
+    }
+
 }
@@ -40,6 +40,8 @@ import java.nio.channels.SocketChannel;
 import java.security.cert.Certificate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 import javax.net.ssl.SSLEngine;
@@ -57,6 +59,7 @@ import org.restlet.engine.connector.ConnectionHelper;
 import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableSelectionChannel;
 import org.restlet.engine.io.WritableSelectionChannel;
+import org.restlet.ext.ssl.SslStatistics;
 
 /**
  * Connection secured with SSL/TLS protocols.
@@ -67,15 +70,36 @@ import org.restlet.engine.io.WritableSelectionChannel;
  */
 public class SslConnection<T extends Connector> extends Connection<T> {
 
+    /** The executor of the delegated SSL tasks or null. */
+    private volatile Executor handshakeService;
+
+    /** The start time of the current handshake, in milliseconds. */
+    private volatile long handshakeStartTime;
+
+    /** The start time of the current handshake, in nanoseconds. */
+    private volatile long handshakeStartNanoTime;
+
+    /** The pool of packet buffers or null. */
+    private volatile PacketBufferPool packetBufferPool;
+
     /** The peer address. */
     private volatile InetSocketAddress peerAddress;
 
+    /** The readable SSL channel. */
+    private volatile ReadableSslChannel readableSslChannel;
+
     /** The engine to use for wrapping and unwrapping. */
     private volatile SSLEngine sslEngine;
 
     /** The engine result. */
     private volatile SSLEngineResult sslEngineResult;
 
+    /** The handshake statistics to update or null. */
+    private volatile SslStatistics sslStatistics;
+
+    /** The writable SSL channel. */
+    private volatile WritableSslChannel writableSslChannel;
+
     /**
      * Constructor.
      * 
@@ -96,25 +120,82 @@ public class SslConnection<T extends Connector> extends Connection<T> {
             SocketChannel socketChannel, ConnectionController controller,
             InetSocketAddress socketAddress, SSLEngine sslEngine)
             throws IOException {
+        this(helper, socketChannel, controller, socketAddress, sslEngine,
+                null, null, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent connector helper.
+     * @param socketChannel
+     *            The underlying NIO socket channel.
+     * @param controller
+     *            The IO controller.
+     * @param socketAddress
+     *            The associated IP address.
+     * @param sslEngine
+     *            The engine to use for wrapping and unwrapping.
+     * @param handshakeService
+     *            The executor of the delegated SSL tasks, or null to use the
+     *            worker service of the helper.
+     * @param packetBufferPool
+     *            The pool of packet buffers, or null to allocate dedicated
+     *            packet buffers.
+     * @param sslStatistics
+     *            The handshake statistics to update or null.
+     * @throws IOException
+     */
+    public SslConnection(ConnectionHelper<T> helper,
+            SocketChannel socketChannel, ConnectionController controller,
+            InetSocketAddress socketAddress, SSLEngine sslEngine,
+            Executor handshakeService, PacketBufferPool packetBufferPool,
+            SslStatistics sslStatistics) throws IOException {
         super(helper, socketChannel, controller, socketAddress, sslEngine
                 .getSession().getApplicationBufferSize(), sslEngine
                 .getSession().getApplicationBufferSize());
+        this.handshakeService = handshakeService;
+        this.packetBufferPool = packetBufferPool;
         this.sslEngine = sslEngine;
         this.sslEngineResult = null;
+        this.sslStatistics = sslStatistics;
         getSslEngine().setUseClientMode(isClientSide());
         initSslEngine();
     }
 
+    /**
+     * Releases the leased packet buffers before clearing the connection.
+     */
+    @Override
+    public void clear() {
+        if (this.readableSslChannel != null) {
+            this.readableSslChannel.releasePacketBuffer(true);
+            this.readableSslChannel = null;
+        }
+
+        if (this.writableSslChannel != null) {
+            this.writableSslChannel.releasePacketBuffer(true);
+            this.writableSslChannel = null;
+        }
+
+        super.clear();
+    }
+
     @Override
     protected ReadableSelectionChannel createReadableSelectionChannel() {
-        return new ReadableSslChannel(super.createReadableSelectionChannel(),
-                this, getRegistration().getWakeupListener());
+        this.readableSslChannel = new ReadableSslChannel(
+                super.createReadableSelectionChannel(), this,
+                getRegistration().getWakeupListener());
+        return this.readableSslChannel;
     }
 
     @Override
     protected WritableSelectionChannel createWritableSelectionChannel() {
-        return new WritableSslChannel(super.createWritableSelectionChannel(),
-                this, getRegistration().getWakeupListener());
+        this.writableSslChannel = new WritableSslChannel(
+                super.createWritableSelectionChannel(), this,
+                getRegistration().getWakeupListener());
+        return this.writableSslChannel;
     }
 
     /**
@@ -139,6 +220,15 @@ public class SslConnection<T extends Connector> extends Connection<T> {
                 .getApplicationBufferSize());
     }
 
+    /**
+     * Returns the pool of packet buffers or null.
+     * 
+     * @return The pool of packet buffers or null.
+     */
+    public PacketBufferPool getPacketBufferPool() {
+        return packetBufferPool;
+    }
+
     /**
      * Returns the suggested SSL packet buffer size.
      * 
@@ -252,6 +342,30 @@ public class SslConnection<T extends Connector> extends Connection<T> {
         return keySize;
     }
 
+    /**
+     * Returns the number of buffer bytes currently held for SSL/TLS, that is
+     * the capacity of the packet buffers held plus the growth of the inbound
+     * and outbound buffers beyond the sizes configured on the connector.
+     * 
+     * @return The number of buffer bytes currently held for SSL/TLS.
+     */
+    public int getSslMemoryFootprint() {
+        int result = Math.max(0, getInboundWay().getBuffer().capacity()
+                - getHelper().getInboundBufferSize())
+                + Math.max(0, getOutboundWay().getBuffer().capacity()
+                        - getHelper().getOutboundBufferSize());
+
+        if (this.readableSslChannel != null) {
+            result += this.readableSslChannel.getPacketBufferCapacity();
+        }
+
+        if (this.writableSslChannel != null) {
+            result += this.writableSslChannel.getPacketBufferCapacity();
+        }
+
+        return result;
+    }
+
     /**
      * Returns the current SSL session or null.
      * 
@@ -343,6 +457,8 @@ public class SslConnection<T extends Connector> extends Connection<T> {
      * @throws SSLException
      */
     public void initSslEngine() throws SSLException {
+        this.handshakeStartTime = System.currentTimeMillis();
+        this.handshakeStartNanoTime = System.nanoTime();
         getSslEngine().beginHandshake();
     }
 
@@ -360,6 +476,15 @@ public class SslConnection<T extends Connector> extends Connection<T> {
      * exchanged.
      */
     private void onFinished() {
+        if (this.sslStatistics != null) {
+            // A resumed session was created before the handshake started
+            SSLSession sslSession = getSslSession();
+            boolean resumed = (sslSession != null)
+                    && (sslSession.getCreationTime() < this.handshakeStartTime);
+            this.sslStatistics.onHandshakeCompleted(resumed, System.nanoTime()
+                    - this.handshakeStartNanoTime);
+        }
+
         if (isClientSide()) {
             getInboundWay().setIoState(IoState.IDLE);
             getOutboundWay().setIoState(IoState.INTEREST);
@@ -373,45 +498,60 @@ public class SslConnection<T extends Connector> extends Connection<T> {
      * Runs the pending lengthy task.
      */
     private void onNeedTask() {
-        // Delegate lengthy tasks to the connector's worker
-        // service before checking again
+        // Delegate lengthy tasks to the handshake service or to the
+        // connector's worker service before checking again
         final Runnable task = getSslEngine().getDelegatedTask();
+        Executor executor = (this.handshakeService != null) ? this.handshakeService
+                : getHelper().getWorkerService();
 
         if (task != null) {
             // Suspend IO processing until the task completes
             getInboundWay().setIoState(IoState.IDLE);
             getOutboundWay().setIoState(IoState.IDLE);
 
-            // Runs the pending lengthy task.
-            getHelper().getWorkerService().execute(new Runnable() {
-                public void run() {
-                    getLogger().log(Level.FINER, "Running delegated tasks...");
-                    task.run();
-
-                    // Check if a next task is pending
-                    Runnable nextTask = getSslEngine().getDelegatedTask();
-
-                    // Run any pending task sequentially
-                    while (nextTask != null) {
-                        nextTask.run();
-                        nextTask = getSslEngine().getDelegatedTask();
-                    }
-
-                    if (getLogger().isLoggable(Level.FINER)) {
-                        getLogger().log(
-                                Level.FINER,
-                                "Done running delegated tasks. "
-                                        + SslConnection.this.toString());
-                    }
-
-                    try {
-                        handleSslResult();
-                    } catch (IOException e) {
-                        getLogger().log(Level.INFO,
-                                "Unable to handle SSL handshake", e);
+            try {
+                // Runs the pending lengthy task.
+                executor.execute(new Runnable() {
+                    public void run() {
+                        getLogger().log(Level.FINER,
+                                "Running delegated tasks...");
+                        task.run();
+
+                        // Check if a next task is pending
+                        Runnable nextTask = getSslEngine().getDelegatedTask();
+
+                        // Run any pending task sequentially
+                        while (nextTask != null) {
+                            nextTask.run();
+                            nextTask = getSslEngine().getDelegatedTask();
+                        }
+
+                        if (getLogger().isLoggable(Level.FINER)) {
+                            getLogger().log(
+                                    Level.FINER,
+                                    "Done running delegated tasks. "
+                                            + SslConnection.this.toString());
+                        }
+
+                        try {
+                            handleSslResult();
+                        } catch (IOException e) {
+                            getLogger().log(Level.INFO,
+                                    "Unable to handle SSL handshake", e);
+                        }
                     }
+                });
+            } catch (RejectedExecutionException ree) {
+                // The handshake service is saturated, shed the connection
+                getLogger().log(Level.WARNING,
+                        "Unable to run the delegated SSL tasks, closing the connection");
+
+                if (this.sslStatistics != null) {
+                    this.sslStatistics.onTaskRejected();
                 }
-            });
+
+                close(false);
+            }
         }
     }
 
@@ -510,7 +650,8 @@ public class SslConnection<T extends Connector> extends Connection<T> {
     @Override
     public String toString() {
         return super.toString() + " | " + getSslEngine() + " | "
-                + getSslEngineResult();
+                + getSslEngineResult() + " | " + getSslMemoryFootprint()
+                + " SSL buffer bytes";
     }
 
 }
@@ -40,8 +40,10 @@ import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.engine.RestletHelper;
+import org.restlet.engine.connector.BaseHelper;
 import org.restlet.ext.ssl.DefaultSslContextFactory;
 import org.restlet.ext.ssl.SslContextFactory;
+import org.restlet.ext.ssl.SslStatistics;
 
 /**
  * Various HTTPS utilities.
@@ -53,6 +55,51 @@ public class SslUtils {
     /** Cache of SSL key sizes for various cipher suites. */
     private final static ConcurrentMap<String, Integer> keySizesCache = new ConcurrentHashMap<String, Integer>();
 
+    /**
+     * Creates the executor of the delegated SSL tasks based on the
+     * "handshakeThreads" and "maxQueuedHandshakes" parameters of a helper.
+     * 
+     * @param helper
+     *            The helper to use.
+     * @return The executor of the delegated SSL tasks.
+     */
+    public static HandshakeService createHandshakeService(
+            RestletHelper<?> helper) {
+        int threads = Integer.parseInt(helper.getHelpedParameters()
+                .getFirstValue("handshakeThreads",
+                        Integer.toString(Runtime.getRuntime()
+                                .availableProcessors())));
+        int maxQueued = Integer.parseInt(helper.getHelpedParameters()
+                .getFirstValue("maxQueuedHandshakes", "100"));
+        return new HandshakeService(threads, maxQueued, helper.getLogger());
+    }
+
+    /**
+     * Creates the pool of SSL packet buffers based on the
+     * "pooledPacketBuffers" and "maxPooledPacketBuffers" parameters of a
+     * helper.
+     * 
+     * @param helper
+     *            The helper to use.
+     * @param sslStatistics
+     *            The statistics to update or null.
+     * @return The pool of SSL packet buffers or null if disabled.
+     */
+    public static PacketBufferPool createPacketBufferPool(
+            BaseHelper<?> helper, SslStatistics sslStatistics) {
+        PacketBufferPool result = null;
+
+        if (Boolean.parseBoolean(helper.getHelpedParameters().getFirstValue(
+                "pooledPacketBuffers", "false"))) {
+            int maxPooled = Integer.parseInt(helper.getHelpedParameters()
+                    .getFirstValue("maxPooledPacketBuffers", "128"));
+            result = new PacketBufferPool(helper.isDirectBuffers(), maxPooled,
+                    sslStatistics);
+        }
+
+        return result;
+    }
+
     /**
      * Extract the SSL key size of a given cipher suite.
      * 
@@ -52,6 +52,10 @@ import org.restlet.engine.io.WritableSelectionChannel;
  * It is important to implement {@link SelectionChannel} as some framework
  * classes rely on this down the processing chain.
  * 
+ * Data is wrapped straight from the source buffer of the outbound way. When
+ * the parent connection has a {@link PacketBufferPool}, the packet buffer is
+ * only leased while encrypted bytes are pending.
+ * 
  * @author Jerome Louvel
  */
 public class WritableSslChannel extends WritableBufferedChannel implements
@@ -60,6 +64,9 @@ public class WritableSslChannel extends WritableBufferedChannel implements
     /** The parent SSL connection. */
     private final SslConnection<?> connection;
 
+    /** The packet buffer or null if none is currently leased. */
+    private volatile Buffer packetBuffer;
+
     /**
      * Constructor.
      * 
@@ -72,9 +79,13 @@ public class WritableSslChannel extends WritableBufferedChannel implements
      */
     public WritableSslChannel(WritableSelectionChannel target,
             SslConnection<?> connection, WakeupListener wakeupListener) {
-        super(new Buffer(connection.getPacketBufferSize(), connection
-                .getHelper().isDirectBuffers()), target, wakeupListener);
+        super(null, target, wakeupListener);
         this.connection = connection;
+
+        if (connection.getPacketBufferPool() == null) {
+            this.packetBuffer = new Buffer(connection.getPacketBufferSize(),
+                    connection.getHelper().isDirectBuffers());
+        }
     }
 
     @Override
@@ -91,6 +102,16 @@ public class WritableSslChannel extends WritableBufferedChannel implements
                         .getSslHandshakeStatus() == HandshakeStatus.NEED_WRAP));
     }
 
+    /**
+     * Returns the packet buffer or null if none is currently leased.
+     * 
+     * @return The packet buffer or null if none is currently leased.
+     */
+    @Override
+    public Buffer getBuffer() {
+        return packetBuffer;
+    }
+
     /**
      * Returns the parent SSL connection.
      * 
@@ -100,6 +121,29 @@ public class WritableSslChannel extends WritableBufferedChannel implements
         return connection;
     }
 
+    /**
+     * Returns the capacity of the packet buffer held or 0 if none is held.
+     * 
+     * @return The capacity of the packet buffer held.
+     */
+    public int getPacketBufferCapacity() {
+        Buffer buffer = getBuffer();
+        return (buffer == null) ? 0 : buffer.capacity();
+    }
+
+    /**
+     * Leases a packet buffer from the pool of the parent connection if none is
+     * held.
+     */
+    protected synchronized void leasePacketBuffer() {
+        PacketBufferPool pool = getConnection().getPacketBufferPool();
+
+        if ((this.packetBuffer == null) && (pool != null)) {
+            this.packetBuffer = pool.checkout(getConnection()
+                    .getPacketBufferSize());
+        }
+    }
+
     /**
      * Callback method invoked upon delegated tasks completion.
      */
@@ -124,8 +168,36 @@ public class WritableSslChannel extends WritableBufferedChannel implements
         getConnection().handleSslResult();
     }
 
+    /**
+     * Checks the leased packet buffer back into the pool of the parent
+     * connection. Does nothing if the buffer isn't pooled.
+     * 
+     * @param force
+     *            True to release the buffer even if it isn't empty.
+     */
+    protected synchronized void releasePacketBuffer(boolean force) {
+        PacketBufferPool pool = getConnection().getPacketBufferPool();
+
+        if ((this.packetBuffer != null) && (pool != null)
+                && (force || this.packetBuffer.isEmpty())) {
+            pool.checkin(this.packetBuffer);
+            this.packetBuffer = null;
+        }
+    }
+
+    /**
+     * Wraps and writes some bytes from the source buffer. A packet buffer is
+     * leased beforehand if needed, and released afterwards unless it still
+     * contains encrypted bytes not yet written to the socket.
+     */
     @Override
-    public int write(ByteBuffer sourceBuffer) throws IOException {
-        return super.write(sourceBuffer);
+    public synchronized int write(ByteBuffer sourceBuffer) throws IOException {
+        leasePacketBuffer();
+
+        try {
+            return super.write(sourceBuffer);
+        } finally {
+            releasePacketBuffer(false);
+        }
     }
 }
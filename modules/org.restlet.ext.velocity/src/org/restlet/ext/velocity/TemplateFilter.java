@@ -52,7 +52,8 @@ import org.restlet.util.Resolver;
  * representation. By default, the template representation provides a data model
  * based on the request and response objects. In order for the wrapping to
  * happen, the representations must have the {@link Encoding#VELOCITY} encoding
- * set.<br>
+ * set. The parsed templates are cached by the {@link VelocityService} of the
+ * current application.<br>
  * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
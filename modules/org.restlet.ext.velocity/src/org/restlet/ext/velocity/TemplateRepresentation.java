@@ -63,6 +63,37 @@ import org.restlet.util.Resolver;
  * @author Jerome Louvel
  */
 public class TemplateRepresentation extends WriterRepresentation {
+
+    /**
+     * Parses a Velocity template from a representation. See
+     * {@link VelocityService#getTemplate(Representation)} for a cached
+     * alternative.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The parsed template.
+     * @throws ResourceNotFoundException
+     * @throws ParseErrorException
+     * @throws IOException
+     */
+    public static Template getTemplate(Representation templateRepresentation)
+            throws ResourceNotFoundException, ParseErrorException,
+            IOException {
+        Template result = new Template();
+        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
+                .getCharacterSet() : CharacterSet.DEFAULT;
+        result.setEncoding(charSet.getName());
+        result.setLastModified((templateRepresentation.getModificationDate() == null) ? new Date()
+                .getTime() : templateRepresentation.getModificationDate()
+                .getTime());
+        result.setName("org.restlet.resource.representation");
+        result.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
+        result.setResourceLoader(new RepresentationResourceLoader(
+                templateRepresentation));
+        result.process();
+        return result;
+    }
+
     /**
      * Velocity context based on a Resolver.
      * 
@@ -144,9 +175,12 @@ public class TemplateRepresentation extends WriterRepresentation {
     /** The template's data model. */
     private volatile org.apache.velocity.context.Context context;
 
-    /** The Velocity engine. */
+    /** The specific Velocity engine. */
     private volatile VelocityEngine engine;
 
+    /** The service loading the named template with its shared engine. */
+    private volatile VelocityService service;
+
     /** The template. */
     private volatile Template template;
 
@@ -154,7 +188,9 @@ public class TemplateRepresentation extends WriterRepresentation {
     private volatile String templateName;
 
     /**
-     * Constructor based on a Velocity 'encoded' representation.
+     * Constructor based on a Velocity 'encoded' representation. The template
+     * is parsed only if it isn't cached by the current
+     * {@link VelocityService}.
      * 
      * @param templateRepresentation
      *            The representation to 'decode'.
@@ -172,27 +208,16 @@ public class TemplateRepresentation extends WriterRepresentation {
         super(mediaType);
         setDataModel(dataModel);
         this.engine = null;
-        this.template = new Template();
-
-        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
-                .getCharacterSet() : CharacterSet.DEFAULT;
-        this.template.setEncoding(charSet.getName());
-
-        if (templateRepresentation.getModificationDate() != null) {
-            this.template.setLastModified(templateRepresentation
-                    .getModificationDate().getTime());
-        }
-
-        this.template.setName("org.restlet.resource.representation");
-        this.template.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
-        this.template.setResourceLoader(new RepresentationResourceLoader(
-                templateRepresentation));
-        this.template.process();
+        this.service = null;
+        this.template = VelocityService.getCurrent().getTemplate(
+                templateRepresentation);
         this.templateName = null;
     }
 
     /**
-     * Constructor based on a Velocity 'encoded' representation.
+     * Constructor based on a Velocity 'encoded' representation. The template
+     * is parsed only if it isn't cached by the current
+     * {@link VelocityService}.
      * 
      * @param templateRepresentation
      *            The representation to 'decode'.
@@ -207,24 +232,16 @@ public class TemplateRepresentation extends WriterRepresentation {
             ParseErrorException, IOException {
         super(mediaType);
         this.engine = null;
-        this.template = new Template();
-
-        CharacterSet charSet = (templateRepresentation.getCharacterSet() != null) ? templateRepresentation
-                .getCharacterSet() : CharacterSet.DEFAULT;
-        this.template.setEncoding(charSet.getName());
-        this.template.setLastModified((templateRepresentation
-                .getModificationDate() == null) ? new Date().getTime()
-                : templateRepresentation.getModificationDate().getTime());
-        this.template.setName("org.restlet.resource.representation");
-        this.template.setRuntimeServices(RuntimeSingleton.getRuntimeServices());
-        this.template.setResourceLoader(new RepresentationResourceLoader(
-                templateRepresentation));
-        this.template.process();
+        this.service = null;
+        this.template = VelocityService.getCurrent().getTemplate(
+                templateRepresentation);
         this.templateName = null;
     }
 
     /**
-     * Constructor.
+     * Constructor. The template is loaded by the shared engine of the current
+     * {@link VelocityService}, unless a specific engine is obtained with
+     * {@link #getEngine()} before the template is loaded.
      * 
      * @param templateName
      *            The Velocity template's name. The actual template is retrieved
@@ -240,7 +257,8 @@ public class TemplateRepresentation extends WriterRepresentation {
 
         try {
             setDataModel(dataModel);
-            this.engine = new VelocityEngine();
+            this.engine = null;
+            this.service = VelocityService.getCurrent();
             this.template = null;
             this.templateName = templateName;
         } catch (Exception e) {
@@ -276,6 +294,7 @@ public class TemplateRepresentation extends WriterRepresentation {
         super(mediaType);
         setDataModel(dataModel);
         this.engine = null;
+        this.service = null;
         this.template = template;
         this.templateName = null;
     }
@@ -291,6 +310,7 @@ public class TemplateRepresentation extends WriterRepresentation {
     public TemplateRepresentation(Template template, MediaType mediaType) {
         super(mediaType);
         this.engine = null;
+        this.service = null;
         this.template = template;
         this.templateName = null;
     }
@@ -305,11 +325,18 @@ public class TemplateRepresentation extends WriterRepresentation {
     }
 
     /**
-     * Returns the Velocity engine.
+     * Returns the specific Velocity engine. For a template loaded by name, a
+     * new engine is created on the first call and used instead of the shared
+     * one, so that it can be configured before the template is loaded.
      * 
      * @return The Velocity engine.
      */
     public VelocityEngine getEngine() {
+        if ((this.engine == null) && (this.templateName != null)
+                && (this.template == null)) {
+            this.engine = new VelocityEngine();
+        }
+
         return this.engine;
     }
 
@@ -322,8 +349,14 @@ public class TemplateRepresentation extends WriterRepresentation {
         if (this.template == null) {
             if (this.templateName != null) {
                 try {
-                    getEngine().init();
-                    this.template = getEngine().getTemplate(this.templateName);
+                    if (this.engine != null) {
+                        this.engine.init();
+                        this.template = this.engine
+                                .getTemplate(this.templateName);
+                    } else {
+                        this.template = this.service
+                                .getTemplate(this.templateName);
+                    }
                 } catch (Exception e) {
                     final Context context = Context.getCurrent();
 
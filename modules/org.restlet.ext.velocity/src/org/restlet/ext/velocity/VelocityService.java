@@ -0,0 +1,243 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.velocity;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.restlet.Application;
+import org.restlet.engine.util.TemplateCache;
+import org.restlet.representation.Representation;
+import org.restlet.service.Service;
+
+/**
+ * Application service sharing a single Velocity engine and caching the
+ * templates parsed from representations, as described in
+ * {@link TemplateCache}.<br>
+ * <br>
+ * The shared engine loads templates by name. It only caches them, up to the
+ * same maximum number of templates, when the cache of its resource loader is
+ * enabled, for example with the "file.resource.loader.cache" property which
+ * is false by default. Its properties must be set before the first template
+ * is loaded.<br>
+ * <br>
+ * The {@link TemplateRepresentation} constructors and the
+ * {@link TemplateFilter} rely on the service registered in the services of the
+ * current application. Otherwise, they rely on a fallback service private to
+ * the current application, or on a new service when there is no current
+ * application. To share a service, add it to the application's services
+ * during its setup.
+ * 
+ * @author Jerome Louvel
+ */
+public class VelocityService extends Service {
+
+    /** The default maximum number of cached templates. */
+    public static final int DEFAULT_MAX_TEMPLATES = TemplateCache.DEFAULT_MAX_SIZE;
+
+    /** The services used by the applications which have none registered. */
+    private static final Map<Application, VelocityService> FALLBACKS = new WeakHashMap<Application, VelocityService>();
+
+    /**
+     * Returns the Velocity service registered in the services of the current
+     * application. If it has no such service, a fallback service private to
+     * the application is returned. If there is no current application, a new
+     * service is returned.
+     * 
+     * @return The Velocity service of the current application.
+     */
+    public static VelocityService getCurrent() {
+        Application application = Application.getCurrent();
+        VelocityService result = null;
+
+        if (application == null) {
+            result = new VelocityService();
+        } else {
+            result = application.getServices().get(VelocityService.class);
+
+            if (result == null) {
+                synchronized (FALLBACKS) {
+                    result = FALLBACKS.get(application);
+
+                    if (result == null) {
+                        result = new VelocityService();
+                        FALLBACKS.put(application, result);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /** The shared Velocity engine. */
+    private final VelocityEngine engine;
+
+    /** Indicates if the shared engine has been initialized. */
+    private volatile boolean engineInitialized;
+
+    /** The templates cached from representations. */
+    private final TemplateCache<Template> templates;
+
+    /**
+     * Constructor.
+     */
+    public VelocityService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public VelocityService(boolean enabled) {
+        super(enabled);
+        this.engine = new VelocityEngine();
+        this.templates = new TemplateCache<Template>();
+    }
+
+    /**
+     * Removes all the templates cached from representations.
+     */
+    public void clear() {
+        this.templates.clear();
+    }
+
+    /**
+     * Returns the shared Velocity engine. Its properties must be set before
+     * the first template is loaded by name.
+     * 
+     * @return The shared Velocity engine.
+     */
+    public VelocityEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Returns the maximum number of cached templates. The least recently used
+     * templates are removed when this size is exceeded. Default value is
+     * {@link #DEFAULT_MAX_TEMPLATES}.
+     * 
+     * @return The maximum number of cached templates.
+     */
+    public int getMaxTemplates() {
+        return this.templates.getMaxSize();
+    }
+
+    /**
+     * Returns a Velocity template from a representation. If a valid template
+     * parsed from the same location reference is cached, it is returned and
+     * the template representation is released without being read.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The template or null if the representation is null.
+     * @throws ResourceNotFoundException
+     * @throws ParseErrorException
+     * @throws IOException
+     */
+    public Template getTemplate(Representation templateRepresentation)
+            throws ResourceNotFoundException, ParseErrorException,
+            IOException {
+        Template result = null;
+
+        if (templateRepresentation != null) {
+            if (isEnabled()) {
+                result = this.templates.get(null, templateRepresentation);
+            }
+
+            if (result == null) {
+                result = TemplateRepresentation
+                        .getTemplate(templateRepresentation);
+
+                if (isEnabled()) {
+                    this.templates.put(null, templateRepresentation, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a Velocity template from its name, using the shared engine
+     * which is initialized on the first call.
+     * 
+     * @param templateName
+     *            The template name.
+     * @return The template.
+     * @throws Exception
+     */
+    public Template getTemplate(String templateName) throws Exception {
+        if (!this.engineInitialized) {
+            synchronized (this.engine) {
+                if (!this.engineInitialized) {
+                    this.engine.setProperty(
+                            RuntimeConstants.RESOURCE_MANAGER_DEFAULTCACHE_SIZE,
+                            Integer.toString(getMaxTemplates()));
+                    this.engine.init();
+                    this.engineInitialized = true;
+                }
+            }
+        }
+
+        return this.engine.getTemplate(templateName);
+    }
+
+    /**
+     * Sets the maximum number of cached templates. For the templates loaded
+     * by name, it must be set before the first one is loaded.
+     * 
+     * @param maxTemplates
+     *            The maximum number of cached templates.
+     */
+    public void setMaxTemplates(int maxTemplates) {
+        this.templates.setMaxSize(maxTemplates);
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+        clear();
+    }
+
+}
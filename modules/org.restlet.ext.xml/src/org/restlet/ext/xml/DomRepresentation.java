@@ -37,6 +37,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 
+import javax.xml.parsers.DocumentBuilder;
+
 import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
 import org.restlet.engine.Edition;
@@ -77,7 +79,9 @@ public class DomRepresentation extends XmlRepresentation {
      */
     public DomRepresentation(MediaType mediaType) throws IOException {
         super(mediaType);
-        this.document = getDocumentBuilder().newDocument();
+        DocumentBuilder documentBuilder = getDocumentBuilder();
+        this.document = documentBuilder.newDocument();
+        releaseDocumentBuilder(documentBuilder);
     }
 
     /**
@@ -110,15 +114,16 @@ public class DomRepresentation extends XmlRepresentation {
     /**
      * Creates a new JAXP Transformer object that will be used to serialize this
      * DOM. This method may be overridden in order to set custom properties on
-     * the Transformer.
+     * the Transformer. By default, an identity transformer is taken from a
+     * shared pool and given back once the serialization is done.
      * 
      * @return The transformer to be used for serialization.
      */
     protected javax.xml.transform.Transformer createTransformer()
             throws IOException {
         try {
-            javax.xml.transform.Transformer transformer = javax.xml.transform.TransformerFactory
-                    .newInstance().newTransformer();
+            javax.xml.transform.Transformer transformer = org.restlet.ext.xml.internal.TransformerPool
+                    .getInstance().checkout();
             transformer.setOutputProperty(
                     javax.xml.transform.OutputKeys.METHOD, "xml");
             transformer.setOutputProperty(
@@ -152,9 +157,9 @@ public class DomRepresentation extends XmlRepresentation {
             }
 
             return transformer;
-        } catch (javax.xml.transform.TransformerConfigurationException tce) {
+        } catch (javax.xml.transform.TransformerFactoryConfigurationError tfce) {
             throw new IOException("Couldn't write the XML representation: "
-                    + tce.getMessage());
+                    + tfce.getMessage());
         }
     }
 
@@ -168,17 +173,19 @@ public class DomRepresentation extends XmlRepresentation {
     @Override
     public Document getDocument() throws IOException {
         if (this.document == null) {
-            if (this.xmlRepresentation != null) {
-                try {
-                    this.document = getDocumentBuilder()
-                            .parse(getInputSource());
-                } catch (SAXException se) {
-                    throw new IOException(
-                            "Couldn't read the XML representation. "
-                                    + se.getMessage());
+            DocumentBuilder documentBuilder = getDocumentBuilder();
+
+            try {
+                if (this.xmlRepresentation != null) {
+                    this.document = documentBuilder.parse(getInputSource());
+                } else {
+                    this.document = documentBuilder.newDocument();
                 }
-            } else {
-                this.document = getDocumentBuilder().newDocument();
+            } catch (SAXException se) {
+                throw new IOException("Couldn't read the XML representation. "
+                        + se.getMessage());
+            } finally {
+                releaseDocumentBuilder(documentBuilder);
             }
         }
 
@@ -204,6 +211,27 @@ public class DomRepresentation extends XmlRepresentation {
         return new InputSource((InputStream) null);
     }
 
+    // [ifndef android] method
+    /**
+     * Returns a SAX source streaming the wrapped XML representation if the DOM
+     * document hasn't been built yet, or a SAX source based on the DOM
+     * document otherwise. When streamed, the DOM document isn't built, the
+     * wrapped representation isn't validated and the entity resolver isn't
+     * used. A transient representation can then only be read once.
+     * 
+     * @return A SAX source.
+     * @throws IOException
+     */
+    javax.xml.transform.sax.SAXSource getStreamingSaxSource()
+            throws IOException {
+        if ((this.document == null) && (this.xmlRepresentation != null)
+                && this.xmlRepresentation.isAvailable()) {
+            return getSaxSource(this.xmlRepresentation);
+        }
+
+        return getSaxSource();
+    }
+
     /**
      * Indicates if the XML serialization should be indented. False by default.
      * 
@@ -258,9 +286,16 @@ public class DomRepresentation extends XmlRepresentation {
         try {
             if (getDocument() != null) {
                 final javax.xml.transform.Transformer transformer = createTransformer();
-                transformer.transform(new javax.xml.transform.dom.DOMSource(
-                        getDocument()),
-                        new javax.xml.transform.stream.StreamResult(writer));
+
+                try {
+                    transformer.transform(
+                            new javax.xml.transform.dom.DOMSource(getDocument()),
+                            new javax.xml.transform.stream.StreamResult(writer));
+                } finally {
+                    // Transformers not taken from the pool are ignored
+                    org.restlet.ext.xml.internal.TransformerPool.getInstance()
+                            .checkin(transformer);
+                }
             }
         } catch (javax.xml.transform.TransformerConfigurationException tce) {
             throw new IOException("Couldn't write the XML representation: "
@@ -41,13 +41,13 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Result;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.SAXSource;
 
 import org.restlet.data.MediaType;
+import org.restlet.ext.xml.internal.TransformerPool;
 import org.restlet.representation.Representation;
 import org.w3c.dom.Document;
 import org.xml.sax.ContentHandler;
@@ -227,8 +227,14 @@ public class SaxRepresentation extends XmlRepresentation {
         if (contentHandler != null) {
             try {
                 Result result = new SAXResult(contentHandler);
-                TransformerFactory.newInstance().newTransformer()
-                        .transform(getSaxSource(), result);
+                javax.xml.transform.Transformer transformer = TransformerPool
+                        .getInstance().checkout();
+
+                try {
+                    transformer.transform(getSaxSource(), result);
+                } finally {
+                    TransformerPool.getInstance().checkin(transformer);
+                }
             } catch (TransformerConfigurationException tce) {
                 throw new IOException(
                         "Couldn't parse the source representation: "
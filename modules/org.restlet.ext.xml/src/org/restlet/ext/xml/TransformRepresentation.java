@@ -154,6 +154,9 @@ public class TransformRepresentation extends WriterRepresentation {
     /** The source representation to transform. */
     private volatile Representation sourceRepresentation;
 
+    /** Indicates if DOM source representations are streamed. */
+    private volatile boolean streaming;
+
     /** The template to be used and reused. */
     private volatile Templates templates;
 
@@ -230,6 +233,7 @@ public class TransformRepresentation extends WriterRepresentation {
         this.parameters = new HashMap<String, Object>();
         this.outputProperties = new HashMap<String, String>();
         this.errorListener = null;
+        this.streaming = false;
     }
 
     /**
@@ -276,12 +280,22 @@ public class TransformRepresentation extends WriterRepresentation {
     }
 
     /**
-     * Returns the SAX source associated to the source representation.
+     * Returns the SAX source associated to the source representation. If
+     * streaming is enabled and the source is a {@link DomRepresentation} whose
+     * DOM document hasn't been built yet, its wrapped XML representation is
+     * directly streamed.
      * 
      * @return The SAX source associated to the source representation.
      * @throws IOException
+     * @see #isStreaming()
      */
     public SAXSource getSaxSource() throws IOException {
+        if (isStreaming()
+                && (getSourceRepresentation() instanceof DomRepresentation)) {
+            return ((DomRepresentation) getSourceRepresentation())
+                    .getStreamingSaxSource();
+        }
+
         return toSaxSource(getSourceRepresentation());
     }
 
@@ -455,6 +469,18 @@ public class TransformRepresentation extends WriterRepresentation {
         return result;
     }
 
+    /**
+     * Indicates if a {@link DomRepresentation} source whose DOM document
+     * hasn't been built yet is streamed to the transformer, instead of being
+     * parsed into a DOM document first. In this case, the source isn't
+     * validated and its entity resolver isn't used. False by default.
+     * 
+     * @return True if DOM source representations are streamed.
+     */
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
     /**
      * Releases the source and transform sheet representations, the transformer
      * and the URI resolver.
@@ -522,6 +548,17 @@ public class TransformRepresentation extends WriterRepresentation {
         this.sourceRepresentation = source;
     }
 
+    /**
+     * Indicates if a {@link DomRepresentation} source whose DOM document
+     * hasn't been built yet is streamed to the transformer.
+     * 
+     * @param streaming
+     *            True if DOM source representations are streamed.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * Sets the templates to be used and reused.
      * 
@@ -562,14 +599,16 @@ public class TransformRepresentation extends WriterRepresentation {
      * @throws IOException
      */
     public void transform(Source source, Result result) throws IOException {
-        if (getTransformer() == null) {
+        Transformer transformer = getTransformer();
+
+        if (transformer == null) {
             Context.getCurrentLogger()
                     .warning(
                             "Unable to apply the transformation. No transformer found!");
         } else {
             try {
                 // Generates the result of the transformation
-                getTransformer().transform(source, result);
+                transformer.transform(source, result);
             } catch (TransformerException te) {
                 throw new IOException("Transformer exception. "
                         + te.getMessage());
@@ -33,8 +33,13 @@
 
 package org.restlet.ext.xml;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+import javax.xml.transform.Templates;
 
 import org.restlet.Request;
 import org.restlet.Response;
@@ -42,6 +47,8 @@ import org.restlet.data.CharacterSet;
 import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.ext.xml.internal.ContextResolver;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
@@ -50,6 +57,14 @@ import org.restlet.routing.Filter;
  * sheet. It uses the {@link org.restlet.representation.TransformRepresentation}
  * to actually transform the XML entities.<br>
  * <br>
+ * The transform sheet is compiled once into JAXP {@link Templates} that are
+ * shared by all the transformations. They are compiled again only when the
+ * tag or the modification date of the transform sheet changes.<br>
+ * <br>
+ * {@link DomRepresentation} entities are parsed into a DOM document before
+ * being transformed, unless streaming is enabled with
+ * {@link #setStreaming(boolean)}.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -92,6 +107,18 @@ public class Transformer extends Filter {
      */
     private volatile MediaType resultMediaType;
 
+    /** Indicates if DOM source representations are streamed. */
+    private volatile boolean streaming;
+
+    /** The compiled transform sheet. */
+    private volatile Templates templates;
+
+    /** The modification date of the compiled transform sheet. */
+    private volatile Date templatesModificationDate;
+
+    /** The tag of the compiled transform sheet. */
+    private volatile Tag templatesTag;
+
     /** The XSLT transform sheet to apply to message entities. */
     private volatile Representation transformSheet;
 
@@ -108,6 +135,7 @@ public class Transformer extends Filter {
         this.transformSheet = transformSheet;
         this.resultMediaType = MediaType.APPLICATION_XML;
         this.resultCharacterSet = null;
+        this.streaming = false;
     }
 
     @Override
@@ -205,6 +233,35 @@ public class Transformer extends Filter {
         return this.resultMediaType;
     }
 
+    /**
+     * Returns the compiled transform sheet. The sheet is compiled again if its
+     * tag or modification date changed since the last compilation.
+     * 
+     * @return The compiled transform sheet.
+     * @throws IOException
+     */
+    public synchronized Templates getTemplates() throws IOException {
+        Representation sheet = getTransformSheet();
+
+        if ((this.templates != null)
+                && ((sheet == null)
+                        || !isSame(this.templatesTag, sheet.getTag()) || !isSame(
+                        this.templatesModificationDate,
+                        sheet.getModificationDate()))) {
+            // The transform sheet has changed
+            this.templates = null;
+        }
+
+        if ((this.templates == null) && (sheet != null)) {
+            this.templates = new TransformRepresentation(getContext(), null,
+                    sheet).getTemplates();
+            this.templatesTag = sheet.getTag();
+            this.templatesModificationDate = sheet.getModificationDate();
+        }
+
+        return this.templates;
+    }
+
     /**
      * Returns the XSLT transform sheet to apply to message entities.
      * 
@@ -214,6 +271,32 @@ public class Transformer extends Filter {
         return this.transformSheet;
     }
 
+    /**
+     * Indicates if two transform sheet validators are identical.
+     * 
+     * @param validator1
+     *            The first validator.
+     * @param validator2
+     *            The second validator.
+     * @return True if both validators are null or equal.
+     */
+    private boolean isSame(Object validator1, Object validator2) {
+        return (validator1 == null) ? (validator2 == null) : validator1
+                .equals(validator2);
+    }
+
+    /**
+     * Indicates if a {@link DomRepresentation} entity whose DOM document
+     * hasn't been built yet is streamed to the transformer, instead of being
+     * parsed into a DOM document first. False by default.
+     * 
+     * @return True if DOM source representations are streamed.
+     * @see TransformRepresentation#isStreaming()
+     */
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
     /**
      * Sets the transformation mode. See MODE_* constants.
      * 
@@ -264,14 +347,26 @@ public class Transformer extends Filter {
         this.resultMediaType = resultMediaType;
     }
 
+    /**
+     * Indicates if a {@link DomRepresentation} entity whose DOM document
+     * hasn't been built yet is streamed to the transformer.
+     * 
+     * @param streaming
+     *            True if DOM source representations are streamed.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * Sets the XSLT transform sheet to apply to message entities.
      * 
      * @param transformSheet
      *            The XSLT transform sheet to apply to message entities.
      */
-    public void setTransformSheet(Representation transformSheet) {
+    public synchronized void setTransformSheet(Representation transformSheet) {
         this.transformSheet = transformSheet;
+        this.templates = null;
     }
 
     /**
@@ -283,8 +378,18 @@ public class Transformer extends Filter {
      * @return The generated result representation.
      */
     public Representation transform(Representation source) {
-        final Representation result = new TransformRepresentation(getContext(),
-                source, getTransformSheet());
+        TransformRepresentation result = null;
+
+        try {
+            result = new TransformRepresentation(
+                    (getContext() == null) ? null : new ContextResolver(
+                            getContext()), source, getTemplates());
+        } catch (IOException ioe) {
+            getLogger().log(Level.WARNING,
+                    "Unable to compile the transform sheet", ioe);
+            result = new TransformRepresentation(getContext(), source,
+                    getTransformSheet());
+        }
 
         if (this.resultLanguages != null) {
             result.getLanguages().addAll(getResultLanguages());
@@ -296,6 +401,7 @@ public class Transformer extends Filter {
         }
 
         result.setMediaType(getResultMediaType());
+        result.setStreaming(isStreaming());
         return result;
     }
 
@@ -40,17 +40,20 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathFactory;
 
 import org.restlet.Context;
 import org.restlet.data.MediaType;
+import org.restlet.ext.xml.internal.DocumentBuilderPool;
 import org.restlet.representation.Representation;
 import org.restlet.representation.WriterRepresentation;
 import org.w3c.dom.Document;
@@ -73,6 +76,21 @@ public abstract class XmlRepresentation extends WriterRepresentation
 // [enddef]
 {
 
+    /**
+     * The pools of document builders, indexed by configuration flags. Only
+     * used when no schema is set.
+     */
+    private static final ConcurrentMap<Integer, DocumentBuilderPool> DOCUMENT_BUILDER_POOLS = new ConcurrentHashMap<Integer, DocumentBuilderPool>();
+
+    /**
+     * Indicates for each representation class if it overrides the namespace
+     * context methods, preventing the caching of compiled XPath expressions.
+     * The classes are weakly referenced so that their class loader can be
+     * unloaded.
+     */
+    private static final Map<Class<?>, Boolean> NAMESPACE_CONTEXT_OVERRIDES = Collections
+            .synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
     // [ifdef android] method
     /**
      * Appends the text content of a given node and its descendants to the given
@@ -342,12 +360,20 @@ public abstract class XmlRepresentation extends WriterRepresentation
     public Object evaluate(String expression,
             javax.xml.namespace.QName returnType) throws Exception {
         Object result = null;
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        xpath.setNamespaceContext(this);
         Document xmlDocument = getDocument();
 
         if (xmlDocument != null) {
-            result = xpath.evaluate(expression, xmlDocument, returnType);
+            org.restlet.ext.xml.internal.XPathExpressionCache cache = org.restlet.ext.xml.internal.XPathExpressionCache
+                    .getInstance();
+
+            if (isNamespaceContextOverridden()) {
+                // The mappings may be dynamic, so don't cache the expression
+                result = cache.compile(expression, this).evaluate(xmlDocument,
+                        returnType);
+            } else {
+                result = cache.getExpression(expression, this.namespaces)
+                        .evaluate(xmlDocument, returnType);
+            }
         } else {
             throw new Exception(
                     "Unable to obtain a DOM document for the XML representation. "
@@ -375,11 +401,21 @@ public abstract class XmlRepresentation extends WriterRepresentation
      * @return The DOM document.
      */
     protected Document getDocument() throws Exception {
-        return getDocumentBuilder().parse(getInputSource());
+        DocumentBuilder documentBuilder = getDocumentBuilder();
+
+        try {
+            return documentBuilder.parse(getInputSource());
+        } finally {
+            releaseDocumentBuilder(documentBuilder);
+        }
     }
 
     /**
-     * Returns a document builder properly configured.
+     * Returns a document builder properly configured. When no schema is set,
+     * the builder is taken from a pool shared by the representations having
+     * the same parser configuration. It can then be given back with the
+     * {@link #releaseDocumentBuilder(DocumentBuilder)} method once the parsing
+     * is done.
      * 
      * @return A document builder properly configured.
      */
@@ -387,41 +423,96 @@ public abstract class XmlRepresentation extends WriterRepresentation
         DocumentBuilder result = null;
 
         try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setNamespaceAware(isNamespaceAware());
-            dbf.setValidating(isValidatingDtd());
-            dbf.setCoalescing(isCoalescing());
-            dbf.setExpandEntityReferences(isExpandingEntityRefs());
-            dbf.setIgnoringComments(isIgnoringComments());
-            dbf
-                    .setIgnoringElementContentWhitespace(isIgnoringExtraWhitespaces());
+            DocumentBuilderPool pool = getDocumentBuilderPool();
 
-            try {
-                dbf.setXIncludeAware(isXIncludeAware());
-            } catch (UnsupportedOperationException uoe) {
-                Context.getCurrentLogger().log(Level.FINE,
-                        "The JAXP parser doesn't support XInclude.", uoe);
+            if (pool != null) {
+                result = pool.checkout();
+            } else {
+                result = createDocumentBuilderFactory().newDocumentBuilder();
             }
 
-            // [ifndef android]
-            javax.xml.validation.Schema xsd = getSchema();
-            
-            if (xsd != null) {
-                dbf.setSchema(xsd);
-            }
-            // [enddef]
-
-            result = dbf.newDocumentBuilder();
             result.setEntityResolver(getEntityResolver());
             result.setErrorHandler(getErrorHandler());
         } catch (ParserConfigurationException pce) {
             throw new IOException("Couldn't create the empty document: "
                     + pce.getMessage());
+        } catch (FactoryConfigurationError fce) {
+            throw new IOException("Couldn't create the empty document: "
+                    + fce.getMessage());
         }
 
         return result;
     }
 
+    /**
+     * Returns the pool of document builders matching the parser configuration,
+     * or null if the builders can't be shared because a schema is set.
+     * 
+     * @return The pool of document builders or null.
+     */
+    private DocumentBuilderPool getDocumentBuilderPool() {
+        // [ifndef android]
+        if (getSchema() != null) {
+            return null;
+        }
+        // [enddef]
+
+        int flags = (isNamespaceAware() ? 1 : 0)
+                | (isValidatingDtd() ? 1 << 1 : 0)
+                | (isCoalescing() ? 1 << 2 : 0)
+                | (isExpandingEntityRefs() ? 1 << 3 : 0)
+                | (isIgnoringComments() ? 1 << 4 : 0)
+                | (isIgnoringExtraWhitespaces() ? 1 << 5 : 0)
+                | (isXIncludeAware() ? 1 << 6 : 0);
+        DocumentBuilderPool result = DOCUMENT_BUILDER_POOLS.get(flags);
+
+        if (result == null) {
+            result = new DocumentBuilderPool(createDocumentBuilderFactory());
+            DocumentBuilderPool current = DOCUMENT_BUILDER_POOLS.putIfAbsent(
+                    flags, result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a document builder factory configured according to the parser
+     * properties of this representation.
+     * 
+     * @return A document builder factory properly configured.
+     */
+    private DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(isNamespaceAware());
+        dbf.setValidating(isValidatingDtd());
+        dbf.setCoalescing(isCoalescing());
+        dbf.setExpandEntityReferences(isExpandingEntityRefs());
+        dbf.setIgnoringComments(isIgnoringComments());
+        dbf
+                .setIgnoringElementContentWhitespace(isIgnoringExtraWhitespaces());
+
+        try {
+            dbf.setXIncludeAware(isXIncludeAware());
+        } catch (UnsupportedOperationException uoe) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "The JAXP parser doesn't support XInclude.", uoe);
+        }
+
+        // [ifndef android]
+        javax.xml.validation.Schema xsd = getSchema();
+        
+        if (xsd != null) {
+            dbf.setSchema(xsd);
+        }
+        // [enddef]
+
+        return dbf;
+    }
+
     // [ifndef android] method
     /**
      * Returns a DOM source.
@@ -433,11 +524,15 @@ public abstract class XmlRepresentation extends WriterRepresentation
         javax.xml.transform.dom.DOMSource result = null;
         Node document = null;
 
+        DocumentBuilder documentBuilder = getDocumentBuilder();
+
         try {
-            document = getDocumentBuilder().parse(getInputSource());
+            document = documentBuilder.parse(getInputSource());
         } catch (SAXException se) {
             throw new IOException("Couldn't read the XML representation. "
                     + se.getMessage());
+        } finally {
+            releaseDocumentBuilder(documentBuilder);
         }
 
         if (document != null) {
@@ -699,6 +794,35 @@ public abstract class XmlRepresentation extends WriterRepresentation
         return this.namespaceAware;
     }
 
+    /**
+     * Indicates if the class of this representation overrides one of the
+     * methods providing the namespace mappings.
+     * 
+     * @return True if the namespace context methods are overridden.
+     */
+    private boolean isNamespaceContextOverridden() {
+        Boolean result = NAMESPACE_CONTEXT_OVERRIDES.get(getClass());
+
+        if (result == null) {
+            try {
+                result = (getClass().getMethod("getNamespaces")
+                        .getDeclaringClass() != XmlRepresentation.class)
+                        || (getClass().getMethod("getNamespaceURI",
+                                String.class).getDeclaringClass() != XmlRepresentation.class)
+                        || (getClass().getMethod("getPrefix", String.class)
+                                .getDeclaringClass() != XmlRepresentation.class)
+                        || (getClass().getMethod("getPrefixes", String.class)
+                                .getDeclaringClass() != XmlRepresentation.class);
+            } catch (NoSuchMethodException nsme) {
+                result = Boolean.TRUE;
+            }
+
+            NAMESPACE_CONTEXT_OVERRIDES.put(getClass(), result);
+        }
+
+        return result;
+    }
+
     /**
      * Indicates the desire for validating this type of XML representations
      * against an XML schema if one is referenced within the contents.
@@ -732,6 +856,22 @@ public abstract class XmlRepresentation extends WriterRepresentation
         super.release();
     }
 
+    /**
+     * Gives back a document builder obtained with the
+     * {@link #getDocumentBuilder()} method so that it can be reused for parsing
+     * other documents. Does nothing if the builder isn't pooled.
+     * 
+     * @param documentBuilder
+     *            The document builder to release.
+     */
+    protected void releaseDocumentBuilder(DocumentBuilder documentBuilder) {
+        DocumentBuilderPool pool = getDocumentBuilderPool();
+
+        if (pool != null) {
+            pool.checkin(documentBuilder);
+        }
+    }
+
     /**
      * Indicates if the parser should be coalescing text. If true the parser
      * will convert CDATA nodes to text nodes and append it to the adjacent (if
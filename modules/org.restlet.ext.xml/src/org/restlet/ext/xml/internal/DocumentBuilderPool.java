@@ -0,0 +1,111 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.xml.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of document builders sharing the same configuration. The underlying
+ * factory is looked up only once and the builders are reset when they are
+ * checked in, so that they can be reused for parsing other documents.
+ * 
+ * @author Jerome Louvel
+ */
+public class DocumentBuilderPool extends Pool<DocumentBuilder> {
+
+    /** The builders created by this pool, weakly referenced. */
+    private final Map<DocumentBuilder, Boolean> created;
+
+    /** The factory configured for all the pooled builders. */
+    private final DocumentBuilderFactory factory;
+
+    /**
+     * Constructor.
+     * 
+     * @param factory
+     *            The factory configured for all the pooled builders.
+     */
+    public DocumentBuilderPool(DocumentBuilderFactory factory) {
+        this.created = Collections
+                .synchronizedMap(new WeakHashMap<DocumentBuilder, Boolean>());
+        this.factory = factory;
+    }
+
+    /**
+     * Checks in a builder into the pool. Builders that weren't created by this
+     * pool, for example by an overridden method, are ignored.
+     * 
+     * @param documentBuilder
+     *            The builder to check in.
+     */
+    @Override
+    public void checkin(DocumentBuilder documentBuilder) {
+        if ((documentBuilder != null)
+                && this.created.containsKey(documentBuilder)) {
+            super.checkin(documentBuilder);
+        }
+    }
+
+    @Override
+    protected void clear(DocumentBuilder documentBuilder) {
+        documentBuilder.reset();
+    }
+
+    @Override
+    protected DocumentBuilder createObject() {
+        // JAXP factories aren't guaranteed to be thread-safe
+        synchronized (this.factory) {
+            try {
+                DocumentBuilder result = this.factory.newDocumentBuilder();
+                this.created.put(result, Boolean.TRUE);
+                return result;
+            } catch (ParserConfigurationException pce) {
+                throw new FactoryConfigurationError(pce,
+                        "Couldn't create the document builder: "
+                                + pce.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.xml.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.TransformerFactoryConfigurationError;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of identity transformers, used to serialize or parse XML sources. The
+ * underlying factory is looked up only once and the transformers are reset
+ * when they are checked in, so that they can be reused.
+ * 
+ * @author Jerome Louvel
+ */
+public class TransformerPool extends Pool<Transformer> {
+
+    /** The shared pool of identity transformers. */
+    private static final TransformerPool INSTANCE = new TransformerPool(
+            TransformerFactory.newInstance());
+
+    /**
+     * Returns the shared pool of identity transformers.
+     * 
+     * @return The shared pool of identity transformers.
+     */
+    public static TransformerPool getInstance() {
+        return INSTANCE;
+    }
+
+    /** The transformers created by this pool, weakly referenced. */
+    private final Map<Transformer, Boolean> created;
+
+    /** The factory of the pooled transformers. */
+    private final TransformerFactory factory;
+
+    /**
+     * Constructor.
+     * 
+     * @param factory
+     *            The factory of the pooled transformers.
+     */
+    public TransformerPool(TransformerFactory factory) {
+        this.created = Collections
+                .synchronizedMap(new WeakHashMap<Transformer, Boolean>());
+        this.factory = factory;
+    }
+
+    /**
+     * Checks in a transformer into the pool. Transformers that weren't created
+     * by this pool, for example by an overridden method, are ignored.
+     * 
+     * @param transformer
+     *            The transformer to check in.
+     */
+    @Override
+    public void checkin(Transformer transformer) {
+        if ((transformer != null) && this.created.containsKey(transformer)) {
+            super.checkin(transformer);
+        }
+    }
+
+    @Override
+    protected void clear(Transformer transformer) {
+        transformer.reset();
+    }
+
+    @Override
+    protected Transformer createObject() {
+        // JAXP factories aren't guaranteed to be thread-safe
+        synchronized (this.factory) {
+            try {
+                Transformer result = this.factory.newTransformer();
+                this.created.put(result, Boolean.TRUE);
+                return result;
+            } catch (TransformerConfigurationException tce) {
+                throw new TransformerFactoryConfigurationError(tce,
+                        "Couldn't create the identity transformer: "
+                                + tce.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.ext.xml.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Bounded cache of compiled XPath expressions, keyed by expression and
+ * namespace mappings. As compiled expressions and XPath objects aren't
+ * thread-safe, each thread maintains its own cache, evicting the least
+ * recently used expressions when the maximum size is reached.
+ * 
+ * @author Jerome Louvel
+ */
+public class XPathExpressionCache {
+
+    /**
+     * Immutable namespace context based on a copy of namespace mappings.
+     */
+    private static class MapNamespaceContext implements NamespaceContext {
+
+        /** The namespace URIs indexed by prefix. */
+        private final Map<String, String> namespaces;
+
+        /**
+         * Constructor.
+         * 
+         * @param namespaces
+         *            The namespace URIs indexed by prefix.
+         */
+        public MapNamespaceContext(Map<String, String> namespaces) {
+            this.namespaces = namespaces;
+        }
+
+        public String getNamespaceURI(String prefix) {
+            return this.namespaces.get(prefix);
+        }
+
+        public String getPrefix(String namespaceURI) {
+            Iterator<String> prefixes = getPrefixes(namespaceURI);
+            return prefixes.hasNext() ? prefixes.next() : null;
+        }
+
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            List<String> result = new ArrayList<String>();
+
+            for (Map.Entry<String, String> entry : this.namespaces.entrySet()) {
+                if (entry.getValue().equals(namespaceURI)) {
+                    result.add(entry.getKey());
+                }
+            }
+
+            return Collections.unmodifiableList(result).iterator();
+        }
+    }
+
+    /**
+     * Cache key made of an expression and its namespace mappings.
+     */
+    private static class Key {
+
+        /** The XPath expression. */
+        private final String expression;
+
+        /** The namespace URIs indexed by prefix. */
+        private final Map<String, String> namespaces;
+
+        /**
+         * Constructor.
+         * 
+         * @param expression
+         *            The XPath expression.
+         * @param namespaces
+         *            The namespace URIs indexed by prefix.
+         */
+        public Key(String expression, Map<String, String> namespaces) {
+            this.expression = expression;
+            this.namespaces = namespaces;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            boolean result = (object == this);
+
+            if (!result && (object instanceof Key)) {
+                Key key = (Key) object;
+                result = this.expression.equals(key.expression)
+                        && this.namespaces.equals(key.namespaces);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * this.expression.hashCode())
+                    + this.namespaces.hashCode();
+        }
+    }
+
+    /** The default maximum number of expressions cached per thread. */
+    public static final int DEFAULT_MAX_SIZE = 128;
+
+    /**
+     * The namespace context set back on the XPath objects after compilation.
+     * Note that {@link XPath#reset()} doesn't release the previous context.
+     */
+    private static final NamespaceContext EMPTY_NAMESPACE_CONTEXT = new MapNamespaceContext(
+            Collections.<String, String> emptyMap());
+
+    /** The shared cache instance. */
+    private static final XPathExpressionCache INSTANCE = new XPathExpressionCache(
+            DEFAULT_MAX_SIZE);
+
+    /**
+     * Returns the shared cache instance.
+     * 
+     * @return The shared cache instance.
+     */
+    public static XPathExpressionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** The compiled expressions of each thread. */
+    private final ThreadLocal<Map<Key, XPathExpression>> expressions;
+
+    /** The XPath object of each thread, used for compiling expressions. */
+    private final ThreadLocal<XPath> xpath;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of expressions cached per thread.
+     */
+    public XPathExpressionCache(final int maxSize) {
+        this.expressions = new ThreadLocal<Map<Key, XPathExpression>>() {
+            @Override
+            protected Map<Key, XPathExpression> initialValue() {
+                return new LinkedHashMap<Key, XPathExpression>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<Key, XPathExpression> eldest) {
+                        return size() > maxSize;
+                    }
+                };
+            }
+        };
+        this.xpath = new ThreadLocal<XPath>() {
+            @Override
+            protected XPath initialValue() {
+                return XPathFactory.newInstance().newXPath();
+            }
+        };
+    }
+
+    /**
+     * Clears the expressions cached for the current thread.
+     */
+    public void clear() {
+        this.expressions.get().clear();
+    }
+
+    /**
+     * Compiles an expression without caching it, resolving its prefixes with
+     * the given namespace context. The returned expression must only be
+     * evaluated by the current thread. The namespace context isn't retained by
+     * the thread's XPath object once compiled.
+     * 
+     * @param expression
+     *            The XPath expression.
+     * @param namespaceContext
+     *            The namespace context.
+     * @return The compiled expression.
+     * @throws XPathExpressionException
+     */
+    public XPathExpression compile(String expression,
+            NamespaceContext namespaceContext) throws XPathExpressionException {
+        XPath compiler = this.xpath.get();
+
+        try {
+            compiler.setNamespaceContext(namespaceContext);
+            return compiler.compile(expression);
+        } finally {
+            // Don't keep the context, such as a whole representation, alive
+            compiler.setNamespaceContext(EMPTY_NAMESPACE_CONTEXT);
+        }
+    }
+
+    /**
+     * Returns the compiled form of an expression, compiling it only if it
+     * isn't already cached for the current thread. The returned expression
+     * must only be evaluated by the current thread.
+     * 
+     * @param expression
+     *            The XPath expression.
+     * @param namespaces
+     *            The namespace URIs indexed by prefix, or null.
+     * @return The compiled expression.
+     * @throws XPathExpressionException
+     */
+    public XPathExpression getExpression(String expression,
+            Map<String, String> namespaces) throws XPathExpressionException {
+        Map<String, String> mappings = (namespaces == null) ? Collections
+                .<String, String> emptyMap() : namespaces;
+        Map<Key, XPathExpression> cache = this.expressions.get();
+        XPathExpression result = cache.get(new Key(expression, mappings));
+
+        if (result == null) {
+            // Copy the mappings as the given map may be modified later
+            mappings = new HashMap<String, String>(mappings);
+            XPath compiler = this.xpath.get();
+
+            try {
+                compiler.setNamespaceContext(new MapNamespaceContext(mappings));
+                result = compiler.compile(expression);
+            } finally {
+                compiler.setNamespaceContext(EMPTY_NAMESPACE_CONTEXT);
+            }
+
+            cache.put(new Key(expression, mappings), result);
+        }
+
+        return result;
+    }
+
+}
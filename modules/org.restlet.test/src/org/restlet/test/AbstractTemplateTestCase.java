@@ -0,0 +1,160 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.restlet.Application;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.Service;
+
+/**
+ * Tests shared by the template extensions, checking the caching of the
+ * templates parsed from representations by their application service.
+ * 
+ * @author Jerome Louvel
+ */
+public abstract class AbstractTemplateTestCase extends RestletTestCase {
+
+    /**
+     * Creates a template representation with a location reference, so that
+     * the parsed template can be cached.
+     * 
+     * @param text
+     *            The template text.
+     * @param modificationDate
+     *            The modification date or null.
+     * @return The template representation.
+     */
+    protected static Representation createTemplate(String text,
+            Date modificationDate) {
+        Representation result = new StringRepresentation(text);
+        result.setLocationRef("clap://class/test.template");
+        result.setModificationDate(modificationDate);
+        return result;
+    }
+
+    /**
+     * Creates a new template service.
+     * 
+     * @return A new template service.
+     */
+    protected abstract Service createService();
+
+    /**
+     * Returns the template service of the current application.
+     * 
+     * @return The template service of the current application.
+     */
+    protected abstract Service getCurrentService();
+
+    /**
+     * Returns the template from a representation, using a given template
+     * service.
+     * 
+     * @param service
+     *            The template service to use.
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The parsed template.
+     */
+    protected abstract Object getTemplate(Service service,
+            Representation templateRepresentation) throws Exception;
+
+    /**
+     * Processes a template with a data model.
+     * 
+     * @param template
+     *            The template.
+     * @param dataModel
+     *            The data model.
+     * @return The processed text.
+     */
+    protected abstract String process(Object template,
+            Map<String, Object> dataModel) throws Exception;
+
+    public void testCurrentService() throws Exception {
+        Application application = new Application();
+        Application current = Application.getCurrent();
+        Application.setCurrent(application);
+
+        try {
+            Service service = getCurrentService();
+            assertNotNull(service);
+
+            // The service must not be registered at runtime
+            assertNull(application.getServices().get(service.getClass()));
+
+            // A registered service is preferred
+            Service registered = createService();
+            application.getServices().add(registered);
+            assertSame(registered, getCurrentService());
+        } finally {
+            Application.setCurrent(current);
+        }
+    }
+
+    public void testTemplateCache() throws Exception {
+        Service service = createService();
+        Date date = new Date(1000L);
+
+        Object template1 = getTemplate(service, createTemplate(
+                "Value=${value}", date));
+        Object template2 = getTemplate(service, createTemplate(
+                "Value=${value}", date));
+        assertSame(template1, template2);
+
+        // A new modification date invalidates the cached template
+        Object template3 = getTemplate(service, createTemplate(
+                "Other=${value}", new Date(2000L)));
+        assertNotSame(template1, template3);
+
+        Map<String, Object> map = new TreeMap<String, Object>();
+        map.put("value", "myValue");
+        assertEquals("Other=myValue", process(template3, map));
+
+        // Without validators, the template is parsed each time
+        assertNotSame(getTemplate(service, createTemplate("Value=${value}",
+                null)), getTemplate(service, createTemplate("Value=${value}",
+                null)));
+
+        // No template without representation
+        assertNull(getTemplate(service, null));
+    }
+
+}
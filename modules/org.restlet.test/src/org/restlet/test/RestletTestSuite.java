@@ -62,14 +62,19 @@ import org.restlet.test.ext.emf.EmfTestSuite;
 import org.restlet.test.ext.freemarker.FreeMarkerTestCase;
 import org.restlet.test.ext.gwt.GwtConverterTestCase;
 import org.restlet.test.ext.html.HtmlTestSuite;
+import org.restlet.test.ext.jackson.JacksonTestCase;
 import org.restlet.test.ext.jaxb.JaxbBasicConverterTestCase;
 import org.restlet.test.ext.jaxb.JaxbIntegrationConverterTestCase;
 import org.restlet.test.ext.jaxrs.JaxRsTestSuite;
+import org.restlet.test.ext.jdbc.JdbcClientHelperTestCase;
+import org.restlet.test.ext.jdbc.ResultSetRepresentationTestCase;
+import org.restlet.test.ext.lucene.SolrTestCase;
 import org.restlet.test.ext.odata.ODataTestSuite;
 import org.restlet.test.ext.sip.SipTests;
 import org.restlet.test.ext.spring.SpringTestSuite;
 import org.restlet.test.ext.velocity.VelocityTestCase;
 import org.restlet.test.ext.wadl.WadlTestSuite;
+import org.restlet.test.ext.xml.DomRepresentationTestCase;
 import org.restlet.test.ext.xml.ResolvingTransformerTestCase;
 import org.restlet.test.ext.xml.RestletXmlTestCase;
 import org.restlet.test.ext.xml.TransformerTestCase;
@@ -121,20 +126,25 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(FormTestCase.class);
         addTestSuite(FreeMarkerTestCase.class);
         addTestSuite(GwtConverterTestCase.class);
+        addTestSuite(JacksonTestCase.class);
         addTestSuite(JaxbBasicConverterTestCase.class);
         addTestSuite(JaxbIntegrationConverterTestCase.class);
+        addTestSuite(JdbcClientHelperTestCase.class);
         addTestSuite(LanguageTestCase.class);
         addTestSuite(MediaTypeTestCase.class);
         addTestSuite(ProductTokenTestCase.class);
         addTestSuite(ReferenceTestCase.class);
         addTestSuite(ResolvingTransformerTestCase.class);
         addTestSuite(RestartTestCase.class);
+        addTestSuite(ResultSetRepresentationTestCase.class);
         addTestSuite(RestletXmlTestCase.class);
         addTestSuite(RiapTestCase.class);
         addTestSuite(RouteListTestCase.class);
         addTestSuite(DigestVerifierTestCase.class);
+        addTestSuite(DomRepresentationTestCase.class);
         addTestSuite(RecipientInfoTestCase.class);
         addTestSuite(RoleTestCase.class);
+        addTestSuite(SolrTestCase.class);
         addTestSuite(StatusTestCase.class);
         addTestSuite(TemplateTestCase.class);
         addTestSuite(TransformerTestCase.class);
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import org.restlet.Application;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.Finder;
+import org.restlet.resource.Get;
+import org.restlet.resource.Post;
+import org.restlet.resource.ServerResource;
+
+public class TestAnnotatedDispatch {
+
+    private static final int ITERATIONS = 500000;
+
+    public static class EchoResource extends ServerResource {
+
+        @Post("txt:txt")
+        public String echo(String text) {
+            return text;
+        }
+
+        @Get("txt")
+        public String hello() {
+            return "hello, world";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Application application = new Application(new Context());
+        Finder finder = new Finder(application.getContext(),
+                EchoResource.class);
+        application.setInboundRoot(finder);
+        application.start();
+
+        // Warm up
+        dispatch(application, Method.GET, ITERATIONS / 10);
+        dispatch(application, Method.POST, ITERATIONS / 10);
+        direct(ITERATIONS / 10);
+
+        long startTime = System.currentTimeMillis();
+        direct(ITERATIONS);
+        long directTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        dispatch(application, Method.GET, ITERATIONS);
+        long getTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        dispatch(application, Method.POST, ITERATIONS);
+        long postTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Calls: " + ITERATIONS);
+        System.out.println("Direct calls and conversions: " + directTime
+                + " ms");
+        System.out.println("Annotated GET dispatch: " + getTime + " ms");
+        System.out.println("Annotated POST dispatch: " + postTime + " ms");
+        application.stop();
+    }
+
+    private static void direct(int count) throws Exception {
+        EchoResource resource = new EchoResource();
+
+        for (int i = 0; i < count; i++) {
+            String text = new StringRepresentation("hello " + i,
+                    MediaType.TEXT_PLAIN).getText();
+            new StringRepresentation(resource.echo(text), MediaType.TEXT_PLAIN)
+                    .getText();
+        }
+    }
+
+    private static void dispatch(Application application, Method method,
+            int count) {
+        for (int i = 0; i < count; i++) {
+            Request request = new Request(method, "http://localhost/echo");
+
+            if (Method.POST.equals(method)) {
+                request.setEntity("hello " + i, MediaType.TEXT_PLAIN);
+            }
+
+            Response response = new Response(request);
+            application.handle(request, response);
+
+            if (!response.getStatus().isSuccess()) {
+                throw new IllegalStateException("Unexpected status "
+                        + response.getStatus());
+            }
+        }
+    }
+
+}
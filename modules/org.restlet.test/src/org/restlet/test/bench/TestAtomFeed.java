@@ -0,0 +1,186 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.ext.atom.Entry;
+import org.restlet.ext.atom.Feed;
+import org.restlet.ext.atom.FeedReader;
+import org.restlet.representation.FileRepresentation;
+
+public class TestAtomFeed {
+
+    private static final int ENTRIES = 100000;
+
+    private static class CountingReader extends FeedReader {
+        private final boolean retained;
+
+        private long count;
+
+        public CountingReader(boolean retained) {
+            this.retained = retained;
+        }
+
+        @Override
+        public void endEntry(Entry entry) {
+            this.count++;
+        }
+
+        @Override
+        public boolean isRetained(Entry entry) {
+            return this.retained;
+        }
+    }
+
+    private static class EntryGenerator implements Iterator<Entry> {
+        private final int entries;
+
+        private int index;
+
+        public EntryGenerator(int entries) {
+            this.entries = entries;
+        }
+
+        public boolean hasNext() {
+            return this.index < this.entries;
+        }
+
+        public Entry next() {
+            int i = this.index++;
+            Entry entry = new Entry();
+            entry.setId("urn:restlet:entry:" + i);
+            entry.setTitle("Entry number " + i);
+            entry.setSummary("Summary of the entry number " + i);
+            return entry;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+    }
+
+    private static long heap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entries = (args.length > 0) ? Integer.parseInt(args[0])
+                : ENTRIES;
+        File file = File.createTempFile("TestAtomFeed", ".xml");
+        file.deleteOnExit();
+
+        for (int i = 0; i < 2; i++) {
+            writeList(entries);
+            writeIterator(entries, file);
+            read(file, true);
+            read(file, false);
+        }
+
+        file.delete();
+    }
+
+    private static void read(File file, boolean retained) throws IOException {
+        long base = heap();
+        long startTime = System.currentTimeMillis();
+        CountingReader reader = new CountingReader(retained);
+        Feed feed = new Feed(new FileRepresentation(file,
+                MediaType.APPLICATION_ATOM), reader);
+        long duration = System.currentTimeMillis() - startTime;
+        long used = heap() - base;
+        System.out.println("Read " + (retained ? "tree" : "callback") + ": "
+                + reader.count + " entries in " + duration + " ms, "
+                + feed.getEntries().size() + " retained, heap +" + used
+                + " MB");
+    }
+
+    private static void writeIterator(int entries, File file)
+            throws IOException {
+        long base = heap();
+        long startTime = System.currentTimeMillis();
+        Feed feed = new Feed();
+        feed.setTitle("Streamed feed");
+        feed.setEntryIterator(new EntryGenerator(entries));
+        FileOutputStream out = new FileOutputStream(file);
+        feed.write(out);
+        out.close();
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("Write iterator: " + entries + " entries in "
+                + duration + " ms, " + (file.length() / 1024)
+                + " KB, heap +" + (heap() - base) + " MB");
+    }
+
+    private static void writeList(int entries) throws IOException {
+        long base = heap();
+        long startTime = System.currentTimeMillis();
+        Feed feed = new Feed();
+        feed.setTitle("Listed feed");
+        List<Entry> list = feed.getEntries();
+        for (Iterator<Entry> iter = new EntryGenerator(entries); iter
+                .hasNext();) {
+            list.add(iter.next());
+        }
+        NullOutputStream out = new NullOutputStream();
+        feed.write(out);
+        long duration = System.currentTimeMillis() - startTime;
+        long used = heap() - base;
+        System.out.println("Write list: " + feed.getEntries().size()
+                + " entries in " + duration + " ms, " + (out.count / 1024)
+                + " KB, heap +" + used + " MB");
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.representation.InputRepresentation;
+
+public class TestBlockingTransfer {
+
+    private static final int ITERATIONS = 5;
+
+    private static final int SIZE = 64 * 1024 * 1024;
+
+    private static class PatternInputStream extends InputStream {
+        private long remaining;
+
+        public PatternInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            return (this.remaining-- > 0) ? (int) (this.remaining & 0x7F) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+
+            int result = (int) Math.min(len, this.remaining);
+            this.remaining -= result;
+            return result;
+        }
+    }
+
+    private static long consume(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long result = 0;
+
+        for (int read = in.read(buffer); read != -1; read = in
+                .read(buffer)) {
+            result += read;
+        }
+
+        in.close();
+        return result;
+    }
+
+    private static long download(String uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri)
+                .openConnection();
+        return consume(connection.getInputStream());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Component component = new Component();
+        Server server = component.getServers().add(Protocol.HTTP, 0);
+        component.getDefaultHost().attach(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                try {
+                    if (Method.POST.equals(request.getMethod())) {
+                        // Blocking read of the NIO request entity
+                        long size = consume(request.getEntity().getStream());
+                        response.setEntity(Long.toString(size),
+                                MediaType.TEXT_PLAIN);
+                    } else {
+                        response.setEntity(new InputRepresentation(
+                                new PatternInputStream(SIZE),
+                                MediaType.APPLICATION_OCTET_STREAM, SIZE));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        component.start();
+        String uri = "http://localhost:" + server.getEphemeralPort() + "/";
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long uploaded = upload(uri);
+            long uploadTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long downloaded = download(uri);
+            long downloadTime = System.nanoTime() - start;
+
+            System.out.println("Upload: " + uploaded + " bytes, "
+                    + (uploaded * 1000L / uploadTime) + " MB/s. Download: "
+                    + downloaded + " bytes, "
+                    + (downloaded * 1000L / downloadTime) + " MB/s");
+        }
+
+        component.stop();
+    }
+
+    private static long upload(String uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri)
+                .openConnection();
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setFixedLengthStreamingMode(SIZE);
+        OutputStream out = connection.getOutputStream();
+        InputStream in = new PatternInputStream(SIZE);
+        byte[] buffer = new byte[8192];
+
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+
+        out.close();
+        InputStream response = connection.getInputStream();
+        long result = Long.parseLong(new java.util.Scanner(response)
+                .useDelimiter("\\A").next());
+        response.close();
+        return result;
+    }
+
+}
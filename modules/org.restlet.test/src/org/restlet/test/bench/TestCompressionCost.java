@@ -0,0 +1,125 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.service.EncoderService;
+
+public class TestCompressionCost {
+
+    private static final int ITERATIONS = 5;
+
+    /** The compression levels, the first one for the unpooled JDK stream. */
+    private static final int[] LEVELS = { Deflater.DEFAULT_COMPRESSION,
+            Deflater.DEFAULT_COMPRESSION, 1, 9 };
+
+    private static final int RESPONSES = 2000;
+
+    private static final int SIZE = 32 * 1024;
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+    }
+
+    private static byte[] createContent() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; sb.length() < SIZE; i++) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item")
+                    .append(i * 7919 % 1000)
+                    .append("\",\"tags\":[\"restlet\",\"bench\"]},\n");
+        }
+
+        return sb.substring(0, SIZE).getBytes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        byte[] content = createContent();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int k = 0; k < LEVELS.length; k++) {
+                EncoderService encoderService = new EncoderService();
+                encoderService.getCompressionLevels().put(MediaType.ALL,
+                        LEVELS[k]);
+
+                CountingOutputStream out = new CountingOutputStream();
+                long start = mxBean.getCurrentThreadCpuTime();
+
+                for (int j = 0; j < RESPONSES; j++) {
+                    if (k == 0) {
+                        // Previous implementation, one deflater per response
+                        GZIPOutputStream gos = new GZIPOutputStream(out);
+                        gos.write(content);
+                        gos.finish();
+                    } else {
+                        new EncodeRepresentation(Encoding.GZIP,
+                                new ByteArrayRepresentation(content,
+                                        MediaType.APPLICATION_JSON),
+                                encoderService).write(out);
+                    }
+                }
+
+                long cpuTime = mxBean.getCurrentThreadCpuTime() - start;
+                long megabytes = ((long) RESPONSES * SIZE) / (1024 * 1024);
+                System.out.println(((k == 0) ? "GZIPOutputStream"
+                        : "Pooled, level " + LEVELS[k])
+                        + ": "
+                        + (cpuTime / megabytes / 1000L)
+                        + " us CPU per MB, ratio "
+                        + (out.count * 100 / ((long) RESPONSES * SIZE)) + "%");
+            }
+        }
+    }
+
+}
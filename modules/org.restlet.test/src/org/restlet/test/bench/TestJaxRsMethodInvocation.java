@@ -0,0 +1,129 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.ws.rs.CookieParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Application;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Cookie;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.ext.jaxrs.JaxRsApplication;
+import org.restlet.util.Series;
+
+public class TestJaxRsMethodInvocation {
+
+    private static final int ITERATIONS = 200000;
+
+    @Path("orders/{id}")
+    public static class OrderResource {
+
+        @GET
+        @Produces("text/plain")
+        public String get(@PathParam("id") long id,
+                @QueryParam("page") Integer page,
+                @QueryParam("sort") String sort,
+                @HeaderParam("X-Trace") Long trace,
+                @CookieParam("session") String session) {
+            return id + ":" + page + ":" + sort + ":" + trace + ":" + session;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        JaxRsApplication application = new JaxRsApplication(new Context());
+        application.add(new Application() {
+            @Override
+            public Set<Class<?>> getClasses() {
+                return Collections.<Class<?>> singleton(OrderResource.class);
+            }
+        });
+        application.start();
+
+        // Warm up
+        invoke(application, ITERATIONS / 10);
+
+        long startTime = System.currentTimeMillis();
+        invoke(application, ITERATIONS);
+        long duration = System.currentTimeMillis() - startTime;
+
+        System.out.println("Invocations: " + ITERATIONS);
+        System.out.println("Resource method with 5 mixed parameters: "
+                + duration + " ms");
+        application.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void invoke(JaxRsApplication application, int count) {
+        for (int i = 0; i < count; i++) {
+            Reference reference = new Reference("http://localhost/orders/" + i
+                    + "?page=" + (i % 10) + "&sort=date");
+            reference.setBaseRef(reference.getHostIdentifier());
+            Request request = new Request(Method.GET, reference);
+            request.setOriginalRef(reference.getTargetRef());
+            request.getCookies().add(new Cookie("session", "s" + (i % 100)));
+            Series<Header> headers = (Series<Header>) request.getAttributes()
+                    .get(HeaderConstants.ATTRIBUTE_HEADERS);
+
+            if (headers == null) {
+                headers = new Series<Header>(Header.class);
+                request.getAttributes().put(
+                        HeaderConstants.ATTRIBUTE_HEADERS, headers);
+            }
+
+            headers.add("X-Trace", Integer.toString(i));
+            Response response = new Response(request);
+            application.handle(request, response);
+
+            if (!response.getStatus().isSuccess()) {
+                throw new IllegalStateException("Unexpected status "
+                        + response.getStatus());
+            }
+        }
+    }
+
+}
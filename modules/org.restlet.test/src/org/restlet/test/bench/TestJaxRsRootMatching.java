@@ -0,0 +1,162 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.Path;
+
+import org.restlet.ext.jaxrs.internal.util.AlgorithmUtil;
+import org.restlet.ext.jaxrs.internal.util.MatchingResult;
+import org.restlet.ext.jaxrs.internal.util.PathIndex;
+import org.restlet.ext.jaxrs.internal.util.PathRegExp;
+import org.restlet.ext.jaxrs.internal.util.RemainingPath;
+import org.restlet.ext.jaxrs.internal.wrappers.RrcOrRml;
+
+public class TestJaxRsRootMatching {
+
+    private static final int ITERATIONS = 200000;
+
+    private static final int RESOURCE_CLASSES = 250;
+
+    private static class Root implements RrcOrRml {
+        private final PathRegExp pathRegExp;
+
+        private Root(PathRegExp pathRegExp) {
+            this.pathRegExp = pathRegExp;
+        }
+
+        public PathRegExp getPathRegExp() {
+            return this.pathRegExp;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Constructor<PathRegExp> constructor = PathRegExp.class
+                .getDeclaredConstructor(String.class, Path.class);
+        constructor.setAccessible(true);
+        List<Root> roots = new ArrayList<Root>();
+
+        for (int i = 0; i < RESOURCE_CLASSES; i++) {
+            String template;
+
+            switch (i % 5) {
+            case 0:
+                template = "customers" + i;
+                break;
+            case 1:
+                template = "customers" + i + "/{id}";
+                break;
+            case 2:
+                template = "api/orders" + i + "/{id: [0-9]+}";
+                break;
+            case 3:
+                template = "api/items" + i + "/{category}/{id}";
+                break;
+            default:
+                template = "{tenant}/reports" + i;
+            }
+
+            roots.add(new Root(constructor.newInstance(template, null)));
+        }
+
+        PathIndex<Root> index = new PathIndex<Root>(roots);
+        List<RemainingPath> paths = new ArrayList<RemainingPath>();
+
+        for (int i = 0; i < RESOURCE_CLASSES; i += 7) {
+            paths.add(new RemainingPath("/customers" + (i - i % 5) + "/"));
+            paths.add(new RemainingPath("/api/orders" + (i - i % 5 + 2)
+                    + "/42"));
+            paths.add(new RemainingPath("/api/items" + (i - i % 5 + 3)
+                    + "/books/7"));
+            paths.add(new RemainingPath("/acme/reports" + (i - i % 5 + 4)));
+        }
+
+        // Warm up both paths
+        matchLinear(roots, paths, ITERATIONS / 10);
+        matchIndexed(index, paths, ITERATIONS / 10);
+
+        long startTime = System.currentTimeMillis();
+        matchLinear(roots, paths, ITERATIONS);
+        long linearTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        matchIndexed(index, paths, ITERATIONS);
+        long indexedTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Root resource classes: " + RESOURCE_CLASSES);
+        System.out.println("Matchings: " + ITERATIONS);
+        System.out.println("Linear scan and second match: " + linearTime
+                + " ms");
+        System.out.println("Path index: " + indexedTime + " ms");
+    }
+
+    private static void matchIndexed(PathIndex<Root> index,
+            List<RemainingPath> paths, int count) {
+        for (int i = 0; i < count; i++) {
+            RemainingPath path = paths.get(i % paths.size());
+
+            if (index.match(path) == null) {
+                throw new IllegalStateException("No match for " + path);
+            }
+        }
+    }
+
+    private static void matchLinear(List<Root> roots,
+            List<RemainingPath> paths, int count) {
+        for (int i = 0; i < count; i++) {
+            RemainingPath path = paths.get(i % paths.size());
+            List<Root> candidates = new ArrayList<Root>();
+
+            for (Root root : roots) {
+                MatchingResult result = root.getPathRegExp().match(path);
+
+                if ((result != null)
+                        && result.getFinalCapturingGroup().isEmptyOrSlash()) {
+                    candidates.add(root);
+                }
+            }
+
+            Root best = AlgorithmUtil
+                    .getFirstByNoOfLiteralCharsNoOfCapturingGroups(candidates);
+
+            if ((best == null) || (best.getPathRegExp().match(path) == null)) {
+                throw new IllegalStateException("No match for " + path);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.ext.rdf.Graph;
+import org.restlet.ext.rdf.Link;
+import org.restlet.ext.rdf.RdfRepresentation;
+import org.restlet.representation.StringRepresentation;
+
+public class TestRdfGraph {
+
+    private static final int LINKS = 200000;
+
+    private static final int QUERIES = 100000;
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int links = (args.length > 0) ? Integer.parseInt(args[0]) : LINKS;
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < links; i++) {
+            sb.append("<http://example.com/subjects/").append(i / 10)
+                    .append("> <http://example.com/predicates/")
+                    .append(i % 20).append("> ");
+
+            if ((i % 2) == 0) {
+                sb.append("<http://example.com/objects/").append(i % 1000)
+                        .append(">");
+            } else {
+                sb.append("\"value ").append(i).append("\"");
+            }
+
+            sb.append(" .\n");
+        }
+
+        String text = sb.toString();
+        System.out.println("Links: " + links + ", size: " + text.length()
+                + " chars");
+
+        long startTime = System.currentTimeMillis();
+        Graph graph = new RdfRepresentation(new StringRepresentation(text,
+                MediaType.TEXT_RDF_NTRIPLES)).getGraph();
+        System.out.println("Load: " + graph.size() + " links in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+
+        startTime = System.currentTimeMillis();
+        int found = 0;
+
+        for (int i = 0; i < QUERIES; i++) {
+            Reference subject = new Reference("http://example.com/subjects/"
+                    + (i % (links / 10)));
+            List<Link> result = graph.find(subject, null, null);
+            found += result.size();
+        }
+
+        System.out.println("Find by subject: " + QUERIES + " queries, "
+                + found + " links in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+
+        write(graph, MediaType.TEXT_RDF_NTRIPLES);
+        write(graph, MediaType.APPLICATION_RDF_TURTLE);
+        write(graph, MediaType.APPLICATION_RDF_XML);
+    }
+
+    private static void write(Graph graph, MediaType mediaType)
+            throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long startTime = System.currentTimeMillis();
+        new RdfRepresentation(graph, mediaType).write(out);
+        System.out.println("Write " + mediaType + ": " + out.count
+                + " bytes in " + (System.currentTimeMillis() - startTime)
+                + " ms");
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.ext.rdf.Graph;
+import org.restlet.ext.rdf.GraphHandler;
+import org.restlet.ext.rdf.Literal;
+import org.restlet.ext.rdf.RdfRepresentation;
+import org.restlet.representation.ReaderRepresentation;
+
+public class TestRdfParse {
+
+    private static final int TRIPLES = 1000000;
+
+    private static class CountingHandler extends GraphHandler {
+        private long count;
+
+        @Override
+        public void link(Graph source, Reference typeRef, Literal target) {
+            this.count++;
+        }
+
+        @Override
+        public void link(Graph source, Reference typeRef, Reference target) {
+            this.count++;
+        }
+
+        @Override
+        public void link(Reference source, Reference typeRef, Literal target) {
+            this.count++;
+        }
+
+        @Override
+        public void link(Reference source, Reference typeRef,
+                Reference target) {
+            this.count++;
+        }
+    }
+
+    /**
+     * Generates the document on the fly so that nothing but the parser holds
+     * memory.
+     */
+    private static class GeneratingReader extends Reader {
+        private final MediaType mediaType;
+
+        private final int triples;
+
+        private int index;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int linePos;
+
+        private boolean footer;
+
+        public GeneratingReader(MediaType mediaType, int triples) {
+            this.mediaType = mediaType;
+            this.triples = triples;
+            this.index = -1;
+
+            if (MediaType.APPLICATION_RDF_TURTLE.equals(mediaType)) {
+                line.append("@prefix ex: <http://example.com/> .\n");
+            } else if (MediaType.APPLICATION_RDF_XML.equals(mediaType)) {
+                line.append("<?xml version=\"1.0\"?>\n<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:ex=\"http://example.com/\">\n");
+            }
+        }
+
+        private boolean nextLine() {
+            line.setLength(0);
+            linePos = 0;
+            index++;
+
+            if (index < triples) {
+                int i = index;
+
+                if (MediaType.APPLICATION_RDF_TURTLE.equals(mediaType)) {
+                    line.append("ex:s").append(i / 10).append(" ex:p")
+                            .append(i % 20).append(' ');
+                    if ((i % 2) == 0) {
+                        line.append("ex:o").append(i % 1000);
+                    } else {
+                        line.append("\"value ").append(i).append('"');
+                    }
+                    line.append(" .\n");
+                } else if (MediaType.APPLICATION_RDF_XML.equals(mediaType)) {
+                    line.append("<rdf:Description rdf:about=\"http://example.com/s")
+                            .append(i / 10).append("\"><ex:p").append(i % 20);
+                    if ((i % 2) == 0) {
+                        line.append(" rdf:resource=\"http://example.com/o")
+                                .append(i % 1000).append("\"/>");
+                    } else {
+                        line.append(">value ").append(i).append("</ex:p")
+                                .append(i % 20).append('>');
+                    }
+                    line.append("</rdf:Description>\n");
+                } else {
+                    line.append("<http://example.com/s").append(i / 10)
+                            .append("> <http://example.com/p")
+                            .append(i % 20).append("> ");
+                    if ((i % 2) == 0) {
+                        line.append("<http://example.com/o").append(i % 1000)
+                                .append('>');
+                    } else {
+                        line.append("\"value ").append(i).append('"');
+                    }
+                    line.append(" .\n");
+                }
+            } else if (!footer) {
+                footer = true;
+                if (MediaType.APPLICATION_RDF_XML.equals(mediaType)) {
+                    line.append("</rdf:RDF>\n");
+                }
+            }
+
+            return line.length() > 0;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if ((linePos >= line.length()) && !nextLine()) {
+                return -1;
+            }
+
+            int n = Math.min(len, line.length() - linePos);
+            line.getChars(linePos, linePos + n, cbuf, off);
+            linePos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int triples = (args.length > 0) ? Integer.parseInt(args[0])
+                : TRIPLES;
+
+        for (int i = 0; i < 2; i++) {
+            parse(MediaType.TEXT_RDF_NTRIPLES, triples);
+            parse(MediaType.APPLICATION_RDF_TURTLE, triples);
+            parse(MediaType.APPLICATION_RDF_XML, triples);
+        }
+    }
+
+    private static void parse(MediaType mediaType, int triples)
+            throws IOException {
+        CountingHandler handler = new CountingHandler();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        new RdfRepresentation(new ReaderRepresentation(new GeneratingReader(
+                mediaType, triples), mediaType)).parse(handler);
+        long duration = Math.max(1, System.currentTimeMillis() - startTime);
+        long used = (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
+        System.out.println("Parse " + mediaType + ": " + handler.count
+                + " triples in " + duration + " ms, "
+                + (handler.count * 1000 / duration) + " triples/s, heap "
+                + used + " MB");
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.bench;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.restlet.data.MediaType;
+import org.restlet.ext.xml.DomRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.w3c.dom.Document;
+
+public class TestXPathEvaluation {
+
+    private static final int ITERATIONS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder xml = new StringBuilder("<r:items xmlns:r=\"urn:test\">");
+
+        for (int i = 0; i < 100; i++) {
+            xml.append("<r:item id=\"").append(i).append("\">item ").append(i)
+                    .append("</r:item>");
+        }
+
+        xml.append("</r:items>");
+        DomRepresentation dom = new DomRepresentation(new StringRepresentation(
+                xml, MediaType.TEXT_XML));
+        dom.setNamespaceAware(true);
+        dom.getNamespaces().put("r", "urn:test");
+        Document document = dom.getDocument();
+
+        // Warm up both paths
+        evaluateUncached(dom, document, ITERATIONS / 10);
+        evaluateCached(dom, ITERATIONS / 10);
+
+        long startTime = System.currentTimeMillis();
+        evaluateUncached(dom, document, ITERATIONS);
+        long uncachedTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        evaluateCached(dom, ITERATIONS);
+        long cachedTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Evaluations: " + ITERATIONS);
+        System.out.println("New factory and compilation per evaluation: "
+                + uncachedTime + " ms");
+        System.out.println("Cached compiled expressions: " + cachedTime
+                + " ms");
+    }
+
+    private static void evaluateCached(DomRepresentation dom, int count) {
+        for (int i = 0; i < count; i++) {
+            dom.getText("/r:items/r:item[@id='" + (i % 10) + "']");
+        }
+    }
+
+    private static void evaluateUncached(DomRepresentation dom,
+            Document document, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            XPath xpath = XPathFactory.newInstance().newXPath();
+            xpath.setNamespaceContext(dom);
+            xpath.evaluate("/r:items/r:item[@id='" + (i % 10) + "']",
+                    document, XPathConstants.STRING);
+        }
+    }
+
+}
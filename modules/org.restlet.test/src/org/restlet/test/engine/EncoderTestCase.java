@@ -0,0 +1,269 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Preference;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.application.Encoder;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the serving of precompressed and cached files by the
+ * {@link Encoder} filter.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncoderTestCase extends RestletTestCase {
+
+    private static final String CONTENT = "body { margin: 0; padding: 0; }";
+
+    private ClientInfo clientInfo;
+
+    private Encoder encoder;
+
+    private EncoderService encoderService;
+
+    private File file;
+
+    private File testDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "EncoderTestCase");
+        this.testDir.mkdirs();
+        this.file = new File(this.testDir, "site.css");
+        write(this.file, CONTENT);
+
+        this.encoderService = new EncoderService();
+        this.encoder = new Encoder(null, false, true, this.encoderService);
+        this.clientInfo = new ClientInfo();
+        this.clientInfo.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.GZIP));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        this.testDir = null;
+        this.file = null;
+        this.encoder = null;
+        this.encoderService = null;
+        this.clientInfo = null;
+        super.tearDown();
+    }
+
+    public void testCacheDirectory() throws Exception {
+        File cacheDir = new File(this.testDir, "cache");
+        this.encoderService.setCacheDirectory(cacheDir);
+
+        Representation result = this.encoder.encode(this.clientInfo,
+                new FileRepresentation(this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof FileRepresentation);
+        File cachedFile = ((FileRepresentation) result).getFile();
+        assertTrue(cachedFile.getPath().startsWith(cacheDir.getPath()));
+        assertEquals(Encoding.GZIP, result.getEncodings().get(0));
+        assertEquals(MediaType.TEXT_CSS, result.getMediaType());
+        assertEquals(CONTENT, new DecodeRepresentation(result).getText());
+
+        // The cached variant is reused as long as the file is unchanged
+        FileOutputStream fos = new FileOutputStream(cachedFile);
+        new EncodeRepresentation(Encoding.GZIP, new StringRepresentation(
+                "cached")).write(fos);
+        fos.close();
+        result = this.encoder.encode(this.clientInfo, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertEquals(cachedFile, ((FileRepresentation) result).getFile());
+        assertEquals("cached", new DecodeRepresentation(result).getText());
+
+        // A new variant is generated once the file is modified, even within
+        // the same second, and the previous one is deleted
+        write(this.file, CONTENT + CONTENT);
+        this.file.setLastModified(cachedFile.lastModified() + 10000);
+        result = this.encoder.encode(this.clientInfo, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        File newCachedFile = ((FileRepresentation) result).getFile();
+        assertFalse(cachedFile.equals(newCachedFile));
+        assertFalse(cachedFile.exists());
+        assertEquals(CONTENT + CONTENT,
+                new DecodeRepresentation(result).getText());
+
+        long modificationDate = this.file.lastModified();
+        write(this.file, CONTENT.toUpperCase() + CONTENT);
+        this.file.setLastModified(modificationDate + 1);
+        result = this.encoder.encode(this.clientInfo, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertFalse(newCachedFile.equals(((FileRepresentation) result)
+                .getFile()));
+        assertFalse(newCachedFile.exists());
+        assertEquals(CONTENT.toUpperCase() + CONTENT,
+                new DecodeRepresentation(result).getText());
+    }
+
+    public void testDynamicEncoding() throws Exception {
+        this.encoderService.setServingPrecompressed(true);
+        Representation result = this.encoder.encode(this.clientInfo,
+                new FileRepresentation(this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof EncodeRepresentation);
+    }
+
+    public void testMinimumBenefit() throws Exception {
+        this.encoderService.setMinimumSize(EncoderService.ANY_SIZE);
+        this.encoderService.updateCompressionRatio(MediaType.TEXT_PLAIN,
+                10000, 9900);
+        this.encoderService.updateCompressionRatio(MediaType.TEXT_HTML,
+                10000, 9900);
+        StringRepresentation plain = new StringRepresentation(CONTENT,
+                MediaType.TEXT_PLAIN);
+        StringRepresentation html = new StringRepresentation(CONTENT,
+                MediaType.TEXT_HTML);
+        assertTrue(this.encoderService.canEncode(plain));
+
+        // Each media type is compressed on the fly once per probe interval
+        int plainEncoded = 0;
+        int htmlEncoded = 0;
+
+        for (int i = 0; i < EncoderService.PROBE_INTERVAL; i++) {
+            Representation result = this.encoder.encode(this.clientInfo,
+                    plain);
+
+            if (result instanceof EncodeRepresentation) {
+                plainEncoded++;
+            }
+
+            result = this.encoder.encode(this.clientInfo, html);
+
+            if (result instanceof EncodeRepresentation) {
+                htmlEncoded++;
+            }
+        }
+
+        assertEquals(1, plainEncoded);
+        assertEquals(1, htmlEncoded);
+
+        // Cached variants and precompressed files are still served
+        this.encoderService.updateCompressionRatio(MediaType.TEXT_CSS, 10000,
+                9900);
+        this.encoderService.setCacheDirectory(new File(this.testDir, "cache"));
+
+        for (int i = 0; i < 2; i++) {
+            Representation result = this.encoder.encode(this.clientInfo,
+                    new FileRepresentation(this.file, MediaType.TEXT_CSS));
+            assertTrue(result instanceof FileRepresentation);
+            assertEquals(Encoding.GZIP, result.getEncodings().get(0));
+        }
+
+        File gzFile = new File(this.testDir, "site.css.gz");
+        write(gzFile, CONTENT);
+        gzFile.setLastModified(this.file.lastModified() + 1000);
+        this.encoderService.setServingPrecompressed(true);
+        Representation result = this.encoder.encode(this.clientInfo,
+                new FileRepresentation(this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof FileRepresentation);
+        assertEquals(gzFile, ((FileRepresentation) result).getFile());
+
+        this.encoderService.setMinimumBenefit(0);
+        result = this.encoder.encode(this.clientInfo, plain);
+        assertTrue(result instanceof EncodeRepresentation);
+    }
+
+    public void testPrecompressed() throws Exception {
+        File gzFile = new File(this.testDir, "site.css.gz");
+        FileOutputStream fos = new FileOutputStream(gzFile);
+        new EncodeRepresentation(Encoding.GZIP, new StringRepresentation(
+                CONTENT)).write(fos);
+        fos.close();
+        gzFile.setLastModified(this.file.lastModified() + 1000);
+
+        // Ignored unless enabled
+        Representation result = this.encoder.encode(this.clientInfo,
+                new FileRepresentation(this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof EncodeRepresentation);
+
+        this.encoderService.setServingPrecompressed(true);
+        result = this.encoder.encode(this.clientInfo, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof FileRepresentation);
+        assertEquals(gzFile, ((FileRepresentation) result).getFile());
+        assertEquals(Encoding.GZIP, result.getEncodings().get(0));
+        assertEquals(MediaType.TEXT_CSS, result.getMediaType());
+        assertEquals("site.css", result.getDisposition().getFilename());
+        assertEquals(CONTENT, new DecodeRepresentation(result).getText());
+
+        // Ignored if the client doesn't accept its encoding
+        ClientInfo deflateClient = new ClientInfo();
+        deflateClient.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.DEFLATE));
+        result = this.encoder.encode(deflateClient, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof EncodeRepresentation);
+
+        // Ignored if the client prefers the identity encoding
+        ClientInfo identityClient = new ClientInfo();
+        identityClient.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.GZIP, 0.1F));
+        identityClient.getAcceptedEncodings().add(
+                new Preference<Encoding>(Encoding.IDENTITY));
+        result = this.encoder.encode(identityClient, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof EncodeRepresentation);
+        assertEquals(CONTENT, result.getText());
+
+        // Ignored if older than the original file
+        gzFile.setLastModified(this.file.lastModified() - 10000);
+        result = this.encoder.encode(this.clientInfo, new FileRepresentation(
+                this.file, MediaType.TEXT_CSS));
+        assertTrue(result instanceof EncodeRepresentation);
+    }
+
+    private void write(File file, String content) throws Exception {
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(content.getBytes());
+        fos.close();
+    }
+
+}
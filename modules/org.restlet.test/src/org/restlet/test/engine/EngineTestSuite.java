@@ -40,6 +40,8 @@ import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
 import org.restlet.test.engine.io.BufferTestCase;
 import org.restlet.test.engine.io.ReaderInputStreamTestCase;
+import org.restlet.test.engine.log.AccessLogWriterTestCase;
+import org.restlet.test.engine.log.IdentResolverTestCase;
 import org.restlet.test.engine.util.Base64TestCase;
 
 /**
@@ -61,16 +63,20 @@ public class EngineTestSuite extends TestSuite {
     /** Constructor. */
     public EngineTestSuite() {
         super("Engine package");
+        addTestSuite(AccessLogWriterTestCase.class);
         addTestSuite(AlphaNumericComparatorTestCase.class);
         addTestSuite(AnnotationUtilsTestCase.class);
         addTestSuite(Base64TestCase.class);
         addTestSuite(BufferTestCase.class);
         addTestSuite(BioUtilsTestCase.class);
         addTestSuite(CookiesTestCase.class);
+        addTestSuite(EncoderTestCase.class);
+        addTestSuite(GzipStreamsTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
         addTestSuite(HeaderTestCase.class);
         addTestSuite(HttpCallTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
+        addTestSuite(IdentResolverTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
         addTestSuite(UnclosableOutputStreamTestCase.class);
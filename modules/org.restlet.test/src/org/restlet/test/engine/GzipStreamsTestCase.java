@@ -0,0 +1,189 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.DeflaterPool;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.application.GzipDeflaterOutputStream;
+import org.restlet.engine.application.GzipInflaterInputStream;
+import org.restlet.engine.application.InflaterPool;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.InputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the GZIP streams and channels reusing pooled deflaters and
+ * inflaters.
+ * 
+ * @author Jerome Louvel
+ */
+public class GzipStreamsTestCase extends RestletTestCase {
+
+    private static final String CONTENT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ";
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        GZIPOutputStream gos = new GZIPOutputStream(baos);
+        gos.write(content.getBytes());
+        gos.close();
+        return baos.toByteArray();
+    }
+
+    private String gunzip(InputStream inputStream) throws IOException {
+        return BioUtils.toString(new GzipInflaterInputStream(inputStream,
+                new InflaterPool(true, 1)));
+    }
+
+    public void testChannel() throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            sb.append(CONTENT).append(i);
+        }
+
+        for (Encoding encoding : new Encoding[] { Encoding.GZIP,
+                Encoding.DEFLATE }) {
+            ReadableByteChannel channel = new EncodeRepresentation(encoding,
+                    new StringRepresentation(sb)).getChannel();
+            assertFalse(channel instanceof Pipe.SourceChannel);
+
+            // Drain in small chunks, like a connector buffer
+            ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    baos.write(buffer.get());
+                }
+
+                buffer.clear();
+            }
+
+            channel.close();
+            InputStream decoded = new ByteArrayInputStream(baos.toByteArray());
+            decoded = encoding.equals(Encoding.GZIP) ? new GZIPInputStream(
+                    decoded) : new InflaterInputStream(decoded);
+            assertEquals(sb.toString(), BioUtils.toString(decoded));
+        }
+    }
+
+    public void testConcatenatedMembers() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(gzip("abc"));
+        baos.write(gzip("def"));
+        assertEquals("abcdef",
+                gunzip(new ByteArrayInputStream(baos.toByteArray())));
+    }
+
+    public void testDeflaterReuse() throws IOException {
+        DeflaterPool pool = new DeflaterPool(true, 1);
+        Deflater deflater = pool.checkout(9, Deflater.DEFAULT_STRATEGY);
+
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            GzipDeflaterOutputStream gdos = new GzipDeflaterOutputStream(baos,
+                    deflater);
+            gdos.write((CONTENT + i).getBytes());
+            gdos.finish();
+            pool.checkin(deflater);
+
+            // Checked by the JDK implementation
+            assertEquals(CONTENT + i, BioUtils.toString(new GZIPInputStream(
+                    new ByteArrayInputStream(baos.toByteArray()))));
+            assertSame(deflater,
+                    deflater = pool.checkout(1, Deflater.DEFAULT_STRATEGY));
+        }
+    }
+
+    public void testEncodeDecode() throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            sb.append(CONTENT).append(i);
+        }
+
+        EncoderService encoderService = new EncoderService();
+        encoderService.getCompressionLevels().put(MediaType.TEXT_PLAIN, 1);
+
+        for (Encoding encoding : new Encoding[] { Encoding.GZIP,
+                Encoding.DEFLATE, Encoding.ZIP }) {
+            Representation encoded = new EncodeRepresentation(encoding,
+                    new StringRepresentation(sb), encoderService);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            encoded.write(baos);
+            Representation received = new InputRepresentation(
+                    new ByteArrayInputStream(baos.toByteArray()));
+            received.getEncodings().add(encoding);
+            assertEquals(sb.toString(),
+                    new DecodeRepresentation(received).getText());
+        }
+
+        assertTrue(encoderService.getCompressionRatio(MediaType.TEXT_PLAIN) < 0.5F);
+    }
+
+    public void testHeaderFields() throws IOException {
+        byte[] member = gzip("abc");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        // Add a file name and a comment to the header
+        baos.write(member, 0, 3);
+        baos.write(member[3] | 8 | 16);
+        baos.write(member, 4, 6);
+        baos.write("name.txt\0comment\0".getBytes());
+        baos.write(member, 10, member.length - 10);
+        assertEquals("abc",
+                gunzip(new ByteArrayInputStream(baos.toByteArray())));
+    }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.restlet.engine.log.AccessLogWriter;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link AccessLogWriter} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class AccessLogWriterTestCase extends RestletTestCase {
+
+    /**
+     * Handler collecting the published records. It can be paused in order to
+     * fill the ring buffer.
+     */
+    private static class CollectingHandler extends Handler {
+
+        private final AtomicInteger flushes = new AtomicInteger();
+
+        private volatile CountDownLatch pause;
+
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flush() {
+            this.flushes.incrementAndGet();
+        }
+
+        public synchronized List<String> getMessages() {
+            return new ArrayList<String>(this.messages);
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            CountDownLatch latch = this.pause;
+
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            this.messages.add(record.getMessage());
+        }
+    }
+
+    private CollectingHandler handler;
+
+    private Logger logger;
+
+    private AccessLogWriter createWriter(int capacity, int batchSize,
+            boolean blocking) {
+        AccessLogWriter result = new AccessLogWriter(this.logger, capacity,
+                batchSize, blocking);
+        result.start();
+        return result;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.handler = new CollectingHandler();
+        this.logger = Logger.getAnonymousLogger();
+        this.logger.setUseParentHandlers(false);
+        this.logger.addHandler(this.handler);
+    }
+
+    public void testBatching() throws Exception {
+        AccessLogWriter writer = createWriter(1024, 64, true);
+        this.handler.pause = new CountDownLatch(1);
+
+        // The first record blocks the consumer while the others queue up
+        for (int i = 0; i < 512; i++) {
+            assertTrue(writer.log(new LogRecord(Level.INFO, "record" + i)));
+        }
+
+        this.handler.pause.countDown();
+        this.handler.pause = null;
+        writer.stop();
+
+        assertEquals(512, this.handler.getMessages().size());
+        assertTrue(this.handler.flushes.get() < 512);
+    }
+
+    public void testBlocking() throws Exception {
+        final AccessLogWriter writer = createWriter(4, 2, true);
+        CountDownLatch pause = new CountDownLatch(1);
+        this.handler.pause = pause;
+
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 32; i++) {
+                    writer.log(new LogRecord(Level.INFO, "record" + i));
+                }
+            }
+        };
+        producer.start();
+
+        // The producer must wait for the consumer
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        this.handler.pause = null;
+        pause.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        writer.stop();
+
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(32, this.handler.getMessages().size());
+    }
+
+    public void testDropping() throws Exception {
+        AccessLogWriter writer = createWriter(4, 2, false);
+        CountDownLatch pause = new CountDownLatch(1);
+        this.handler.pause = pause;
+        int accepted = 0;
+
+        for (int i = 0; i < 32; i++) {
+            if (writer.log(new LogRecord(Level.INFO, "record" + i))) {
+                accepted++;
+            }
+        }
+
+        assertTrue(writer.getDroppedCount() > 0);
+        assertEquals(32, accepted + writer.getDroppedCount());
+
+        this.handler.pause = null;
+        pause.countDown();
+        writer.stop();
+        assertEquals(accepted, this.handler.getMessages().size());
+    }
+
+    public void testOrder() throws Exception {
+        AccessLogWriter writer = createWriter(16, 4, true);
+
+        for (int i = 0; i < 1000; i++) {
+            writer.log(new LogRecord(Level.INFO, "record" + i));
+        }
+
+        writer.stop();
+        List<String> messages = this.handler.getMessages();
+        assertEquals(1000, messages.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("record" + i, messages.get(i));
+        }
+    }
+
+    public void testStop() throws Exception {
+        final AccessLogWriter writer = createWriter(64, 8, true);
+        final CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<Thread>();
+
+        for (int i = 0; i < 4; i++) {
+            Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    started.countDown();
+
+                    for (int j = 0; j < 2000; j++) {
+                        writer.log(new LogRecord(Level.INFO, "record" + j));
+                    }
+                }
+            };
+            producers.add(producer);
+            producer.start();
+        }
+
+        // Stop while the producers are still logging
+        started.await(5, TimeUnit.SECONDS);
+        writer.stop();
+
+        for (Thread producer : producers) {
+            producer.join(5000);
+        }
+
+        assertFalse(writer.isRunning());
+        assertEquals(8000, this.handler.getMessages().size());
+    }
+}
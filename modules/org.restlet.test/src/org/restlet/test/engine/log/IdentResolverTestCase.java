@@ -0,0 +1,210 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.engine.log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.restlet.engine.log.IdentClient;
+import org.restlet.engine.log.IdentListener;
+import org.restlet.engine.log.IdentResolver;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link IdentResolver} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class IdentResolverTestCase extends RestletTestCase {
+
+    /**
+     * Listener waiting for the IDENT result.
+     */
+    private static class ResultListener implements IdentListener {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile IdentClient result;
+
+        public IdentClient await() throws InterruptedException {
+            assertTrue(this.latch.await(5, TimeUnit.SECONDS));
+            return this.result;
+        }
+
+        public void onResolved(IdentClient identClient) {
+            this.result = identClient;
+            this.latch.countDown();
+        }
+    }
+
+    /**
+     * Minimal IDENT server answering each connection with a given reply, or
+     * never answering if the reply is null.
+     */
+    private static class TestServer extends Thread {
+
+        private final String reply;
+
+        private final ServerSocket serverSocket;
+
+        public TestServer(String reply) throws IOException {
+            this.reply = reply;
+            this.serverSocket = new ServerSocket(0, 50,
+                    InetAddress.getByName("127.0.0.1"));
+            setDaemon(true);
+        }
+
+        public void close() throws IOException {
+            this.serverSocket.close();
+        }
+
+        public int getPort() {
+            return this.serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Socket socket = this.serverSocket.accept();
+                    new BufferedReader(new InputStreamReader(
+                            socket.getInputStream())).readLine();
+
+                    if (this.reply != null) {
+                        OutputStream os = socket.getOutputStream();
+                        os.write(this.reply.getBytes("US-ASCII"));
+                        os.flush();
+                        socket.close();
+                    }
+                }
+            } catch (IOException ioe) {
+                // Server closed
+            }
+        }
+    }
+
+    private IdentResolver resolver;
+
+    private TestServer server;
+
+    private IdentClient resolve() throws Exception {
+        ResultListener listener = new ResultListener();
+        this.resolver.resolve("127.0.0.1", 6193, 23, listener);
+        return listener.await();
+    }
+
+    private void startServer(String reply) throws Exception {
+        this.server = new TestServer(reply);
+        this.server.start();
+        this.resolver = new IdentResolver(Logger.getAnonymousLogger(),
+                IdentResolver.DEFAULT_CACHE_TTL,
+                IdentResolver.DEFAULT_MAX_CACHE_SIZE, this.server.getPort());
+        this.resolver.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.resolver != null) {
+            this.resolver.stop();
+            this.resolver = null;
+        }
+
+        if (this.server != null) {
+            this.server.close();
+            this.server = null;
+        }
+
+        super.tearDown();
+    }
+
+    public void testCache() throws Exception {
+        startServer("6193 , 23 : USERID : UNIX :jdoe\r\n");
+        assertEquals("jdoe", resolve().getUserIdentifier());
+        assertEquals("jdoe", resolve().getUserIdentifier());
+        assertEquals(1, this.resolver.getLookupCount());
+        assertEquals(1, this.resolver.getCacheHitCount());
+    }
+
+    public void testMalformedReply() throws Exception {
+        startServer("garbage\r\n");
+        IdentClient result = resolve();
+        assertNull(result.getUserIdentifier());
+        assertEquals(1, this.resolver.getFailureCount());
+    }
+
+    public void testRefusedConnection() throws Exception {
+        // Find a port without any listener
+        ServerSocket socket = new ServerSocket(0, 1, InetAddress
+                .getByName("127.0.0.1"));
+        int port = socket.getLocalPort();
+        socket.close();
+
+        this.resolver = new IdentResolver(Logger.getAnonymousLogger(),
+                IdentResolver.DEFAULT_CACHE_TTL,
+                IdentResolver.DEFAULT_MAX_CACHE_SIZE, port);
+        this.resolver.start();
+        IdentClient result = resolve();
+        assertNull(result.getUserIdentifier());
+        assertEquals(1, this.resolver.getFailureCount());
+    }
+
+    public void testResolved() throws Exception {
+        startServer("6193 , 23 : USERID : UNIX :jdoe\r\n");
+        IdentClient result = resolve();
+        assertEquals("jdoe", result.getUserIdentifier());
+        assertEquals("UNIX", result.getHostType());
+        assertEquals(0, this.resolver.getFailureCount());
+    }
+
+    public void testTimeout() throws Exception {
+        // The server never replies
+        startServer(null);
+        long start = System.currentTimeMillis();
+        IdentClient result = resolve();
+        long duration = System.currentTimeMillis() - start;
+
+        assertNull(result.getUserIdentifier());
+        assertEquals(1, this.resolver.getFailureCount());
+        assertTrue(duration >= 500);
+    }
+}
@@ -34,15 +34,20 @@
 package org.restlet.test.ext.atom;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.Iterator;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.ext.atom.Categories;
+import org.restlet.ext.atom.Entry;
 import org.restlet.ext.atom.Feed;
+import org.restlet.ext.atom.FeedReader;
 import org.restlet.ext.atom.Service;
+import org.restlet.representation.ByteArrayRepresentation;
 import org.restlet.representation.FileRepresentation;
 import org.restlet.test.RestletTestCase;
 
@@ -98,4 +103,57 @@ public class AtomTestCase extends RestletTestCase {
         BioUtils.delete(testDir, true);
     }
 
+    public void testStreaming() throws Exception {
+        final int size = 100;
+        Feed feed = new Feed();
+        feed.setTitle("Streamed feed");
+        feed.setEntryIterator(new Iterator<Entry>() {
+            private int index = 0;
+
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            public Entry next() {
+                Entry entry = new Entry();
+                entry.setId("urn:entry:" + index++);
+                entry.setTitle("Entry " + index);
+                return entry;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        feed.write(out);
+        byte[] document = out.toByteArray();
+
+        // Parse the whole feed
+        Feed feed2 = new Feed(new ByteArrayRepresentation(document,
+                MediaType.APPLICATION_ATOM));
+        assertEquals("Streamed feed", feed2.getTitle().getContent());
+        assertEquals(size, feed2.getEntries().size());
+        assertEquals("urn:entry:99", feed2.getEntries().get(99).getId());
+
+        // Consume the entries one by one
+        final int[] count = new int[1];
+        Feed feed3 = new Feed(new ByteArrayRepresentation(document,
+                MediaType.APPLICATION_ATOM), new FeedReader() {
+            @Override
+            public void endEntry(Entry entry) {
+                assertEquals("urn:entry:" + count[0], entry.getId());
+                count[0]++;
+            }
+
+            @Override
+            public boolean isRetained(Entry entry) {
+                return false;
+            }
+        });
+        assertEquals(size, count[0]);
+        assertTrue(feed3.getEntries().isEmpty());
+    }
+
 }
@@ -38,19 +38,79 @@ import java.io.FileWriter;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.restlet.Application;
 import org.restlet.data.MediaType;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.ext.freemarker.FreemarkerService;
+import org.restlet.ext.freemarker.TemplateFilter;
 import org.restlet.ext.freemarker.TemplateRepresentation;
-import org.restlet.test.RestletTestCase;
+import org.restlet.representation.Representation;
+import org.restlet.service.Service;
+import org.restlet.test.AbstractTemplateTestCase;
 
 import freemarker.template.Configuration;
+import freemarker.template.Template;
 
 /**
  * Unit test for the FreeMarker extension.
  * 
  * @author Jerome Louvel
  */
-public class FreeMarkerTestCase extends RestletTestCase {
+public class FreeMarkerTestCase extends AbstractTemplateTestCase {
+
+    @Override
+    protected Service createService() {
+        return new FreemarkerService();
+    }
+
+    @Override
+    protected Service getCurrentService() {
+        return FreemarkerService.getCurrent();
+    }
+
+    @Override
+    protected Object getTemplate(Service service,
+            Representation templateRepresentation) {
+        return ((FreemarkerService) service)
+                .getTemplate(templateRepresentation);
+    }
+
+    @Override
+    protected String process(Object template, Map<String, Object> dataModel)
+            throws Exception {
+        return new TemplateRepresentation((Template) template, dataModel,
+                MediaType.TEXT_PLAIN).getText();
+    }
+
+    public void testFallbackScope() throws Exception {
+        Application application = new Application();
+        Application current = Application.getCurrent();
+        Application.setCurrent(application);
+
+        try {
+            // Without registered service, each filter has its configuration
+            TemplateFilter filter1 = new TemplateFilter();
+            TemplateFilter filter2 = new TemplateFilter();
+            assertSame(filter1.getConfiguration(), filter1.getConfiguration());
+            assertNotSame(filter1.getConfiguration(), filter2
+                    .getConfiguration());
+
+            // The fallback service is private to the application
+            FreemarkerService fallback = FreemarkerService.getCurrent();
+            assertSame(fallback, FreemarkerService.getCurrent());
+            Application.setCurrent(new Application());
+            assertNotSame(fallback, FreemarkerService.getCurrent());
+            Application.setCurrent(application);
+
+            // The configuration of a registered service is shared
+            FreemarkerService registered = new FreemarkerService();
+            application.getServices().add(registered);
+            assertSame(registered.getConfiguration(), new TemplateFilter()
+                    .getConfiguration());
+        } finally {
+            Application.setCurrent(current);
+        }
+    }
 
     public void testTemplate() throws Exception {
         // Create a temporary directory for the tests
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jackson;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.ext.jackson.JacksonRepresentation;
+import org.restlet.ext.jackson.JacksonSmileRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Test case for the Jackson extension.
+ * 
+ * @author Jerome Louvel
+ */
+public class JacksonTestCase extends RestletTestCase {
+
+    public void testCollection() throws Exception {
+        List<String> list = Arrays.asList("a", "b", "c");
+        JacksonRepresentation<List<String>> rep = new JacksonRepresentation<List<String>>(
+                list);
+        assertEquals("[\"a\",\"b\",\"c\"]", rep.getText());
+    }
+
+    public void testIterator() throws Exception {
+        Iterator<String> iterator = Arrays.asList("a", "b", "c").iterator();
+        JacksonRepresentation<Iterator<String>> rep = new JacksonRepresentation<Iterator<String>>(
+                iterator);
+        assertEquals("[\"a\",\"b\",\"c\"]", rep.getText());
+    }
+
+    public void testObjectNode() throws Exception {
+        ObjectNode node = new ObjectMapper().createObjectNode();
+        node.put("name", "value");
+        node.put("count", 2);
+
+        JacksonRepresentation<ObjectNode> rep = new JacksonRepresentation<ObjectNode>(
+                node);
+        assertEquals("{\"name\":\"value\",\"count\":2}", rep.getText());
+
+        // The Smile format must keep the node as an object too
+        JacksonSmileRepresentation<ObjectNode> smile = new JacksonSmileRepresentation<ObjectNode>(
+                node);
+        JsonNode parsed = smile.getObjectMapper().readTree(smile.getStream());
+        assertTrue(parsed.isObject());
+        assertEquals("value", parsed.get("name").asText());
+    }
+
+    public void testReadObjects() throws Exception {
+        JacksonRepresentation<String> rep = new JacksonRepresentation<String>(
+                new StringRepresentation("[\"a\",\"b\",\"c\"]",
+                        MediaType.APPLICATION_JSON), String.class);
+        Iterator<String> iterator = rep.getObjects();
+        assertEquals("a", iterator.next());
+        assertEquals("b", iterator.next());
+        assertEquals("c", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+}
@@ -0,0 +1,415 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Protocol;
+import org.restlet.ext.jdbc.JdbcClientHelper;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link JdbcClientHelper} class, using a driver that
+ * records the calls made on its connections and prepared statements.
+ * 
+ * @author Jerome Louvel
+ */
+public class JdbcClientHelperTestCase extends RestletTestCase {
+
+    /**
+     * Driver serving the connections of the current test.
+     */
+    public static class TestDriver implements Driver {
+
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URI);
+        }
+
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? current.createConnection() : null;
+        }
+
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        public boolean jdbcCompliant() {
+            return false;
+        }
+    }
+
+    /** The URI of the test database. */
+    private static final String URI = "jdbc:restlet-test:db";
+
+    /** The test case currently running. */
+    private static volatile JdbcClientHelperTestCase current;
+
+    /**
+     * Returns the value returned by default for a given type.
+     * 
+     * @param type
+     *            The return type.
+     * @return The default value.
+     */
+    private static Object getDefaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates a dynamic proxy implementing the given interface. The methods
+     * inherited from {@link Object} are based on the proxy identity.
+     * 
+     * @param type
+     *            The interface to implement.
+     * @param handler
+     *            The invocation handler.
+     * @return The proxy.
+     */
+    private static <T> T proxy(Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                JdbcClientHelperTestCase.class.getClassLoader(),
+                new Class<?>[] { type }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        } else if ("toString".equals(method.getName())) {
+                            return method.getDeclaringClass().getSimpleName();
+                        }
+
+                        return handler.invoke(proxy, method, args);
+                    }
+                }));
+    }
+
+    /** The results of the next batches, either update counts or exceptions. */
+    private final List<Object> batchResults = new ArrayList<Object>();
+
+    /** The driver registered for the test. */
+    private Driver driver;
+
+    /** The number of statements prepared by the driver. */
+    private int preparedCount;
+
+    /** The calls made on the prepared statements. */
+    private final List<String> statementCalls = new ArrayList<String>();
+
+    /**
+     * Creates a connection of the test database.
+     * 
+     * @return The connection.
+     */
+    private Connection createConnection() {
+        return proxy(Connection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("prepareStatement".equals(method.getName())) {
+                    preparedCount++;
+                    return createStatement((Connection) proxy);
+                } else if ("getAutoCommit".equals(method.getName())) {
+                    return Boolean.TRUE;
+                }
+
+                return getDefaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /**
+     * Creates a JDBC client helper.
+     * 
+     * @param maxCachedStatements
+     *            The value of the "maxCachedStatements" parameter or null.
+     * @return The client helper.
+     */
+    private JdbcClientHelper createHelper(String maxCachedStatements) {
+        Context context = new Context();
+
+        if (maxCachedStatements != null) {
+            context.getParameters().add("maxCachedStatements",
+                    maxCachedStatements);
+        }
+
+        return new JdbcClientHelper(new Client(context, Protocol.JDBC));
+    }
+
+    /**
+     * Creates a request executing a parameterized statement.
+     * 
+     * @param usePooling
+     *            Indicates if the connection pooling should be used.
+     * @param batchSize
+     *            The maximum number of parameter sets per batch.
+     * @param parameterSets
+     *            The content of each "parameters" element.
+     * @return The request.
+     */
+    private Request createRequest(boolean usePooling, int batchSize,
+            String... parameterSets) {
+        StringBuilder sb = new StringBuilder("<request><header><connection>");
+        sb.append("<usePooling>").append(usePooling).append("</usePooling>");
+        sb.append("<property name=\"user\">scott</property>");
+        sb.append("</connection><batchSize>").append(batchSize);
+        sb.append("</batchSize>");
+        sb.append("<returnGeneratedKeys>false</returnGeneratedKeys>");
+        sb.append("</header><body><statement>");
+        sb.append("<sql>INSERT INTO t VALUES (?, ?)</sql>");
+
+        for (String parameterSet : parameterSets) {
+            sb.append("<parameters>").append(parameterSet).append(
+                    "</parameters>");
+        }
+
+        sb.append("</statement></body></request>");
+        return JdbcClientHelper.create(URI, new StringRepresentation(sb));
+    }
+
+    /**
+     * Creates a prepared statement recording the calls made on it.
+     * 
+     * @param connection
+     *            The parent connection.
+     * @return The prepared statement.
+     */
+    private PreparedStatement createStatement(final Connection connection) {
+        return proxy(PreparedStatement.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                String name = method.getName();
+
+                if ("getConnection".equals(name)) {
+                    return connection;
+                }
+
+                statementCalls.add((args == null) ? name : name
+                        + Arrays.asList(args));
+
+                if ("executeBatch".equals(name)) {
+                    Object result = batchResults.remove(0);
+
+                    if (result instanceof BatchUpdateException) {
+                        throw (BatchUpdateException) result;
+                    }
+
+                    return result;
+                }
+
+                return getDefaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /**
+     * Returns the number of calls of a prepared statement method.
+     * 
+     * @param name
+     *            The method name.
+     * @return The number of calls.
+     */
+    private int getCallCount(String name) {
+        int result = 0;
+
+        for (String call : this.statementCalls) {
+            if (call.equals(name) || call.startsWith(name + "[")) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Handles a request and returns the text of the response entity.
+     * 
+     * @param helper
+     *            The client helper.
+     * @param request
+     *            The request to handle.
+     * @return The text of the response entity.
+     * @throws Exception
+     */
+    private String handle(JdbcClientHelper helper, Request request)
+            throws Exception {
+        Response response = new Response(request);
+        helper.handle(request, response);
+        assertTrue(response.getStatus().isSuccess());
+        return response.getEntity().getText();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        current = this;
+        this.driver = new TestDriver();
+        DriverManager.registerDriver(this.driver);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DriverManager.deregisterDriver(this.driver);
+        current = null;
+        super.tearDown();
+    }
+
+    public void testBatchFailure() throws Exception {
+        // The second statement of the second batch fails, the driver stops
+        this.batchResults.add(new int[] { 1, 1 });
+        this.batchResults.add(new BatchUpdateException(new int[] { 1 }));
+
+        String parameterSet = "<parameter>a</parameter><parameter>b</parameter>";
+        String report = handle(createHelper(null), createRequest(false, 2,
+                parameterSet, parameterSet, parameterSet, parameterSet,
+                parameterSet));
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<batchResults>\n"
+                + "  <batch index=\"0\" size=\"2\" succeeded=\"2\" "
+                + "failed=\"0\" updateCount=\"2\"/>\n"
+                + "  <batch index=\"1\" size=\"2\" succeeded=\"1\" "
+                + "failed=\"1\" updateCount=\"1\"/>\n" + "</batchResults>\n",
+                report);
+
+        // The remaining parameter set isn't sent
+        assertEquals(2, getCallCount("executeBatch"));
+        assertEquals(4, getCallCount("addBatch"));
+        assertEquals(1, getCallCount("clearBatch"));
+        assertEquals(1, getCallCount("close"));
+    }
+
+    public void testBatchReport() throws Exception {
+        this.batchResults.add(new int[] { 1, Statement.SUCCESS_NO_INFO });
+        this.batchResults.add(new int[] { 3 });
+
+        String parameterSet = "<parameter>a</parameter><parameter>b</parameter>";
+        String report = handle(createHelper(null), createRequest(false, 2,
+                parameterSet, parameterSet, parameterSet));
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<batchResults>\n"
+                + "  <batch index=\"0\" size=\"2\" succeeded=\"2\" "
+                + "failed=\"0\" updateCount=\"1\"/>\n"
+                + "  <batch index=\"1\" size=\"1\" succeeded=\"1\" "
+                + "failed=\"0\" updateCount=\"3\"/>\n" + "</batchResults>\n",
+                report);
+        assertTrue(this.batchResults.isEmpty());
+    }
+
+    public void testParameterBinding() throws Exception {
+        this.batchResults.add(new int[] { 1, 1 });
+
+        handle(createHelper(null), createRequest(false, 10,
+                "<parameter>a b</parameter>"
+                        + "<parameter type=\"integer\"> 42 </parameter>"
+                        + "<parameter type=\"BIGINT\">7</parameter>"
+                        + "<parameter type=\"DOUBLE\">1.5</parameter>",
+                "<parameter type=\"DATE\">2010-01-31</parameter>"
+                        + "<parameter type=\"TIMESTAMP\">"
+                        + "2010-01-31 12:30:00.0</parameter>"
+                        + "<parameter type=\"DECIMAL\">12.50</parameter>"
+                        + "<parameter type=\"INTEGER\" null=\"true\"/>"));
+
+        assertEquals(Arrays.asList("setString[1, a b]", "setInt[2, 42]",
+                "setLong[3, 7]", "setDouble[4, 1.5]", "addBatch",
+                "setDate[1, 2010-01-31]",
+                "setTimestamp[2, 2010-01-31 12:30:00.0]",
+                "setBigDecimal[3, 12.50]", "setNull[4, 4]", "addBatch",
+                "executeBatch", "clearBatch", "close"), this.statementCalls);
+    }
+
+    public void testStatementCache() throws Exception {
+        String parameterSet = "<parameter>a</parameter><parameter>b</parameter>";
+
+        // The pooled connection reuses its prepared statement
+        JdbcClientHelper helper = createHelper(null);
+        assertEquals(64, helper.getMaxCachedStatements());
+        this.batchResults.addAll(Collections.nCopies(2, new int[] { 1 }));
+        handle(helper, createRequest(true, 1, parameterSet));
+        handle(helper, createRequest(true, 1, parameterSet));
+        assertEquals(1, this.preparedCount);
+
+        // Each request prepares its statement when the cache is disabled
+        this.preparedCount = 0;
+        helper = createHelper("0");
+        assertEquals(0, helper.getMaxCachedStatements());
+        this.batchResults.addAll(Collections.nCopies(2, new int[] { 1 }));
+        handle(helper, createRequest(true, 1, parameterSet));
+        handle(helper, createRequest(true, 1, parameterSet));
+        assertEquals(2, this.preparedCount);
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.restlet.data.MediaType;
+import org.restlet.ext.jdbc.JdbcResult;
+import org.restlet.ext.jdbc.ResultSetRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link ResultSetRepresentation} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ResultSetRepresentationTestCase extends RestletTestCase {
+
+    /**
+     * Creates a forward-only result set over the given rows.
+     * 
+     * @param labels
+     *            The column labels.
+     * @param types
+     *            The SQL types of the columns.
+     * @param rows
+     *            The rows of column values.
+     * @return The result set.
+     */
+    private static ResultSet createResultSet(final String[] labels,
+            final int[] types, final Object[][] rows) {
+        final ResultSetMetaData metaData = proxy(ResultSetMetaData.class,
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        if ("getColumnCount".equals(method.getName())) {
+                            return labels.length;
+                        } else if ("getColumnLabel".equals(method.getName())) {
+                            return labels[(Integer) args[0] - 1];
+                        } else if ("getColumnType".equals(method.getName())) {
+                            return types[(Integer) args[0] - 1];
+                        }
+
+                        throw new UnsupportedOperationException(method
+                                .getName());
+                    }
+                });
+
+        return proxy(ResultSet.class, new InvocationHandler() {
+            private int row = -1;
+
+            private Object value;
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+
+                if ("next".equals(name)) {
+                    return ++this.row < rows.length;
+                } else if ("getMetaData".equals(name)) {
+                    return metaData;
+                } else if ("wasNull".equals(name)) {
+                    return this.value == null;
+                } else if ("getStatement".equals(name)
+                        || "close".equals(name) || "setFetchSize".equals(name)) {
+                    return null;
+                } else if (name.startsWith("get")) {
+                    this.value = rows[this.row][(Integer) args[0] - 1];
+
+                    if ("getString".equals(name)) {
+                        return (this.value == null) ? null : this.value
+                                .toString();
+                    } else if ("getDouble".equals(name)) {
+                        return (this.value == null) ? 0D
+                                : ((Number) this.value).doubleValue();
+                    } else if ("getFloat".equals(name)) {
+                        return (this.value == null) ? 0F
+                                : ((Number) this.value).floatValue();
+                    } else if ("getInt".equals(name)) {
+                        return (this.value == null) ? 0
+                                : ((Number) this.value).intValue();
+                    }
+                }
+
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    /**
+     * Creates a JDBC result whose statement only returned an update count.
+     * 
+     * @param updateCount
+     *            The update count.
+     * @return The JDBC result.
+     */
+    private static JdbcResult createUpdateResult(final int updateCount) {
+        final Connection connection = proxy(Connection.class,
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        return null;
+                    }
+                });
+
+        return new JdbcResult(proxy(Statement.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getUpdateCount".equals(method.getName())) {
+                    return updateCount;
+                } else if ("getConnection".equals(method.getName())) {
+                    return connection;
+                }
+
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Creates a dynamic proxy implementing the given interface.
+     * 
+     * @param type
+     *            The interface to implement.
+     * @param handler
+     *            The invocation handler.
+     * @return The proxy.
+     */
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                ResultSetRepresentationTestCase.class.getClassLoader(),
+                new Class<?>[] { type }, handler));
+    }
+
+    public void testCsvEscaping() throws Exception {
+        ResultSet resultSet = createResultSet(
+                new String[] { "name", "note, \"quoted\"" },
+                new int[] { Types.VARCHAR, Types.VARCHAR }, new Object[][] {
+                        { "plain", "a,b" },
+                        { "say \"hi\"", "line1\nline2" }, { null, "" } });
+        ResultSetRepresentation rep = new ResultSetRepresentation(resultSet,
+                MediaType.TEXT_CSV);
+
+        assertEquals("name,\"note, \"\"quoted\"\"\"\r\n" + "plain,\"a,b\"\r\n"
+                + "\"say \"\"hi\"\"\",\"line1\nline2\"\r\n" + ",\r\n",
+                rep.getText());
+    }
+
+    public void testFloat() throws Exception {
+        ResultSet resultSet = createResultSet(new String[] { "f", "r" },
+                new int[] { Types.FLOAT, Types.REAL },
+                new Object[][] { { 123456789.123D, 0.5D } });
+        ResultSetRepresentation rep = new ResultSetRepresentation(resultSet,
+                MediaType.APPLICATION_JSON);
+
+        assertEquals("{\"columns\":[\"f\",\"r\"],\"rows\":[[1.23456789123E8,"
+                + "0.5]]}", rep.getText());
+    }
+
+    public void testJsonEscaping() throws Exception {
+        ResultSet resultSet = createResultSet(new String[] { "na\"me", "v" },
+                new int[] { Types.VARCHAR, Types.VARCHAR }, new Object[][] {
+                        { "back\\slash\t", "\u0001\r\n" }, { null, "</a>" } });
+        ResultSetRepresentation rep = new ResultSetRepresentation(resultSet,
+                MediaType.APPLICATION_JSON);
+
+        assertEquals("{\"columns\":[\"na\\\"me\",\"v\"],\"rows\":["
+                + "[\"back\\\\slash\\t\",\"\\u0001\\r\\n\"],"
+                + "[null,\"</a>\"]]}", rep.getText());
+    }
+
+    public void testNonFiniteFloat() throws Exception {
+        ResultSet resultSet = createResultSet(new String[] { "f", "d", "r" },
+                new int[] { Types.FLOAT, Types.DOUBLE, Types.REAL },
+                new Object[][] {
+                        { Double.NaN, Double.POSITIVE_INFINITY,
+                                Float.NEGATIVE_INFINITY },
+                        { 1.5D, -2D, Float.NaN } });
+        ResultSetRepresentation rep = new ResultSetRepresentation(resultSet,
+                MediaType.APPLICATION_JSON);
+
+        assertEquals("{\"columns\":[\"f\",\"d\",\"r\"],\"rows\":["
+                + "[null,null,null],[1.5,-2.0,null]]}", rep.getText());
+    }
+
+    public void testUpdateCount() throws Exception {
+        ResultSetRepresentation rep = new ResultSetRepresentation(
+                createUpdateResult(3), MediaType.APPLICATION_JSON);
+        assertEquals("{\"columns\":[\"updateCount\"],\"rows\":[[3]]}",
+                rep.getText());
+
+        rep = new ResultSetRepresentation(createUpdateResult(3),
+                MediaType.TEXT_CSV);
+        assertEquals("updateCount\r\n3\r\n", rep.getText());
+    }
+
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.lucene;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrConfig;
+import org.apache.solr.highlight.SolrHighlighter;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.DocList;
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.ext.lucene.SolrClientHelper;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the Solr client connector.
+ * 
+ * @author Jerome Louvel
+ */
+public class SolrTestCase extends RestletTestCase {
+
+    /**
+     * Highlighter that does nothing, the Lucene highlighter used by default
+     * not being part of the Solr library.
+     */
+    public static class NoHighlighter extends SolrHighlighter {
+
+        @Override
+        public NamedList<Object> doHighlighting(DocList docs, Query query,
+                SolrQueryRequest req, String[] defaultFields) {
+            return null;
+        }
+
+        @Override
+        public void initalize(SolrConfig config) {
+        }
+
+    }
+
+    /** The number of indexed documents. */
+    private static final int DOCUMENTS = 30;
+
+    /**
+     * Writes a configuration file.
+     * 
+     * @param file
+     *            The file to write.
+     * @param content
+     *            The content to write.
+     * @throws IOException
+     */
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private Client client;
+
+    private File testDir;
+
+    /**
+     * Counts the occurrences of a string.
+     * 
+     * @param text
+     *            The text to search.
+     * @param string
+     *            The string to count.
+     * @return The number of occurrences.
+     */
+    private int count(String text, String string) {
+        int result = 0;
+
+        for (int i = text.indexOf(string); i != -1; i = text.indexOf(string,
+                i + 1)) {
+            result++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the documents of a Solr response.
+     * 
+     * @param text
+     *            The Solr response.
+     * @return The documents.
+     */
+    private String getDocuments(String text) {
+        return text.substring(text.indexOf("<doc>"), text
+                .lastIndexOf("</doc>"));
+    }
+
+    /**
+     * Sends a request to the Solr client connector.
+     * 
+     * @param method
+     *            The request method.
+     * @param uri
+     *            The target URI.
+     * @param entity
+     *            The request entity or null.
+     * @return The response.
+     */
+    private Response handle(Method method, String uri, String entity) {
+        Request request = new Request(method, uri);
+
+        if (entity != null) {
+            request.setEntity(new StringRepresentation(entity,
+                    MediaType.TEXT_XML));
+        }
+
+        return this.client.handle(request);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "SolrTestCase");
+        BioUtils.delete(this.testDir, true);
+        write(new File(this.testDir, "solr.xml"), "<solr persistent=\"false\">"
+                + "<cores adminPath=\"/admin/cores\">"
+                + "<core name=\"core0\" instanceDir=\"core0\" />"
+                + "</cores></solr>");
+        write(new File(this.testDir, "core0/conf/solrconfig.xml"),
+                "<config><dataDir>"
+                        + new File(this.testDir, "data").getAbsolutePath()
+                        + "</dataDir><highlighting class=\""
+                        + NoHighlighter.class.getName() + "\" />"
+                        + "<requestHandler name=\"standard\" "
+                        + "class=\"solr.SearchHandler\" default=\"true\" />"
+                        + "<requestHandler name=\"/update\" "
+                        + "class=\"solr.XmlUpdateRequestHandler\" />"
+                        + "</config>");
+        write(new File(this.testDir, "core0/conf/schema.xml"),
+                "<schema name=\"test\" version=\"1.2\"><types>"
+                        + "<fieldType name=\"string\" class=\"solr.StrField\" />"
+                        + "<fieldType name=\"text\" class=\"solr.TextField\">"
+                        + "<analyzer><tokenizer "
+                        + "class=\"solr.WhitespaceTokenizerFactory\"/>"
+                        + "</analyzer></fieldType></types><fields>"
+                        + "<field name=\"id\" type=\"string\" indexed=\"true\" "
+                        + "stored=\"true\" />"
+                        + "<field name=\"name\" type=\"text\" indexed=\"true\" "
+                        + "stored=\"true\" /></fields>"
+                        + "<uniqueKey>id</uniqueKey>"
+                        + "<defaultSearchField>name</defaultSearchField>"
+                        + "</schema>");
+
+        this.client = new Client(new Context(), SolrClientHelper.SOLR_PROTOCOL);
+        this.client.getContext().getParameters()
+                .add("directory", this.testDir.getAbsolutePath());
+        this.client.getContext().getParameters().add("configFile",
+                new File(this.testDir, "solr.xml").getAbsolutePath());
+        this.client.getContext().getParameters()
+                .add("maxConcurrentQueries", "1");
+        this.client.getContext().getParameters().add("cursorPageSize", "7");
+        this.client.start();
+
+        StringBuilder sb = new StringBuilder("<add>");
+
+        for (int i = 0; i < DOCUMENTS; i++) {
+            sb.append("<doc><field name=\"id\">").append(i);
+            sb.append("</field><field name=\"name\">document ").append(i);
+            sb.append("</field></doc>");
+        }
+
+        sb.append("</add>");
+        assertEquals(Status.SUCCESS_OK,
+                handle(Method.POST, "solr://core0/update", sb.toString())
+                        .getStatus());
+        assertEquals(Status.SUCCESS_OK,
+                handle(Method.POST, "solr://core0/update", "<commit/>")
+                        .getStatus());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.client.stop();
+        this.client = null;
+        BioUtils.delete(this.testDir, true);
+        this.testDir = null;
+        super.tearDown();
+    }
+
+    public void testCursor() throws Exception {
+        Response response = handle(Method.GET, "solr://core0/select"
+                + "?q=document&cursor=true&start=2&fl=id"
+                + "&facet=true&facet.field=id", null);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+
+        String text = response.getEntity().getText();
+        assertTrue(text.contains("<lst name=\"responseHeader\">"));
+        assertTrue(text.contains("numFound=\"" + DOCUMENTS + "\" start=\"2\""));
+        assertTrue(text.contains("<lst name=\"facet_counts\">"));
+        assertEquals(DOCUMENTS - 2, count(text, "<doc>"));
+        assertEquals(0, count(text, "name=\"name\""));
+
+        // The pages return the same documents as a single query
+        String expected = handle(Method.GET, "solr://core0/select"
+                + "?q=document&start=2&rows=" + DOCUMENTS + "&fl=id", null)
+                .getEntity().getText();
+        assertEquals(getDocuments(expected), getDocuments(text));
+
+        response = handle(Method.GET, "solr://core0/select"
+                + "?q=document&cursor=true&start=5&rows=10", null);
+        text = response.getEntity().getText();
+        assertTrue(text.contains("numFound=\"" + DOCUMENTS + "\" start=\"5\""));
+        assertEquals(10, count(text, "<doc>"));
+    }
+
+    public void testCursorPermit() throws Exception {
+        // The permit isn't taken until the cursor response is written
+        Response cursor = handle(Method.GET,
+                "solr://core0/select?q=document&cursor=true", null);
+        assertEquals(Status.SUCCESS_OK, cursor.getStatus());
+        assertEquals(Status.SUCCESS_OK,
+                handle(Method.GET, "solr://core0/select?q=document", null)
+                        .getStatus());
+
+        // Nor held once the response is released without being written
+        cursor.getEntity().release();
+        assertEquals(Status.SUCCESS_OK,
+                handle(Method.GET, "solr://core0/select?q=document", null)
+                        .getStatus());
+
+        // And it is given back once the response is written
+        cursor = handle(Method.GET,
+                "solr://core0/select?q=document&cursor=true", null);
+        assertEquals(DOCUMENTS, count(cursor.getEntity().getText(), "<doc>"));
+        assertEquals(Status.SUCCESS_OK,
+                handle(Method.GET, "solr://core0/select?q=document", null)
+                        .getStatus());
+    }
+
+}
@@ -34,10 +34,16 @@
 package org.restlet.test.ext.odata;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.restlet.Component;
+import org.restlet.Response;
+import org.restlet.data.Method;
 import org.restlet.data.Protocol;
+import org.restlet.data.Status;
 import org.restlet.ext.odata.Query;
+import org.restlet.resource.ResourceException;
 import org.restlet.test.RestletTestCase;
 import org.restlet.test.ext.odata.cafe.Cafe;
 import org.restlet.test.ext.odata.cafe.CafeService;
@@ -78,6 +84,63 @@ public class ODataCafeTestCase extends RestletTestCase {
         super.tearDown();
     }
 
+    /**
+     * Tests the grouping of modifications into "$batch" requests.
+     */
+    public void testBatch() throws Exception {
+        service.setBatchSize(10);
+
+        Cafe cafe1 = new Cafe("3");
+        cafe1.setName("Le Bistrot");
+        service.addEntity(cafe1);
+        service.setLatestRequest(null);
+        Cafe cafe2 = new Cafe("4");
+        cafe2.setName("La Brasserie");
+        service.addEntity(cafe2);
+        service.deleteEntity("/Cafes('1')");
+
+        // Nothing has been sent yet
+        assertNull(service.getLatestRequest());
+
+        List<Response> responses = service.saveChanges();
+        assertTrue(service.getLatestRequest().getResourceRef().toString()
+                .endsWith("/$batch"));
+        assertEquals(3, responses.size());
+        assertEquals(Status.SUCCESS_CREATED, responses.get(0).getStatus());
+        assertTrue(responses.get(0).getLocationRef().toString()
+                .endsWith("/Cafes('1')"));
+        assertEquals(Status.SUCCESS_CREATED, responses.get(1).getStatus());
+        assertTrue(responses.get(1).getLocationRef().toString()
+                .endsWith("/Cafes('2')"));
+        assertEquals(Status.SUCCESS_NO_CONTENT, responses.get(2).getStatus());
+        assertEquals(Method.DELETE, responses.get(2).getRequest().getMethod());
+        assertTrue(service.saveChanges().isEmpty());
+
+        // The added entities are updated with the entries sent back
+        assertEquals("Paris", cafe1.getCity());
+        assertEquals("Le Bistrot", cafe1.getName());
+        assertEquals("Paris", cafe2.getCity());
+
+        // The change set is sent once the batch size is reached
+        service.setBatchSize(2);
+        service.deleteEntity("/Cafes('1')");
+        service.setLatestRequest(null);
+        service.deleteEntity("/Cafes('2')");
+        assertNotNull(service.getLatestRequest());
+        assertTrue(service.saveChanges().isEmpty());
+
+        // The operations missing from the batch response are failures
+        service.deleteEntity("/Cafes('Missing')");
+
+        try {
+            service.saveChanges();
+            fail("The missing response should be reported");
+        } catch (ResourceException e) {
+            assertEquals(Status.CONNECTOR_ERROR_COMMUNICATION.getCode(), e
+                    .getStatus().getCode());
+        }
+    }
+
     /**
      * Tests the parsing of Feed element.
      */
@@ -202,6 +265,64 @@ public class ODataCafeTestCase extends RestletTestCase {
         assertEquals("Chief", contact.getTitle());
     }
 
+    /**
+     * Tests the server paging feature in streaming mode.
+     */
+    public void testServerPagingStreaming() {
+        for (boolean prefetching : new boolean[] { false, true }) {
+            Query<Cafe> query = service.createCafeQuery("/Cafes").skipToken(
+                    "Skip1");
+            query.setStreaming(true);
+            query.setPrefetching(prefetching);
+
+            Iterator<Cafe> iterator = query.iterator();
+            String[] ids = { "1", "2", "1", "2" };
+
+            for (String id : ids) {
+                assertTrue(iterator.hasNext());
+                Cafe cafe = iterator.next();
+                assertEquals(id, cafe.getId());
+                assertNotNull(cafe.getName());
+            }
+
+            assertFalse(iterator.hasNext());
+
+            try {
+                iterator.next();
+                fail("The iteration should be over");
+            } catch (NoSuchElementException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Tests that the errors of the streaming parser reach the caller.
+     */
+    public void testServerPagingStreamingError() {
+        Query<Cafe> query = service.createCafeQuery("/Cafes").skipToken(
+                "Missing");
+        query.setStreaming(true);
+        Iterator<Cafe> iterator = query.iterator();
+
+        try {
+            iterator.hasNext();
+            fail("The missing page should be reported");
+        } catch (ResourceException e) {
+            assertEquals(Status.CLIENT_ERROR_NOT_FOUND, e.getStatus());
+        }
+
+        try {
+            iterator.hasNext();
+            fail("The error should be reported again");
+        } catch (ResourceException e) {
+            // Expected
+        }
+
+        assertEquals(Status.CLIENT_ERROR_NOT_FOUND, service
+                .getLatestResponse().getStatus());
+    }
+
     /**
      * Tests the server paging feature.
      */
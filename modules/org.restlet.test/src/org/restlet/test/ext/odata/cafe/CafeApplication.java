@@ -33,6 +33,13 @@
 
 package org.restlet.test.ext.odata.cafe;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.restlet.Application;
 import org.restlet.Context;
 import org.restlet.Request;
@@ -41,9 +48,11 @@ import org.restlet.Restlet;
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.routing.Router;
 
 /**
@@ -54,6 +63,86 @@ import org.restlet.routing.Router;
  */
 public class CafeApplication extends Application {
 
+    /**
+     * Simulates the "$batch" resource. Each change set operation is
+     * acknowledged, in reverse order in order to exercise the correlation of
+     * the responses via the "Content-ID" headers. The created entries are sent
+     * back with their city set by the service, and the operations targeting a
+     * "Missing" resource are left out of the response.
+     */
+    private static class BatchRestlet extends Restlet {
+
+        /** Matches the start of each change set operation. */
+        private static final Pattern OPERATION = Pattern
+                .compile("Content-ID: (\\d+)\r\n\r\n(\\w+) (\\S+) HTTP/1.1");
+
+        public BatchRestlet(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void handle(Request request, Response response) {
+            if (!Method.POST.equals(request.getMethod())) {
+                response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
+                return;
+            }
+
+            List<String[]> operations = new ArrayList<String[]>();
+            try {
+                Matcher matcher = OPERATION.matcher(request.getEntity()
+                        .getText());
+                while (matcher.find()) {
+                    operations.add(new String[] { matcher.group(1),
+                            matcher.group(2), matcher.group(3) });
+                }
+            } catch (IOException e) {
+                response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("--batchresponse_1\r\n");
+            sb.append("Content-Type: multipart/mixed; boundary=changesetresponse_1\r\n\r\n");
+            Collections.reverse(operations);
+
+            for (String[] operation : operations) {
+                if (operation[2].contains("Missing")) {
+                    continue;
+                }
+
+                sb.append("--changesetresponse_1\r\n");
+                sb.append("Content-Type: application/http\r\n");
+                sb.append("Content-Transfer-Encoding: binary\r\n\r\n");
+
+                if (Method.POST.getName().equals(operation[1])) {
+                    sb.append("HTTP/1.1 201 Created\r\n");
+                    sb.append("Content-ID: ").append(operation[0])
+                            .append("\r\n");
+                    sb.append("Location: ").append(operation[2])
+                            .append("('").append(operation[0])
+                            .append("')\r\n");
+                    sb.append("Content-Type: application/atom+xml;type=entry\r\n\r\n");
+                    sb.append("<entry xmlns=\"http://www.w3.org/2005/Atom\"");
+                    sb.append(" xmlns:d=\"http://schemas.microsoft.com/ado/2007/08/dataservices\"");
+                    sb.append(" xmlns:m=\"http://schemas.microsoft.com/ado/2007/08/dataservices/metadata\">");
+                    sb.append("<content type=\"application/xml\"><m:properties>");
+                    sb.append("<d:City>Paris</d:City>");
+                    sb.append("</m:properties></content></entry>\r\n");
+                } else {
+                    sb.append("HTTP/1.1 204 No Content\r\n");
+                    sb.append("Content-ID: ").append(operation[0])
+                            .append("\r\n\r\n");
+                }
+            }
+
+            sb.append("--changesetresponse_1--\r\n");
+            sb.append("--batchresponse_1--\r\n");
+            response.setStatus(Status.SUCCESS_ACCEPTED);
+            response.setEntity(new StringRepresentation(sb, MediaType
+                    .valueOf("multipart/mixed; boundary=batchresponse_1")));
+        }
+    }
+
     private static class MyClapRestlet extends Restlet {
         String file;
 
@@ -96,6 +185,7 @@ public class CafeApplication extends Application {
         getConnectorService().getClientProtocols().add(Protocol.CLAP);
         Router router = new Router(getContext());
 
+        router.attach("/$batch", new BatchRestlet(getContext()));
         router.attach("/$metadata", new MyClapRestlet(getContext(), "metadata",
                 false));
         router.attach("/Cafes", new MyClapRestlet(getContext(), "cafes", false));
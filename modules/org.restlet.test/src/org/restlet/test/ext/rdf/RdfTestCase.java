@@ -33,7 +33,15 @@
 
 package org.restlet.test.ext.rdf;
 
+import java.util.Iterator;
+import java.util.List;
+
+import org.restlet.data.Language;
 import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.ext.rdf.Graph;
+import org.restlet.ext.rdf.Link;
+import org.restlet.ext.rdf.Literal;
 import org.restlet.ext.rdf.RdfRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
@@ -44,6 +52,84 @@ import org.restlet.test.RestletTestCase;
  */
 public class RdfTestCase extends RestletTestCase {
 
+    public void testGraphFind() throws Exception {
+        Graph graph = new Graph();
+        graph.add("http://example.com/a", "http://example.com/knows",
+                new Reference("http://example.com/b"));
+        graph.add("http://example.com/a", "http://example.com/name",
+                new Literal("A"));
+        graph.add("http://example.com/b", "http://example.com/knows",
+                new Reference("http://example.com/a"));
+        graph.add("http://example.com/b", "http://example.com/name",
+                new Literal("B"));
+
+        // Duplicate links are ignored
+        assertFalse(graph.add(new Link(new Reference("http://example.com/b"),
+                new Reference("http://example.com/name"), new Literal("B"))));
+        assertEquals(4, graph.size());
+
+        Reference a = new Reference("http://example.com/a");
+        Reference knows = new Reference("http://example.com/knows");
+        assertEquals(2, graph.find(a, null, null).size());
+        assertEquals(1, graph.find(null, knows, a).size());
+        assertEquals(2, graph.find(null, knows, null).size());
+        assertEquals(1, graph.find(null, null, new Literal("A")).size());
+        assertEquals(4, graph.find(null, null, null).size());
+
+        List<Link> links = graph.find(a, knows, null);
+        assertEquals(1, links.size());
+        assertEquals(new Reference("http://example.com/b"), links.get(0)
+                .getTargetAsReference());
+
+        // Removal through the iterator keeps the indexes consistent
+        for (Iterator<Link> iter = graph.iterator(); iter.hasNext();) {
+            if (a.equals(iter.next().getSourceAsReference())) {
+                iter.remove();
+            }
+        }
+
+        assertEquals(2, graph.size());
+        assertTrue(graph.find(a, null, null).isEmpty());
+        assertTrue(graph.find(null, knows, new Reference(
+                "http://example.com/b")).isEmpty());
+        assertEquals(1, graph.find(null, knows, a).size());
+    }
+
+    public void testLiterals() throws Exception {
+        String text = "<http://example.com/a> <http://example.com/p> \"a \\\"b\\\" \\\\ c\\td\" .\n"
+                + "<http://example.com/a> <http://example.com/p> \"chat\"@fr .\n"
+                + "_:b1 <http://example.com/p> \"1\"^^<http://www.w3.org/2001/XMLSchema#int> .\n";
+        Graph graph = new RdfRepresentation(new StringRepresentation(text,
+                MediaType.TEXT_RDF_NTRIPLES)).getGraph();
+        assertEquals(3, graph.size());
+        assertEquals(1, graph.find(null, null, new Literal("a \"b\" \\ c\td"))
+                .size());
+        assertEquals(1, graph.find(null, null,
+                new Literal("chat", null, Language.FRENCH)).size());
+        assertEquals(1, graph.find(new Reference("_:b1"), null,
+                new Literal("1", new Reference(
+                        "http://www.w3.org/2001/XMLSchema#int"))).size());
+
+        // Write and parse again
+        String written = new RdfRepresentation(graph,
+                MediaType.TEXT_RDF_NTRIPLES).getText();
+        Graph copy = new RdfRepresentation(new StringRepresentation(written,
+                MediaType.TEXT_RDF_NTRIPLES)).getGraph();
+        assertEquals(graph, copy);
+
+        // Absolute URIs and typed literals in Turtle
+        text = "@prefix ex: <http://example.com/> .\n"
+                + "<http://example.com/a> ex:p <http://example.com/b> .\n"
+                + "ex:a ex:p \"chat\"@fr .\n";
+        graph = new RdfRepresentation(new StringRepresentation(text,
+                MediaType.APPLICATION_RDF_TURTLE)).getGraph();
+        assertEquals(2, graph.size());
+        assertEquals(1, graph.find(new Reference("http://example.com/a"),
+                null, new Reference("http://example.com/b")).size());
+        assertEquals(1, graph.find(null, null,
+                new Literal("chat", null, Language.FRENCH)).size());
+    }
+
     public void testN3() throws Exception {
         Representation rep = new StringRepresentation(
                 "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> ."
@@ -38,21 +38,70 @@ import java.io.FileWriter;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.apache.velocity.Template;
+import org.restlet.Application;
 import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.ext.velocity.TemplateRepresentation;
+import org.restlet.ext.velocity.VelocityService;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
-import org.restlet.test.RestletTestCase;
+import org.restlet.service.Service;
+import org.restlet.test.AbstractTemplateTestCase;
 
 /**
  * Test case for the Velocity extension.
  * 
  * @author Jerome Louvel
  */
-public class VelocityTestCase extends RestletTestCase {
+public class VelocityTestCase extends AbstractTemplateTestCase {
+
+    @Override
+    protected Service createService() {
+        return new VelocityService();
+    }
+
+    @Override
+    protected Service getCurrentService() {
+        return VelocityService.getCurrent();
+    }
+
+    @Override
+    protected Object getTemplate(Service service,
+            Representation templateRepresentation) throws Exception {
+        return ((VelocityService) service).getTemplate(templateRepresentation);
+    }
+
+    @Override
+    protected String process(Object template, Map<String, Object> dataModel)
+            throws Exception {
+        return new TemplateRepresentation((Template) template, dataModel,
+                MediaType.TEXT_PLAIN).getText();
+    }
+
+    public void testFallbackScope() throws Exception {
+        Application application = new Application();
+        Application current = Application.getCurrent();
+        Application.setCurrent(application);
+
+        try {
+            // The fallback service is private to the application
+            VelocityService fallback = VelocityService.getCurrent();
+            assertSame(fallback, VelocityService.getCurrent());
+            Application.setCurrent(new Application());
+            assertNotSame(fallback, VelocityService.getCurrent());
+            Application.setCurrent(application);
+
+            // A registered service is shared
+            VelocityService registered = new VelocityService();
+            application.getServices().add(registered);
+            assertSame(registered, VelocityService.getCurrent());
+        } finally {
+            Application.setCurrent(current);
+        }
+    }
 
     public void testRepresentationTemplate() throws Exception {
         // Create a temporary directory for the tests
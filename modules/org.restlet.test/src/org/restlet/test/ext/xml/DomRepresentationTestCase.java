@@ -0,0 +1,193 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.test.ext.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.restlet.data.MediaType;
+import org.restlet.ext.xml.DomRepresentation;
+import org.restlet.representation.InputRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the DomRepresentation class.
+ * 
+ * @author Jerome Louvel
+ */
+public class DomRepresentationTestCase extends RestletTestCase {
+
+    private static final String XSD = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:a\" elementFormDefault=\"qualified\">"
+            + "<xs:element name=\"root\"><xs:complexType><xs:sequence>"
+            + "<xs:element name=\"item\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+            + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+    private static final String XML = "<a:root xmlns:a=\"urn:a\"><a:item>1</a:item><a:item>2</a:item></a:root>";
+
+    private static DomRepresentation createRepresentation() {
+        DomRepresentation result = new DomRepresentation(
+                new StringRepresentation(XML, MediaType.TEXT_XML));
+        result.setNamespaceAware(true);
+        return result;
+    }
+
+    /**
+     * Evaluates an expression on a representation overriding the namespace
+     * context methods.
+     * 
+     * @return The evaluated representation.
+     */
+    private DomRepresentation evaluateCustomNamespaceContext() {
+        DomRepresentation result = new DomRepresentation(
+                new StringRepresentation(XML, MediaType.TEXT_XML)) {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                return "x".equals(prefix) ? "urn:a" : null;
+            }
+        };
+        result.setNamespaceAware(true);
+        assertEquals(2, result.getNodes("/x:root/x:item").size());
+        return result;
+    }
+
+    public void testCustomDocumentBuilder() throws Exception {
+        final DocumentBuilder[] custom = new DocumentBuilder[1];
+        DomRepresentation rep = new DomRepresentation(new StringRepresentation(
+                XML, MediaType.TEXT_XML)) {
+            @Override
+            protected DocumentBuilder getDocumentBuilder() throws IOException {
+                try {
+                    custom[0] = DocumentBuilderFactory.newInstance()
+                            .newDocumentBuilder();
+                } catch (ParserConfigurationException pce) {
+                    throw new IOException(pce.getMessage());
+                }
+
+                return custom[0];
+            }
+        };
+        assertNotNull(rep.getDocument());
+
+        // The custom builder must not be given to other representations
+        final DocumentBuilder[] shared = new DocumentBuilder[1];
+        new DomRepresentation(new StringRepresentation(XML, MediaType.TEXT_XML)) {
+            @Override
+            protected DocumentBuilder getDocumentBuilder() throws IOException {
+                shared[0] = super.getDocumentBuilder();
+                return shared[0];
+            }
+        }.getDocument();
+        assertNotSame(custom[0], shared[0]);
+    }
+
+    public void testCustomNamespaceContext() throws Exception {
+        DomRepresentation rep = createRepresentation();
+        rep.getNamespaces().put("x", "urn:a");
+        assertEquals(2, rep.getNodes("/x:root/x:item").size());
+
+        // The same expression with mappings provided by an override
+        DomRepresentation custom = new DomRepresentation(
+                new StringRepresentation(XML, MediaType.TEXT_XML)) {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                return "x".equals(prefix) ? "urn:b" : null;
+            }
+        };
+        custom.setNamespaceAware(true);
+        assertEquals(0, custom.getNodes("/x:root/x:item").size());
+    }
+
+    public void testValidate() throws Exception {
+        Schema schema = SchemaFactory.newInstance(
+                XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+                new StreamSource(new StringReader(XSD)));
+
+        // The wrapped stream can only be read once
+        DomRepresentation rep = new DomRepresentation(new InputRepresentation(
+                new ByteArrayInputStream(XML.getBytes("UTF-8")),
+                MediaType.TEXT_XML));
+        rep.setNamespaceAware(true);
+        rep.validate(schema);
+
+        // The document must still be available after the validation
+        assertNotNull(rep.getDocument());
+        rep.getNamespaces().put("x", "urn:a");
+        assertEquals("2", rep.getText("/x:root/x:item[2]"));
+    }
+
+    public void testWrite() throws Exception {
+        DomRepresentation rep = createRepresentation();
+        String text = rep.getText();
+        assertTrue(text.contains("<a:item>2</a:item>"));
+
+        // A second serialization reuses a pooled transformer
+        assertEquals(text, rep.getText());
+    }
+
+    public void testReleasedNamespaceContext() throws Exception {
+        // The representation is used as namespace context by the thread's
+        // XPath object, it must not stay reachable after the evaluation
+        WeakReference<DomRepresentation> ref = new WeakReference<DomRepresentation>(
+                evaluateCustomNamespaceContext());
+
+        for (int i = 0; (ref.get() != null) && (i < 10); i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertNull(ref.get());
+    }
+
+    public void testXPathCache() throws Exception {
+        DomRepresentation rep = createRepresentation();
+        rep.getNamespaces().put("x", "urn:a");
+        assertEquals("1", rep.getText("/x:root/x:item[1]"));
+
+        // Changing the mappings must not reuse the compiled expression
+        rep.getNamespaces().put("x", "urn:b");
+        assertEquals(0, rep.getNodes("/x:root/x:item").size());
+    }
+}
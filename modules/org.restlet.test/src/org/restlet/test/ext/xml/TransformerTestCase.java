@@ -34,14 +34,20 @@
 package org.restlet.test.ext.xml;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.transform.Templates;
 
 import org.restlet.Component;
 import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.ext.xml.DomRepresentation;
 import org.restlet.ext.xml.TransformRepresentation;
 import org.restlet.ext.xml.Transformer;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
+import org.w3c.dom.Document;
 
 /**
  * Test case for the Transformer class.
@@ -149,4 +155,56 @@ public class TransformerTestCase extends RestletTestCase {
 
         assertEquals(this.output, result);
     }
+
+    /**
+     * Creates a DOM representation of the source, recording when its DOM
+     * document is built.
+     * 
+     * @param parsed
+     *            Set to true when the DOM document is built.
+     * @return The DOM representation.
+     */
+    private DomRepresentation createDom(final boolean[] parsed) {
+        return new DomRepresentation(this.source) {
+            @Override
+            public Document getDocument() throws IOException {
+                parsed[0] = true;
+                return super.getDocument();
+            }
+        };
+    }
+
+    public void testStreaming() throws Exception {
+        final Transformer transformer = new Transformer(
+                Transformer.MODE_REQUEST, this.xslt);
+        final boolean[] parsed = new boolean[1];
+
+        // The DOM document is built by default
+        assertFalse(transformer.isStreaming());
+        assertEquals(this.output, transformer.transform(createDom(parsed))
+                .getText());
+        assertTrue(parsed[0]);
+
+        // The source is streamed once enabled
+        parsed[0] = false;
+        transformer.setStreaming(true);
+        assertEquals(this.output, transformer.transform(createDom(parsed))
+                .getText());
+        assertFalse(parsed[0]);
+    }
+
+    public void testTemplatesReuse() throws Exception {
+        final Transformer transformer = new Transformer(
+                Transformer.MODE_REQUEST, this.xslt);
+        this.xslt.setTag(new Tag("v1"));
+        Templates templates = transformer.getTemplates();
+
+        assertEquals(this.output, transformer.transform(this.source)
+                .getText());
+        assertSame(templates, transformer.getTemplates());
+
+        // Changing the tag of the sheet invalidates the compiled templates
+        this.xslt.setTag(new Tag("v2"));
+        assertNotSame(templates, transformer.getTemplates());
+    }
 }
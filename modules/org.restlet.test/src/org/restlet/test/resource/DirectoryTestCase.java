@@ -34,6 +34,7 @@
 package org.restlet.test.resource;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Date;
 
@@ -225,6 +226,14 @@ public class DirectoryTestCase extends RestletTestCase {
 
         // Test the access to the sub directories.
         testDirectoryDeeplyAccessible(application, application.getDirectory());
+        BioUtils.delete(this.testDir, true);
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "DirectoryTestCase/tests7" + new Date().getTime());
+        this.testDir.mkdirs();
+        application.setTestDirectory(testDir);
+
+        // Test the compressed files when precompressed siblings are served
+        testPrecompressed(application, application.getDirectory());
 
         // Now, let's stop the component!
         clientComponent.stop();
@@ -266,6 +275,50 @@ public class DirectoryTestCase extends RestletTestCase {
         assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
     }
 
+    /**
+     * Helper
+     * 
+     * @param application
+     * @param directory
+     * @throws IOException
+     */
+    private void testPrecompressed(MyApplication application,
+            Directory directory) throws IOException {
+        final String archiveUrl = this.webSiteURL.concat("archive.tar.gz");
+        application.getEncoderService().setServingPrecompressed(true);
+        directory.setModifiable(true);
+
+        // A compressed file without original file isn't a sibling
+        final File archiveFile = new File(this.testDir, "archive.tar.gz");
+        FileOutputStream fos = new FileOutputStream(archiveFile);
+        fos.write("archive".getBytes());
+        fos.close();
+
+        Response response = handle(application, this.webSiteURL,
+                this.webSiteURL.concat("archive"), Method.GET, null,
+                "precompressed 1");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+
+        response = handle(application, this.webSiteURL, archiveUrl,
+                Method.DELETE, null, "precompressed 2");
+        assertEquals(Status.SUCCESS_NO_CONTENT, response.getStatus());
+        assertFalse(archiveFile.exists());
+
+        // A compressed file with its original file is a sibling
+        fos = new FileOutputStream(new File(this.testDir, "site.css"));
+        fos.write("site".getBytes());
+        fos.close();
+        fos = new FileOutputStream(new File(this.testDir, "site.css.gz"));
+        fos.write("sibling".getBytes());
+        fos.close();
+
+        response = handle(application, this.webSiteURL, this.webSiteURL
+                .concat("site"), Method.GET, null, "precompressed 3");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("site", response.getEntity().getText());
+        application.getEncoderService().setServingPrecompressed(false);
+    }
+
     /**
      * Helper
      * 
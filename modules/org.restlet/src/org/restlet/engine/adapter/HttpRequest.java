@@ -40,6 +40,7 @@ import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.CacheDirective;
 import org.restlet.data.ChallengeResponse;
 import org.restlet.data.ClientInfo;
@@ -202,6 +203,11 @@ public class HttpRequest extends Request {
         return getHttpCall().abort();
     }
 
+    @Override
+    public void commit(Response response) {
+        getHttpCall().commit(response);
+    }
+
     @Override
     public List<CacheDirective> getCacheDirectives() {
         List<CacheDirective> result = super.getCacheDirectives();
@@ -140,7 +140,8 @@ public class HttpServerHelper extends ServerHelper {
 
     /**
      * Handles the connector call. The default behavior is to create an REST
-     * call and delegate it to the attached Restlet.
+     * call and delegate it to the attached Restlet. A response that isn't
+     * automatically committed is left pending if the call can be suspended.
      * 
      * @param httpCall
      *            The HTTP server call.
@@ -150,7 +151,11 @@ public class HttpServerHelper extends ServerHelper {
             HttpRequest request = getAdapter().toRequest(httpCall);
             HttpResponse response = new HttpResponse(httpCall, request);
             handle(request, response);
-            getAdapter().commit(response);
+
+            if (response.isAutoCommitting()
+                    || !httpCall.suspend(getAdapter(), response)) {
+                getAdapter().commit(response);
+            }
         } catch (Exception e) {
             getLogger().log(Level.WARNING,
                     "Error while handling an HTTP server call: ",
@@ -105,6 +105,17 @@ public abstract class ServerCall extends Call {
      */
     public abstract boolean abort();
 
+    /**
+     * Commits a response that was left pending by a successful call to
+     * {@link #suspend(ServerAdapter, Response)}. Does nothing by default.
+     * 
+     * @param response
+     *            The response to commit.
+     */
+    public void commit(Response response) {
+
+    }
+
     /**
      * Complete the response
      */
@@ -491,6 +502,23 @@ public abstract class ServerCall extends Call {
                 && !response.getEntity().hasKnownSize();
     }
 
+    /**
+     * Suspends the call so that a response which isn't automatically
+     * committed can be committed later on, by another thread, once the
+     * handling thread has returned. Returns false by default as most
+     * connectors complete their calls when the handling thread returns.
+     * 
+     * @param adapter
+     *            The adapter that will commit the response.
+     * @param response
+     *            The pending response.
+     * @return True if the call was suspended.
+     * @see Response#isAutoCommitting()
+     */
+    public boolean suspend(ServerAdapter adapter, Response response) {
+        return false;
+    }
+
     /**
      * Effectively writes the response body. The entity to write is guaranteed
      * to be non null. Attempts to write the entity on the response channel or
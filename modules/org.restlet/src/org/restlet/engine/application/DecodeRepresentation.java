@@ -43,8 +43,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipInputStream;
 
 import org.restlet.data.Encoding;
@@ -57,11 +55,22 @@ import org.restlet.util.WrapperRepresentation;
 /**
  * Representation that decodes a wrapped representation if its encoding is
  * supported. If at least one encoding of the wrapped representation is not
- * supported, then the wrapped representation is not decoded.
+ * supported, then the wrapped representation is not decoded. The GZIP and
+ * Deflate encodings reuse pooled inflaters, checked back in when the decoded
+ * stream is closed.
  * 
  * @author Jerome Louvel
  */
 public class DecodeRepresentation extends WrapperRepresentation {
+
+    /** The pool of inflaters expecting the raw deflate format, for GZIP. */
+    private static final InflaterPool RAW_INFLATERS = new InflaterPool(true,
+            2 * Runtime.getRuntime().availableProcessors());
+
+    /** The pool of inflaters expecting the zlib format, for Deflate. */
+    private static final InflaterPool ZLIB_INFLATERS = new InflaterPool(
+            false, 2 * Runtime.getRuntime().availableProcessors());
+
     /**
      * Returns the list of supported encodings.
      * 
@@ -123,9 +132,11 @@ public class DecodeRepresentation extends WrapperRepresentation {
 
         if (encodedStream != null) {
             if (encoding.equals(Encoding.GZIP)) {
-                result = new GZIPInputStream(encodedStream);
+                result = new GzipInflaterInputStream(encodedStream,
+                        RAW_INFLATERS);
             } else if (encoding.equals(Encoding.DEFLATE)) {
-                result = new InflaterInputStream(encodedStream);
+                result = new PooledInflaterInputStream(encodedStream,
+                        ZLIB_INFLATERS);
             } else if (encoding.equals(Encoding.ZIP)) {
                 @SuppressWarnings("resource")
                 final ZipInputStream stream = new ZipInputStream(encodedStream);
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import org.restlet.engine.util.Pool;
+
+// [excludes gwt]
+/**
+ * Pool of reusable deflaters. Creating a deflater allocates native zlib state
+ * that is only freed once it is ended or garbage collected, so deflaters are
+ * reset and reused across compressed entities instead.
+ * 
+ * @author Jerome Louvel
+ */
+public class DeflaterPool extends Pool<Deflater> {
+
+    /** The current number of idle deflaters in the store. */
+    private final AtomicInteger idleDeflaters;
+
+    /** The maximum number of idle deflaters kept in the store. */
+    private final int maxIdleDeflaters;
+
+    /**
+     * Indicates if the raw deflate format is produced, without the zlib header
+     * and checksum, as used by the GZIP and ZIP formats.
+     */
+    private final boolean nowrap;
+
+    /**
+     * Constructor.
+     * 
+     * @param nowrap
+     *            Indicates if the raw deflate format is produced.
+     * @param maxIdleDeflaters
+     *            The maximum number of idle deflaters kept in the store.
+     */
+    public DeflaterPool(boolean nowrap, int maxIdleDeflaters) {
+        super();
+        this.idleDeflaters = new AtomicInteger();
+        this.maxIdleDeflaters = maxIdleDeflaters;
+        this.nowrap = nowrap;
+    }
+
+    /**
+     * Checks in a deflater into the pool. The deflater is ended if the maximum
+     * number of idle deflaters is reached.
+     * 
+     * @param deflater
+     *            The deflater to check in.
+     */
+    @Override
+    public void checkin(Deflater deflater) {
+        if (deflater != null) {
+            if (this.idleDeflaters.incrementAndGet() <= this.maxIdleDeflaters) {
+                super.checkin(deflater);
+            } else {
+                this.idleDeflaters.decrementAndGet();
+                deflater.end();
+            }
+        }
+    }
+
+    @Override
+    public Deflater checkout() {
+        Deflater result = getStore().poll();
+
+        if (result == null) {
+            result = createObject();
+        } else {
+            this.idleDeflaters.decrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks out a deflater configured with the given compression level and
+     * strategy.
+     * 
+     * @param level
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param strategy
+     *            The compression strategy, such as
+     *            {@link Deflater#DEFAULT_STRATEGY}.
+     * @return A deflater from the pool.
+     */
+    public Deflater checkout(int level, int strategy) {
+        Deflater result = checkout();
+        result.setLevel(level);
+        result.setStrategy(strategy);
+        return result;
+    }
+
+    /**
+     * Clears the store of reusable deflaters and ends them.
+     */
+    @Override
+    public void clear() {
+        Deflater deflater = getStore().poll();
+
+        while (deflater != null) {
+            this.idleDeflaters.decrementAndGet();
+            deflater.end();
+            deflater = getStore().poll();
+        }
+    }
+
+    @Override
+    protected void clear(Deflater deflater) {
+        deflater.reset();
+    }
+
+    @Override
+    protected Deflater createObject() {
+        return new Deflater(Deflater.DEFAULT_COMPRESSION, isNowrap());
+    }
+
+    /**
+     * Indicates if the raw deflate format is produced, without the zlib header
+     * and checksum, as used by the GZIP and ZIP formats.
+     * 
+     * @return True if the raw deflate format is produced.
+     */
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+}
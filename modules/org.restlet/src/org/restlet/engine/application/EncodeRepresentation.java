@@ -37,32 +37,48 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.restlet.data.Disposition;
 import org.restlet.data.Encoding;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.io.SelectionChannel;
+import org.restlet.representation.ReadableRepresentation;
 import org.restlet.representation.Representation;
+import org.restlet.service.EncoderService;
 import org.restlet.util.WrapperList;
 import org.restlet.util.WrapperRepresentation;
 
 // [excludes gwt]
 /**
  * Content that encodes a wrapped content. Allows to apply only one encoding.
+ * The GZIP and Deflate encodings reuse pooled deflaters.
  * 
  * @author Jerome Louvel
  */
 public class EncodeRepresentation extends WrapperRepresentation {
+
+    /** The pool of deflaters producing the raw deflate format, for GZIP. */
+    private static final DeflaterPool RAW_DEFLATERS = new DeflaterPool(true,
+            2 * Runtime.getRuntime().availableProcessors());
+
+    /** The pool of deflaters producing the zlib format, for Deflate. */
+    private static final DeflaterPool ZLIB_DEFLATERS = new DeflaterPool(
+            false, 2 * Runtime.getRuntime().availableProcessors());
+
     /**
      * Returns the list of supported encodings.
      * 
@@ -79,6 +95,9 @@ public class EncodeRepresentation extends WrapperRepresentation {
     /** The encoding to apply. */
     private volatile Encoding encoding;
 
+    /** The parent encoder service or null. */
+    private final EncoderService encoderService;
+
     /** The applied encodings. */
     private volatile List<Encoding> encodings;
 
@@ -92,10 +111,27 @@ public class EncodeRepresentation extends WrapperRepresentation {
      */
     public EncodeRepresentation(Encoding encoding,
             Representation wrappedRepresentation) {
+        this(encoding, wrappedRepresentation, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            Encoder algorithm.
+     * @param wrappedRepresentation
+     *            The wrapped representation.
+     * @param encoderService
+     *            The parent encoder service providing the compression settings
+     *            and collecting the compression ratios, or null.
+     */
+    public EncodeRepresentation(Encoding encoding,
+            Representation wrappedRepresentation, EncoderService encoderService) {
         super(wrappedRepresentation);
         this.canEncode = getSupportedEncodings().contains(encoding);
         this.encodings = null;
         this.encoding = encoding;
+        this.encoderService = encoderService;
     }
 
     /**
@@ -130,18 +166,76 @@ public class EncodeRepresentation extends WrapperRepresentation {
     }
 
     /**
-     * Returns a readable byte channel. If it is supported by a file a read-only
-     * instance of FileChannel is returned.
+     * Returns a readable byte channel. The GZIP and Deflate encodings compress
+     * the channel of the wrapped representation on demand, as the returned
+     * channel is read, unless it is a non blocking channel. Otherwise, a pipe
+     * fed by a writer thread is used.
      * 
      * @return A readable byte channel.
      */
     @Override
     public ReadableByteChannel getChannel() throws IOException {
+        ReadableByteChannel result = null;
+
         if (canEncode()) {
-            return NioUtils.getChannel(this);
+            if (this.encoding.equals(Encoding.IDENTITY)) {
+                result = getWrappedRepresentation().getChannel();
+            } else if (this.encoding.equals(Encoding.GZIP)
+                    || this.encoding.equals(Encoding.DEFLATE)) {
+                ReadableByteChannel source = getWrappedRepresentation()
+                        .getChannel();
+
+                if (((source instanceof SelectionChannel) && !((SelectionChannel) source)
+                        .isBlocking())
+                        || ((source instanceof SelectableChannel) && !((SelectableChannel) source)
+                                .isBlocking())) {
+                    // Reading could return no compressed bytes, so let a
+                    // writer thread block instead
+                    result = NioUtils.getChannel(new EncodeRepresentation(
+                            this.encoding, new ReadableRepresentation(source,
+                                    getMediaType()), this.encoderService));
+                } else {
+                    boolean gzip = this.encoding.equals(Encoding.GZIP);
+                    final DeflaterPool deflaterPool = gzip ? RAW_DEFLATERS
+                            : ZLIB_DEFLATERS;
+                    result = new ReadableDeflaterChannel(source, deflaterPool,
+                            deflaterPool.checkout(getCompressionLevel(),
+                                    getCompressionStrategy()), gzip) {
+                        @Override
+                        protected void onFinished(Deflater deflater) {
+                            updateCompressionRatio(deflater);
+                        }
+                    };
+                }
+            } else {
+                result = NioUtils.getChannel(this);
+            }
         } else {
-            return getWrappedRepresentation().getChannel();
+            result = getWrappedRepresentation().getChannel();
         }
+
+        return result;
+    }
+
+    /**
+     * Returns the compression level, from the parent encoder service if any.
+     * 
+     * @return The compression level.
+     */
+    private int getCompressionLevel() {
+        return (this.encoderService == null) ? Deflater.DEFAULT_COMPRESSION
+                : this.encoderService.getCompressionLevel(getMediaType());
+    }
+
+    /**
+     * Returns the compression strategy, from the parent encoder service if
+     * any.
+     * 
+     * @return The compression strategy.
+     */
+    private int getCompressionStrategy() {
+        return (this.encoderService == null) ? Deflater.DEFAULT_STRATEGY
+                : this.encoderService.getCompressionStrategy(getMediaType());
     }
 
     /**
@@ -250,6 +344,12 @@ public class EncodeRepresentation extends WrapperRepresentation {
     @Override
     public InputStream getStream() throws IOException {
         if (canEncode()) {
+            if (this.encoding.equals(Encoding.GZIP)
+                    || this.encoding.equals(Encoding.DEFLATE)) {
+                // Compress on demand, without pipe
+                return Channels.newInputStream(getChannel());
+            }
+
             return BioUtils.getInputStream(this);
         } else {
             return getWrappedRepresentation().getStream();
@@ -265,15 +365,39 @@ public class EncodeRepresentation extends WrapperRepresentation {
         }
     }
 
+    /**
+     * Reports the compression ratio achieved by a deflater to the parent
+     * encoder service, if any.
+     * 
+     * @param deflater
+     *            The deflater which has finished.
+     */
+    private void updateCompressionRatio(Deflater deflater) {
+        if (this.encoderService != null) {
+            this.encoderService.updateCompressionRatio(getMediaType(),
+                    deflater.getBytesRead(), deflater.getBytesWritten());
+        }
+    }
+
     @Override
     public void write(OutputStream outputStream) throws IOException {
         if (canEncode()) {
             DeflaterOutputStream encoderOutputStream = null;
+            DeflaterPool deflaterPool = null;
+            Deflater deflater = null;
 
             if (this.encoding.equals(Encoding.GZIP)) {
-                encoderOutputStream = new GZIPOutputStream(outputStream);
+                deflaterPool = RAW_DEFLATERS;
+                deflater = deflaterPool.checkout(getCompressionLevel(),
+                        getCompressionStrategy());
+                encoderOutputStream = new GzipDeflaterOutputStream(
+                        outputStream, deflater);
             } else if (this.encoding.equals(Encoding.DEFLATE)) {
-                encoderOutputStream = new DeflaterOutputStream(outputStream);
+                deflaterPool = ZLIB_DEFLATERS;
+                deflater = deflaterPool.checkout(getCompressionLevel(),
+                        getCompressionStrategy());
+                encoderOutputStream = new DeflaterOutputStream(outputStream,
+                        deflater, IoUtils.BUFFER_SIZE);
             } else if (this.encoding.equals(Encoding.ZIP)) {
                 @SuppressWarnings("resource")
                 final ZipOutputStream stream = new ZipOutputStream(outputStream);
@@ -287,18 +411,29 @@ public class EncodeRepresentation extends WrapperRepresentation {
                                     name);
                 }
                 
+                stream.setLevel(getCompressionLevel());
                 stream.putNextEntry(new ZipEntry(name));
                 encoderOutputStream = stream;
             } else if (this.encoding.equals(Encoding.IDENTITY)) {
                 // Encoder unnecessary for identity encoding
             }
 
-            if (encoderOutputStream != null) {
-                getWrappedRepresentation().write(encoderOutputStream);
-                encoderOutputStream.flush();
-                encoderOutputStream.finish();
-            } else {
-                getWrappedRepresentation().write(outputStream);
+            try {
+                if (encoderOutputStream != null) {
+                    getWrappedRepresentation().write(encoderOutputStream);
+                    encoderOutputStream.flush();
+                    encoderOutputStream.finish();
+
+                    if (deflater != null) {
+                        updateCompressionRatio(deflater);
+                    }
+                } else {
+                    getWrappedRepresentation().write(outputStream);
+                }
+            } finally {
+                if (deflater != null) {
+                    deflaterPool.checkin(deflater);
+                }
             }
         } else {
             getWrappedRepresentation().write(outputStream);
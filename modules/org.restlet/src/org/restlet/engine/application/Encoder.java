@@ -33,8 +33,17 @@
 
 package org.restlet.engine.application;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
 
 import org.restlet.Context;
 import org.restlet.Request;
@@ -42,6 +51,7 @@ import org.restlet.Response;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
 import org.restlet.data.Preference;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.EncoderService;
@@ -53,8 +63,12 @@ import org.restlet.service.EncoderService;
  * GZip, Zip and Deflate.<br>
  * If the {@link org.restlet.representation.Representation} has an unknown size,
  * it will always be a candidate for encoding. Candidate representations need to
- * respect media type criteria by the lists of accepted and ignored media types.
- * 
+ * respect media type criteria by the lists of accepted and ignored media types.<br>
+ * <br>
+ * File representations can be replaced by precompressed sibling files or by
+ * compressed variants cached on disk, depending on the settings of the parent
+ * {@link EncoderService}.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -135,8 +149,39 @@ public class Encoder extends Filter {
         return CONTINUE;
     }
 
+    /**
+     * Creates a representation of a compressed file, with the metadata of the
+     * original file representation.
+     * 
+     * @param representation
+     *            The original file representation.
+     * @param file
+     *            The compressed file.
+     * @param encoding
+     *            The encoding of the compressed file.
+     * @return The compressed file representation.
+     */
+    protected Representation createEncodedRepresentation(
+            FileRepresentation representation, File file, Encoding encoding) {
+        FileRepresentation result = new FileRepresentation(file,
+                representation.getMediaType());
+        result.setCharacterSet(representation.getCharacterSet());
+        result.setDisposition(representation.getDisposition());
+        result.getEncodings().add(encoding);
+        result.setExpirationDate(representation.getExpirationDate());
+        result.getLanguages().addAll(representation.getLanguages());
+        result.setLocationRef(representation.getLocationRef());
+        result.setModificationDate(representation.getModificationDate());
+        result.setTag(representation.getTag());
+        return result;
+    }
+
     /**
      * Encodes a given representation if an encoding is supported by the client.
+     * File representations are first replaced by precompressed or cached
+     * files, if available. Otherwise, the representation is compressed on the
+     * fly unless its media type doesn't compress well, as reported by
+     * {@link EncoderService#isBeneficial(org.restlet.data.MediaType)}.
      * 
      * @param client
      *            The client preferences to use.
@@ -147,11 +192,40 @@ public class Encoder extends Filter {
      */
     public Representation encode(ClientInfo client,
             Representation representation) {
-        Representation result = representation;
-        Encoding bestEncoding = getBestEncoding(client);
+        Representation result = null;
+
+        if (getEncoderService().isServingPrecompressed()
+                && (representation instanceof FileRepresentation)) {
+            result = getPrecompressedRepresentation(client,
+                    (FileRepresentation) representation);
+        }
+
+        if (result == null) {
+            Encoding bestEncoding = getBestEncoding(client);
 
-        if (bestEncoding != null) {
-            result = new EncodeRepresentation(bestEncoding, representation);
+            if (bestEncoding == null) {
+                result = representation;
+            } else {
+                if ((getEncoderService().getCacheDirectory() != null)
+                        && (representation instanceof FileRepresentation)
+                        && !Encoding.IDENTITY.equals(bestEncoding)) {
+                    result = getCachedRepresentation(bestEncoding,
+                            (FileRepresentation) representation);
+                }
+
+                if ((result == null)
+                        && !Encoding.IDENTITY.equals(bestEncoding)
+                        && !getEncoderService().isBeneficial(
+                                representation.getMediaType())) {
+                    // Not worth compressing again on the fly
+                    result = representation;
+                }
+
+                if (result == null) {
+                    result = new EncodeRepresentation(bestEncoding,
+                            representation, getEncoderService());
+                }
+            }
         }
 
         return result;
@@ -165,13 +239,27 @@ public class Encoder extends Filter {
      * @return The best supported encoding for the given call.
      */
     public Encoding getBestEncoding(ClientInfo client) {
+        return getBestEncoding(client, getSupportedEncodings());
+    }
+
+    /**
+     * Returns the best encoding for a given client among a list of candidate
+     * encodings.
+     * 
+     * @param client
+     *            The client preferences to use.
+     * @param encodings
+     *            The candidate encodings.
+     * @return The best encoding for the given call.
+     */
+    public Encoding getBestEncoding(ClientInfo client,
+            Collection<Encoding> encodings) {
         Encoding bestEncoding = null;
         Encoding currentEncoding = null;
         Preference<Encoding> currentPref = null;
         float bestScore = 0F;
 
-        for (Iterator<Encoding> iter = getSupportedEncodings().iterator(); iter
-                .hasNext();) {
+        for (Iterator<Encoding> iter = encodings.iterator(); iter.hasNext();) {
             currentEncoding = iter.next();
 
             for (Iterator<Preference<Encoding>> iter2 = client
@@ -192,6 +280,100 @@ public class Encoder extends Filter {
         return bestEncoding;
     }
 
+    /**
+     * Returns a representation of the compressed variant of a file, cached in
+     * the directory of the parent encoder service. The name of the variant
+     * contains the modification date, in milliseconds, and the size of the
+     * original file, so that a new variant is generated as soon as one of
+     * them changes. The variants of the previous versions are then deleted.
+     * 
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The original file representation.
+     * @return The cached file representation or null if caching failed.
+     */
+    protected Representation getCachedRepresentation(Encoding encoding,
+            FileRepresentation representation) {
+        Representation result = null;
+        File file = representation.getFile();
+        String extension = getEncoderService().getPrecompressedExtensions()
+                .get(encoding);
+
+        if (extension == null) {
+            extension = encoding.getName();
+        }
+
+        // Mirror the absolute path of the file inside the cache directory
+        final String prefix = file.getName() + ".";
+        final String suffix = "." + extension;
+        File parentDirectory = new File(getEncoderService()
+                .getCacheDirectory(), file.getAbsoluteFile().getParent()
+                .replace(':', '_'));
+        File cachedFile = new File(parentDirectory, prefix
+                + file.lastModified() + "-" + file.length() + suffix);
+
+        try {
+            if (!cachedFile.isFile()) {
+                if (!parentDirectory.isDirectory()
+                        && !parentDirectory.mkdirs()) {
+                    throw new IOException("Unable to create the directory "
+                            + parentDirectory);
+                }
+
+                // Concurrent generations write to distinct temporary files
+                File tempFile = File.createTempFile(cachedFile.getName(),
+                        ".tmp", parentDirectory);
+                FileOutputStream fos = new FileOutputStream(tempFile);
+
+                try {
+                    new EncodeRepresentation(encoding, representation,
+                            getEncoderService()).write(fos);
+                } finally {
+                    fos.close();
+                }
+
+                if (!tempFile.renameTo(cachedFile)) {
+                    // Some platforms can't rename over an existing file
+                    cachedFile.delete();
+
+                    if (!tempFile.renameTo(cachedFile)) {
+                        tempFile.delete();
+                        throw new IOException("Unable to rename " + tempFile
+                                + " to " + cachedFile);
+                    }
+                }
+
+                // Delete the variants of the previous versions
+                final String cachedName = cachedFile.getName();
+                final Pattern variantPattern = Pattern.compile(Pattern
+                        .quote(prefix) + "\\d+-\\d+" + Pattern.quote(suffix));
+                File[] staleFiles = parentDirectory
+                        .listFiles(new FilenameFilter() {
+                            public boolean accept(File dir, String name) {
+                                return !name.equals(cachedName)
+                                        && variantPattern.matcher(name)
+                                                .matches();
+                            }
+                        });
+
+                if (staleFiles != null) {
+                    for (File staleFile : staleFiles) {
+                        staleFile.delete();
+                    }
+                }
+            }
+
+            result = createEncodedRepresentation(representation, cachedFile,
+                    encoding);
+        } catch (IOException ioe) {
+            getLogger().log(Level.WARNING,
+                    "Unable to cache the compressed variant of " + file, ioe);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the parent encoder service.
      * 
@@ -201,6 +383,55 @@ public class Encoder extends Filter {
         return encoderService;
     }
 
+    /**
+     * Returns a representation of the best precompressed sibling file
+     * accepted by the client. A sibling file is named after the original file
+     * plus the extension of its encoding. It is ignored if it is older than
+     * the original file. The identity encoding is also a candidate, so that
+     * the regular negotiation takes over when the client prefers it.
+     * 
+     * @param client
+     *            The client preferences to use.
+     * @param representation
+     *            The original file representation.
+     * @return The precompressed file representation or null if none is
+     *         available or preferred.
+     * @see EncoderService#getPrecompressedExtensions()
+     */
+    protected Representation getPrecompressedRepresentation(ClientInfo client,
+            FileRepresentation representation) {
+        Representation result = null;
+        File file = representation.getFile();
+        List<Encoding> encodings = new ArrayList<Encoding>();
+        File siblingFile;
+
+        for (Map.Entry<Encoding, String> entry : getEncoderService()
+                .getPrecompressedExtensions().entrySet()) {
+            siblingFile = new File(file.getPath() + "." + entry.getValue());
+
+            if (siblingFile.isFile()
+                    && (siblingFile.lastModified() >= file.lastModified())) {
+                encodings.add(entry.getKey());
+            }
+        }
+
+        if (!encodings.isEmpty()) {
+            // Ranked last so that siblings win in case of equal preference
+            encodings.add(Encoding.IDENTITY);
+            Encoding bestEncoding = getBestEncoding(client, encodings);
+
+            if ((bestEncoding != null)
+                    && !Encoding.IDENTITY.equals(bestEncoding)) {
+                String extension = getEncoderService()
+                        .getPrecompressedExtensions().get(bestEncoding);
+                result = createEncodedRepresentation(representation, new File(
+                        file.getPath() + "." + extension), bestEncoding);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the list of supported encodings. By default it calls
      * {@link EncodeRepresentation#getSupportedEncodings()} static method.
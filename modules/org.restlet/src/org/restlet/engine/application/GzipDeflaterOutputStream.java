@@ -0,0 +1,106 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.restlet.engine.io.IoUtils;
+
+// [excludes gwt]
+/**
+ * Output stream compressing in the GZIP format with a given deflater, which is
+ * not ended when the stream is closed. This allows the reuse of pooled
+ * deflaters, contrary to {@link java.util.zip.GZIPOutputStream}. The deflater
+ * must produce the raw deflate format.
+ * 
+ * @author Jerome Louvel
+ */
+public class GzipDeflaterOutputStream extends DeflaterOutputStream {
+
+    /** The GZIP header, without modification time nor optional fields. */
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b,
+            Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    /** The checksum of the uncompressed data. */
+    private final CRC32 crc;
+
+    /**
+     * Constructor. Writes the GZIP header.
+     * 
+     * @param outputStream
+     *            The output stream to write the compressed data to.
+     * @param deflater
+     *            The deflater producing the raw deflate format.
+     * @throws IOException
+     */
+    public GzipDeflaterOutputStream(OutputStream outputStream,
+            Deflater deflater) throws IOException {
+        super(outputStream, deflater, IoUtils.BUFFER_SIZE);
+        this.crc = new CRC32();
+        this.out.write(HEADER);
+    }
+
+    /**
+     * Finishes writing the compressed data, followed by the GZIP trailer,
+     * without closing the underlying stream.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (!this.def.finished()) {
+            super.finish();
+            long checksum = this.crc.getValue();
+            long size = this.def.getBytesRead();
+            byte[] trailer = new byte[8];
+
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (checksum >> (8 * i));
+                trailer[i + 4] = (byte) (size >> (8 * i));
+            }
+
+            this.out.write(trailer);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length)
+            throws IOException {
+        super.write(buffer, offset, length);
+        this.crc.update(buffer, offset, length);
+    }
+
+}
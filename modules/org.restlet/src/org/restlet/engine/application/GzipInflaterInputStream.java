@@ -0,0 +1,292 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+// [excludes gwt]
+/**
+ * Input stream decompressing the GZIP format with an inflater leased from a
+ * pool, contrary to {@link java.util.zip.GZIPInputStream} which allocates a new
+ * one. Concatenated GZIP members are decompressed as a single stream. The pool
+ * must provide inflaters expecting the raw deflate format.
+ * 
+ * @author Jerome Louvel
+ */
+public class GzipInflaterInputStream extends PooledInflaterInputStream {
+
+    /** Header flag indicating a comment. */
+    private static final int FCOMMENT = 16;
+
+    /** Header flag indicating extra fields. */
+    private static final int FEXTRA = 4;
+
+    /** Header flag indicating a header checksum. */
+    private static final int FHCRC = 2;
+
+    /** Header flag indicating a file name. */
+    private static final int FNAME = 8;
+
+    /**
+     * Reads an unsigned byte.
+     * 
+     * @param inputStream
+     *            The input stream to read from.
+     * @return The unsigned byte.
+     * @throws IOException
+     */
+    private static int readUByte(InputStream inputStream) throws IOException {
+        int result = inputStream.read();
+
+        if (result == -1) {
+            throw new EOFException("Unexpected end of GZIP stream");
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads an unsigned integer in the little-endian order.
+     * 
+     * @param inputStream
+     *            The input stream to read from.
+     * @return The unsigned integer.
+     * @throws IOException
+     */
+    private static long readUInt(InputStream inputStream) throws IOException {
+        long low = readUShort(inputStream);
+        return (((long) readUShort(inputStream)) << 16) | low;
+    }
+
+    /**
+     * Reads an unsigned short in the little-endian order.
+     * 
+     * @param inputStream
+     *            The input stream to read from.
+     * @return The unsigned short.
+     * @throws IOException
+     */
+    private static int readUShort(InputStream inputStream) throws IOException {
+        int low = readUByte(inputStream);
+        return (readUByte(inputStream) << 8) | low;
+    }
+
+    /**
+     * Skips a number of bytes.
+     * 
+     * @param inputStream
+     *            The input stream to read from.
+     * @param count
+     *            The number of bytes to skip.
+     * @throws IOException
+     */
+    private static void skipBytes(InputStream inputStream, int count)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUByte(inputStream);
+        }
+    }
+
+    /** The checksum of the uncompressed data. */
+    private final CRC32 crc;
+
+    /** Indicates if the end of the last GZIP member has been reached. */
+    private volatile boolean endReached;
+
+    /**
+     * Constructor. Reads the GZIP header.
+     * 
+     * @param inputStream
+     *            The input stream to read the compressed data from.
+     * @param inflaterPool
+     *            The pool of inflaters expecting the raw deflate format.
+     * @throws IOException
+     */
+    public GzipInflaterInputStream(InputStream inputStream,
+            InflaterPool inflaterPool) throws IOException {
+        super(inputStream, inflaterPool);
+        this.crc = new CRC32();
+        this.endReached = false;
+
+        try {
+            readHeader(this.in);
+        } catch (IOException ioe) {
+            release();
+            throw ioe;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return this.endReached ? 0 : super.available();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int result = -1;
+
+        if (!this.endReached) {
+            result = super.read(buffer, offset, length);
+
+            if (result == -1) {
+                if (readTrailer()) {
+                    this.endReached = true;
+                } else {
+                    result = read(buffer, offset, length);
+                }
+            } else {
+                this.crc.update(buffer, offset, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads a GZIP member header.
+     * 
+     * @param inputStream
+     *            The input stream to read from.
+     * @return The number of bytes read.
+     * @throws IOException
+     */
+    private int readHeader(InputStream inputStream) throws IOException {
+        CheckedInputStream cis = new CheckedInputStream(inputStream, this.crc);
+        this.crc.reset();
+
+        if (readUShort(cis) != 0x8b1f) {
+            throw new ZipException("Not in GZIP format");
+        }
+
+        if (readUByte(cis) != Deflater.DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+
+        int flags = readUByte(cis);
+
+        // Skip the modification time, extra flags and operating system
+        skipBytes(cis, 6);
+        int result = 10;
+
+        if ((flags & FEXTRA) == FEXTRA) {
+            int extraLength = readUShort(cis);
+            skipBytes(cis, extraLength);
+            result += extraLength + 2;
+        }
+
+        if ((flags & FNAME) == FNAME) {
+            do {
+                result++;
+            } while (readUByte(cis) != 0);
+        }
+
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            do {
+                result++;
+            } while (readUByte(cis) != 0);
+        }
+
+        if ((flags & FHCRC) == FHCRC) {
+            int checksum = (int) this.crc.getValue() & 0xffff;
+
+            if (readUShort(inputStream) != checksum) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+
+            result += 2;
+        }
+
+        this.crc.reset();
+        return result;
+    }
+
+    /**
+     * Reads a GZIP member trailer and the header of the next member if any.
+     * 
+     * @return True if the end of the last GZIP member has been reached.
+     * @throws IOException
+     */
+    private boolean readTrailer() throws IOException {
+        boolean result = true;
+        InputStream trailerStream = this.in;
+        int remaining = this.inf.getRemaining();
+
+        if (remaining > 0) {
+            // Read the bytes already buffered first, without closing the
+            // underlying stream once they are exhausted
+            trailerStream = new SequenceInputStream(new ByteArrayInputStream(
+                    this.buf, this.len - remaining, remaining),
+                    new FilterInputStream(this.in) {
+                        @Override
+                        public void close() throws IOException {
+                        }
+                    });
+        }
+
+        if ((readUInt(trailerStream) != this.crc.getValue())
+                || (readUInt(trailerStream) != (this.inf.getBytesWritten() & 0xffffffffL))) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+
+        if ((this.in.available() > 0) || (remaining > 26)) {
+            int headerLength = 8;
+
+            try {
+                headerLength += readHeader(trailerStream);
+                this.inf.reset();
+
+                if (remaining > headerLength) {
+                    this.inf.setInput(this.buf, this.len - remaining
+                            + headerLength, remaining - headerLength);
+                }
+
+                result = false;
+            } catch (IOException ioe) {
+                // Ignore the trailing garbage
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+import org.restlet.engine.util.Pool;
+
+// [excludes gwt]
+/**
+ * Pool of reusable inflaters. Creating an inflater allocates native zlib state
+ * that is only freed once it is ended or garbage collected, so inflaters are
+ * reset and reused across decoded entities instead.
+ * 
+ * @author Jerome Louvel
+ */
+public class InflaterPool extends Pool<Inflater> {
+
+    /** The current number of idle inflaters in the store. */
+    private final AtomicInteger idleInflaters;
+
+    /** The maximum number of idle inflaters kept in the store. */
+    private final int maxIdleInflaters;
+
+    /**
+     * Indicates if the raw deflate format is expected, without the zlib header
+     * and checksum, as used by the GZIP and ZIP formats.
+     */
+    private final boolean nowrap;
+
+    /**
+     * Constructor.
+     * 
+     * @param nowrap
+     *            Indicates if the raw deflate format is expected.
+     * @param maxIdleInflaters
+     *            The maximum number of idle inflaters kept in the store.
+     */
+    public InflaterPool(boolean nowrap, int maxIdleInflaters) {
+        super();
+        this.idleInflaters = new AtomicInteger();
+        this.maxIdleInflaters = maxIdleInflaters;
+        this.nowrap = nowrap;
+    }
+
+    /**
+     * Checks in an inflater into the pool. The inflater is ended if the maximum
+     * number of idle inflaters is reached.
+     * 
+     * @param inflater
+     *            The inflater to check in.
+     */
+    @Override
+    public void checkin(Inflater inflater) {
+        if (inflater != null) {
+            if (this.idleInflaters.incrementAndGet() <= this.maxIdleInflaters) {
+                super.checkin(inflater);
+            } else {
+                this.idleInflaters.decrementAndGet();
+                inflater.end();
+            }
+        }
+    }
+
+    @Override
+    public Inflater checkout() {
+        Inflater result = getStore().poll();
+
+        if (result == null) {
+            result = createObject();
+        } else {
+            this.idleInflaters.decrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears the store of reusable inflaters and ends them.
+     */
+    @Override
+    public void clear() {
+        Inflater inflater = getStore().poll();
+
+        while (inflater != null) {
+            this.idleInflaters.decrementAndGet();
+            inflater.end();
+            inflater = getStore().poll();
+        }
+    }
+
+    @Override
+    protected void clear(Inflater inflater) {
+        inflater.reset();
+    }
+
+    @Override
+    protected Inflater createObject() {
+        return new Inflater(isNowrap());
+    }
+
+    /**
+     * Indicates if the raw deflate format is expected, without the zlib header
+     * and checksum, as used by the GZIP and ZIP formats.
+     * 
+     * @return True if the raw deflate format is expected.
+     */
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.restlet.engine.io.IoUtils;
+
+// [excludes gwt]
+/**
+ * Input stream decompressing with an inflater leased from a pool. The inflater
+ * is checked back in the pool when the stream is closed.
+ * 
+ * @author Jerome Louvel
+ */
+public class PooledInflaterInputStream extends InflaterInputStream {
+
+    /** The pool of inflaters. */
+    private final InflaterPool inflaterPool;
+
+    /** Indicates if the inflater has been checked back in the pool. */
+    private volatile boolean released;
+
+    /**
+     * Constructor.
+     * 
+     * @param inputStream
+     *            The input stream to read the compressed data from.
+     * @param inflaterPool
+     *            The pool of inflaters.
+     */
+    public PooledInflaterInputStream(InputStream inputStream,
+            InflaterPool inflaterPool) {
+        super(inputStream, inflaterPool.checkout(), IoUtils.BUFFER_SIZE);
+        this.inflaterPool = inflaterPool;
+        this.released = false;
+    }
+
+    /**
+     * Closes the underlying stream and checks in the inflater.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Checks in the inflater, once the stream doesn't need it anymore. Does
+     * nothing if it was already checked in.
+     */
+    protected void release() {
+        if (!this.released) {
+            this.released = true;
+            this.inflaterPool.checkin(this.inf);
+        }
+    }
+
+}
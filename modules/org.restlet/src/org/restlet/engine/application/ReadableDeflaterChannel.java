@@ -0,0 +1,251 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.restlet.engine.io.IoUtils;
+import org.restlet.engine.io.WrapperChannel;
+
+// [excludes gwt]
+/**
+ * Readable byte channel compressing the bytes of a source channel on demand,
+ * as the target buffers are filled. Contrary to a pipe fed by a writer thread,
+ * no extra thread is needed. The GZIP format is produced by a raw deflater,
+ * while the Deflate format is produced by a zlib deflater. The deflater is
+ * checked back in its pool once the end is reached or the channel is closed.
+ * 
+ * @author Jerome Louvel
+ */
+public class ReadableDeflaterChannel extends
+        WrapperChannel<ReadableByteChannel> implements ReadableByteChannel {
+
+    /** The GZIP header, without modification time nor optional fields. */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b,
+            Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    /** The checksum of the uncompressed data, for the GZIP format. */
+    private final CRC32 crc;
+
+    /** The deflater or null once released. */
+    private volatile Deflater deflater;
+
+    /** The pool of deflaters. */
+    private final DeflaterPool deflaterPool;
+
+    /** Indicates if the end of the compressed data has been reached. */
+    private volatile boolean endReached;
+
+    /** Indicates if the GZIP format is produced. */
+    private final boolean gzip;
+
+    /** The array receiving the bytes of the source channel. */
+    private final byte[] input;
+
+    /** Indicates if the end of the source channel has been reached. */
+    private volatile boolean inputEnded;
+
+    /** The buffer of compressed bytes not yet read. */
+    private final ByteBuffer output;
+
+    /**
+     * Constructor.
+     * 
+     * @param source
+     *            The source channel of uncompressed bytes.
+     * @param deflaterPool
+     *            The pool of deflaters.
+     * @param deflater
+     *            The deflater checked out from the pool.
+     * @param gzip
+     *            Indicates if the GZIP format is produced.
+     */
+    public ReadableDeflaterChannel(ReadableByteChannel source,
+            DeflaterPool deflaterPool, Deflater deflater, boolean gzip) {
+        super(source);
+        this.crc = gzip ? new CRC32() : null;
+        this.deflater = deflater;
+        this.deflaterPool = deflaterPool;
+        this.endReached = false;
+        this.gzip = gzip;
+        this.input = new byte[IoUtils.BUFFER_SIZE];
+        this.inputEnded = false;
+        this.output = ByteBuffer.allocate(IoUtils.BUFFER_SIZE);
+
+        if (gzip) {
+            this.output.put(GZIP_HEADER);
+        }
+
+        this.output.flip();
+    }
+
+    /**
+     * Closes the source channel and checks in the deflater.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Fills the output buffer with more compressed bytes, reading the source
+     * channel if the deflater needs more input.
+     * 
+     * @return False if the source channel had no bytes available.
+     * @throws IOException
+     * @throws ClosedChannelException
+     *             If the channel has been closed.
+     */
+    private boolean fillOutput() throws IOException {
+        boolean result = true;
+
+        if (this.deflater == null) {
+            throw new ClosedChannelException();
+        }
+
+        this.output.clear();
+
+        if (!this.deflater.finished()) {
+            if (this.deflater.needsInput() && !this.inputEnded) {
+                int read = getWrappedChannel().read(
+                        ByteBuffer.wrap(this.input));
+
+                if (read == -1) {
+                    this.inputEnded = true;
+                    this.deflater.finish();
+                } else if (read == 0) {
+                    result = false;
+                } else {
+                    if (this.gzip) {
+                        this.crc.update(this.input, 0, read);
+                    }
+
+                    this.deflater.setInput(this.input, 0, read);
+                }
+            }
+
+            if (result) {
+                this.output.position(this.deflater.deflate(
+                        this.output.array(), 0, this.output.capacity()));
+            }
+        } else {
+            if (this.gzip) {
+                long checksum = this.crc.getValue();
+                long size = this.deflater.getBytesRead();
+
+                for (int i = 0; i < 4; i++) {
+                    this.output.put((byte) (checksum >> (8 * i)));
+                }
+
+                for (int i = 0; i < 4; i++) {
+                    this.output.put((byte) (size >> (8 * i)));
+                }
+            }
+
+            this.endReached = true;
+            onFinished(this.deflater);
+            release();
+        }
+
+        this.output.flip();
+        return result;
+    }
+
+    /**
+     * Called back once all the bytes of the source channel have been
+     * compressed, before the deflater is checked in. Does nothing by default.
+     * 
+     * @param deflater
+     *            The deflater used.
+     */
+    protected void onFinished(Deflater deflater) {
+    }
+
+    /**
+     * Reads compressed bytes into the target buffer.
+     * 
+     * @param target
+     *            The target buffer.
+     * @return The number of bytes read, or -1 if the end of the compressed
+     *         data has been reached.
+     */
+    public int read(ByteBuffer target) throws IOException {
+        int result = 0;
+        boolean progress = true;
+
+        while (target.hasRemaining() && progress) {
+            if (this.output.hasRemaining()) {
+                int length = Math.min(this.output.remaining(),
+                        target.remaining());
+                int limit = this.output.limit();
+                this.output.limit(this.output.position() + length);
+                target.put(this.output);
+                this.output.limit(limit);
+                result += length;
+            } else if (this.endReached) {
+                progress = false;
+
+                if (result == 0) {
+                    result = -1;
+                }
+            } else {
+                progress = fillOutput();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks in the deflater if not already done.
+     */
+    private void release() {
+        Deflater released = this.deflater;
+
+        if (released != null) {
+            this.deflater = null;
+            this.deflaterPool.checkin(released);
+        }
+    }
+
+}
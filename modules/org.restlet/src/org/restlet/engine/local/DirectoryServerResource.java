@@ -36,7 +36,10 @@ package org.restlet.engine.local;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -724,6 +727,14 @@ public class DirectoryServerResource extends ServerResource {
                     String baseEntryName;
                     int lastSlashIndex;
                     int firstDotIndex;
+                    Set<String> entryNames = new HashSet<String>();
+
+                    for (Reference ref : listVariants) {
+                        entryUri = ref.toString();
+                        lastSlashIndex = entryUri.lastIndexOf('/');
+                        entryNames.add((lastSlashIndex == -1) ? entryUri
+                                : entryUri.substring(lastSlashIndex + 1));
+                    }
 
                     for (Reference ref : listVariants) {
                         entryUri = ref.toString();
@@ -740,7 +751,9 @@ public class DirectoryServerResource extends ServerResource {
                         }
 
                         // Check if the current file is a valid variant
-                        if (baseEntryName.equals(this.baseName)) {
+                        if (baseEntryName.equals(this.baseName)
+                                && !isPrecompressed(fullEntryName,
+                                        entryNames)) {
                             // Test if the variant is included in the base
                             // prototype variant
                             Variant variant = new Variant();
@@ -805,6 +818,39 @@ public class DirectoryServerResource extends ServerResource {
         return this.directoryTarget;
     }
 
+    /**
+     * Indicates if an entry is a precompressed sibling file, served by the
+     * encoder service in place of its original file rather than as a variant
+     * of its own. An entry is only a sibling if its original file exists, so
+     * that other compressed files like "archive.tar.gz" remain variants.
+     * 
+     * @param entryName
+     *            The entry name with extensions.
+     * @param entryNames
+     *            The names of the entries sharing its base name.
+     * @return True if the entry is a precompressed sibling file.
+     * @see org.restlet.service.EncoderService#isServingPrecompressed()
+     */
+    private boolean isPrecompressed(String entryName, Set<String> entryNames) {
+        boolean result = false;
+        String extension;
+
+        if ((getApplication() != null)
+                && getApplication().getEncoderService()
+                        .isServingPrecompressed()) {
+            for (Iterator<String> iter = getApplication().getEncoderService()
+                    .getPrecompressedExtensions().values().iterator(); !result
+                    && iter.hasNext();) {
+                extension = "." + iter.next();
+                result = entryName.endsWith(extension)
+                        && entryNames.contains(entryName.substring(0,
+                                entryName.length() - extension.length()));
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Indicates if the target resource is a file.
      * 
@@ -0,0 +1,418 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous writer of access log records. Records are captured by the
+ * threads handling the calls and stored in a bounded lock-free ring buffer.
+ * They are then published to the target logger by a single background thread,
+ * draining the buffer in batches, so that the calling threads never contend on
+ * the log handlers' locks or wait for their I/O. Each batch is handed to each
+ * handler of the target logger and its parents while holding the handler's
+ * lock once, and the handler is flushed once per batch.<br>
+ * <br>
+ * When the ring buffer is full, new records are either dropped or the calling
+ * thread waits for some space to be available, depending on the blocking
+ * policy. Once the writer is stopped, records are directly published by the
+ * calling threads.
+ * 
+ * @author Jerome Louvel
+ */
+public class AccessLogWriter implements Runnable {
+
+    /** The maximum duration of the background thread parking, in nanoseconds. */
+    private static final long MAX_PARK_NANOS = 100000000L;
+
+    /** Indicates if calling threads wait when the ring buffer is full. */
+    private final boolean blocking;
+
+    /** The records of the batch being published, only used by the consumer. */
+    private final List<LogRecord> batch;
+
+    /** The maximum number of records published per batch. */
+    private final int batchSize;
+
+    /** The number of records dropped because the ring buffer was full. */
+    private final AtomicLong droppedCount;
+
+    /** The index of the next record to publish, only used by the consumer. */
+    private volatile long head;
+
+    /** The target logger. */
+    private final Logger logger;
+
+    /** The mask used to convert a sequence number into a slot index. */
+    private final int mask;
+
+    /** The number of threads currently storing a record. */
+    private final AtomicInteger producers;
+
+    /** The records stored in the ring buffer. */
+    private final AtomicReferenceArray<LogRecord> records;
+
+    /** Indicates if the writer is running. */
+    private volatile boolean running;
+
+    /** The sequence numbers of each slot, used to coordinate the threads. */
+    private final AtomicLongArray sequences;
+
+    /** The index of the next record to store, shared by the producers. */
+    private final AtomicLong tail;
+
+    /** The background thread publishing the records. */
+    private volatile Thread thread;
+
+    /** Indicates if the background thread is parked, waiting for records. */
+    private volatile boolean waiting;
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The target logger.
+     * @param capacity
+     *            The capacity of the ring buffer, rounded up to a power of
+     *            two.
+     * @param batchSize
+     *            The maximum number of records published per batch.
+     * @param blocking
+     *            Indicates if calling threads wait when the ring buffer is
+     *            full, instead of dropping the records.
+     */
+    public AccessLogWriter(Logger logger, int capacity, int batchSize,
+            boolean blocking) {
+        int size = 1;
+
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.batchSize = Math.max(1, batchSize);
+        this.batch = new ArrayList<LogRecord>(this.batchSize);
+        this.blocking = blocking;
+        this.droppedCount = new AtomicLong();
+        this.head = 0;
+        this.logger = logger;
+        this.mask = size - 1;
+        this.producers = new AtomicInteger();
+        this.records = new AtomicReferenceArray<LogRecord>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.tail = new AtomicLong();
+
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the number of records dropped because the ring buffer was full.
+     * 
+     * @return The number of records dropped.
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     * Returns the target logger.
+     * 
+     * @return The target logger.
+     */
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    /**
+     * Indicates if calling threads wait when the ring buffer is full.
+     * 
+     * @return True if calling threads wait when the ring buffer is full.
+     */
+    public boolean isBlocking() {
+        return this.blocking;
+    }
+
+    /**
+     * Indicates if the writer is running.
+     * 
+     * @return True if the writer is running.
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Stores a record in the ring buffer so that it is published later by the
+     * background thread. If the writer isn't running, the record is directly
+     * published by the calling thread. When the ring buffer is full, the
+     * blocking policy of the writer applies.
+     * 
+     * @param record
+     *            The record to publish.
+     * @return True if the record was accepted, false if it was dropped.
+     */
+    public boolean log(LogRecord record) {
+        return log(record, isBlocking());
+    }
+
+    /**
+     * Stores a record in the ring buffer so that it is published later by the
+     * background thread. If the writer isn't running, the record is directly
+     * published by the calling thread.
+     * 
+     * @param record
+     *            The record to publish.
+     * @param blocking
+     *            Indicates if the calling thread should wait when the ring
+     *            buffer is full, instead of dropping the record.
+     * @return True if the record was accepted, false if it was dropped.
+     */
+    public boolean log(LogRecord record, boolean blocking) {
+        boolean result = false;
+
+        // Registered before checking the state so that stop() waits for us
+        this.producers.incrementAndGet();
+
+        try {
+            if (isRunning()) {
+                result = offer(record);
+
+                while (!result && blocking && isRunning()) {
+                    // Let the background thread free some slots
+                    LockSupport.unpark(this.thread);
+                    LockSupport.parkNanos(this, 1000L);
+                    result = offer(record);
+                }
+
+                if (result && this.waiting) {
+                    LockSupport.unpark(this.thread);
+                }
+            }
+
+            if (!result) {
+                if (isRunning()) {
+                    this.droppedCount.incrementAndGet();
+                } else {
+                    // The intake is closed
+                    getLogger().log(record);
+                    result = true;
+                }
+            }
+        } finally {
+            this.producers.decrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Attempts to store a record in the ring buffer, without waiting.
+     * 
+     * @param record
+     *            The record to store.
+     * @return True if the record was stored, false if the buffer is full.
+     */
+    private boolean offer(LogRecord record) {
+        for (;;) {
+            long position = this.tail.get();
+            int index = (int) position & this.mask;
+            long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                // The slot is free, try to claim it
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.records.set(index, record);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The slot is still used by a previous lap
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the next record of the ring buffer.
+     * 
+     * @return The next record or null if the buffer is empty.
+     */
+    private LogRecord poll() {
+        LogRecord result = null;
+        long position = this.head;
+        int index = (int) position & this.mask;
+
+        if (this.sequences.get(index) == position + 1) {
+            result = this.records.get(index);
+            this.records.set(index, null);
+            this.head = position + 1;
+
+            // Free the slot for the next lap
+            this.sequences.set(index, position + this.mask + 1);
+        }
+
+        return result;
+    }
+
+    /**
+     * Publishes the pending records until the writer is stopped.
+     */
+    public void run() {
+        while (isRunning()) {
+            if (publish() == 0) {
+                this.waiting = true;
+
+                // Check again in case a producer missed the flag
+                if (this.sequences.get((int) this.head & this.mask) != this.head + 1) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+
+                this.waiting = false;
+            }
+        }
+
+        // Flush the remaining records
+        while (publish() > 0) {
+        }
+    }
+
+    /**
+     * Publishes a batch of pending records to the target logger.
+     * 
+     * @return The number of records removed from the ring buffer.
+     */
+    private int publish() {
+        int result = 0;
+        Logger logger = getLogger();
+        Filter filter = logger.getFilter();
+        LogRecord record;
+
+        while ((result < this.batchSize) && ((record = poll()) != null)) {
+            if (logger.isLoggable(record.getLevel())
+                    && ((filter == null) || filter.isLoggable(record))) {
+                this.batch.add(record);
+            }
+
+            result++;
+        }
+
+        if (!this.batch.isEmpty()) {
+            try {
+                publish(this.batch);
+            } finally {
+                this.batch.clear();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Publishes a batch of records to the handlers of the target logger and of
+     * its parents, as {@link Logger#log(LogRecord)} would do for each record.
+     * Each handler is locked and flushed only once per batch.
+     * 
+     * @param records
+     *            The records to publish.
+     */
+    private void publish(List<LogRecord> records) {
+        for (Logger current = getLogger(); current != null; current = current
+                .getParent()) {
+            for (Handler handler : current.getHandlers()) {
+                // The standard handlers synchronize on themselves
+                synchronized (handler) {
+                    for (LogRecord record : records) {
+                        handler.publish(record);
+                    }
+
+                    handler.flush();
+                }
+            }
+
+            if (!current.getUseParentHandlers()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread.
+     */
+    public synchronized void start() {
+        if (!isRunning()) {
+            this.running = true;
+            this.thread = new LoggingThreadFactory(getLogger(), true)
+                    .newThread(this);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stops the background thread, after the pending records are published.
+     * New records are directly published by the calling threads from then on.
+     * 
+     * @throws InterruptedException
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (isRunning()) {
+            // Close the intake
+            this.running = false;
+            LockSupport.unpark(this.thread);
+            this.thread.join();
+            this.thread = null;
+
+            // Wait for the threads that saw the writer running
+            while (this.producers.get() > 0) {
+                Thread.yield();
+            }
+
+            // Publish the records stored while stopping
+            while (publish() > 0) {
+            }
+        }
+    }
+
+}
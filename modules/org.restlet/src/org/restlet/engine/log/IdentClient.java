@@ -46,16 +46,20 @@ import org.restlet.engine.io.IoUtils;
 import org.restlet.engine.util.StringUtils;
 
 /**
- * Simple IDENT client. Follow the RFC 1413.
+ * Simple IDENT client. Follow the RFC 1413. The lookup done by the constructor
+ * is blocking, see {@link IdentResolver} for non-blocking lookups.
  * 
  * @author Jerome Louvel
  */
 public class IdentClient {
     /** The timeout while attempting to connect to the Ident server. */
-    private static final int CONNECT_TIMEOUT = 100;
+    static final int CONNECT_TIMEOUT = 100;
+
+    /** The port of the Ident servers. */
+    static final int IDENT_PORT = 113;
 
     /** The timeout while communicating with the Ident server. */
-    private static final int SO_TIMEOUT = 500;
+    static final int SO_TIMEOUT = 500;
 
     /** The remote host type. */
     private volatile String hostType;
@@ -80,15 +84,13 @@ public class IdentClient {
             BufferedReader in = null;
             try {
                 // Compose the IDENT request
-                final StringBuilder sb = new StringBuilder();
-                sb.append(clientPort).append(" , ").append(serverPort)
-                        .append("\r\n");
-                final String request = sb.toString();
+                final String request = getRequest(clientPort, serverPort);
 
                 // Send the request to the remote server
                 socket = new Socket();
                 socket.setSoTimeout(SO_TIMEOUT);
-                socket.connect(new InetSocketAddress(clientAddress, 113),
+                socket.connect(
+                        new InetSocketAddress(clientAddress, IDENT_PORT),
                         CONNECT_TIMEOUT);
                 socket.getOutputStream().write(
                         StringUtils.getAsciiBytes(request));
@@ -96,29 +98,7 @@ public class IdentClient {
                 // Read the response
                 in = new BufferedReader(new InputStreamReader(
                         socket.getInputStream()), IoUtils.BUFFER_SIZE);
-                final String response = in.readLine();
-
-                // Parse the response
-                if (response != null) {
-                    final StringTokenizer st = new StringTokenizer(response,
-                            ":");
-
-                    if (st.countTokens() >= 3) {
-                        // Skip the first token
-                        st.nextToken();
-
-                        // Get the command
-                        final String command = st.nextToken().trim();
-                        if (command.equalsIgnoreCase("USERID")
-                                && (st.countTokens() >= 2)) {
-                            // Get the host type
-                            this.hostType = st.nextToken().trim();
-
-                            // Get the remaining text as a user identifier
-                            this.userIdentifier = st.nextToken("").substring(1);
-                        }
-                    }
-                }
+                parse(in.readLine());
             } catch (IOException ioe) {
                 Context.getCurrentLogger().log(Level.FINE,
                         "Unable to complete the IDENT request", ioe);
@@ -136,6 +116,31 @@ public class IdentClient {
         }
     }
 
+    /**
+     * Constructor parsing a response received from an IDENT server.
+     * 
+     * @param response
+     *            The response line, without the line terminator.
+     */
+    public IdentClient(String response) {
+        parse(response);
+    }
+
+    /**
+     * Returns the IDENT request for a given connection.
+     * 
+     * @param clientPort
+     *            The client port (remote).
+     * @param serverPort
+     *            The server port (local).
+     * @return The IDENT request line.
+     */
+    static String getRequest(int clientPort, int serverPort) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(clientPort).append(" , ").append(serverPort).append("\r\n");
+        return sb.toString();
+    }
+
     /**
      * Returns the remote host type.
      * 
@@ -154,4 +159,32 @@ public class IdentClient {
         return this.userIdentifier;
     }
 
+    /**
+     * Parses a response line received from an IDENT server.
+     * 
+     * @param response
+     *            The response line, without the line terminator.
+     */
+    private void parse(String response) {
+        if (response != null) {
+            final StringTokenizer st = new StringTokenizer(response, ":");
+
+            if (st.countTokens() >= 3) {
+                // Skip the first token
+                st.nextToken();
+
+                // Get the command
+                final String command = st.nextToken().trim();
+                if (command.equalsIgnoreCase("USERID")
+                        && (st.countTokens() >= 2)) {
+                    // Get the host type
+                    this.hostType = st.nextToken().trim();
+
+                    // Get the remaining text as a user identifier
+                    this.userIdentifier = st.nextToken("").substring(1);
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,717 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.engine.util.StringUtils;
+
+/**
+ * Non-blocking IDENT resolver. Follow the RFC 1413. Lookups are submitted by
+ * the calling threads and processed by a single background thread
+ * multiplexing all the connections to the remote IDENT servers with a NIO
+ * selector, so that the calling threads never wait for the remote hosts.<br>
+ * <br>
+ * The results, including the failed lookups, are cached for a short duration
+ * per client address and port pair, which covers the successive calls received
+ * on a persistent connection. Concurrent lookups for the same pair are
+ * coalesced. Statistics about the lookups and the cache are also available.
+ * 
+ * @author Jerome Louvel
+ */
+public class IdentResolver implements Runnable {
+
+    /** A cached IDENT result. */
+    private static final class CacheEntry {
+        /** The expiration time, in milliseconds. */
+        private final long expirationTime;
+
+        /** The IDENT result. */
+        private final IdentClient identClient;
+
+        /**
+         * Constructor.
+         * 
+         * @param identClient
+         *            The IDENT result.
+         * @param expirationTime
+         *            The expiration time, in milliseconds.
+         */
+        private CacheEntry(IdentClient identClient, long expirationTime) {
+            this.identClient = identClient;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    /** An IDENT lookup in progress. */
+    private static final class Lookup {
+        /** The remote client address. */
+        private final String clientAddress;
+
+        /** The remote client port. */
+        private final int clientPort;
+
+        /** Indicates if the lookup is completed. */
+        private boolean completed;
+
+        /** The deadline, in nanoseconds. */
+        private final long deadline;
+
+        /** The cache key. */
+        private final String key;
+
+        /** The listeners to notify. */
+        private final List<IdentListener> listeners;
+
+        /** The request to send. */
+        private final ByteBuffer request;
+
+        /** The response received. */
+        private final ByteBuffer response;
+
+        /** The start time, in nanoseconds. */
+        private final long startTime;
+
+        /**
+         * Constructor.
+         * 
+         * @param key
+         *            The cache key.
+         * @param clientAddress
+         *            The remote client address.
+         * @param clientPort
+         *            The remote client port.
+         * @param serverPort
+         *            The local server port.
+         */
+        private Lookup(String key, String clientAddress, int clientPort,
+                int serverPort) {
+            this.key = key;
+            this.clientAddress = clientAddress;
+            this.clientPort = clientPort;
+            this.listeners = new ArrayList<IdentListener>(1);
+            this.request = ByteBuffer.wrap(StringUtils
+                    .getAsciiBytes(IdentClient.getRequest(clientPort,
+                            serverPort)));
+            this.response = ByteBuffer.allocate(MAX_RESPONSE_SIZE);
+            this.startTime = System.nanoTime();
+            this.deadline = this.startTime + LOOKUP_TIMEOUT;
+        }
+
+        /**
+         * Adds a listener unless the lookup is already completed.
+         * 
+         * @param listener
+         *            The listener to add.
+         * @return True if the listener was added.
+         */
+        private synchronized boolean addListener(IdentListener listener) {
+            if (!this.completed) {
+                this.listeners.add(listener);
+            }
+
+            return !this.completed;
+        }
+
+        /**
+         * Marks the lookup as completed.
+         * 
+         * @return The listeners to notify.
+         */
+        private synchronized List<IdentListener> complete() {
+            this.completed = true;
+            return this.listeners;
+        }
+
+        /**
+         * Returns the response line if it was fully received, null otherwise.
+         * 
+         * @return The response line if it was fully received.
+         */
+        private String getResponseLine() {
+            for (int i = 0; i < this.response.position(); i++) {
+                byte b = this.response.get(i);
+
+                if ((b == '\r') || (b == '\n')) {
+                    return getResponseText(i);
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns the beginning of the response received as a string.
+         * 
+         * @param length
+         *            The number of bytes to decode.
+         * @return The beginning of the response received.
+         */
+        private String getResponseText(int length) {
+            return CharacterSet.ISO_8859_1.toCharset()
+                    .decode(ByteBuffer.wrap(this.response.array(), 0, length))
+                    .toString();
+        }
+    }
+
+    /** The default time to live of the cached results, in milliseconds. */
+    public static final long DEFAULT_CACHE_TTL = 10000L;
+
+    /** The default maximum number of cached results. */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 4096;
+
+    /** The maximum duration of a lookup, in nanoseconds. */
+    private static final long LOOKUP_TIMEOUT = (IdentClient.CONNECT_TIMEOUT + IdentClient.SO_TIMEOUT) * 1000000L;
+
+    /** The maximum duration of a selection, in milliseconds. */
+    private static final long MAX_SELECT_TIME = 100L;
+
+    /** The maximum size of a response, as recommended by RFC 1413. */
+    private static final int MAX_RESPONSE_SIZE = 1000;
+
+    /** The cached results. */
+    private final Map<String, CacheEntry> cache;
+
+    /** The number of lookups answered by the cache. */
+    private final AtomicLong cacheHitCount;
+
+    /** The time to live of the cached results, in milliseconds. */
+    private final long cacheTtl;
+
+    /** The number of network lookups that failed. */
+    private final AtomicLong failureCount;
+
+    /** The port of the IDENT servers. */
+    private final int identPort;
+
+    /** The lookups in progress, by cache key. */
+    private final ConcurrentMap<String, Lookup> inProgress;
+
+    /** The logger. */
+    private final Logger logger;
+
+    /** The number of network lookups completed. */
+    private final AtomicLong lookupCount;
+
+    /** The maximum number of cached results. */
+    private final int maxCacheSize;
+
+    /** The time of the next cache purge, only used by the background thread. */
+    private long nextPurgeTime;
+
+    /** The lookups submitted but not yet registered with the selector. */
+    private final Queue<Lookup> pending;
+
+    /** Indicates if the background thread is running. */
+    private volatile boolean running;
+
+    /** The NIO selector. */
+    private volatile Selector selector;
+
+    /** The background thread. */
+    private volatile Thread thread;
+
+    /** The cumulated duration of the network lookups, in nanoseconds. */
+    private final AtomicLong totalLookupTime;
+
+    /**
+     * Constructor using the default cache settings.
+     * 
+     * @param logger
+     *            The logger.
+     */
+    public IdentResolver(Logger logger) {
+        this(logger, DEFAULT_CACHE_TTL, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The logger.
+     * @param cacheTtl
+     *            The time to live of the cached results, in milliseconds.
+     * @param maxCacheSize
+     *            The maximum number of cached results.
+     */
+    public IdentResolver(Logger logger, long cacheTtl, int maxCacheSize) {
+        this(logger, cacheTtl, maxCacheSize, IdentClient.IDENT_PORT);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The logger.
+     * @param cacheTtl
+     *            The time to live of the cached results, in milliseconds.
+     * @param maxCacheSize
+     *            The maximum number of cached results.
+     * @param identPort
+     *            The port of the IDENT servers.
+     */
+    public IdentResolver(Logger logger, long cacheTtl, int maxCacheSize,
+            int identPort) {
+        this.logger = logger;
+        this.identPort = identPort;
+        this.cacheTtl = cacheTtl;
+        this.maxCacheSize = maxCacheSize;
+        this.cache = new ConcurrentHashMap<String, CacheEntry>();
+        this.inProgress = new ConcurrentHashMap<String, Lookup>();
+        this.pending = new ConcurrentLinkedQueue<Lookup>();
+        this.cacheHitCount = new AtomicLong();
+        this.failureCount = new AtomicLong();
+        this.lookupCount = new AtomicLong();
+        this.totalLookupTime = new AtomicLong();
+    }
+
+    /**
+     * Caches a result.
+     * 
+     * @param key
+     *            The cache key.
+     * @param identClient
+     *            The result to cache.
+     */
+    private void cache(String key, IdentClient identClient) {
+        if ((this.cacheTtl > 0) && (this.cache.size() < this.maxCacheSize)) {
+            this.cache.put(key, new CacheEntry(identClient, System
+                    .currentTimeMillis() + this.cacheTtl));
+        }
+    }
+
+    /**
+     * Completes a lookup, caches its result and notifies its listeners.
+     * 
+     * @param lookup
+     *            The lookup to complete.
+     * @param selectionKey
+     *            The selection key of the lookup or null.
+     * @param response
+     *            The response line received or null.
+     */
+    private void complete(Lookup lookup, SelectionKey selectionKey,
+            String response) {
+        if (selectionKey != null) {
+            selectionKey.cancel();
+
+            try {
+                selectionKey.channel().close();
+            } catch (IOException ioe) {
+                getLogger().log(Level.FINE,
+                        "Unable to close the IDENT connection", ioe);
+            }
+        }
+
+        IdentClient result = new IdentClient(response);
+        this.lookupCount.incrementAndGet();
+        this.totalLookupTime.addAndGet(System.nanoTime() - lookup.startTime);
+
+        if (result.getUserIdentifier() == null) {
+            this.failureCount.incrementAndGet();
+        }
+
+        cache(lookup.key, result);
+        this.inProgress.remove(lookup.key, lookup);
+
+        for (IdentListener listener : lookup.complete()) {
+            notify(listener, result);
+        }
+    }
+
+    /**
+     * Returns the number of lookups answered by the cache.
+     * 
+     * @return The number of lookups answered by the cache.
+     */
+    public long getCacheHitCount() {
+        return this.cacheHitCount.get();
+    }
+
+    /**
+     * Returns the current number of cached results.
+     * 
+     * @return The current number of cached results.
+     */
+    public int getCacheSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Returns the number of network lookups that failed or timed out.
+     * 
+     * @return The number of network lookups that failed or timed out.
+     */
+    public long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    /**
+     * Returns the port of the IDENT servers.
+     * 
+     * @return The port of the IDENT servers.
+     */
+    public int getIdentPort() {
+        return this.identPort;
+    }
+
+    /**
+     * Returns the logger.
+     * 
+     * @return The logger.
+     */
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    /**
+     * Returns the number of network lookups completed, successfully or not.
+     * 
+     * @return The number of network lookups completed.
+     */
+    public long getLookupCount() {
+        return this.lookupCount.get();
+    }
+
+    /**
+     * Returns the cumulated duration of the network lookups, in nanoseconds.
+     * 
+     * @return The cumulated duration of the network lookups, in nanoseconds.
+     */
+    public long getTotalLookupTime() {
+        return this.totalLookupTime.get();
+    }
+
+    /**
+     * Indicates if the background thread is running.
+     * 
+     * @return True if the background thread is running.
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Notifies a listener, logging its failures.
+     * 
+     * @param listener
+     *            The listener to notify.
+     * @param identClient
+     *            The IDENT result.
+     */
+    private void notify(IdentListener listener, IdentClient identClient) {
+        try {
+            listener.onResolved(identClient);
+        } catch (RuntimeException re) {
+            getLogger().log(Level.WARNING,
+                    "Unable to notify the IDENT listener", re);
+        }
+    }
+
+    /**
+     * Handles a ready selection key.
+     * 
+     * @param selectionKey
+     *            The ready selection key.
+     */
+    private void onSelected(SelectionKey selectionKey) {
+        Lookup lookup = (Lookup) selectionKey.attachment();
+        SocketChannel channel = (SocketChannel) selectionKey.channel();
+
+        try {
+            if (selectionKey.isConnectable() && channel.finishConnect()) {
+                selectionKey.interestOps(SelectionKey.OP_WRITE);
+            }
+
+            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                channel.write(lookup.request);
+
+                if (!lookup.request.hasRemaining()) {
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                }
+            }
+
+            if (selectionKey.isValid() && selectionKey.isReadable()) {
+                int read = channel.read(lookup.response);
+                String line = lookup.getResponseLine();
+
+                if ((line == null) && (read == -1)) {
+                    line = lookup.getResponseText(lookup.response.position());
+                }
+
+                if ((line != null) || !lookup.response.hasRemaining()) {
+                    complete(lookup, selectionKey, line);
+                }
+            }
+        } catch (IOException ioe) {
+            getLogger().log(Level.FINE,
+                    "Unable to complete the IDENT request", ioe);
+            complete(lookup, selectionKey, null);
+        }
+    }
+
+    /**
+     * Removes the expired results from the cache.
+     */
+    private void purge() {
+        long now = System.currentTimeMillis();
+
+        if (now >= this.nextPurgeTime) {
+            for (Iterator<CacheEntry> iter = this.cache.values().iterator(); iter
+                    .hasNext();) {
+                if (iter.next().expirationTime <= now) {
+                    iter.remove();
+                }
+            }
+
+            this.nextPurgeTime = now + Math.max(this.cacheTtl, 1000L);
+        }
+    }
+
+    /**
+     * Registers the pending lookups with the selector.
+     */
+    private void registerPending() {
+        Lookup lookup = this.pending.poll();
+
+        while (lookup != null) {
+            SocketChannel channel = null;
+
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+
+                if (channel.connect(new InetSocketAddress(lookup.clientAddress,
+                        this.identPort))) {
+                    channel.register(this.selector, SelectionKey.OP_WRITE,
+                            lookup);
+                } else {
+                    channel.register(this.selector, SelectionKey.OP_CONNECT,
+                            lookup);
+                }
+            } catch (IOException ioe) {
+                getLogger().log(Level.FINE,
+                        "Unable to connect to the IDENT server", ioe);
+
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ioe2) {
+                        // Ignore
+                    }
+                }
+
+                complete(lookup, null, null);
+            }
+
+            lookup = this.pending.poll();
+        }
+    }
+
+    /**
+     * Resolves the user identifier of a remote connection. The listener is
+     * immediately invoked by the calling thread if the result is cached or if
+     * the resolver isn't running, otherwise it is later invoked by the
+     * background thread.
+     * 
+     * @param clientAddress
+     *            The client IP address.
+     * @param clientPort
+     *            The client port (remote).
+     * @param serverPort
+     *            The server port (local).
+     * @param listener
+     *            The listener to notify.
+     */
+    public void resolve(String clientAddress, int clientPort, int serverPort,
+            IdentListener listener) {
+        if ((clientAddress == null) || (clientPort == -1)) {
+            notify(listener, new IdentClient(null));
+            return;
+        }
+
+        String key = clientAddress + ':' + clientPort + ',' + serverPort;
+        CacheEntry entry = this.cache.get(key);
+
+        if (entry != null) {
+            if (entry.expirationTime > System.currentTimeMillis()) {
+                this.cacheHitCount.incrementAndGet();
+                notify(listener, entry.identClient);
+                return;
+            }
+
+            this.cache.remove(key);
+        }
+
+        if (!isRunning()) {
+            notify(listener, new IdentClient(clientAddress, clientPort,
+                    serverPort));
+            return;
+        }
+
+        // Join a lookup in progress for the same connection if possible
+        Lookup lookup = this.inProgress.get(key);
+
+        if ((lookup == null) || !lookup.addListener(listener)) {
+            lookup = new Lookup(key, clientAddress, clientPort, serverPort);
+            lookup.addListener(listener);
+            this.inProgress.put(key, lookup);
+            this.pending.add(lookup);
+
+            Selector sel = this.selector;
+
+            if (sel != null) {
+                sel.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Runs the background thread, processing the lookups until stopped.
+     */
+    public void run() {
+        try {
+            while (isRunning()) {
+                registerPending();
+                this.selector.select(MAX_SELECT_TIME);
+
+                for (Iterator<SelectionKey> iter = this.selector
+                        .selectedKeys().iterator(); iter.hasNext();) {
+                    SelectionKey selectionKey = iter.next();
+                    iter.remove();
+
+                    if (selectionKey.isValid()) {
+                        onSelected(selectionKey);
+                    }
+                }
+
+                timeout(false);
+                purge();
+            }
+        } catch (Throwable t) {
+            getLogger().log(Level.WARNING,
+                    "Unexpected error in the IDENT resolver", t);
+        } finally {
+            // Complete the remaining lookups so that no listener is lost
+            registerPending();
+            timeout(true);
+        }
+    }
+
+    /**
+     * Starts the background thread.
+     * 
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (!isRunning()) {
+            this.selector = Selector.open();
+            this.running = true;
+            this.thread = new LoggingThreadFactory(getLogger(), true)
+                    .newThread(this);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stops the background thread. The lookups in progress are completed
+     * without result.
+     * 
+     * @throws InterruptedException
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (isRunning()) {
+            this.running = false;
+            this.selector.wakeup();
+            this.thread.join();
+            this.thread = null;
+
+            try {
+                this.selector.close();
+            } catch (IOException ioe) {
+                getLogger().log(Level.FINE,
+                        "Unable to close the IDENT selector", ioe);
+            }
+
+            this.selector = null;
+
+            // Complete the lookups submitted while stopping
+            Lookup lookup = this.pending.poll();
+
+            while (lookup != null) {
+                complete(lookup, null, null);
+                lookup = this.pending.poll();
+            }
+
+            this.cache.clear();
+        }
+    }
+
+    /**
+     * Completes the lookups that exceeded their deadline.
+     * 
+     * @param all
+     *            True to complete all the lookups in progress.
+     */
+    private void timeout(boolean all) {
+        long now = System.nanoTime();
+
+        for (SelectionKey selectionKey : this.selector.keys()) {
+            Lookup lookup = (Lookup) selectionKey.attachment();
+
+            if (selectionKey.isValid()
+                    && (all || (now - lookup.deadline >= 0))) {
+                complete(lookup, selectionKey, null);
+            }
+        }
+    }
+
+}
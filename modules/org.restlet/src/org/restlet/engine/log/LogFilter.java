@@ -34,6 +34,7 @@
 package org.restlet.engine.log;
 
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import org.restlet.Context;
@@ -46,7 +47,14 @@ import org.restlet.service.LogService;
 /**
  * Filter logging all calls after their handling by the target Restlet. The
  * current format is similar to IIS 6 logs. The logging is based on the
- * java.util.logging package.
+ * java.util.logging package. When the log service is asynchronous, the log
+ * entries are handed to an {@link AccessLogWriter} instead of being directly
+ * written by the calling thread. When the identity check is enabled, the
+ * remote user identifiers are resolved by an {@link IdentResolver} without
+ * blocking the calling thread. The log entries are still formatted by the
+ * calling thread, the resolver only filling in the user identifier before
+ * handing them to an {@link AccessLogWriter}, so that no log handler is ever
+ * invoked by the resolver thread.
  * 
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
@@ -55,6 +63,26 @@ import org.restlet.service.LogService;
  * @author Jerome Louvel
  */
 public class LogFilter extends Filter {
+    /** The maximum number of log entries written per batch. */
+    private static final int ASYNC_BATCH_SIZE = 256;
+
+    // [ifndef gae] member
+    /** The placeholder of the user identifier while it is being resolved. */
+    private static final String IDENT_MARKER = "\u0000ident\u0000";
+
+    // [ifndef gae] member
+    /** The IDENT result formatted while the user identifier is resolved. */
+    private static final IdentClient IDENT_PLACEHOLDER = new IdentClient(
+            "0 , 0 : USERID : OTHER :" + IDENT_MARKER);
+
+    // [ifndef gae] member
+    /** The asynchronous writer of log entries. */
+    private volatile AccessLogWriter logWriter;
+
+    // [ifndef gae] member
+    /** The non-blocking IDENT resolver. */
+    private volatile IdentResolver identResolver;
+
     /** The log service. */
     protected volatile LogService logService;
 
@@ -98,16 +126,98 @@ public class LogFilter extends Filter {
      *            The response to update.
      */
     @Override
-    protected void afterHandle(Request request, Response response) {
+    protected void afterHandle(final Request request, final Response response) {
         if (request.isLoggable() && this.logLogger.isLoggable(Level.INFO)) {
             long startTime = (Long) request.getAttributes().get(
                     "org.restlet.startTime");
-            int duration = (int) (System.currentTimeMillis() - startTime);
-            this.logLogger.log(Level.INFO,
-                    this.logService.getResponseLogMessage(response, duration));
+            final int duration = (int) (System.currentTimeMillis() - startTime);
+
+            // [ifndef gae]
+            IdentResolver resolver = this.identResolver;
+            final AccessLogWriter writer = this.logWriter;
+
+            if ((resolver != null) && (writer != null)
+                    && this.logService.isIdentityCheck()) {
+                // Format the entry now, the user identifier being filled later
+                request.getAttributes().put("org.restlet.ident",
+                        IDENT_PLACEHOLDER);
+                final String message = this.logService.getResponseLogMessage(
+                        response, duration);
+                request.getAttributes().remove("org.restlet.ident");
+                final LogRecord record = createRecord(message);
+                final Thread caller = Thread.currentThread();
+
+                resolver.resolve(request.getClientInfo().getUpstreamAddress(),
+                        request.getClientInfo().getPort(), response
+                                .getServerInfo().getPort(),
+                        new IdentListener() {
+                            public void onResolved(IdentClient identClient) {
+                                String identifier = identClient
+                                        .getUserIdentifier();
+                                record.setMessage(message.replace(
+                                        IDENT_MARKER,
+                                        (identifier == null) ? "-"
+                                                : identifier));
+
+                                // Never block the resolver thread
+                                writer.log(record, writer.isBlocking()
+                                        && (Thread.currentThread() == caller));
+                            }
+                        });
+                return;
+            }
+            // [enddef]
+
+            log(this.logService.getResponseLogMessage(response, duration));
         }
     }
 
+    // [ifndef gae] method
+    /**
+     * Creates a log record at the INFO level for the asynchronous writer.
+     * 
+     * @param message
+     *            The message to log.
+     * @return The new log record.
+     */
+    private LogRecord createRecord(String message) {
+        LogRecord result = new LogRecord(Level.INFO, message);
+        result.setLoggerName(this.logLogger.getName());
+        result.setSourceClassName(getClass().getName());
+        result.setSourceMethodName("afterHandle");
+        return result;
+    }
+
+    /**
+     * Returns the non-blocking IDENT resolver, if the identity check was
+     * enabled when the filter was started.
+     * 
+     * @return The non-blocking IDENT resolver or null.
+     */
+    public IdentResolver getIdentResolver() {
+        return this.identResolver;
+    }
+
+    /**
+     * Logs a message at the INFO level, via the asynchronous writer if
+     * available.
+     * 
+     * @param message
+     *            The message to log.
+     */
+    private void log(String message) {
+        // [ifndef gae]
+        AccessLogWriter writer = this.logWriter;
+
+        if (writer != null) {
+            writer.log(createRecord(message));
+            return;
+        }
+        // [enddef]
+
+        this.logLogger.log(Level.INFO, message);
+    }
+
     /**
      * Allows filtering before processing by the next Restlet. Saves the start
      * time.
@@ -136,4 +246,50 @@ public class LogFilter extends Filter {
         return CONTINUE;
     }
 
+    // [ifndef gae] method
+    /**
+     * Starts the filter, the asynchronous log writer if the log service is
+     * asynchronous and the IDENT resolver if the identity check is enabled.
+     * The identity check also requires the asynchronous log writer.
+     */
+    @Override
+    public synchronized void start() throws Exception {
+        if ((this.logService != null)
+                && (this.logService.isAsynchronous() || this.logService
+                        .isIdentityCheck()) && (this.logWriter == null)) {
+            this.logWriter = new AccessLogWriter(this.logLogger,
+                    this.logService.getAsyncQueueCapacity(), ASYNC_BATCH_SIZE,
+                    this.logService.isAsyncBlocking());
+            this.logWriter.start();
+        }
+
+        if ((this.logService != null) && this.logService.isIdentityCheck()
+                && (this.identResolver == null)) {
+            this.identResolver = new IdentResolver(this.logLogger);
+            this.identResolver.start();
+        }
+
+        super.start();
+    }
+
+    // [ifndef gae] method
+    /**
+     * Stops the filter, the IDENT resolver and the asynchronous log writer,
+     * after writing the pending log entries.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+
+        if (this.identResolver != null) {
+            this.identResolver.stop();
+            this.identResolver = null;
+        }
+
+        if (this.logWriter != null) {
+            this.logWriter.stop();
+            this.logWriter = null;
+        }
+    }
+
 }
@@ -62,6 +62,74 @@ import org.restlet.service.MetadataService;
  */
 public class AnnotationInfo {
 
+    // [ifndef gwt] member
+    /**
+     * Request and response variants computed for a given pair of metadata and
+     * converter services.
+     */
+    private static final class ResolvedVariants {
+
+        /** The converter service used to compute the variants. */
+        private final org.restlet.service.ConverterService converterService;
+
+        /** The metadata service used to compute the variants. */
+        private final MetadataService metadataService;
+
+        /** The request variants or null. */
+        private final List<Variant> requestVariants;
+
+        /** The response variants or null. */
+        private final List<Variant> responseVariants;
+
+        /**
+         * Constructor.
+         * 
+         * @param metadataService
+         *            The metadata service used.
+         * @param converterService
+         *            The converter service used.
+         * @param requestVariants
+         *            The request variants or null.
+         * @param responseVariants
+         *            The response variants or null.
+         */
+        private ResolvedVariants(MetadataService metadataService,
+                org.restlet.service.ConverterService converterService,
+                List<Variant> requestVariants, List<Variant> responseVariants) {
+            this.metadataService = metadataService;
+            this.converterService = converterService;
+            this.requestVariants = requestVariants;
+            this.responseVariants = responseVariants;
+        }
+
+        /**
+         * Indicates if the variants were computed for the given services.
+         * 
+         * @param metadataService
+         *            The metadata service.
+         * @param converterService
+         *            The converter service.
+         * @return True if the variants were computed for the given services.
+         */
+        private boolean matches(MetadataService metadataService,
+                org.restlet.service.ConverterService converterService) {
+            return (this.metadataService == metadataService)
+                    && (this.converterService == converterService);
+        }
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns a modifiable copy of a cached list of variants.
+     * 
+     * @param variants
+     *            The cached list of variants or null.
+     * @return A modifiable copy or null.
+     */
+    private static List<Variant> copy(List<Variant> variants) {
+        return (variants == null) ? null : new ArrayList<Variant>(variants);
+    }
+
     /**
      * Returns the actual type for a given generic type name.
      * 
@@ -164,12 +232,25 @@ public class AnnotationInfo {
     /** The upper implementation of the annotated Java method. */
     private final java.lang.reflect.Method javaMethodImpl;
 
+    /** The resolved input types of the Java method, lazily computed. */
+    private volatile Class<?>[] javaInputTypes;
+
+    /** The resolved output type of the Java method, lazily computed. */
+    private volatile Class<?> javaOutputType;
+
     /** The output part of the annotation value. */
     private final String output;
 
     /** The optional query part of the annotation value. */
     private final String query;
 
+    /** The parsed query part of the annotation value, lazily computed. */
+    private volatile Form queryParams;
+
+    // [ifndef gwt] member
+    /** The variants computed for the last services used. */
+    private volatile ResolvedVariants resolvedVariants;
+
     /** The class that hosts the annotated Java method. */
     private final Class<?> resourceClass;
 
@@ -346,19 +427,26 @@ public class AnnotationInfo {
     }
 
     /**
-     * Returns the input types of the Java method.
+     * Returns the input types of the Java method. The generic types are only
+     * resolved on the first call.
      * 
      * @return The input types of the Java method.
      */
     public Class<?>[] getJavaInputTypes() {
-        int count = getJavaMethod().getParameterTypes().length;
-        Class<?>[] classes = new Class[count];
+        Class<?>[] classes = this.javaInputTypes;
+
+        if (classes == null) {
+            int count = getJavaMethod().getParameterTypes().length;
+            classes = new Class[count];
+
+            for (int i = 0; i < count; i++) {
+                classes[i] = getJavaInputType(i);
+            }
 
-        for (int i = 0; i < count; i++) {
-            classes[i] = getJavaInputType(i);
+            this.javaInputTypes = classes;
         }
 
-        return classes;
+        return classes.clone();
     }
 
     /**
@@ -371,13 +459,21 @@ public class AnnotationInfo {
     }
 
     /**
-     * Returns the output type of the Java method.
+     * Returns the output type of the Java method. The generic type is only
+     * resolved on the first call.
      * 
      * @return The output type of the Java method.
      */
     public Class<?> getJavaOutputType() {
-        return getJavaActualType(javaMethodImpl.getReturnType(),
-                javaMethodImpl.getGenericReturnType());
+        Class<?> result = this.javaOutputType;
+
+        if (result == null) {
+            result = getJavaActualType(javaMethodImpl.getReturnType(),
+                    javaMethodImpl.getGenericReturnType());
+            this.javaOutputType = result;
+        }
+
+        return result;
     }
 
     /**
@@ -400,15 +496,35 @@ public class AnnotationInfo {
 
     // [ifndef gwt] method
     /**
-     * Returns a list of request variants based on the annotation value.
+     * Returns a list of request variants based on the annotation value. The
+     * variants are computed once for a given pair of services.
      * 
      * @param metadataService
      *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
      * @return A list of request variants.
      */
-    @SuppressWarnings("unchecked")
     public List<Variant> getRequestVariants(MetadataService metadataService,
             org.restlet.service.ConverterService converterService) {
+        return copy(getResolvedVariants(metadataService, converterService)
+                .requestVariants);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Computes the list of request variants based on the annotation value.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return A list of request variants.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Variant> computeRequestVariants(
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService) {
         List<Variant> result = null;
         Class<?>[] classes = getJavaInputTypes();
 
@@ -427,6 +543,35 @@ public class AnnotationInfo {
         return result;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the request and response variants computed for the given
+     * services. They are computed again only when different service instances
+     * are given, so changes made to the services after the first call are not
+     * reflected.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The request and response variants.
+     */
+    private ResolvedVariants getResolvedVariants(
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService) {
+        ResolvedVariants result = this.resolvedVariants;
+
+        if ((result == null)
+                || !result.matches(metadataService, converterService)) {
+            result = new ResolvedVariants(metadataService, converterService,
+                    computeRequestVariants(metadataService, converterService),
+                    computeResponseVariants(metadataService, converterService));
+            this.resolvedVariants = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the resource interface value.
      * 
@@ -438,7 +583,8 @@ public class AnnotationInfo {
 
     // [ifndef gwt] method
     /**
-     * Returns a list of response variants based on the annotation value.
+     * Returns a list of response variants based on the annotation value. The
+     * variants are computed once for a given pair of services.
      * 
      * @param metadataService
      *            The metadata service to use.
@@ -446,9 +592,26 @@ public class AnnotationInfo {
      *            The converter service to use.
      * @return A list of response variants.
      */
-    @SuppressWarnings("unchecked")
     public List<Variant> getResponseVariants(MetadataService metadataService,
             org.restlet.service.ConverterService converterService) {
+        return copy(getResolvedVariants(metadataService, converterService)
+                .responseVariants);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Computes the list of response variants based on the annotation value.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return A list of response variants.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Variant> computeResponseVariants(
+            MetadataService metadataService,
+            org.restlet.service.ConverterService converterService) {
         List<Variant> result = null;
 
         if ((getJavaOutputType() != null)
@@ -581,7 +744,12 @@ public class AnnotationInfo {
 
         // Verify query parameters
         if (getQuery() != null) {
-            Form requiredParams = new Form(getQuery());
+            Form requiredParams = this.queryParams;
+
+            if (requiredParams == null) {
+                requiredParams = new Form(getQuery());
+                this.queryParams = requiredParams;
+            }
 
             for (Iterator<Parameter> iter = requiredParams.iterator(); iter
                     .hasNext() && result;) {
@@ -623,8 +791,8 @@ public class AnnotationInfo {
         boolean result = true;
 
         if ((requestEntity != null) && requestEntity.isAvailable()) {
-            List<Variant> requestVariants = getRequestVariants(metadataService,
-                    converterService);
+            List<Variant> requestVariants = getResolvedVariants(
+                    metadataService, converterService).requestVariants;
 
             if ((requestVariants != null) && !requestVariants.isEmpty()) {
                 // Check that the compatibility
@@ -85,8 +85,15 @@ public class VariantInfo extends Variant {
     public VariantInfo(Variant variant, AnnotationInfo annotationInfo) {
         this(variant.getMediaType(), annotationInfo);
         setCharacterSet(variant.getCharacterSet());
-        setEncodings(variant.getEncodings());
-        setLanguages(variant.getLanguages());
+
+        // Copy the lists as the given variant might be shared
+        if (!variant.getEncodings().isEmpty()) {
+            getEncodings().addAll(variant.getEncodings());
+        }
+
+        if (!variant.getLanguages().isEmpty()) {
+            getLanguages().addAll(variant.getLanguages());
+        }
     }
 
     /**
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2005-2012 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+
+package org.restlet.engine.util;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Reference;
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+
+/**
+ * Bounded cache of templates parsed from representations, used by the template
+ * extensions. A cached template is reused as long as the location reference,
+ * tag and modification date of the template representation match the ones of
+ * the representation it was parsed from. Templates of representations without
+ * location reference or without tag and modification date aren't cached. The
+ * least recently used templates are removed when the maximum size is
+ * exceeded.
+ * 
+ * @author Jerome Louvel
+ * @param <T>
+ *            The type of the parsed templates.
+ */
+public class TemplateCache<T> {
+
+    /**
+     * Template parsed from a representation and its validators.
+     * 
+     * @param <T>
+     *            The type of the parsed template.
+     */
+    private static class CacheEntry<T> {
+
+        /** The modification date of the template representation. */
+        private final Date modificationDate;
+
+        /** The tag of the template representation. */
+        private final Tag tag;
+
+        /** The parsed template. */
+        private final T template;
+
+        /**
+         * Constructor.
+         * 
+         * @param template
+         *            The parsed template.
+         * @param templateRepresentation
+         *            The template representation.
+         */
+        public CacheEntry(T template, Representation templateRepresentation) {
+            this.template = template;
+            this.tag = templateRepresentation.getTag();
+            this.modificationDate = templateRepresentation
+                    .getModificationDate();
+        }
+
+        /**
+         * Indicates if the template was parsed from a representation with the
+         * same validators as the given one.
+         * 
+         * @param templateRepresentation
+         *            The template representation.
+         * @return True if the cached template is still valid.
+         */
+        public boolean isValid(Representation templateRepresentation) {
+            return isSame(this.tag, templateRepresentation.getTag())
+                    && isSame(this.modificationDate,
+                            templateRepresentation.getModificationDate());
+        }
+
+        /**
+         * Indicates if two validators are identical.
+         * 
+         * @param validator1
+         *            The first validator.
+         * @param validator2
+         *            The second validator.
+         * @return True if both validators are null or equal.
+         */
+        private boolean isSame(Object validator1, Object validator2) {
+            return (validator1 == null) ? (validator2 == null) : validator1
+                    .equals(validator2);
+        }
+    }
+
+    /**
+     * Cache key made of a scope, a template reference and a character set.
+     */
+    private static class Key {
+
+        /** The character set of the template representation. */
+        private final CharacterSet characterSet;
+
+        /** The location reference of the template representation. */
+        private final Reference reference;
+
+        /** The parsing scope, compared by identity. */
+        private final Object scope;
+
+        /**
+         * Constructor.
+         * 
+         * @param scope
+         *            The parsing scope or null.
+         * @param templateRepresentation
+         *            The template representation.
+         */
+        public Key(Object scope, Representation templateRepresentation) {
+            this.scope = scope;
+            this.reference = templateRepresentation.getLocationRef();
+            this.characterSet = templateRepresentation.getCharacterSet();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            boolean result = (object == this);
+
+            if (!result && (object instanceof Key)) {
+                Key key = (Key) object;
+                result = (this.scope == key.scope)
+                        && this.reference.equals(key.reference)
+                        && ((this.characterSet == null) ? (key.characterSet == null)
+                                : this.characterSet.equals(key.characterSet));
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * System.identityHashCode(this.scope))
+                    + this.reference.hashCode();
+        }
+    }
+
+    /** The default maximum number of cached templates. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /** The cached templates, in access order. */
+    private final Map<Key, CacheEntry<T>> entries;
+
+    /** The maximum number of cached templates. */
+    private volatile int maxSize;
+
+    /**
+     * Constructor.
+     */
+    public TemplateCache() {
+        this.maxSize = DEFAULT_MAX_SIZE;
+        this.entries = new LinkedHashMap<Key, CacheEntry<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, CacheEntry<T>> eldest) {
+                return size() > getMaxSize();
+            }
+        };
+    }
+
+    /**
+     * Removes all the cached templates.
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Returns the template cached for a representation and a parsing scope, if
+     * it is still valid. In this case, the template representation is released
+     * without being read.
+     * 
+     * @param scope
+     *            The parsing scope, such as the template engine configuration,
+     *            or null.
+     * @param templateRepresentation
+     *            The template representation.
+     * @return The cached template or null.
+     */
+    public T get(Object scope, Representation templateRepresentation) {
+        T result = null;
+
+        if (isCacheable(templateRepresentation)) {
+            CacheEntry<T> entry;
+
+            synchronized (this.entries) {
+                entry = this.entries.get(new Key(scope, templateRepresentation));
+            }
+
+            if ((entry != null) && entry.isValid(templateRepresentation)) {
+                result = entry.template;
+                templateRepresentation.release();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of cached templates. Default value is
+     * {@link #DEFAULT_MAX_SIZE}.
+     * 
+     * @return The maximum number of cached templates.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Indicates if the template parsed from a representation can be cached,
+     * i.e. if the representation has a location reference and a tag or a
+     * modification date.
+     * 
+     * @param templateRepresentation
+     *            The template representation.
+     * @return True if the template can be cached.
+     */
+    public boolean isCacheable(Representation templateRepresentation) {
+        return (templateRepresentation != null)
+                && (templateRepresentation.getLocationRef() != null)
+                && ((templateRepresentation.getTag() != null) || (templateRepresentation
+                        .getModificationDate() != null));
+    }
+
+    /**
+     * Caches the template parsed from a representation for a parsing scope.
+     * Does nothing if the template is null or if it can't be cached.
+     * 
+     * @param scope
+     *            The parsing scope, such as the template engine configuration,
+     *            or null.
+     * @param templateRepresentation
+     *            The template representation.
+     * @param template
+     *            The parsed template.
+     */
+    public void put(Object scope, Representation templateRepresentation,
+            T template) {
+        if ((template != null) && isCacheable(templateRepresentation)) {
+            synchronized (this.entries) {
+                this.entries.put(new Key(scope, templateRepresentation),
+                        new CacheEntry<T>(template, templateRepresentation));
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached templates.
+     * 
+     * @param maxSize
+     *            The maximum number of cached templates.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+}
@@ -65,6 +65,11 @@ import org.restlet.representation.Variant;
  * server) is used to select the best representation of a resource based on the
  * available variants and on the client capabilities and preferences.<br>
  * <br>
+ * Precompressed files such as "site.css.gz" can be sent in place of
+ * "site.css" to clients accepting their encoding, by enabling the
+ * {@link org.restlet.service.EncoderService} of the parent application and its
+ * "servingPrecompressed" property.<br>
+ * <br>
  * The directory can be used in read-only or modifiable mode. In the latter
  * case, you just need to set the "modifiable" property to true. The currently
  * supported methods are PUT and DELETE.<br>
@@ -472,36 +472,30 @@ public abstract class ServerResource extends UniformResource {
         Object resultObject = null;
         try {
             if (parameterTypes.length > 0) {
-                List<Object> parameters = new ArrayList<Object>();
-                Object parameter = null;
+                Object[] parameters = new Object[parameterTypes.length];
+                Representation entity = getRequestEntity();
+
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    Class<?> parameterType = parameterTypes[i];
 
-                for (Class<?> parameterType : parameterTypes) {
                     if (Variant.class.equals(parameterType)) {
-                        parameters.add(variant);
-                    } else {
-                        if (getRequestEntity() != null
-                                && getRequestEntity().isAvailable()
-                                && getRequestEntity().getSize() != 0) {
-                            // Assume there is content to be read.
-                            // NB: it does not handle the case where the size is
-                            // unknown, but there is no content.
-                            parameter = toObject(getRequestEntity(),
-                                    parameterType);
-
-                            if (parameter == null) {
-                                throw new ResourceException(
-                                        Status.CLIENT_ERROR_UNSUPPORTED_MEDIA_TYPE);
-                            }
-                        } else {
-                            parameter = null;
+                        parameters[i] = variant;
+                    } else if ((entity != null) && entity.isAvailable()
+                            && (entity.getSize() != 0)) {
+                        // Assume there is content to be read.
+                        // NB: it does not handle the case where the size is
+                        // unknown, but there is no content.
+                        parameters[i] = toObject(entity, parameterType);
+
+                        if (parameters[i] == null) {
+                            throw new ResourceException(
+                                    Status.CLIENT_ERROR_UNSUPPORTED_MEDIA_TYPE);
                         }
-
-                        parameters.add(parameter);
                     }
                 }
 
                 resultObject = annotationInfo.getJavaMethod().invoke(this,
-                        parameters.toArray());
+                        parameters);
             } else {
                 resultObject = annotationInfo.getJavaMethod().invoke(this);
             }
@@ -33,10 +33,17 @@
 
 package org.restlet.service;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
 import org.restlet.Context;
 import org.restlet.data.Encoding;
@@ -46,7 +53,22 @@ import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
 /**
- * Application service automatically encoding or compressing request entities.
+ * Application service automatically encoding or compressing request entities.<br>
+ * <br>
+ * When serving static files, for example via a
+ * {@link org.restlet.resource.Directory}, compressing the same file again for
+ * each call can be avoided. If the "servingPrecompressed" property is set, a
+ * sibling file named after the original file plus the extension of an encoding
+ * accepted by the client (for example "site.css.gz" for "site.css") is sent
+ * instead. If a "cacheDirectory" is set, the compressed variants of the files
+ * are also lazily generated and kept there until the original file is
+ * modified.<br>
+ * <br>
+ * The compression level and strategy can be tuned per media type. Media types
+ * whose observed compression ratio is poor are not dynamically compressed
+ * anymore, except for one representation out of {@link #PROBE_INTERVAL} per
+ * media type which updates the observed ratio. Precompressed and cached files
+ * are still served for these media types.
  * 
  * @author Jerome Louvel
  */
@@ -55,9 +77,52 @@ public class EncoderService extends Service {
     /** Indicates if the encoding should always occur, regardless of the size. */
     public static final int ANY_SIZE = -1;
 
+    /**
+     * The default minimum ratio of bytes saved by compression, for a media type
+     * to be compressed.
+     */
+    public static final float DEFAULT_MINIMUM_BENEFIT = 0.05F;
+
     /** Indicates if the default minimum size for encoding to occur. */
     public static final int DEFAULT_MINIMUM_SIZE = 1000;
 
+    /**
+     * The number of candidate representations of a poorly compressible media
+     * type between two compressions updating the observed ratio.
+     */
+    public static final int PROBE_INTERVAL = 32;
+
+    /**
+     * Returns the value associated to the most specific media type including
+     * the given one.
+     * 
+     * @param values
+     *            The values per media type.
+     * @param mediaType
+     *            The media type to look up.
+     * @param defaultValue
+     *            The value to return if no media type matches.
+     * @return The value associated to the best media type.
+     */
+    private static int getBestValue(Map<MediaType, Integer> values,
+            MediaType mediaType, int defaultValue) {
+        int result = defaultValue;
+        MediaType bestMediaType = null;
+
+        if (mediaType != null) {
+            for (Map.Entry<MediaType, Integer> entry : values.entrySet()) {
+                if (entry.getKey().includes(mediaType)
+                        && ((bestMediaType == null) || bestMediaType
+                                .includes(entry.getKey()))) {
+                    bestMediaType = entry.getKey();
+                    result = entry.getValue().intValue();
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the list of default encoded media types. This can be overridden
      * by subclasses. By default, all media types are encoded (except those
@@ -71,6 +136,20 @@ public class EncoderService extends Service {
         return result;
     }
 
+    /**
+     * Returns the map of default extensions of precompressed files, per
+     * encoding. This can be overridden by subclasses. By default, "br" is
+     * associated to the "br" encoding and "gz" to {@link Encoding#GZIP}.
+     * 
+     * @return The map of default extensions of precompressed files.
+     */
+    public static Map<Encoding, String> getDefaultPrecompressedExtensions() {
+        final Map<Encoding, String> result = new LinkedHashMap<Encoding, String>();
+        result.put(Encoding.valueOf("br"), "br");
+        result.put(Encoding.GZIP, "gz");
+        return result;
+    }
+
     /**
      * Returns the list of default ignored media types. This can be overridden
      * by subclasses. By default, all archive, audio, image and video media
@@ -93,16 +172,57 @@ public class EncoderService extends Service {
      */
     private volatile List<MediaType> acceptedMediaTypes;
 
+    /**
+     * The directory where compressed variants of files are cached.
+     */
+    private volatile File cacheDirectory;
+
+    /**
+     * The compression levels per media type.
+     */
+    private volatile Map<MediaType, Integer> compressionLevels;
+
+    /**
+     * The observed compression ratios per media type name.
+     */
+    private final ConcurrentMap<String, Float> compressionRatios;
+
+    /**
+     * The compression strategies per media type.
+     */
+    private volatile Map<MediaType, Integer> compressionStrategies;
+
     /**
      * The media types that should be ignored.
      */
     private volatile List<MediaType> ignoredMediaTypes;
 
+    /**
+     * The minimum ratio of bytes saved by compression.
+     */
+    private volatile float minimumBenefit;
+
     /**
      * The minimal size necessary for encoding.
      */
     private volatile long mininumSize;
 
+    /**
+     * The extensions of precompressed files, per encoding.
+     */
+    private volatile Map<Encoding, String> precompressedExtensions;
+
+    /**
+     * The number of candidate representations per poorly compressible media
+     * type name.
+     */
+    private final ConcurrentMap<String, AtomicInteger> probeCounters;
+
+    /**
+     * Indicates if precompressed sibling files should be served.
+     */
+    private volatile boolean servingPrecompressed;
+
     /**
      * Constructor.
      */
@@ -121,6 +241,14 @@ public class EncoderService extends Service {
         this.mininumSize = DEFAULT_MINIMUM_SIZE;
         this.acceptedMediaTypes = getDefaultAcceptedMediaTypes();
         this.ignoredMediaTypes = getDefaultIgnoredMediaTypes();
+        this.precompressedExtensions = getDefaultPrecompressedExtensions();
+        this.servingPrecompressed = false;
+        this.cacheDirectory = null;
+        this.compressionLevels = new ConcurrentHashMap<MediaType, Integer>();
+        this.compressionRatios = new ConcurrentHashMap<String, Float>();
+        this.compressionStrategies = new ConcurrentHashMap<MediaType, Integer>();
+        this.minimumBenefit = DEFAULT_MINIMUM_BENEFIT;
+        this.probeCounters = new ConcurrentHashMap<String, AtomicInteger>();
     }
 
     /**
@@ -201,6 +329,83 @@ public class EncoderService extends Service {
         return this.acceptedMediaTypes;
     }
 
+    /**
+     * Returns the directory where compressed variants of files are lazily
+     * generated and cached, keyed by the path, the modification date in
+     * milliseconds and the size of the original files. A new variant is
+     * generated when the modification date or the size of its original file
+     * changes. Returns null by default, meaning that no caching occurs.
+     * 
+     * @return The directory where compressed variants of files are cached.
+     */
+    public File getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    /**
+     * Returns the compression level to use for a given media type. The level
+     * associated to the most specific media type including the given one is
+     * returned, {@link Deflater#DEFAULT_COMPRESSION} otherwise.
+     * 
+     * @param mediaType
+     *            The media type of the representation to compress.
+     * @return The compression level, from 0 to 9, or
+     *         {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public int getCompressionLevel(MediaType mediaType) {
+        return getBestValue(getCompressionLevels(), mediaType,
+                Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Returns the modifiable map of compression levels per media type. For
+     * example, associate level 1 to {@link MediaType#ALL} and level 9 to
+     * {@link MediaType#TEXT_CSS} to favor speed except for static style
+     * sheets.
+     * 
+     * @return The map of compression levels per media type.
+     */
+    public Map<MediaType, Integer> getCompressionLevels() {
+        return this.compressionLevels;
+    }
+
+    /**
+     * Returns the observed compression ratio for a given media type, that is
+     * to say the compressed size divided by the original size.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @return The observed compression ratio or null if unknown.
+     */
+    public Float getCompressionRatio(MediaType mediaType) {
+        return (mediaType == null) ? null : this.compressionRatios
+                .get(mediaType.getName());
+    }
+
+    /**
+     * Returns the compression strategy to use for a given media type. The
+     * strategy associated to the most specific media type including the given
+     * one is returned, {@link Deflater#DEFAULT_STRATEGY} otherwise.
+     * 
+     * @param mediaType
+     *            The media type of the representation to compress.
+     * @return The compression strategy, such as
+     *         {@link Deflater#DEFAULT_STRATEGY} or {@link Deflater#FILTERED}.
+     */
+    public int getCompressionStrategy(MediaType mediaType) {
+        return getBestValue(getCompressionStrategies(), mediaType,
+                Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * Returns the modifiable map of compression strategies per media type.
+     * 
+     * @return The map of compression strategies per media type.
+     */
+    public Map<MediaType, Integer> getCompressionStrategies() {
+        return this.compressionStrategies;
+    }
+
     /**
      * Returns the media types that should be ignored.
      * 
@@ -210,6 +415,18 @@ public class EncoderService extends Service {
         return this.ignoredMediaTypes;
     }
 
+    /**
+     * Returns the minimum ratio of bytes saved by compression, for a media
+     * type to be compressed. For example, 0.05 requires compressed
+     * representations to be at least 5% smaller than the original ones. Zero
+     * disables this test.
+     * 
+     * @return The minimum ratio of bytes saved by compression.
+     */
+    public float getMinimumBenefit() {
+        return this.minimumBenefit;
+    }
+
     /**
      * Returns the minimum size a representation must have before compression is
      * done.
@@ -221,6 +438,109 @@ public class EncoderService extends Service {
         return this.mininumSize;
     }
 
+    /**
+     * Returns the modifiable map of extensions of precompressed files, per
+     * encoding. The iteration order is used when several encodings are equally
+     * preferred by the client.
+     * 
+     * @return The map of extensions of precompressed files.
+     */
+    public Map<Encoding, String> getPrecompressedExtensions() {
+        return this.precompressedExtensions;
+    }
+
+    /**
+     * Indicates if dynamically compressing a given media type is beneficial,
+     * based on the compression ratio observed so far and on the minimum
+     * benefit. Each poorly compressible media type is still compressed once
+     * every {@link #PROBE_INTERVAL} calls for this media type in order to
+     * update its observed ratio. This doesn't apply to the precompressed or
+     * cached files, which are served regardless of the ratio.
+     * 
+     * @param mediaType
+     *            The media type to test.
+     * @return True if compressing the media type is beneficial.
+     */
+    public boolean isBeneficial(MediaType mediaType) {
+        boolean result = true;
+        Float ratio = getCompressionRatio(mediaType);
+
+        if ((ratio != null) && (getMinimumBenefit() > 0)
+                && ((1F - ratio.floatValue()) < getMinimumBenefit())) {
+            AtomicInteger probeCounter = this.probeCounters.get(mediaType
+                    .getName());
+
+            if (probeCounter == null) {
+                probeCounter = new AtomicInteger();
+                AtomicInteger current = this.probeCounters.putIfAbsent(
+                        mediaType.getName(), probeCounter);
+
+                if (current != null) {
+                    probeCounter = current;
+                }
+            }
+
+            result = (probeCounter.incrementAndGet() % PROBE_INTERVAL) == 0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if precompressed sibling files should be served instead of
+     * compressing the original files again. False by default.
+     * 
+     * @return True if precompressed sibling files should be served.
+     * @see #getPrecompressedExtensions()
+     */
+    public boolean isServingPrecompressed() {
+        return this.servingPrecompressed;
+    }
+
+    /**
+     * Sets the directory where compressed variants of files are lazily
+     * generated and cached.
+     * 
+     * @param cacheDirectory
+     *            The directory where compressed variants of files are cached
+     *            or null to disable caching.
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Sets the map of compression levels per media type.
+     * 
+     * @param compressionLevels
+     *            The map of compression levels per media type.
+     */
+    public void setCompressionLevels(Map<MediaType, Integer> compressionLevels) {
+        this.compressionLevels = compressionLevels;
+    }
+
+    /**
+     * Sets the map of compression strategies per media type.
+     * 
+     * @param compressionStrategies
+     *            The map of compression strategies per media type.
+     */
+    public void setCompressionStrategies(
+            Map<MediaType, Integer> compressionStrategies) {
+        this.compressionStrategies = compressionStrategies;
+    }
+
+    /**
+     * Sets the minimum ratio of bytes saved by compression, for a media type to
+     * be compressed.
+     * 
+     * @param minimumBenefit
+     *            The minimum ratio of bytes saved by compression.
+     */
+    public void setMinimumBenefit(float minimumBenefit) {
+        this.minimumBenefit = minimumBenefit;
+    }
+
     /**
      * Sets the minimum size a representation must have before compression is
      * done.
@@ -233,4 +553,56 @@ public class EncoderService extends Service {
         this.mininumSize = mininumSize;
     }
 
+    /**
+     * Sets the map of extensions of precompressed files, per encoding.
+     * 
+     * @param precompressedExtensions
+     *            The map of extensions of precompressed files.
+     */
+    public void setPrecompressedExtensions(
+            Map<Encoding, String> precompressedExtensions) {
+        this.precompressedExtensions = precompressedExtensions;
+    }
+
+    /**
+     * Indicates if precompressed sibling files should be served instead of
+     * compressing the original files again.
+     * 
+     * @param servingPrecompressed
+     *            True if precompressed sibling files should be served.
+     */
+    public void setServingPrecompressed(boolean servingPrecompressed) {
+        this.servingPrecompressed = servingPrecompressed;
+    }
+
+    /**
+     * Updates the compression ratio observed for a media type, after a
+     * representation has been compressed. Representations smaller than the
+     * minimum size are not taken into account.
+     * 
+     * @param mediaType
+     *            The media type of the compressed representation.
+     * @param originalSize
+     *            The number of bytes before compression.
+     * @param encodedSize
+     *            The number of bytes after compression.
+     */
+    public void updateCompressionRatio(MediaType mediaType, long originalSize,
+            long encodedSize) {
+        if ((mediaType != null) && (originalSize > 0)
+                && (originalSize >= getMinimumSize())) {
+            float ratio = (float) encodedSize / originalSize;
+            Float previousRatio = this.compressionRatios.get(mediaType
+                    .getName());
+
+            if (previousRatio != null) {
+                // Moving average favoring the recent representations
+                ratio = previousRatio.floatValue()
+                        + ((ratio - previousRatio.floatValue()) / 8F);
+            }
+
+            this.compressionRatios.put(mediaType.getName(), ratio);
+        }
+    }
+
 }
@@ -33,6 +33,8 @@
 
 package org.restlet.service;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.logging.LogManager;
 
 import org.restlet.Context;
@@ -80,6 +82,12 @@ import org.restlet.routing.Template;
  * <br>
  * For custom access log format, see the syntax to use and the list of available
  * variable names in {@link org.restlet.routing.Template}. <br>
+ * <br>
+ * When the asynchronous mode is enabled, log entries are still formatted by
+ * the threads handling the calls, but they are then handed to a bounded ring
+ * buffer and written to the access logger by a background thread. This removes
+ * the contention on the log handlers, at the cost of possibly dropping entries
+ * when the buffer is full, unless the blocking mode is enabled.<br>
  * 
  * @see <a href="http://wiki.restlet.org/docs_2.1/201-restlet.html">User Guide -
  *      Access logging</a>
@@ -89,6 +97,43 @@ import org.restlet.routing.Template;
  */
 public class LogService extends Service {
 
+    /**
+     * Date and time formatted for a given second.
+     */
+    private static final class FormattedDateTime {
+        /** The formatted date and time. */
+        private final String value;
+
+        /** The number of seconds since January 1, 1970, 00:00:00 GMT. */
+        private final long second;
+
+        /**
+         * Constructor.
+         * 
+         * @param second
+         *            The number of seconds since January 1, 1970, 00:00:00
+         *            GMT.
+         * @param value
+         *            The formatted date and time.
+         */
+        private FormattedDateTime(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /** Indicates if callers wait when the asynchronous buffer is full. */
+    private volatile boolean asyncBlocking;
+
+    /** The capacity of the asynchronous buffer. */
+    private volatile int asyncQueueCapacity;
+
+    /** Indicates if log entries are written asynchronously. */
+    private volatile boolean asynchronous;
+
+    /** The date and time of the last formatted log entry. */
+    private volatile FormattedDateTime lastDateTime;
+
     /** Indicates if the debugging mode is enabled. */
     private volatile boolean debugging;
 
@@ -130,6 +175,9 @@ public class LogService extends Service {
         this.responseLogFormat = null;
         this.logPropertiesRef = null;
         this.identityCheck = false;
+        this.asynchronous = false;
+        this.asyncBlocking = false;
+        this.asyncQueueCapacity = 8192;
     }
 
     @Override
@@ -137,6 +185,38 @@ public class LogService extends Service {
         return new LogFilter(context, this);
     }
 
+    /**
+     * Returns the capacity of the buffer holding the log entries not written
+     * yet, when the asynchronous mode is enabled. Default value is 8192.
+     * 
+     * @return The capacity of the asynchronous buffer.
+     */
+    public int getAsyncQueueCapacity() {
+        return this.asyncQueueCapacity;
+    }
+
+    /**
+     * Returns the date and time of a log entry, separated by a tab. The
+     * formatted value is shared by all the entries logged during the same
+     * second.
+     * 
+     * @param time
+     *            The time of the log entry.
+     * @return The formatted date and time.
+     */
+    private String getDateTime(long time) {
+        FormattedDateTime result = this.lastDateTime;
+        long second = time / 1000L;
+
+        if ((result == null) || (result.second != second)) {
+            result = new FormattedDateTime(second, new SimpleDateFormat(
+                    "yyyy-MM-dd'\t'HH:mm:ss").format(new Date(time)));
+            this.lastDateTime = result;
+        }
+
+        return result.value;
+    }
+
     /**
      * Format a log entry using the default IIS log format.
      * 
@@ -148,20 +228,14 @@ public class LogService extends Service {
      */
     protected String getDefaultResponseLogMessage(Response response,
             int duration) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(256);
         Request request = response.getRequest();
 
         if (isDebugging()) {
 
         } else {
-            long currentTime = System.currentTimeMillis();
-
-            // Append the date of the request
-            sb.append(String.format("%tF", currentTime));
-            sb.append('\t');
-
-            // Append the time of the request
-            sb.append(String.format("%tT", currentTime));
+            // Append the date and time of the request
+            sb.append(getDateTime(System.currentTimeMillis()));
             sb.append('\t');
 
             // Append the client IP address
@@ -172,10 +246,16 @@ public class LogService extends Service {
             // Append the user name (via IDENT protocol)
             if (isIdentityCheck()) {
                 // [ifndef gae]
-                org.restlet.engine.log.IdentClient ic = new org.restlet.engine.log.IdentClient(
-                        request.getClientInfo().getUpstreamAddress(), request
-                                .getClientInfo().getPort(), response
-                                .getServerInfo().getPort());
+                org.restlet.engine.log.IdentClient ic = (org.restlet.engine.log.IdentClient) request
+                        .getAttributes().get("org.restlet.ident");
+
+                if (ic == null) {
+                    ic = new org.restlet.engine.log.IdentClient(request
+                            .getClientInfo().getUpstreamAddress(), request
+                            .getClientInfo().getPort(), response
+                            .getServerInfo().getPort());
+                }
+
                 sb.append((ic.getUserIdentifier() == null) ? "-" : ic
                         .getUserIdentifier());
             } else if ((request.getChallengeResponse() != null)
@@ -347,6 +427,27 @@ public class LogService extends Service {
         return result;
     }
 
+    /**
+     * Indicates if callers wait for some space to be available when the
+     * asynchronous buffer is full. If false, the log entries are dropped
+     * instead. Default value is false.
+     * 
+     * @return True if callers wait when the asynchronous buffer is full.
+     */
+    public boolean isAsyncBlocking() {
+        return this.asyncBlocking;
+    }
+
+    /**
+     * Indicates if log entries are written asynchronously by a background
+     * thread. Default value is false.
+     * 
+     * @return True if log entries are written asynchronously.
+     */
+    public boolean isAsynchronous() {
+        return this.asynchronous;
+    }
+
     /**
      * Indicates if the debugging mode is enabled. False by default.
      * 
@@ -380,6 +481,40 @@ public class LogService extends Service {
                 .match(request.getResourceRef().getTargetRef().toString()) > 0;
     }
 
+    /**
+     * Indicates if callers wait for some space to be available when the
+     * asynchronous buffer is full. If false, the log entries are dropped
+     * instead.
+     * 
+     * @param asyncBlocking
+     *            True if callers wait when the asynchronous buffer is full.
+     */
+    public void setAsyncBlocking(boolean asyncBlocking) {
+        this.asyncBlocking = asyncBlocking;
+    }
+
+    /**
+     * Indicates if log entries are written asynchronously by a background
+     * thread.
+     * 
+     * @param asynchronous
+     *            True if log entries are written asynchronously.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * Sets the capacity of the buffer holding the log entries not written yet,
+     * when the asynchronous mode is enabled.
+     * 
+     * @param asyncQueueCapacity
+     *            The capacity of the asynchronous buffer.
+     */
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
     /**
      * Indicates if the debugging mode is enabled.
      * 
@@ -39,9 +39,9 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -57,6 +57,16 @@ import org.restlet.engine.io.WakeupListener;
  */
 public class SelectionRegistration {
 
+    /**
+     * The maximum number of checks of the unblocking signal before parking a
+     * blocked thread. Spinning is useless on a single processor.
+     */
+    private static final int MAX_SPINS = (Runtime.getRuntime()
+            .availableProcessors() > 1) ? 1024 : 0;
+
+    /** The minimum number of checks before parking a blocked thread. */
+    private static final int MIN_SPINS = MAX_SPINS / 64;
+
     /**
      * Returns the name of the given IO operation.
      * 
@@ -94,8 +104,8 @@ public class SelectionRegistration {
         return result.toString();
     }
 
-    /** The barrier used for blocking/unblocking support. */
-    private final CyclicBarrier barrier;
+    /** The thread currently blocked or null. */
+    private volatile Thread blockedThread;
 
     /** Indicates if that registration has been canceled. */
     private volatile boolean canceling;
@@ -118,6 +128,15 @@ public class SelectionRegistration {
     /** The active selection key. */
     private volatile SelectionKey selectionKey;
 
+    /**
+     * The number of checks of the unblocking signal before parking, adapted to
+     * the recent unblocking delays.
+     */
+    private volatile int spins;
+
+    /** Indicates if an unblocking signal is pending. */
+    private final AtomicBoolean unblocked;
+
     /** The wakeup listener that will be notified. */
     private volatile WakeupListener wakeupListener;
 
@@ -153,7 +172,9 @@ public class SelectionRegistration {
             WakeupListener wakeupListener) {
         this.canceling = false;
         this.selectableChannel = selectableChannel;
-        this.barrier = new CyclicBarrier(2);
+        this.blockedThread = null;
+        this.spins = MAX_SPINS;
+        this.unblocked = new AtomicBoolean(false);
         this.selectionListener = selectionListener;
         this.wakeupListener = wakeupListener;
         this.setInterestOperations(interestOperations);
@@ -176,35 +197,56 @@ public class SelectionRegistration {
      * @see #block()
      */
     public void block() throws IOException {
+        if (Context.getCurrentLogger().isLoggable(Level.FINEST)) {
+            Context.getCurrentLogger().log(
+                    Level.FINEST,
+                    "Calling thread about to block on the NIO selection registration. Timeout: "
+                            + TimeUnit.MILLISECONDS
+                                    .toMillis(IoUtils.TIMEOUT_MS)
+                            + " ms. Spins: " + this.spins);
+        }
+
+        getWakeupListener().onWokeup(this);
+        this.blockedThread = Thread.currentThread();
+
         try {
-            if (Context.getCurrentLogger().isLoggable(Level.FINEST)) {
-                Context.getCurrentLogger().log(
-                        Level.FINEST,
-                        "Calling thread about to block on the NIO selection registration. Timeout: "
-                                + TimeUnit.MILLISECONDS
-                                        .toMillis(IoUtils.TIMEOUT_MS)
-                                + " ms. Waiting: "
-                                + this.barrier.getNumberWaiting());
+            int spinsLeft = this.spins;
+            long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(IoUtils.TIMEOUT_MS);
+
+            // Briefly spin as the signal often comes quickly, then park
+            while (!this.unblocked.compareAndSet(true, false)) {
+                if (spinsLeft > 0) {
+                    spinsLeft--;
+                } else {
+                    long remaining = deadline - System.nanoTime();
+
+                    if (remaining <= 0) {
+                        Context.getCurrentLogger()
+                                .log(Level.WARNING,
+                                        "The thread blocked on the NIO selection registration has timed out");
+                        throw new IOException(
+                                "The thread blocked on the NIO selection registration has timed out.");
+                    }
+
+                    LockSupport.parkNanos(this, remaining);
+
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(
+                                "The thread blocked on the NIO selection registration was interrupted.");
+                    }
+                }
             }
 
-            getWakeupListener().onWokeup(this);
-            this.barrier.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (TimeoutException e) {
-            Context.getCurrentLogger()
-                    .log(Level.WARNING,
-                            "The thread blocked at the cyclic barrier has timed out",
-                            e);
-            IOException ioe = new IOException(
-                    "The thread blocked at the cyclic barrier has timed out.");
-            ioe.initCause(e);
-            throw ioe;
-        } catch (Exception e) {
-            Context.getCurrentLogger().log(Level.WARNING,
-                    "Unable to block the thread at the cyclic barrier", e);
-            IOException ioe = new IOException(
-                    "Unable to block the thread at the cyclic barrier.");
-            ioe.initCause(e);
-            throw ioe;
+            // Spin longer next time if the signal came while spinning
+            if (spinsLeft > 0) {
+                this.spins = Math.min(MAX_SPINS, this.spins * 2);
+            } else {
+                this.spins = Math.max(MIN_SPINS, this.spins / 2);
+            }
+        } finally {
+            this.blockedThread = null;
         }
     }
 
@@ -212,7 +254,7 @@ public class SelectionRegistration {
      * Clears the registration.
      */
     public void clear() {
-        this.barrier.reset();
+        this.unblocked.set(false);
         this.canceling = false;
         this.interestOperations = 0;
         this.previousInterest = 0;
@@ -467,24 +509,15 @@ public class SelectionRegistration {
         if (Context.getCurrentLogger().isLoggable(Level.FINEST)) {
             Context.getCurrentLogger().log(
                     Level.FINEST,
-                    "Calling thread about to unblock the NIO selection registration. Timeout: "
-                            + TimeUnit.MILLISECONDS
-                                    .toMillis(IoUtils.TIMEOUT_MS)
-                            + " ms. Waiting: "
-                            + this.barrier.getNumberWaiting());
+                    "Calling thread about to unblock the NIO selection registration. Blocked thread: "
+                            + this.blockedThread);
         }
 
-        try {
-            this.barrier.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-            Context.getCurrentLogger()
-                    .log(Level.WARNING,
-                            "Unable to unblock the waiting thread at the cyclic barrier",
-                            e);
-            IOException ioe = new IOException(
-                    "Unable to unblock the waiting thread at the cyclic barrier.");
-            ioe.initCause(e);
-            throw ioe;
+        this.unblocked.set(true);
+        Thread thread = this.blockedThread;
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
         }
     }
 